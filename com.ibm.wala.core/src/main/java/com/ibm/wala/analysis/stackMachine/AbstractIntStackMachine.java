@@ -121,7 +121,7 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
                 if (newExit.stateEquals(exit)) {
                   return NOT_CHANGED;
                 } else {
-                  exit.copyState(newExit);
+                  exit.takeState(newExit);
                   return CHANGED;
                 }
               }
@@ -157,7 +157,7 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
                 if (newExit.stateEquals(exit)) {
                   return NOT_CHANGED;
                 } else {
-                  exit.copyState(newExit);
+                  exit.takeState(newExit);
                   return CHANGED;
                 }
               }
@@ -309,7 +309,7 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
      * basic block.
      *
      * @param slot The stack slot to meet
-     * @param rhs The values to meet
+     * @param rhs The values to meet; the array is reused for the next slot, so copy it to keep it
      * @param bb The basic block at whose entry this meet occurs
      * @return The value result of the meet
      */
@@ -328,7 +328,7 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
      * block.
      *
      * @param n The number of the local
-     * @param rhs The values to meet
+     * @param rhs The values to meet; the array is reused for the next local, so copy it to keep it
      * @param bb The basic block at whose entry this meet occurs
      * @return The value of local n after the meet.
      */
@@ -427,8 +427,8 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
     }
 
     // now do the element-wise meet.
+    int[] R = new int[rhs.length];
     for (int i = 0; i < height; i++) {
-      int[] R = new int[rhs.length];
       for (int j = 0; j < R.length; j++) {
         MachineState m = rhs[j];
         if (m.stack == null || m.stack.length < i + 1) {
@@ -473,8 +473,8 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
     }
 
     // evaluate the element-wise meet over the locals.
+    int[] R = new int[rhs.length];
     for (int i = 0; i < nLocals; i++) {
-      int[] R = new int[rhs.length];
       for (int j = 0; j < rhs.length; j++) {
         R[j] = rhs[j].getLocal(i);
       }
@@ -704,6 +704,13 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
       stackHeight = other.stackHeight;
     }
 
+    /** Take over the arrays of other, which must not be used afterwards. */
+    void takeState(MachineState other) {
+      stack = other.stack;
+      locals = other.locals;
+      stackHeight = other.stackHeight;
+    }
+
     boolean stateEquals(MachineState exit) {
       if (stackHeight != exit.stackHeight) return false;
       if (locals == null) {
@@ -751,12 +758,13 @@ public abstract class AbstractIntStackMachine implements FixedPointConstants {
 
     /**
      * Compute the MachineState at the exit of a basic block, given a MachineState at the block's
-     * entry.
+     * entry. The result must be a new state, which the caller takes over.
      */
     public MachineState flow(MachineState entry, BasicBlock basicBlock);
 
     /**
      * Compute the MachineState at the end of an edge, given a MachineState at the edges's entry.
+     * The result must be a new state, which the caller takes over.
      */
     public MachineState flow(MachineState entry, BasicBlock from, BasicBlock to);
   }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.analysis.stackMachine;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.cfg.ShrikeCFG.BasicBlock;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.ILoadIndirectInstruction;
+import com.ibm.wala.shrikeBT.ILoadInstruction;
+import com.ibm.wala.shrikeBT.IStoreIndirectInstruction;
+import com.ibm.wala.shrikeBT.IStoreInstruction;
+import com.ibm.wala.util.intset.BitVector;
+
+/**
+ * The local variables of a bytecode method that are live at the entry of each basic block of its
+ * {@link ShrikeCFG}, i.e. that may be loaded before they are stored.
+ *
+ * <p>An exception may be thrown before the stores of a block, so everything live at the entry of a
+ * catch block is live at the entry of the blocks it covers.
+ */
+public final class LocalLiveness {
+
+  private final ShrikeCFG cfg;
+
+  /** live locals at the entry of each block, by block number */
+  private final BitVector[] liveIn;
+
+  /**
+   * @return the liveness of the locals of the method of cfg, or null if the method accesses locals
+   *     indirectly
+   */
+  public static LocalLiveness make(ShrikeCFG cfg) {
+    if (cfg == null) {
+      throw new IllegalArgumentException("null cfg");
+    }
+    for (IInstruction s : cfg.getInstructions()) {
+      if (s instanceof ILoadIndirectInstruction
+          || s instanceof IStoreIndirectInstruction
+          || (s instanceof ILoadInstruction && ((ILoadInstruction) s).isAddressOf())) {
+        return null;
+      }
+    }
+    return new LocalLiveness(cfg);
+  }
+
+  private LocalLiveness(ShrikeCFG cfg) {
+    this.cfg = cfg;
+    int n = cfg.getNumberOfNodes();
+    IInstruction[] instructions = cfg.getInstructions();
+    BitVector[] uses = new BitVector[n];
+    BitVector[] defs = new BitVector[n];
+    liveIn = new BitVector[n];
+    for (int b = 0; b < n; b++) {
+      BasicBlock bb = cfg.getNode(b);
+      BitVector use = new BitVector();
+      BitVector def = new BitVector();
+      for (int i = bb.getFirstInstructionIndex(); i <= bb.getLastInstructionIndex(); i++) {
+        IInstruction s = instructions[i];
+        if (s instanceof ILoadInstruction) {
+          int local = ((ILoadInstruction) s).getVarIndex();
+          if (!def.get(local)) {
+            use.set(local);
+          }
+        } else if (s instanceof IStoreInstruction) {
+          def.set(((IStoreInstruction) s).getVarIndex());
+        }
+      }
+      uses[b] = use;
+      defs[b] = def;
+      liveIn[b] = new BitVector(use);
+    }
+
+    // blocks are numbered mostly in bytecode order, so a backward sweep converges quickly
+    BitVector out = new BitVector();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int b = n - 1; b >= 0; b--) {
+        BasicBlock bb = cfg.getNode(b);
+        out.clearAll();
+        for (BasicBlock s : cfg.getNormalSuccessors(bb)) {
+          out.or(liveIn[s.getNumber()]);
+        }
+        out.andNot(defs[b]);
+        for (BasicBlock s : cfg.getExceptionalSuccessors(bb)) {
+          out.or(liveIn[s.getNumber()]);
+        }
+        out.or(uses[b]);
+        // live sets only grow
+        if (!out.isSubset(liveIn[b])) {
+          liveIn[b].or(out);
+          changed = true;
+        }
+      }
+    }
+  }
+
+  /** @return true if the local may be loaded after the entry of bb, before it is stored */
+  public boolean isLiveAtEntry(BasicBlock bb, int local) {
+    return liveIn[cfg.getNumber(bb)].get(local);
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+
+package com.ibm.wala.cfg.exc.intra;
+
+import com.ibm.wala.cfg.exc.intra.NullPointerState.State;
+import com.ibm.wala.dataflow.ssa.ISparseDataflowProblem;
+import com.ibm.wala.dataflow.ssa.SparseDataflowSolver;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAAbstractThrowInstruction;
+import com.ibm.wala.ssa.SSAArrayLengthInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAConditionalBranchInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAGetCaughtExceptionInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSALoadMetadataInstruction;
+import com.ibm.wala.ssa.SSAMonitorInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SSAPiInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import java.util.function.IntFunction;
+
+/**
+ * Sparse, flow-insensitive variant of the intraprocedural null pointer analysis.
+ *
+ * <p>Where {@link IntraprocNullPointerAnalysis} keeps a {@link NullPointerState} for every node of
+ * the (exploded) control flow graph, this analysis computes a single {@link State} per SSA value
+ * with a {@link SparseDataflowSolver}. Branch conditions are taken into account through pi
+ * instructions, so the IR must be built with a {@link com.ibm.wala.ssa.NullTestPiPolicy} (or a
+ * policy that includes it) to get the same precision on null tests.
+ *
+ * <p>Since a dereference does not define a new SSA value, the fact that a value is not null after
+ * it has been dereferenced once is not seen by this analysis. It is therefore less precise than the
+ * CFG based analysis on code that dereferences the same value repeatedly, but much cheaper on large
+ * methods.
+ */
+public class SparseNullPointerAnalysis {
+
+  private final IR ir;
+
+  private final DefUse du;
+
+  private final ParameterState parameterState;
+
+  private SparseDataflowSolver<State> solver;
+
+  public SparseNullPointerAnalysis(IR ir) {
+    this(ir, new DefUse(ir), null);
+  }
+
+  /**
+   * @param parameterState what is known about the parameters of the method, or null to assume only
+   *     that {@code this} is not null.
+   */
+  public SparseNullPointerAnalysis(IR ir, DefUse du, ParameterState parameterState) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    if (du == null) {
+      throw new IllegalArgumentException("null du");
+    }
+    this.ir = ir;
+    this.du = du;
+    this.parameterState =
+        (parameterState == null) ? ParameterState.createDefault(ir.getMethod()) : parameterState;
+  }
+
+  /**
+   * Run the analysis.
+   *
+   * @return the number of SSA values that are known to be never null
+   */
+  public int compute(IProgressMonitor monitor) throws CancelException {
+    solver = new SparseDataflowSolver<>(ir, du, new Problem());
+    solver.solve(monitor);
+
+    int nonNull = 0;
+    for (int v = 1; v <= ir.getSymbolTable().getMaxValueNumber(); v++) {
+      if (isNeverNull(v)) {
+        nonNull++;
+      }
+    }
+    return nonNull;
+  }
+
+  /** @return the state of value number v; only valid after {@link #compute(IProgressMonitor)} */
+  public State getState(int v) {
+    if (solver == null) {
+      throw new IllegalStateException("Run compute(IProgressMonitor) first.");
+    }
+    State s = solver.getFact(v);
+    return (s == null) ? State.UNKNOWN : s;
+  }
+
+  public boolean isNeverNull(int v) {
+    return getState(v) == State.NOT_NULL;
+  }
+
+  public boolean isAlwaysNull(int v) {
+    return getState(v) == State.NULL;
+  }
+
+  /**
+   * @return true if the instruction dereferences a value that may be null, i.e. if it may throw a
+   *     NullPointerException
+   */
+  public boolean mayThrowNullPointerException(SSAInstruction s) {
+    int ref = getDereferencedValue(s);
+    return ref > 0 && !isNeverNull(ref);
+  }
+
+  /** @return the number of transfer function evaluations of the last run */
+  public int getNumberOfEvaluations() {
+    return (solver == null) ? 0 : solver.getNumberOfEvaluations();
+  }
+
+  /**
+   * @return the value number an instruction dereferences and may throw a NullPointerException for,
+   *     or -1 if the instruction does not dereference any value
+   */
+  public static int getDereferencedValue(SSAInstruction s) {
+    if (s instanceof SSAFieldAccessInstruction) {
+      SSAFieldAccessInstruction f = (SSAFieldAccessInstruction) s;
+      return f.isStatic() ? -1 : f.getRef();
+    } else if (s instanceof SSAAbstractInvokeInstruction) {
+      SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+      return call.isStatic() ? -1 : call.getReceiver();
+    } else if (s instanceof SSAArrayReferenceInstruction) {
+      return ((SSAArrayReferenceInstruction) s).getArrayRef();
+    } else if (s instanceof SSAArrayLengthInstruction) {
+      return ((SSAArrayLengthInstruction) s).getArrayRef();
+    } else if (s instanceof SSAMonitorInstruction) {
+      return ((SSAMonitorInstruction) s).getRef();
+    } else if (s instanceof SSAAbstractThrowInstruction) {
+      return ((SSAAbstractThrowInstruction) s).getException();
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * The meet operator of the null pointer lattice.
+   *
+   * <pre>
+   * Lattice: BOTH &lt; { NULL, NOT_NULL } &lt; UNKNOWN
+   * </pre>
+   */
+  static State meet(State lhs, State rhs) {
+    if (lhs == State.UNKNOWN || lhs == rhs) {
+      return rhs;
+    } else if (rhs == State.UNKNOWN) {
+      return lhs;
+    } else {
+      return State.BOTH;
+    }
+  }
+
+  private class Problem implements ISparseDataflowProblem<State> {
+
+    private final SymbolTable sym = ir.getSymbolTable();
+
+    @Override
+    public State getInitialFact(int v) {
+      if (sym.isConstant(v)) {
+        return sym.isNullConstant(v) ? State.NULL : State.NOT_NULL;
+      }
+      // by convention the first ssa vars are the parameters
+      if (v <= sym.getNumberOfParameters()) {
+        State s = parameterState.getStates().get(v - 1);
+        return (s == null) ? State.BOTH : s;
+      }
+      return State.UNKNOWN;
+    }
+
+    @Override
+    public State meet(State lhs, State rhs) {
+      return SparseNullPointerAnalysis.meet(lhs, rhs);
+    }
+
+    @Override
+    public State evaluate(SSAInstruction s, int def, IntFunction<State> facts) {
+      if (s instanceof SSAPhiInstruction) {
+        State result = State.UNKNOWN;
+        for (int i = 0; i < s.getNumberOfUses(); i++) {
+          State use = facts.apply(s.getUse(i));
+          if (use != null) {
+            result = meet(result, use);
+          }
+        }
+        return result;
+      } else if (s instanceof SSAPiInstruction) {
+        return evaluatePi((SSAPiInstruction) s, facts);
+      } else if (s instanceof SSACheckCastInstruction) {
+        return facts.apply(((SSACheckCastInstruction) s).getVal());
+      } else if (s instanceof SSANewInstruction
+          || s instanceof SSAGetCaughtExceptionInstruction
+          || s instanceof SSALoadMetadataInstruction) {
+        return State.NOT_NULL;
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        // the exceptional value of a call is never null, the return value may be
+        return (s.getDef(def) == ((SSAAbstractInvokeInstruction) s).getException())
+            ? State.NOT_NULL
+            : State.BOTH;
+      } else {
+        return State.BOTH;
+      }
+    }
+
+    private State evaluatePi(SSAPiInstruction pi, IntFunction<State> facts) {
+      State val = facts.apply(pi.getVal());
+      if (!(pi.getCause() instanceof SSAConditionalBranchInstruction)) {
+        return val;
+      }
+      SSAConditionalBranchInstruction cond = (SSAConditionalBranchInstruction) pi.getCause();
+      if (!(sym.isNullConstant(cond.getUse(0)) || sym.isNullConstant(cond.getUse(1)))) {
+        return val;
+      }
+      boolean taken =
+          ir.getControlFlowGraph().getBlockForInstruction(cond.getTarget()).getNumber()
+              == pi.getSuccessor();
+      IConditionalBranchInstruction.IOperator op = cond.getOperator();
+      State refined;
+      if (op == IConditionalBranchInstruction.Operator.EQ) {
+        refined = taken ? State.NULL : State.NOT_NULL;
+      } else if (op == IConditionalBranchInstruction.Operator.NE) {
+        refined = taken ? State.NOT_NULL : State.NULL;
+      } else {
+        return val;
+      }
+      if (val == State.BOTH || val == refined) {
+        return refined;
+      } else {
+        // either the value is not computed yet or the branch is infeasible
+        return State.UNKNOWN;
+      }
+    }
+  }
+}
@@ -540,6 +540,18 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     return result;
   }
 
+  /** @return the reference to the field of this class with the given name and type descriptor */
+  protected FieldReference makeFieldReference(Atom name, ImmutableByteArray fieldType) {
+    TypeName T = null;
+    if (fieldType.get(fieldType.length() - 1) == ';') {
+      T = TypeName.findOrCreate(fieldType, 0, fieldType.length() - 1);
+    } else {
+      T = TypeName.findOrCreate(fieldType);
+    }
+    TypeReference type = TypeReference.findOrCreate(getClassLoader().getReference(), T);
+    return FieldReference.findOrCreate(getReference(), name, type);
+  }
+
   protected void addFieldToList(
       List<FieldImpl> L,
       Atom name,
@@ -548,14 +560,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
       Collection<Annotation> annotations,
       Collection<TypeAnnotation> typeAnnotations,
       TypeSignature sig) {
-    TypeName T = null;
-    if (fieldType.get(fieldType.length() - 1) == ';') {
-      T = TypeName.findOrCreate(fieldType, 0, fieldType.length() - 1);
-    } else {
-      T = TypeName.findOrCreate(fieldType);
-    }
-    TypeReference type = TypeReference.findOrCreate(getClassLoader().getReference(), T);
-    FieldReference fr = FieldReference.findOrCreate(getReference(), name, type);
+    FieldReference fr = makeFieldReference(name, fieldType);
     FieldImpl f = new FieldImpl(this, fr, accessFlags, annotations, typeAnnotations, sig);
     L.add(f);
   }
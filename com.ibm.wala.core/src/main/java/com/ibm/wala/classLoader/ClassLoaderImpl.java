@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -674,6 +675,47 @@ public class ClassLoaderImpl implements IClassLoader {
     toRemove.stream().map(IClass::getName).peek(loadedClasses::remove).forEach(sourceMap::remove);
   }
 
+  /**
+   * Read classes again from the module entries that defined them, e.g. after their class files were
+   * recompiled, and replace them in this loader. A class whose class file is gone, or no longer
+   * defines the class, is removed. The class hierarchy is not updated; see {@link
+   * com.ibm.wala.ipa.cha.ClassHierarchy#reloadClasses(Collection)}.
+   *
+   * @param classes classes this loader read from class files
+   * @return the new versions of the classes that still exist
+   * @throws IllegalArgumentException if one of the classes was not read from a class file by this
+   *     loader
+   */
+  public Collection<IClass> reloadClasses(Collection<IClass> classes) {
+    if (classes == null) {
+      throw new IllegalArgumentException("classes is null");
+    }
+    Collection<IClass> result = new ArrayList<>();
+    for (IClass klass : classes) {
+      if (!(klass instanceof ShrikeClass) || loadedClasses.get(klass.getName()) != klass) {
+        throw new IllegalArgumentException(
+            "not loaded from a class file by " + this + ": " + klass);
+      }
+      loadedClasses.remove(klass.getName());
+      ModuleEntry entry = ((ShrikeClass) klass).getModuleEntry();
+      if (entry instanceof FileModule && !((FileModule) entry).getFile().exists()) {
+        continue;
+      }
+      try {
+        ShrikeClass reloaded = new ShrikeClass(new ShrikeClassReaderHandle(entry), this, cha);
+        if (reloaded.getName().equals(klass.getName())) {
+          loadedClasses.put(klass.getName(), reloaded);
+          result.add(reloaded);
+        } else {
+          Warnings.add(InvalidClassFile.create(klass.getName().toString()));
+        }
+      } catch (InvalidClassFileException e) {
+        Warnings.add(InvalidClassFile.create(klass.getName().toString()));
+      }
+    }
+    return result;
+  }
+
   @Override
   public SSAInstructionFactory getInstructionFactory() {
     return getLanguage().instructionFactory();
@@ -12,11 +12,13 @@ package com.ibm.wala.classLoader;
 
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeCT.ClassConstants;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.types.annotations.Annotation;
 import com.ibm.wala.types.annotations.TypeAnnotation;
 import com.ibm.wala.types.generics.TypeSignature;
+import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.strings.Atom;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,11 +35,17 @@ public final class FieldImpl implements IField {
 
   private final int accessFlags;
 
-  private final Collection<Annotation> annotations;
+  private Collection<Annotation> annotations;
 
-  private final Collection<TypeAnnotation> typeAnnotations;
+  private Collection<TypeAnnotation> typeAnnotations;
 
-  private final TypeSignature genericSignature;
+  private TypeSignature genericSignature;
+
+  /**
+   * for a field of a {@link ShrikeClass}, its index in the class file until its annotations and
+   * signature are read on first access; otherwise -1
+   */
+  private int fieldIndex = -1;
 
   public FieldImpl(
       IClass declaringClass,
@@ -77,8 +85,31 @@ public final class FieldImpl implements IField {
     this(declaringClass, canonicalRef, accessFlags, annotations, null);
   }
 
+  /** A field whose annotations and signature are read from the class file on first access */
+  FieldImpl(
+      ShrikeClass declaringClass, FieldReference canonicalRef, int accessFlags, int fieldIndex) {
+    this(declaringClass, canonicalRef, accessFlags, null, null, null);
+    this.fieldIndex = fieldIndex;
+  }
+
+  private synchronized void readAttributes() {
+    if (fieldIndex != -1) {
+      ShrikeClass klass = (ShrikeClass) declaringClass;
+      try {
+        annotations = klass.computeFieldAnnotations(fieldIndex);
+        typeAnnotations = klass.computeFieldTypeAnnotations(fieldIndex);
+        genericSignature = klass.computeFieldSignature(fieldIndex);
+      } catch (InvalidClassFileException e) {
+        e.printStackTrace();
+        Assertions.UNREACHABLE();
+      }
+      fieldIndex = -1;
+    }
+  }
+
   /** @return the genericSignature */
   public TypeSignature getGenericSignature() {
+    readAttributes();
     return genericSignature;
   }
 
@@ -174,10 +205,12 @@ public final class FieldImpl implements IField {
 
   @Override
   public Collection<Annotation> getAnnotations() {
+    readAttributes();
     return annotations == null ? null : Collections.unmodifiableCollection(annotations);
   }
 
   public Collection<TypeAnnotation> getTypeAnnotations() {
+    readAttributes();
     return typeAnnotations == null ? null : Collections.unmodifiableCollection(typeAnnotations);
   }
 }
@@ -13,7 +13,8 @@ package com.ibm.wala.classLoader;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileUtil;
-import com.ibm.wala.util.ref.CacheReference;
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
@@ -32,7 +33,13 @@ public class JarFileModule implements Module {
    * For efficiency, try to cache the byte[] holding each ZipEntries contents; this will help avoid
    * multiple unzipping
    */
-  private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
+  private final HashMap<ZipEntry, CacheRegion.Handle<byte[]>> cache = HashMapFactory.make();
+
+  /** The region caching the contents of entries of all jar files, weighed in bytes */
+  private static final CacheRegion<byte[]> CONTENTS =
+      CacheManager.getDefault()
+          .getRegion(
+              "JarFileModule.contents", CacheRegion.Policy.LRU, 64 << 20, (byte[] b) -> b.length);
 
   public JarFileModule(JarFile f) {
     if (f == null) {
@@ -94,7 +101,7 @@ public class JarFileModule implements Module {
   }
 
   public byte[] getContents(ZipEntry entry) {
-    byte[] b = (byte[]) CacheReference.get(cache.get(entry));
+    byte[] b = CONTENTS.get(cache.get(entry));
 
     if (b != null) {
       return b;
@@ -103,7 +110,7 @@ public class JarFileModule implements Module {
     try {
       InputStream s = file.getInputStream(entry);
       byte[] bb = FileUtil.readBytes(s);
-      cache.put(entry, CacheReference.make(bb));
+      cache.put(entry, CONTENTS.make(bb));
       s.close();
       return bb;
     } catch (IOException e) {
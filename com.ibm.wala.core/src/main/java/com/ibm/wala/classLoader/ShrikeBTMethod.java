@@ -35,10 +35,11 @@ import com.ibm.wala.util.bytecode.BytecodeStream;
 import com.ibm.wala.util.collections.EmptyIterator;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
 import com.ibm.wala.util.shrike.ShrikeUtil;
 import com.ibm.wala.util.strings.Atom;
 import com.ibm.wala.util.strings.ImmutableByteArray;
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -113,21 +114,23 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     private TypeReference[] exceptionTypes;
   }
 
+  /** The region caching the information about the statements of methods */
+  private static final CacheRegion<BytecodeInfo> BC_INFO =
+      CacheManager.getDefault()
+          .getRegion("ShrikeBTMethod.bytecodeInfo", CacheRegion.Policy.LRU, 10000);
+
   /** Cache the information about the method statements. */
-  private SoftReference<BytecodeInfo> bcInfo;
+  private CacheRegion.Handle<BytecodeInfo> bcInfo;
 
   public ShrikeBTMethod(IClass klass) {
     this.declaringClass = klass;
   }
 
   protected synchronized BytecodeInfo getBCInfo() throws InvalidClassFileException {
-    BytecodeInfo result = null;
-    if (bcInfo != null) {
-      result = bcInfo.get();
-    }
+    BytecodeInfo result = BC_INFO.get(bcInfo);
     if (result == null) {
       result = computeBCInfo();
-      bcInfo = new SoftReference<>(result);
+      bcInfo = BC_INFO.make(result);
     }
     return result;
   }
@@ -827,7 +830,8 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   public abstract boolean hasLocalVariableTable();
 
   /** Clear all optional cached data associated with this class. */
-  public void clearCaches() {
+  public synchronized void clearCaches() {
+    BC_INFO.remove(bcInfo);
     bcInfo = null;
   }
 }
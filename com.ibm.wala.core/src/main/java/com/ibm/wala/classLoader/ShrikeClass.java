@@ -80,29 +80,12 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
         int accessFlags = cr.getFieldAccessFlags(i);
         Atom name = Atom.findOrCreateUnicodeAtom(cr.getFieldName(i));
         ImmutableByteArray b = ImmutableByteArray.make(cr.getFieldType(i));
-        Collection<Annotation> annotations = HashSetFactory.make();
-        annotations.addAll(getRuntimeInvisibleAnnotations(i));
-        annotations.addAll(getRuntimeVisibleAnnotations(i));
-        annotations = annotations.isEmpty() ? null : annotations;
-
-        Collection<TypeAnnotation> typeAnnotations = HashSetFactory.make();
-        typeAnnotations.addAll(getRuntimeInvisibleTypeAnnotations(i));
-        typeAnnotations.addAll(getRuntimeVisibleTypeAnnotations(i));
-        typeAnnotations = typeAnnotations.isEmpty() ? null : typeAnnotations;
-
-        TypeSignature sig = null;
-        SignatureReader signatureReader = getSignatureReader(i);
-        if (signatureReader != null) {
-          String signature = signatureReader.getSignature();
-          if (signature != null) {
-            sig = TypeSignature.make(signature);
-          }
-        }
-
+        // annotations and signatures are read when the field is asked for them
+        FieldImpl f = new FieldImpl(this, makeFieldReference(name, b), accessFlags, i);
         if ((accessFlags & ClassConstants.ACC_STATIC) == 0) {
-          addFieldToList(instanceList, name, b, accessFlags, annotations, typeAnnotations, sig);
+          instanceList.add(f);
         } else {
-          addFieldToList(staticList, name, b, accessFlags, annotations, typeAnnotations, sig);
+          staticList.add(f);
         }
       }
       instanceFields = instanceList.toArray(new IField[0]);
@@ -114,6 +97,34 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     }
   }
 
+  /** @return the annotations of the ith field, or null if it has none */
+  Collection<Annotation> computeFieldAnnotations(int i) throws InvalidClassFileException {
+    Collection<Annotation> annotations = HashSetFactory.make();
+    annotations.addAll(getRuntimeInvisibleAnnotations(i));
+    annotations.addAll(getRuntimeVisibleAnnotations(i));
+    return annotations.isEmpty() ? null : annotations;
+  }
+
+  /** @return the type annotations of the ith field, or null if it has none */
+  Collection<TypeAnnotation> computeFieldTypeAnnotations(int i) throws InvalidClassFileException {
+    Collection<TypeAnnotation> typeAnnotations = HashSetFactory.make();
+    typeAnnotations.addAll(getRuntimeInvisibleTypeAnnotations(i));
+    typeAnnotations.addAll(getRuntimeVisibleTypeAnnotations(i));
+    return typeAnnotations.isEmpty() ? null : typeAnnotations;
+  }
+
+  /** @return the generic signature of the ith field, or null if it has none */
+  TypeSignature computeFieldSignature(int i) throws InvalidClassFileException {
+    SignatureReader signatureReader = getSignatureReader(i);
+    if (signatureReader != null) {
+      String signature = signatureReader.getSignature();
+      if (signature != null) {
+        return TypeSignature.make(signature);
+      }
+    }
+    return null;
+  }
+
   private void computeModifiers() throws InvalidClassFileException {
     modifiers = reader.get().getAccessFlags();
   }
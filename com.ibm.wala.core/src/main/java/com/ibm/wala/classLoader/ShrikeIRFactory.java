@@ -17,6 +17,7 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.IRStore;
 import com.ibm.wala.ssa.SSAArrayLengthInstruction;
 import com.ibm.wala.ssa.SSABuilder;
 import com.ibm.wala.ssa.SSACFG;
@@ -35,6 +36,21 @@ public class ShrikeIRFactory implements IRFactory<IBytecodeMethod<IInstruction>>
 
   public static final boolean buildLocalMap = true;
 
+  /** where IRs are read from instead of being built, and written to once built; may be null */
+  private final IRStore store;
+
+  public ShrikeIRFactory() {
+    this(null);
+  }
+
+  /**
+   * @param store a persistent store to read IRs from instead of building them, and to which the IRs
+   *     built are written; null for none
+   */
+  public ShrikeIRFactory(IRStore store) {
+    this.store = store;
+  }
+
   public ShrikeCFG makeCFG(final IBytecodeMethod<IInstruction> method) {
     return ShrikeCFG.make(method);
   }
@@ -142,22 +158,36 @@ public class ShrikeIRFactory implements IRFactory<IBytecodeMethod<IInstruction>>
       }
 
       {
-        SSABuilder builder =
-            SSABuilder.make(
-                method,
-                newCfg,
-                shrikeCFG,
-                newInstrs,
-                symbolTable,
-                buildLocalMap,
-                options.getPiNodePolicy());
-        builder.build();
-        if (buildLocalMap) localMap = builder.getLocalMap();
-        else localMap = null;
-
-        indirectionData = builder.getIndirectionData();
-
-        eliminateDeadPhis();
+        SSA2LocalMap stored =
+            (store == null)
+                ? null
+                : store.read(method, options, shrikeCFG, newCfg, newInstrs, symbolTable);
+        if (stored != null) {
+          localMap = stored;
+          // the store holds no IRs with indirect memory accesses
+          indirectionData = new ShrikeIndirectionData(newInstrs.length);
+        } else {
+          SSABuilder builder =
+              SSABuilder.make(
+                  method,
+                  newCfg,
+                  shrikeCFG,
+                  newInstrs,
+                  symbolTable,
+                  buildLocalMap,
+                  options.getPiNodePolicy(),
+                  options.getPrunePhis());
+          builder.build();
+          if (buildLocalMap) localMap = builder.getLocalMap();
+          else localMap = null;
+
+          indirectionData = builder.getIndirectionData();
+
+          eliminateDeadPhis();
+          if (store != null) {
+            store.write(method, options, newCfg, newInstrs, symbolTable, localMap);
+          }
+        }
         pruneExceptionsForSafeArrayCreations();
 
         setupLocationMap();
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+/**
+ * Stable, run-independent names for the procedures and facts of a {@link TabulationProblem}, used
+ * by a {@link TabulationSummaryCache} to persist summary edges across solver runs.
+ *
+ * @param <P> type of a procedure
+ * @param <F> type of factoids
+ */
+public interface ISummaryCacheKeys<P, F> {
+
+  /**
+   * @return a string that identifies the domain and the flow functions of the problem. Cached
+   *     summaries are only reused by runs that report the same fingerprint.
+   */
+  String getFingerprint();
+
+  /**
+   * @return a key for a procedure that is the same in every run, e.g. its method signature, or null
+   *     if summaries of this procedure should never be cached
+   */
+  String getProcedureKey(P procedure);
+
+  /** @return a key for a fact that is the same in every run, or null if it cannot be cached */
+  String encodeFact(F fact);
+
+  /** @return the fact for a key produced by {@link #encodeFact(Object)}, or null if unknown */
+  F decodeFact(String key);
+}
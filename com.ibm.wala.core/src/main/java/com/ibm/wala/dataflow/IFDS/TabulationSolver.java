@@ -21,6 +21,7 @@ import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.collections.ToStringComparator;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
@@ -134,6 +135,15 @@ public class TabulationSolver<T, P, F> {
   /** The worklist */
   private ITabulationWorklist<T> worklist;
 
+  /** Summaries persisted across runs; null if none should be used or recorded. */
+  private TabulationSummaryCache<P, F> summaryCache;
+
+  /**
+   * procedure -&gt; (local entry block number -&gt; d1 facts whose summaries were taken from {@link
+   * #summaryCache}). A procedure is present once its cached summaries have been installed.
+   */
+  private final Map<P, Map<Integer, MutableIntSet>> cachedEntryFacts = HashMapFactory.make();
+
   /** A progress monitor. can be null. */
   protected final IProgressMonitor progressMonitor;
 
@@ -189,6 +199,9 @@ public class TabulationSolver<T, P, F> {
     try {
       initialize();
       forwardTabulateSLRPs();
+      if (summaryCache != null) {
+        recordSummaries();
+      }
       Result r = new Result();
       return r;
     } catch (CancelException | CancelRuntimeException e) {
@@ -198,6 +211,156 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * Use a cache of procedure summaries. Procedures whose summaries are in the cache are not
+   * tabulated for the cached entry facts; instead the cached summary edges are applied at their
+   * call sites. After a successful {@link #solve()}, the summaries of all cacheable procedures are
+   * added to the cache, which the client may then {@link TabulationSummaryCache#write(java.io.File)
+   * write} for later runs.
+   *
+   * <p>Note that {@link #getResult(Object)} has no facts for nodes of procedures that were skipped
+   * this way.
+   */
+  public void setSummaryCache(TabulationSummaryCache<P, F> summaryCache) {
+    this.summaryCache = summaryCache;
+  }
+
+  public TabulationSummaryCache<P, F> getSummaryCache() {
+    return summaryCache;
+  }
+
+  /**
+   * Install the cached summaries of a procedure in {@link #summaryEdges}, once per procedure.
+   *
+   * @return the d1 facts tabulated from entry s_p in an earlier run, or null if there are none
+   */
+  private IntSet installCachedSummaries(P proc, int s_p) {
+    Map<Integer, MutableIntSet> installed = cachedEntryFacts.get(proc);
+    if (installed == null) {
+      installed = HashMapFactory.make();
+      cachedEntryFacts.put(proc, installed);
+      TabulationSummaryCache.ProcedureSummary cached = summaryCache.getSummary(proc);
+      if (cached != null) {
+        ISummaryCacheKeys<P, F> keys = summaryCache.getKeys();
+        TabulationDomain<F, T> domain = problem.getDomain();
+        // (entry, d1) pairs for which some summary edge could not be decoded
+        Set<Pair<Integer, Integer>> broken = HashSetFactory.make();
+        LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(proc);
+        for (TabulationSummaryCache.SummaryEdge e : cached.edges) {
+          F d1 = keys.decodeFact(e.d1);
+          F d2 = keys.decodeFact(e.d2);
+          if (d1 == null) {
+            continue;
+          }
+          int i = domain.add(d1);
+          if (d2 == null) {
+            broken.add(Pair.make(e.entry, i));
+          } else {
+            summaries.insertSummaryEdge(e.entry, e.exit, i, domain.add(d2));
+          }
+        }
+        for (Entry<Integer, Set<String>> e : cached.entryFacts.entrySet()) {
+          MutableIntSet facts = MutableSparseIntSet.makeEmpty();
+          for (String key : e.getValue()) {
+            F d1 = keys.decodeFact(key);
+            if (d1 != null) {
+              int i = domain.add(d1);
+              if (!broken.contains(Pair.make(e.getKey(), i))) {
+                facts.add(i);
+              }
+            }
+          }
+          installed.put(e.getKey(), facts);
+        }
+      }
+    }
+    return installed.get(s_p);
+  }
+
+  /**
+   * Add the summaries of every procedure that can be cached to {@link #summaryCache}. A procedure
+   * can be cached if it and all procedures it transitively calls have a key.
+   */
+  private void recordSummaries() {
+    ISummaryCacheKeys<P, F> keys = summaryCache.getKeys();
+    TabulationDomain<F, T> domain = problem.getDomain();
+    Set<P> cacheable = HashSetFactory.make();
+    for (P p : supergraph.getProcedureGraph()) {
+      if (keys.getProcedureKey(p) != null) {
+        cacheable.add(p);
+      }
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (P p : Iterator2Collection.toSet(cacheable.iterator())) {
+        for (P callee : Iterator2Iterable.make(supergraph.getProcedureGraph().getSuccNodes(p))) {
+          if (!cacheable.contains(callee)) {
+            cacheable.remove(p);
+            changed = true;
+            break;
+          }
+        }
+      }
+    }
+
+    // only procedures that were actually tabulated have path edges from their entries
+    for (Entry<T, LocalPathEdges> entry : pathEdges.entrySet()) {
+      T s_p = entry.getKey();
+      P p = supergraph.getProcOf(s_p);
+      if (!cacheable.contains(p) || !supergraph.isEntry(s_p)) {
+        continue;
+      }
+      LocalPathEdges lp = entry.getValue();
+      LocalSummaryEdges summaries = summaryEdges.get(p);
+      T[] exits = supergraph.getExitsForProcedure(p);
+      TabulationSummaryCache.ProcedureSummary cached = null;
+      int s_p_num = supergraph.getLocalBlockNumber(s_p);
+      IntSet reached = lp.getReachable(s_p_num);
+      if (reached == null) {
+        continue;
+      }
+      for (IntIterator it = reached.intIterator(); it.hasNext(); ) {
+        int d1 = it.next();
+        if (!lp.contains(d1, s_p_num, d1)) {
+          continue;
+        }
+        String d1Key = keys.encodeFact(domain.getMappedObject(d1));
+        if (d1Key == null) {
+          continue;
+        }
+        // encode all summary edges first, so that a d1 is only recorded with all of them
+        Map<Integer, Set<String>> targets = HashMapFactory.make();
+        boolean complete = true;
+        for (T exit : exits) {
+          int x = supergraph.getLocalBlockNumber(exit);
+          IntSet d2s = (summaries == null) ? null : summaries.getSummaryEdges(s_p_num, x, d1);
+          if (d2s != null) {
+            for (IntIterator it2 = d2s.intIterator(); it2.hasNext(); ) {
+              String d2Key = keys.encodeFact(domain.getMappedObject(it2.next()));
+              if (d2Key == null) {
+                complete = false;
+              } else {
+                MapUtil.findOrCreateSet(targets, x).add(d2Key);
+              }
+            }
+          }
+        }
+        if (complete) {
+          if (cached == null) {
+            cached = summaryCache.findOrCreateSummary(p);
+          }
+          cached.addEntryFact(s_p_num, d1Key);
+          for (Entry<Integer, Set<String>> e : targets.entrySet()) {
+            for (String d2Key : e.getValue()) {
+              cached.addEdge(s_p_num, e.getKey(), d1Key, d2Key);
+            }
+          }
+        }
+      }
+    }
+  }
+
   /** Start tabulation with the initial seeds. */
   protected void initialize() {
     for (PathEdge<T> seed : problem.initialSeeds()) {
@@ -617,14 +780,21 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
+      final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
+      final IntSet cached =
+          (summaryCache == null)
+              ? null
+              : installCachedSummaries(supergraph.getProcOf(calleeEntry), s_p_num);
       final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
-      final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
 
       reached.foreach(
           d1 -> {
-            // we get reuse if we _don't_ propagate a new fact to the callee entry
-            final boolean gotReuse = !propagate(calleeEntry, d1, calleeEntry, d1);
+            // we get reuse if we _don't_ propagate a new fact to the callee entry, either because
+            // it was propagated before or because its summary comes from the summary cache
+            final boolean gotReuse =
+                (cached != null && cached.contains(d1))
+                    || !propagate(calleeEntry, d1, calleeEntry, d1);
             recordCall(edge.target, calleeEntry, d1, gotReuse);
             newCallExplodedEdge(edge, calleeEntry, d1);
             // cache the fact that we've flowed <c, d2> -> <callee, d1> by a
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.MapUtil;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache of procedure summaries that survives across {@link TabulationSolver} runs.
+ *
+ * <p>Summary edges of library procedures do not depend on the application being analyzed, as long
+ * as the library code never calls back into it. A solver with a cache installed (see {@link
+ * TabulationSolver#setSummaryCache(TabulationSummaryCache)}) records, after each successful run,
+ * the summaries of every procedure that has a {@link ISummaryCacheKeys#getProcedureKey(Object) key}
+ * and only (transitively) calls procedures with a key. Later runs apply those summaries at call
+ * sites directly instead of tabulating the callee body again.
+ *
+ * <p>Procedures are identified by their key, facts by their encoding and blocks by their local
+ * block number, so the supergraph of a procedure must be the same in every run that shares a cache.
+ * The cache file records the {@link ISummaryCacheKeys#getFingerprint() fingerprint} of the problem
+ * and is ignored by runs with a different one.
+ *
+ * @param <P> type of a procedure
+ * @param <F> type of factoids
+ */
+public class TabulationSummaryCache<P, F> {
+
+  /** Marks the start of a cache file, followed by the format version. */
+  private static final int MAGIC = 0x57414c53;
+
+  private static final int VERSION = 1;
+
+  private final ISummaryCacheKeys<P, F> keys;
+
+  /** procedure key -&gt; summaries of that procedure */
+  private final Map<String, ProcedureSummary> summaries = HashMapFactory.make();
+
+  public TabulationSummaryCache(ISummaryCacheKeys<P, F> keys) {
+    if (keys == null) {
+      throw new IllegalArgumentException("null keys");
+    }
+    this.keys = keys;
+  }
+
+  /**
+   * Read a cache from a file. If the file does not exist or was written for a different
+   * fingerprint, the result is an empty cache.
+   *
+   * @throws IOException if the file exists but cannot be read
+   */
+  public static <P, F> TabulationSummaryCache<P, F> read(File file, ISummaryCacheKeys<P, F> keys)
+      throws IOException {
+    TabulationSummaryCache<P, F> result = new TabulationSummaryCache<>(keys);
+    if (file == null || !file.exists()) {
+      return result;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("not a summary cache file: " + file);
+      }
+      if (in.readInt() != VERSION || !keys.getFingerprint().equals(in.readUTF())) {
+        return result;
+      }
+      int procedures = in.readInt();
+      for (int i = 0; i < procedures; i++) {
+        ProcedureSummary s = result.findOrCreate(in.readUTF());
+        int entryFacts = in.readInt();
+        for (int j = 0; j < entryFacts; j++) {
+          s.addEntryFact(in.readInt(), in.readUTF());
+        }
+        int edges = in.readInt();
+        for (int j = 0; j < edges; j++) {
+          s.addEdge(in.readInt(), in.readInt(), in.readUTF(), in.readUTF());
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Write this cache to a file, overwriting it. */
+  public void write(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(keys.getFingerprint());
+      out.writeInt(summaries.size());
+      for (Map.Entry<String, ProcedureSummary> e : summaries.entrySet()) {
+        out.writeUTF(e.getKey());
+        ProcedureSummary s = e.getValue();
+        out.writeInt(s.getNumberOfEntryFacts());
+        for (Map.Entry<Integer, Set<String>> entry : s.entryFacts.entrySet()) {
+          for (String d1 : entry.getValue()) {
+            out.writeInt(entry.getKey());
+            out.writeUTF(d1);
+          }
+        }
+        out.writeInt(s.edges.size());
+        for (SummaryEdge edge : s.edges) {
+          out.writeInt(edge.entry);
+          out.writeInt(edge.exit);
+          out.writeUTF(edge.d1);
+          out.writeUTF(edge.d2);
+        }
+      }
+    }
+  }
+
+  public ISummaryCacheKeys<P, F> getKeys() {
+    return keys;
+  }
+
+  /** @return the number of procedures with cached summaries */
+  public int getNumberOfProcedures() {
+    return summaries.size();
+  }
+
+  /** @return true if summaries for the procedure with the given key are cached */
+  public boolean containsProcedure(String procedureKey) {
+    return summaries.containsKey(procedureKey);
+  }
+
+  /** @return the cached summaries of a procedure, or null if none */
+  ProcedureSummary getSummary(P procedure) {
+    String key = keys.getProcedureKey(procedure);
+    return (key == null) ? null : summaries.get(key);
+  }
+
+  /**
+   * @return the summaries of a procedure, created if necessary
+   * @throws IllegalArgumentException if the procedure has no key
+   */
+  ProcedureSummary findOrCreateSummary(P procedure) {
+    String key = keys.getProcedureKey(procedure);
+    if (key == null) {
+      throw new IllegalArgumentException("no key for " + procedure);
+    }
+    return findOrCreate(key);
+  }
+
+  private ProcedureSummary findOrCreate(String key) {
+    ProcedureSummary result = summaries.get(key);
+    if (result == null) {
+      result = new ProcedureSummary();
+      summaries.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * The summaries of one procedure, in terms of encoded facts.
+   *
+   * <p>The entry facts of an entry block are the facts d1 for which the procedure was completely
+   * tabulated from that entry; the summary edges for such a d1 are exactly the cached edges with
+   * that entry and d1. A d1 that is not an entry fact says nothing, so the procedure must be
+   * analyzed for it.
+   */
+  static final class ProcedureSummary {
+
+    /** local block number of an entry -&gt; encoded d1 facts tabulated from that entry */
+    final Map<Integer, Set<String>> entryFacts = HashMapFactory.make();
+
+    final Set<SummaryEdge> edges = HashSetFactory.make();
+
+    void addEntryFact(int entry, String d1) {
+      MapUtil.findOrCreateSet(entryFacts, entry).add(d1);
+    }
+
+    void addEdge(int entry, int exit, String d1, String d2) {
+      edges.add(new SummaryEdge(entry, exit, d1, d2));
+    }
+
+    int getNumberOfEntryFacts() {
+      int result = 0;
+      for (Set<String> s : entryFacts.values()) {
+        result += s.size();
+      }
+      return result;
+    }
+  }
+
+  /** A summary edge &lt;entry, d1&gt; -&gt; &lt;exit, d2&gt; over encoded facts. */
+  static final class SummaryEdge {
+    final int entry;
+
+    final int exit;
+
+    final String d1;
+
+    final String d2;
+
+    SummaryEdge(int entry, int exit, String d1, String d2) {
+      this.entry = entry;
+      this.exit = exit;
+      this.d1 = d1;
+      this.d2 = d2;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * (31 * entry + exit) + d1.hashCode()) + d2.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SummaryEdge)) {
+        return false;
+      }
+      SummaryEdge other = (SummaryEdge) obj;
+      return entry == other.entry
+          && exit == other.exit
+          && d1.equals(other.d1)
+          && d2.equals(other.d2);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.ssa;
+
+import com.ibm.wala.ssa.SSAInstruction;
+import java.util.function.IntFunction;
+
+/**
+ * A dataflow problem whose facts are attached to SSA values rather than to program points, to be
+ * solved by a {@link SparseDataflowSolver}.
+ *
+ * <p>Facts form a lattice that is descended by {@link #meet(Object, Object)}; the solver starts
+ * every value at {@link #getInitialFact(int)} and only ever lowers it. Implementations of {@link
+ * #evaluate(SSAInstruction, int, IntFunction)} must be monotone for the solver to terminate.
+ *
+ * @param <F> type of the dataflow facts
+ */
+public interface ISparseDataflowProblem<F> {
+
+  /**
+   * @return the fact a value holds before any instruction has been evaluated. This is the fact for
+   *     constants and parameters, and the optimistic top element for everything else.
+   */
+  F getInitialFact(int valueNumber);
+
+  /**
+   * Evaluate the transfer function of an instruction for one of its definitions.
+   *
+   * @param s the instruction, which may be a phi, pi or catch instruction
+   * @param def index of the definition of s being evaluated, i.e. {@code s.getDef(def)}
+   * @param facts current facts of all values, indexed by value number
+   * @return the fact for the definition, or null if the problem does not track it
+   */
+  F evaluate(SSAInstruction s, int def, IntFunction<F> facts);
+
+  /** @return the meet of two facts */
+  F meet(F lhs, F rhs);
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.ssa;
+
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A sparse dataflow solver that propagates facts along the SSA def-use graph of a single {@link
+ * IR}.
+ *
+ * <p>Unlike the solvers in {@code com.ibm.wala.dataflow.graph}, which keep one fact vector per node
+ * of an (exploded) control flow graph, this solver keeps exactly one fact per SSA value. When the
+ * fact of a value changes, only the instructions that use that value, as given by {@link DefUse},
+ * are re-evaluated. Control flow merges and branch conditions are seen through phi and pi
+ * instructions, so the IR should be built with an {@link com.ibm.wala.ssa.SSAPiNodePolicy} if the
+ * problem wants to refine facts on conditional branches.
+ *
+ * <p>The cost of a solve is proportional to the number of def-use edges times the height of the
+ * lattice, rather than to the number of CFG nodes times the number of values.
+ *
+ * @param <F> type of the dataflow facts
+ */
+public class SparseDataflowSolver<F> {
+
+  private final IR ir;
+
+  private final DefUse du;
+
+  private final ISparseDataflowProblem<F> problem;
+
+  /** facts, indexed by value number */
+  private final Object[] facts;
+
+  /** number of transfer function evaluations performed by the last solve */
+  private int numberOfEvaluations;
+
+  public SparseDataflowSolver(IR ir, DefUse du, ISparseDataflowProblem<F> problem) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    if (du == null) {
+      throw new IllegalArgumentException("null du");
+    }
+    if (problem == null) {
+      throw new IllegalArgumentException("null problem");
+    }
+    this.ir = ir;
+    this.du = du;
+    this.problem = problem;
+    this.facts = new Object[ir.getSymbolTable().getMaxValueNumber() + 1];
+  }
+
+  /**
+   * Solve the problem.
+   *
+   * @return true if any fact was lowered from its initial value
+   */
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    for (int v = 1; v < facts.length; v++) {
+      facts[v] = problem.getInitialFact(v);
+    }
+    numberOfEvaluations = 0;
+
+    ArrayDeque<SSAInstruction> worklist = new ArrayDeque<>();
+    Set<SSAInstruction> inWorklist = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (SSAInstruction s : Iterator2Iterable.make(ir.iterateAllInstructions())) {
+      if (s != null && s.hasDef() && inWorklist.add(s)) {
+        worklist.add(s);
+      }
+    }
+
+    boolean changed = false;
+    while (!worklist.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      SSAInstruction s = worklist.removeFirst();
+      inWorklist.remove(s);
+      numberOfEvaluations++;
+      for (int d = 0; d < s.getNumberOfDefs(); d++) {
+        int v = s.getDef(d);
+        if (v <= 0) {
+          continue;
+        }
+        F next = problem.evaluate(s, d, this::getFact);
+        if (next == null) {
+          continue;
+        }
+        F old = getFact(v);
+        F merged = old == null ? next : problem.meet(old, next);
+        if (!merged.equals(old)) {
+          facts[v] = merged;
+          changed = true;
+          for (SSAInstruction use : Iterator2Iterable.make(du.getUses(v))) {
+            if (use.hasDef() && inWorklist.add(use)) {
+              worklist.add(use);
+            }
+          }
+        }
+      }
+    }
+    return changed;
+  }
+
+  /** @return the fact for value number v, or null if v is not a value of the IR */
+  @SuppressWarnings("unchecked")
+  public F getFact(int v) {
+    if (v <= 0 || v >= facts.length) {
+      return null;
+    }
+    return (F) facts[v];
+  }
+
+  public IR getIR() {
+    return ir;
+  }
+
+  /** @return the number of transfer function evaluations performed by the last solve */
+  public int getNumberOfEvaluations() {
+    return numberOfEvaluations;
+  }
+}
@@ -15,6 +15,7 @@ import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
 import com.ibm.wala.dataflow.IFDS.IFlowFunction;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
 import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
+import com.ibm.wala.dataflow.IFDS.ISummaryCacheKeys;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
@@ -25,6 +26,7 @@ import com.ibm.wala.dataflow.IFDS.PathEdge;
 import com.ibm.wala.dataflow.IFDS.TabulationDomain;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.dataflow.IFDS.TabulationSummaryCache;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
@@ -32,13 +34,16 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Computes interprocedural reaching definitions for static fields in a context-sensitive manner via
@@ -289,11 +294,23 @@ public class ContextSensitiveReachingDefs {
   /** perform the tabulation analysis and return the {@link TabulationResult} */
   public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
       analyze() {
+    return analyze(null);
+  }
+
+  /**
+   * perform the tabulation analysis, reusing and extending the library summaries in summaryCache,
+   * and return the {@link TabulationResult}
+   *
+   * @param summaryCache cache built with the keys from {@link #makeSummaryCacheKeys()}, or null
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+      analyze(TabulationSummaryCache<CGNode, Pair<CGNode, Integer>> summaryCache) {
     PartiallyBalancedTabulationSolver<
             BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         solver =
             PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(
                 new ReachingDefsProblem(), null);
+    solver.setSummaryCache(summaryCache);
     TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
         result = null;
     try {
@@ -305,6 +322,52 @@ public class ContextSensitiveReachingDefs {
     return result;
   }
 
+  /**
+   * @return keys for a {@link TabulationSummaryCache} that caches the summaries of methods from the
+   *     primordial loader. Nodes are named by method signature and context, and facts by the name
+   *     of their node and the instruction index of the putstatic.
+   */
+  public ISummaryCacheKeys<CGNode, Pair<CGNode, Integer>> makeSummaryCacheKeys() {
+    final Map<String, CGNode> nodes = HashMapFactory.make();
+    for (CGNode n : supergraph.getProcedureGraph()) {
+      nodes.put(nodeKey(n), n);
+    }
+    return new ISummaryCacheKeys<CGNode, Pair<CGNode, Integer>>() {
+      @Override
+      public String getFingerprint() {
+        return ContextSensitiveReachingDefs.class.getName();
+      }
+
+      @Override
+      public String getProcedureKey(CGNode procedure) {
+        return procedure
+                .getMethod()
+                .getDeclaringClass()
+                .getClassLoader()
+                .getReference()
+                .equals(ClassLoaderReference.Primordial)
+            ? nodeKey(procedure)
+            : null;
+      }
+
+      @Override
+      public String encodeFact(Pair<CGNode, Integer> fact) {
+        return nodeKey(fact.fst) + '#' + fact.snd;
+      }
+
+      @Override
+      public Pair<CGNode, Integer> decodeFact(String key) {
+        int i = key.lastIndexOf('#');
+        CGNode n = nodes.get(key.substring(0, i));
+        return (n == null) ? null : Pair.make(n, Integer.valueOf(key.substring(i + 1)));
+      }
+    };
+  }
+
+  private static String nodeKey(CGNode n) {
+    return n.getMethod().getSignature() + ' ' + n.getContext();
+  }
+
   public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
     return supergraph;
   }
@@ -142,16 +142,24 @@ public class IntraprocReachingDefs {
   }
 
   /**
-   * run the analysis
-   *
-   * @return the solver used for the analysis, which contains the analysis result
+   * create a solver for the analysis without running it, e.g. to solve it with a {@link
+   * com.ibm.wala.dataflow.graph.ParallelDataflowDriver}
    */
-  public BitVectorSolver<IExplodedBasicBlock> analyze() {
+  public BitVectorSolver<IExplodedBasicBlock> makeSolver() {
     // the framework describes the dataflow problem, in particular the underlying graph and the
     // transfer functions
     BitVectorFramework<IExplodedBasicBlock, Integer> framework =
         new BitVectorFramework<>(ecfg, new TransferFunctions(), putInstrNumbering);
-    BitVectorSolver<IExplodedBasicBlock> solver = new BitVectorSolver<>(framework);
+    return new BitVectorSolver<>(framework);
+  }
+
+  /**
+   * run the analysis
+   *
+   * @return the solver used for the analysis, which contains the analysis result
+   */
+  public BitVectorSolver<IExplodedBasicBlock> analyze() {
+    BitVectorSolver<IExplodedBasicBlock> solver = makeSolver();
     try {
       solver.solve(null);
     } catch (CancelException e) {
@@ -185,6 +185,21 @@ public class AnalysisOptions {
    */
   private long maxNumberOfNodes = -1;
 
+  /**
+   * Time budget, in milliseconds, for solving a pointer analysis with this {@link AnalysisOptions}
+   * object. Unlike {@code maxNumberOfNodes}, exhausting the budget does not abort call graph
+   * construction: as the budget runs out, calls are analyzed with less and less context
+   * sensitivity, and construction finishes context-insensitively. {@code -1} means no budget. See
+   * also {@link com.ibm.wala.ipa.callgraph.propagation.BudgetedContextSelector}.
+   */
+  private long maxSolverTimeMillis = -1;
+
+  /**
+   * Heap budget, in bytes, for solving a pointer analysis with this {@link AnalysisOptions} object,
+   * handled like {@code maxSolverTimeMillis}. {@code -1} means no budget.
+   */
+  private long maxHeapBytes = -1;
+
   /** Should call graph construction handle arrays of zero-length differently? */
   private boolean handleZeroLengthArray = true;
 
@@ -225,6 +240,27 @@ public class AnalysisOptions {
     this.maxNumberOfNodes = maxNumberOfNodes;
   }
 
+  public long getMaxSolverTimeMillis() {
+    return maxSolverTimeMillis;
+  }
+
+  public void setMaxSolverTimeMillis(long maxSolverTimeMillis) {
+    this.maxSolverTimeMillis = maxSolverTimeMillis;
+  }
+
+  public long getMaxHeapBytes() {
+    return maxHeapBytes;
+  }
+
+  public void setMaxHeapBytes(long maxHeapBytes) {
+    this.maxHeapBytes = maxHeapBytes;
+  }
+
+  /** @return true iff solving is limited by a time or heap budget */
+  public boolean hasSolverBudget() {
+    return maxSolverTimeMillis > -1 || maxHeapBytes > -1;
+  }
+
   /** @return Policy that determines methods called at call sites. */
   public MethodTargetSelector getMethodTargetSelector() {
     return methodTargetSelector;
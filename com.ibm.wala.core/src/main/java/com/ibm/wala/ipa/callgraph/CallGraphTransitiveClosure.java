@@ -16,10 +16,16 @@ import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.graph.impl.GraphInverter;
 import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Function;
 
 /**
@@ -62,4 +68,89 @@ public class CallGraphTransitiveClosure {
     }
     return result;
   }
+
+  /**
+   * Collect analysis result for each {@link CGNode} in a {@link Map}, computing the results for
+   * individual nodes in parallel on the given pool.
+   *
+   * <p>nodeResultComputer is applied to several nodes concurrently, so it must not mutate shared
+   * state without synchronization.
+   */
+  public static <T> Map<CGNode, Collection<T>> collectNodeResults(
+      CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer, ForkJoinPool pool) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return collectNodeResults(Iterator2Collection.toList(cg.iterator()), nodeResultComputer, pool);
+  }
+
+  /**
+   * Compute an analysis result for each of the given nodes in parallel on the given pool, and
+   * collect the results in a {@link Map}. Nodes for which nodeResultComputer returns null have no
+   * entry in the result.
+   *
+   * @throws IllegalArgumentException if pool is null
+   */
+  public static <R> Map<CGNode, R> collectNodeResults(
+      Collection<CGNode> nodes, Function<CGNode, R> nodeResultComputer, ForkJoinPool pool) {
+    if (pool == null) {
+      throw new IllegalArgumentException("pool is null");
+    }
+    List<CGNode> work = new ArrayList<>(nodes);
+    Map<CGNode, R> partial = new ConcurrentHashMap<>(work.size());
+    pool.invoke(new CollectTask<>(work, 0, work.size(), nodeResultComputer, partial));
+    Map<CGNode, R> result = HashMapFactory.make(work.size());
+    result.putAll(partial);
+    return result;
+  }
+
+  /** fork/join task computing node results for a slice of a node list */
+  private static class CollectTask<R> extends RecursiveAction {
+
+    private static final long serialVersionUID = 6245931587729340147L;
+
+    /** below this many nodes, a task computes its results itself rather than splitting */
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    private final List<CGNode> nodes;
+
+    private final int from;
+
+    private final int to;
+
+    private final Function<CGNode, R> nodeResultComputer;
+
+    private final Map<CGNode, R> result;
+
+    CollectTask(
+        List<CGNode> nodes,
+        int from,
+        int to,
+        Function<CGNode, R> nodeResultComputer,
+        Map<CGNode, R> result) {
+      this.nodes = nodes;
+      this.from = from;
+      this.to = to;
+      this.nodeResultComputer = nodeResultComputer;
+      this.result = result;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SEQUENTIAL_THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          CGNode n = nodes.get(i);
+          R r = nodeResultComputer.apply(n);
+          if (r != null) {
+            result.put(n, r);
+          }
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+            new CollectTask<>(nodes, from, mid, nodeResultComputer, result),
+            new CollectTask<>(nodes, mid, to, nodeResultComputer, result));
+      }
+    }
+  }
 }
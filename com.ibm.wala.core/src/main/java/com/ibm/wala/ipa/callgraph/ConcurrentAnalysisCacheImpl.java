@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.ConcurrentSSACache;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+
+/**
+ * An {@link AnalysisCache} for clients that build IRs from several threads at once; see {@link
+ * ConcurrentSSACache}.
+ *
+ * <p>IRs of different methods are built concurrently, so the methods must guard the state they
+ * compute lazily: {@link com.ibm.wala.classLoader.ShrikeBTMethod} and {@link
+ * com.ibm.wala.util.shrike.ShrikeClassReaderHandle} synchronize on their cached bytecodes, and
+ * other {@link IMethod}s and {@link IRFactory}s used with this cache must be thread-safe as well.
+ */
+public class ConcurrentAnalysisCacheImpl extends AnalysisCache {
+
+  public ConcurrentAnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions) {
+    super(
+        irFactory,
+        ssaOptions,
+        new ConcurrentSSACache(irFactory, new AuxiliaryCache(), new AuxiliaryCache()));
+  }
+
+  public ConcurrentAnalysisCacheImpl(SSAOptions ssaOptions) {
+    this(new DefaultIRFactory(), ssaOptions);
+  }
+
+  public ConcurrentAnalysisCacheImpl(IRFactory<IMethod> irFactory) {
+    this(irFactory, new AnalysisOptions().getSSAOptions());
+  }
+
+  public ConcurrentAnalysisCacheImpl() {
+    this(new DefaultIRFactory());
+  }
+}
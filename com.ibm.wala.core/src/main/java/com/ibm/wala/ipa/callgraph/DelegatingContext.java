@@ -28,6 +28,16 @@ public class DelegatingContext implements Context {
     }
   }
 
+  /** @return the context that is checked first */
+  public Context getA() {
+    return A;
+  }
+
+  /** @return the context that is checked if A does not define an item */
+  public Context getB() {
+    return B;
+  }
+
   @Override
   public ContextItem get(ContextKey name) {
     ContextItem result = A.get(name);
@@ -108,9 +108,13 @@ public class CHACallGraph extends BasicCallGraph<CHAContextInterpreter> {
   }
 
   public CHACallGraph(IClassHierarchy cha, boolean applicationOnly) {
+    this(cha, applicationOnly, new AnalysisCacheImpl());
+  }
+
+  protected CHACallGraph(IClassHierarchy cha, boolean applicationOnly, IAnalysisCacheView cache) {
     this.cha = cha;
     this.options = new AnalysisOptions();
-    this.cache = new AnalysisCacheImpl();
+    this.cache = cache;
     this.applicationOnly = applicationOnly;
     setInterpreter(new ContextInsensitiveCHAContextInterpreter());
   }
@@ -274,9 +278,16 @@ public class CHACallGraph extends BasicCallGraph<CHAContextInterpreter> {
     n = new CHANode(method, C);
     registerNode(k, n);
     newNodes.push(n);
+    nodeDiscovered(n);
     return n;
   }
 
+  /**
+   * Called when a node becomes reachable, before its call sites are examined. Subclasses can start
+   * work on the node here.
+   */
+  protected void nodeDiscovered(CGNode n) {}
+
   @Override
   protected NumberedEdgeManager<CGNode> getEdgeManager() {
     return new NumberedEdgeManager<CGNode>() {
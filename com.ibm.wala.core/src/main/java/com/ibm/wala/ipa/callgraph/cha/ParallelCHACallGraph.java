@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.cha;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link CHACallGraph} that decodes the bytecode of newly reachable methods on a thread pool.
+ *
+ * <p>Nodes and edges are still added by a single thread, in the same order as by {@link
+ * CHACallGraph}, so the resulting call graph is identical, down to node numbers. As soon as a
+ * method becomes reachable, a worker thread scans it for call sites, which is where most of the
+ * time of the sequential construction goes; by the time the method is taken off the worklist its
+ * call sites are usually cached.
+ */
+public class ParallelCHACallGraph extends CHACallGraph {
+
+  private final ExecutorService executor;
+
+  /** prefetch tasks that may still be running */
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  public ParallelCHACallGraph(IClassHierarchy cha, ExecutorService executor) {
+    this(cha, false, executor);
+  }
+
+  public ParallelCHACallGraph(
+      IClassHierarchy cha, boolean applicationOnly, ExecutorService executor) {
+    super(cha, applicationOnly, new ConcurrentAnalysisCacheImpl());
+    if (executor == null) {
+      throw new IllegalArgumentException("null executor");
+    }
+    this.executor = executor;
+  }
+
+  @Override
+  public void init(Iterable<Entrypoint> entrypoints) throws CancelException {
+    try {
+      super.init(entrypoints);
+    } finally {
+      for (Future<?> f : pending) {
+        f.cancel(true);
+      }
+      pending.clear();
+    }
+  }
+
+  @Override
+  protected void nodeDiscovered(final CGNode n) {
+    // synthetic nodes, like the fake root, have call sites that change while the graph is built
+    if (n.getMethod() instanceof IBytecodeMethod) {
+      pending.add(
+          executor.submit(
+              () -> {
+                try {
+                  for (Iterator<?> it = getInterpreter(n).iterateCallSites(n); it.hasNext(); ) {
+                    it.next();
+                  }
+                } catch (RuntimeException e) {
+                  // the graph builder will hit, and report, the same problem
+                }
+              }));
+    }
+  }
+}
@@ -28,8 +28,6 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.NonNullSingletonIterator;
-import com.ibm.wala.util.debug.Assertions;
-import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.graph.AbstractNumberedGraph;
 import com.ibm.wala.util.graph.NumberedNodeManager;
 import com.ibm.wala.util.graph.impl.DelegatingNumberedNodeManager;
@@ -232,9 +230,33 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
     return result.toString();
   }
 
+  /**
+   * Remove a node and its edges. The numbers of the other nodes do not change.
+   *
+   * @throws IllegalArgumentException if N is not in this graph, or is the fake root or fake world
+   *     clinit node
+   */
   @Override
-  public void removeNodeAndEdges(CGNode N) throws UnimplementedError {
-    Assertions.UNREACHABLE();
+  public void removeNodeAndEdges(CGNode N) throws IllegalArgumentException {
+    if (N == null) {
+      throw new IllegalArgumentException("N is null");
+    }
+    if (N.equals(fakeRoot) || N.equals(fakeWorldClinit)) {
+      throw new IllegalArgumentException("cannot remove " + N);
+    }
+    Key k = new Key(N.getMethod(), N.getContext());
+    if (nodes.get(k) != N) {
+      throw new IllegalArgumentException("not in graph: " + N);
+    }
+    getEdgeManager().removeAllIncidentEdges(N);
+    nodes.remove(k);
+    Set<CGNode> s = mr2Nodes.get(N.getMethod().getReference());
+    s.remove(N);
+    if (s.isEmpty()) {
+      mr2Nodes.remove(N.getMethod().getReference());
+    }
+    entrypointNodes.remove(N);
+    nodeManager.removeNode(N);
   }
 
   /** @return NodeImpl, or null if none found */
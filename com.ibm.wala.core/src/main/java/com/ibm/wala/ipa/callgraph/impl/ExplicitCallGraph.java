@@ -31,12 +31,12 @@ import com.ibm.wala.util.collections.FilterIterator;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.IntMapIterator;
 import com.ibm.wala.util.collections.SparseVector;
-import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.NumberedEdgeManager;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
 import com.ibm.wala.util.intset.SparseIntSet;
@@ -421,17 +421,30 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
 
     @Override
     public void removeAllIncidentEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      removeIncomingEdges(node);
+      removeOutgoingEdges(node);
     }
 
     @Override
     public void removeIncomingEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      int y = getNumber(node);
+      IntSet preds = predecessors.getRelated(y);
+      if (preds != null) {
+        for (IntIterator it = IntSetUtil.makeMutableCopy(preds).intIterator(); it.hasNext(); ) {
+          ((ExplicitNode) getNode(it.next())).removeTarget(node);
+        }
+        predecessors.removeAll(y);
+      }
     }
 
     @Override
     public void removeOutgoingEdges(CGNode node) {
-      Assertions.UNREACHABLE();
+      ExplicitNode n = (ExplicitNode) node;
+      int x = getNumber(n);
+      for (IntIterator it = n.getAllTargetNumbers().intIterator(); it.hasNext(); ) {
+        predecessors.remove(it.next(), x);
+      }
+      n.clearAllTargets();
     }
 
     @Override
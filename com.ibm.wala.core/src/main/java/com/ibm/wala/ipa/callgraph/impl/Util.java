@@ -24,12 +24,14 @@ import com.ibm.wala.ipa.callgraph.MethodTargetSelector;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.SelectiveObjBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXContainerCFABuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.nCFABuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.nObjBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.rta.BasicRTABuilder;
+import com.ibm.wala.ipa.callgraph.propagation.rta.ParallelRTABuilder;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ipa.summaries.BypassClassTargetSelector;
 import com.ibm.wala.ipa.summaries.BypassMethodTargetSelector;
@@ -52,6 +54,7 @@ import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /** Call graph utilities */
 public class Util {
@@ -339,6 +342,27 @@ public class Util {
     return new BasicRTABuilder(cha, options, cache, null, null);
   }
 
+  /**
+   * @return an RTA Call Graph builder that builds IRs on the given executor; the cache should be a
+   *     {@link com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl}
+   * @param options options that govern call graph construction
+   * @param cha governing class hierarchy
+   * @param scope representation of the analysis scope
+   * @param executor runs the IR construction tasks
+   */
+  public static CallGraphBuilder<InstanceKey> makeParallelRTABuilder(
+      AnalysisOptions options,
+      IAnalysisCacheView cache,
+      IClassHierarchy cha,
+      AnalysisScope scope,
+      ExecutorService executor) {
+
+    addDefaultSelectors(options, cha);
+    addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
+
+    return new ParallelRTABuilder(cha, options, cache, null, null, executor);
+  }
+
   /**
    * @param options options that govern call graph construction
    * @param cha governing class hierarchy
@@ -617,6 +641,39 @@ public class Util {
     return result;
   }
 
+  /**
+   * make a {@link CallGraphBuilder} that uses object context sensitivity, with allocation-string
+   * length limited to n, only for the methods where a context-insensitive pre-analysis suggests it
+   * pays off within maxCost. See {@link
+   * com.ibm.wala.ipa.callgraph.propagation.cfa.SelectiveObjContextSelector}.
+   */
+  public static SSAPropagationCallGraphBuilder makeSelectiveObjBuilder(
+      int n,
+      long maxCost,
+      AnalysisOptions options,
+      IAnalysisCacheView cache,
+      IClassHierarchy cha,
+      AnalysisScope scope) {
+    if (options == null) {
+      throw new IllegalArgumentException("options is null");
+    }
+    addDefaultSelectors(options, cha);
+    addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
+    return new SelectiveObjBuilder(
+        n,
+        maxCost,
+        cha,
+        options,
+        cache,
+        null,
+        null,
+        ZeroXInstanceKeys.ALLOCATIONS
+            | ZeroXInstanceKeys.SMUSH_MANY
+            | ZeroXInstanceKeys.SMUSH_PRIMITIVE_HOLDERS
+            | ZeroXInstanceKeys.SMUSH_STRINGS
+            | ZeroXInstanceKeys.SMUSH_THROWABLES);
+  }
+
   /**
    * make a {@link CallGraphBuilder} that uses object context sensitivity, with allocation-string
    * length limited to n
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.DelegatingContext;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.AllocationStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector.CallStringContextPair;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerContextPair;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerSiteContextPair;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.warnings.Warning;
+import com.ibm.wala.util.warnings.Warnings;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A context selector that gives up context sensitivity as the time and heap budget of {@link
+ * AnalysisOptions#getMaxSolverTimeMillis()} and {@link AnalysisOptions#getMaxHeapBytes()} runs out,
+ * so that call graph construction finishes with a less precise result instead of running out of
+ * time or memory.
+ *
+ * <p>Once half of the budget is used, the methods with the most contexts in the call graph lose
+ * their call-string and object-sensitive contexts from then on, more of them the more of the budget
+ * is used; at 90% all calls do. Other contexts, e.g. those the reflection models depend on, are
+ * kept. Nodes created before remain, as do their constraints, so the result stays sound.
+ */
+public class BudgetedContextSelector implements ContextSelector {
+
+  /** fraction of the budget after which hot methods start to lose context sensitivity */
+  private static final double DEGRADE_START = 0.5;
+
+  /** fraction of the budget after which all calls are context-insensitive */
+  private static final double DEGRADE_ALL = 0.9;
+
+  /** number of steps in which hot methods lose context sensitivity */
+  private static final int DEGRADE_STEPS = 8;
+
+  /** the budget is checked once every this many context lookups */
+  private static final int CHECK_INTERVAL = 256;
+
+  private final ContextSelector base;
+
+  private final CallGraph cg;
+
+  private final long startNanos = System.nanoTime();
+
+  private final long maxNanos;
+
+  private final long maxHeapBytes;
+
+  private final Set<IMethod> degraded = HashSetFactory.make();
+
+  private boolean degradeAll = false;
+
+  /** how many of the {@link #DEGRADE_STEPS} have been taken */
+  private int step = 0;
+
+  private int lookups = 0;
+
+  public BudgetedContextSelector(ContextSelector base, CallGraph cg, AnalysisOptions options) {
+    if (base == null) {
+      throw new IllegalArgumentException("null base");
+    }
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("null options");
+    }
+    this.base = base;
+    this.cg = cg;
+    this.maxNanos =
+        options.getMaxSolverTimeMillis() > -1 ? options.getMaxSolverTimeMillis() * 1000000 : -1;
+    this.maxHeapBytes = options.getMaxHeapBytes();
+  }
+
+  public ContextSelector getBase() {
+    return base;
+  }
+
+  /** @return the methods that are no longer analyzed context-sensitively */
+  public Set<IMethod> getDegradedMethods() {
+    return Collections.unmodifiableSet(degraded);
+  }
+
+  /** @return true iff the budget is used up, and all calls are analyzed context-insensitively */
+  public boolean isExhausted() {
+    return degradeAll;
+  }
+
+  @Override
+  public Context getCalleeTarget(
+      CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    Context context = base.getCalleeTarget(caller, site, callee, actualParameters);
+    // null and IllegalArgumentExceptionContext mean that there is no call; keep them
+    if (context == null
+        || context.isA(IllegalArgumentExceptionContext.class)
+        || context.equals(Everywhere.EVERYWHERE)) {
+      return context;
+    }
+    if (lookups++ % CHECK_INTERVAL == 0) {
+      checkBudget();
+    }
+    return degradeAll || degraded.contains(callee) ? degrade(context) : context;
+  }
+
+  /**
+   * @return the context without its call strings and allocation strings. Other contexts, e.g. a
+   *     {@link com.ibm.wala.analysis.reflection.JavaTypeContext}, remain, since the models of their
+   *     methods depend on them.
+   */
+  private static Context degrade(Context context) {
+    if (context instanceof CallStringContext || context instanceof AllocationStringContext) {
+      return Everywhere.EVERYWHERE;
+    } else if (context instanceof CallStringContextPair) {
+      return degrade(((CallStringContextPair) context).getBaseContext());
+    } else if (context instanceof CallerContextPair) {
+      return degrade(((CallerContextPair) context).getBaseContext());
+    } else if (context instanceof CallerSiteContextPair) {
+      return degrade(((CallerSiteContextPair) context).getBaseContext());
+    } else if (context instanceof CallerContext) {
+      return Everywhere.EVERYWHERE;
+    } else if (context instanceof DelegatingContext) {
+      DelegatingContext d = (DelegatingContext) context;
+      Context a = degrade(d.getA());
+      Context b = degrade(d.getB());
+      if (a.equals(Everywhere.EVERYWHERE)) {
+        return b;
+      } else if (b.equals(Everywhere.EVERYWHERE)) {
+        return a;
+      } else if (a == d.getA() && b == d.getB()) {
+        return context;
+      } else {
+        return new DelegatingContext(a, b);
+      }
+    } else {
+      return context;
+    }
+  }
+
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return base.getRelevantParameters(caller, site);
+  }
+
+  /** Measure the used budget, and give up more context sensitivity if needed. */
+  public void checkBudget() {
+    if (degradeAll) {
+      return;
+    }
+    double used = 0;
+    if (maxNanos > -1) {
+      used = Math.max(used, (double) (System.nanoTime() - startNanos) / Math.max(maxNanos, 1));
+    }
+    if (maxHeapBytes > -1) {
+      Runtime r = Runtime.getRuntime();
+      used =
+          Math.max(used, (double) (r.totalMemory() - r.freeMemory()) / Math.max(maxHeapBytes, 1));
+    }
+    if (used >= DEGRADE_ALL) {
+      degradeAll = true;
+      Warnings.add(BudgetWarning.create("all calls are analyzed context-insensitively"));
+    } else if (used >= DEGRADE_START) {
+      int s = 1 + (int) ((used - DEGRADE_START) / (DEGRADE_ALL - DEGRADE_START) * DEGRADE_STEPS);
+      if (s > step) {
+        step = s;
+        degradeHotMethods((double) s / DEGRADE_STEPS);
+      }
+    }
+  }
+
+  /**
+   * Stop analyzing the given fraction of the methods with more than one context
+   * context-sensitively, starting with those with the most contexts.
+   */
+  private void degradeHotMethods(double fraction) {
+    Map<IMethod, Integer> contexts = HashMapFactory.make();
+    for (CGNode n : cg) {
+      contexts.merge(n.getMethod(), 1, Integer::sum);
+    }
+    List<IMethod> hot = new ArrayList<>();
+    contexts.forEach(
+        (m, count) -> {
+          if (count > 1) {
+            hot.add(m);
+          }
+        });
+    hot.sort((a, b) -> contexts.get(b) - contexts.get(a));
+    int before = degraded.size();
+    degraded.addAll(hot.subList(0, (int) Math.ceil(hot.size() * fraction)));
+    if (degraded.size() > before) {
+      Warnings.add(
+          BudgetWarning.create(degraded.size() + " methods are analyzed context-insensitively"));
+    }
+  }
+
+  private static class BudgetWarning extends Warning {
+
+    final String msg;
+
+    BudgetWarning(String msg) {
+      super(Warning.MODERATE);
+      this.msg = msg;
+    }
+
+    @Override
+    public String getMsg() {
+      return getClass().toString() + " : solver budget running out, " + msg;
+    }
+
+    public static BudgetWarning create(String msg) {
+      return new BudgetWarning(msg);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects counters, histograms and timers while a {@link PropagationCallGraphBuilder} constructs a
+ * call graph, and writes them as JSON.
+ *
+ * <p>Counters count the statements evaluated per operator, the rounds of the solver, the IRs
+ * fetched and the size of the resulting call graph. Histograms record the depth of the worklist at
+ * each evaluation, the time to get each IR, and the sizes of the final points-to sets; bucket
+ * <i>i</i> holds the values in [2<sup>i-1</sup>, 2<sup>i</sup>). Timers record the wall clock time
+ * of each phase, and the time and number of collections the garbage collectors reported during it.
+ *
+ * <pre>
+ * CallGraphMetrics metrics = new CallGraphMetrics();
+ * builder.addListener(metrics);
+ * builder.makeCallGraph(options, null);
+ * metrics.writeJSON(writer);
+ * </pre>
+ */
+public class CallGraphMetrics implements PropagationListener {
+
+  /** number of buckets of a histogram, enough for any non-negative long */
+  private static final int BUCKETS = 64;
+
+  private final Map<String, Long> counters = new TreeMap<>();
+
+  private final Map<String, long[]> histograms = new TreeMap<>();
+
+  private final Map<String, Timer> timers = new TreeMap<>();
+
+  /** name of the counter for each operator class, to avoid building strings per evaluation */
+  private final Map<Class<?>, String> operatorCounters = HashMapFactory.make();
+
+  /** wall clock, GC time and GC count of a phase, accumulated over all its occurrences */
+  private static final class Timer {
+    long count;
+
+    long nanos;
+
+    long gcMillis;
+
+    long gcCount;
+
+    /** start of the current occurrence, or -1 if the phase is not running */
+    long startNanos = -1;
+
+    long startGcMillis;
+
+    long startGcCount;
+  }
+
+  /** @return the value of a counter, 0 if it was never incremented */
+  public long getCounter(String name) {
+    Long value = counters.get(name);
+    return value == null ? 0 : value;
+  }
+
+  /** @return the names of all counters */
+  public Iterable<String> getCounters() {
+    return counters.keySet();
+  }
+
+  /** @return the buckets of a histogram, or null if no value was recorded in it */
+  public long[] getHistogram(String name) {
+    long[] h = histograms.get(name);
+    return h == null ? null : h.clone();
+  }
+
+  /** @return how many times a phase finished */
+  public long getPhaseCount(String phase) {
+    Timer t = timers.get(phase);
+    return t == null ? 0 : t.count;
+  }
+
+  /** @return total wall clock time of a phase, in milliseconds */
+  public long getPhaseMillis(String phase) {
+    Timer t = timers.get(phase);
+    return t == null ? 0 : t.nanos / 1000000;
+  }
+
+  /** @return total time the garbage collectors reported during a phase, in milliseconds */
+  public long getPhaseGCMillis(String phase) {
+    Timer t = timers.get(phase);
+    return t == null ? 0 : t.gcMillis;
+  }
+
+  /** forget everything recorded so far */
+  public void clear() {
+    counters.clear();
+    histograms.clear();
+    timers.clear();
+  }
+
+  private void count(String name, long delta) {
+    counters.merge(name, delta, Long::sum);
+  }
+
+  private void record(String histogram, long value) {
+    long[] h = histograms.computeIfAbsent(histogram, k -> new long[BUCKETS]);
+    h[Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(Math.max(0, value)))]++;
+  }
+
+  @Override
+  public void phaseStarted(String phase) {
+    Timer t = timers.computeIfAbsent(phase, k -> new Timer());
+    t.startNanos = System.nanoTime();
+    long[] gc = gcTimeAndCount();
+    t.startGcMillis = gc[0];
+    t.startGcCount = gc[1];
+  }
+
+  @Override
+  public void phaseFinished(String phase) {
+    Timer t = timers.get(phase);
+    if (t == null || t.startNanos == -1) {
+      return;
+    }
+    long[] gc = gcTimeAndCount();
+    t.count++;
+    t.nanos += System.nanoTime() - t.startNanos;
+    t.gcMillis += gc[0] - t.startGcMillis;
+    t.gcCount += gc[1] - t.startGcCount;
+    t.startNanos = -1;
+  }
+
+  /** @return the accumulated collection time and count of all garbage collectors */
+  private static long[] gcTimeAndCount() {
+    long[] result = new long[2];
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      // -1 if the collector does not report it
+      result[0] += Math.max(0, gc.getCollectionTime());
+      result[1] += Math.max(0, gc.getCollectionCount());
+    }
+    return result;
+  }
+
+  @Override
+  public void statementEvaluated(AbstractOperator<PointsToSetVariable> operator, int worklistSize) {
+    String name =
+        operatorCounters.computeIfAbsent(operator.getClass(), CallGraphMetrics::counterFor);
+    count(name, 1);
+    record("worklistSize", worklistSize);
+  }
+
+  private static String counterFor(Class<?> operator) {
+    String name = operator.getSimpleName();
+    return "statements." + (name.isEmpty() ? operator.getName() : name);
+  }
+
+  @Override
+  public void irBuilt(CGNode node, long nanos) {
+    count("irs", 1);
+    record("irMicros", nanos / 1000);
+  }
+
+  @Override
+  public void roundFinished(int round) {
+    count("rounds", 1);
+  }
+
+  @Override
+  public void callGraphBuilt(PropagationCallGraphBuilder builder) {
+    CallGraph cg = builder.getCallGraph();
+    count("callGraph.nodes", cg.getNumberOfNodes());
+    long edges = 0;
+    for (CGNode n : cg) {
+      edges += cg.getSuccNodeCount(n);
+    }
+    count("callGraph.edges", edges);
+    PropagationSystem system = builder.getPropagationSystem();
+    if (system == null) {
+      return;
+    }
+    PointsToMap map = system.pointsToMap;
+    for (Iterator<PointerKey> it = system.iteratePointerKeys(); it.hasNext(); ) {
+      PointerKey key = it.next();
+      // count each set of unified keys once
+      if (map.isImplicit(key) || map.isUnified(key)) {
+        continue;
+      }
+      PointsToSetVariable v = map.getPointsToSet(key);
+      if (v != null) {
+        count("pointsToSets", 1);
+        record("pointsToSetSize", v.size());
+      }
+    }
+  }
+
+  /** @return the metrics as a JSON object */
+  public String toJSON() {
+    StringWriter w = new StringWriter();
+    try {
+      writeJSON(w);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new IllegalStateException(e);
+    }
+    return w.toString();
+  }
+
+  /**
+   * Write the metrics as a JSON object with the members "counters", mapping names to values,
+   * "histograms", mapping names to arrays of bucket counts without the trailing empty buckets, and
+   * "timers", mapping phases to objects with the members "count", "millis", "gcMillis" and
+   * "gcCount".
+   */
+  public void writeJSON(Writer w) throws IOException {
+    if (w == null) {
+      throw new IllegalArgumentException("null w");
+    }
+    w.write("{\n  \"counters\": {");
+    String sep = "\n";
+    for (Map.Entry<String, Long> e : counters.entrySet()) {
+      w.write(sep + "    " + quote(e.getKey()) + ": " + e.getValue());
+      sep = ",\n";
+    }
+    w.write("\n  },\n  \"histograms\": {");
+    sep = "\n";
+    for (Map.Entry<String, long[]> e : histograms.entrySet()) {
+      long[] h = e.getValue();
+      int length = h.length;
+      while (length > 0 && h[length - 1] == 0) {
+        length--;
+      }
+      StringBuilder buckets = new StringBuilder();
+      for (int i = 0; i < length; i++) {
+        buckets.append(i == 0 ? "" : ", ").append(h[i]);
+      }
+      w.write(sep + "    " + quote(e.getKey()) + ": [" + buckets + ']');
+      sep = ",\n";
+    }
+    w.write("\n  },\n  \"timers\": {");
+    sep = "\n";
+    for (Map.Entry<String, Timer> e : timers.entrySet()) {
+      Timer t = e.getValue();
+      w.write(
+          sep
+              + "    "
+              + quote(e.getKey())
+              + ": {\"count\": "
+              + t.count
+              + ", \"millis\": "
+              + t.nanos / 1000000
+              + ", \"gcMillis\": "
+              + t.gcMillis
+              + ", \"gcCount\": "
+              + t.gcCount
+              + '}');
+      sep = ",\n";
+    }
+    w.write("\n  }\n}\n");
+    w.flush();
+  }
+
+  private static String quote(String s) {
+    StringBuilder result = new StringBuilder("\"");
+    for (char c : s.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      } else if (c < ' ') {
+        result.append(String.format("\\u%04x", (int) c));
+      } else {
+        result.append(c);
+      }
+    }
+    return result.append('"').toString();
+  }
+
+  @Override
+  public String toString() {
+    return toJSON();
+  }
+}
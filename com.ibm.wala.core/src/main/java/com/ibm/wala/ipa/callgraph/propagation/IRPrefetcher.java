@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the IRs of methods that call graph construction is likely to reach on a thread pool, so
+ * that IR construction overlaps with solving.
+ *
+ * <p>Whenever the builder gets the IR of a node to add its constraints, the class hierarchy targets
+ * of the node's call sites are submitted to the executor, which puts their IRs into the analysis
+ * cache before the solver asks for them. Virtual calls with more than a few possible targets are
+ * skipped, since most of those targets are usually not reached.
+ *
+ * <p>Register a prefetcher with {@link
+ * PropagationCallGraphBuilder#addListener(PropagationListener)}. The builder must use the same
+ * cache, which should be a {@link ConcurrentAnalysisCacheImpl}: a plain {@link
+ * com.ibm.wala.ipa.callgraph.AnalysisCacheImpl} builds one IR at a time, so the solver would wait
+ * for the prefetches whenever it needs an IR. Only IRs that do not depend on the context are
+ * prefetched. The executor belongs to the caller, who shuts it down.
+ */
+public class IRPrefetcher implements PropagationListener {
+
+  /** prefetch the targets of a virtual call only if there are at most this many */
+  public static final int DEFAULT_MAX_TARGETS = 4;
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  private final ExecutorService executor;
+
+  private final int maxTargets;
+
+  /** methods submitted so far; only accessed by the thread building the call graph */
+  private final Set<IMethod> submitted = HashSetFactory.make();
+
+  /** prefetches submitted during the current call graph construction */
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  private final AtomicInteger prefetched = new AtomicInteger();
+
+  private final AtomicInteger failed = new AtomicInteger();
+
+  /**
+   * @param cha the class hierarchy used to find the targets of call sites
+   * @param cache the cache of the call graph builder
+   * @param executor the pool that builds the IRs
+   * @param maxTargets prefetch the targets of a virtual call only if there are at most this many
+   */
+  public IRPrefetcher(
+      IClassHierarchy cha, IAnalysisCacheView cache, ExecutorService executor, int maxTargets) {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("null cache");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("null executor");
+    }
+    this.cha = cha;
+    this.cache = cache;
+    this.executor = executor;
+    this.maxTargets = maxTargets;
+  }
+
+  public IRPrefetcher(IClassHierarchy cha, IAnalysisCacheView cache, ExecutorService executor) {
+    this(cha, cache, executor, DEFAULT_MAX_TARGETS);
+  }
+
+  @Override
+  public void irBuilt(CGNode node, long nanos) {
+    IR ir = node.getIR();
+    if (ir != null) {
+      for (CallSiteReference site : Iterator2Iterable.make(ir.iterateCallSites())) {
+        prefetchTargets(site);
+      }
+    }
+  }
+
+  /** Submit the IRs of the possible targets of a call site, if there are few enough. */
+  public void prefetchTargets(CallSiteReference site) {
+    if (site.isStatic() || site.isSpecial()) {
+      IMethod target = cha.resolveMethod(site.getDeclaredTarget());
+      if (target != null) {
+        prefetch(target);
+      }
+    } else {
+      Set<IMethod> targets = cha.getPossibleTargets(site.getDeclaredTarget());
+      if (targets.size() <= maxTargets) {
+        for (IMethod target : targets) {
+          prefetch(target);
+        }
+      }
+    }
+  }
+
+  /** Submit the IR of a method to be built in the background, unless it was submitted before. */
+  public void prefetch(final IMethod m) {
+    if (m.isAbstract()
+        || m.isNative()
+        || m.isWalaSynthetic()
+        || !cache.getIRFactory().contextIsIrrelevant(m)
+        || !submitted.add(m)) {
+      return;
+    }
+    try {
+      pending.add(
+          executor.submit(
+              () -> {
+                try {
+                  cache.getIR(m);
+                  prefetched.incrementAndGet();
+                } catch (RuntimeException e) {
+                  // the solver will run into the same problem, and report it, if it needs the IR
+                  failed.incrementAndGet();
+                }
+              }));
+    } catch (RejectedExecutionException e) {
+      // the executor was shut down; the solver builds the IR itself
+    }
+  }
+
+  /** Drop the prefetches that have not started yet; their IRs are not needed any more. */
+  @Override
+  public void callGraphBuilt(PropagationCallGraphBuilder builder) {
+    for (Future<?> f : pending) {
+      f.cancel(false);
+    }
+    pending.clear();
+    submitted.clear();
+  }
+
+  /** @return the number of methods submitted for prefetching since the last construction ended */
+  public int getNumberOfSubmitted() {
+    return submitted.size();
+  }
+
+  /** @return the number of IRs prefetched so far, including IRs that were already cached */
+  public int getNumberOfPrefetched() {
+    return prefetched.get();
+  }
+
+  /** @return the number of prefetches that failed to build an IR */
+  public int getNumberOfFailures() {
+    return failed.get();
+  }
+}
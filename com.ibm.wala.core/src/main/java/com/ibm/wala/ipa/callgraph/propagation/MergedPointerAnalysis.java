@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A solved pointer analysis in which equivalent instance keys are merged into one representative,
+ * which makes points-to sets smaller and operations on them cheaper.
+ *
+ * <p>Instance keys are equivalent if they have the same concrete type, and for every field, their
+ * field points to equivalent instance keys; for arrays, likewise for the contents. This is the
+ * coarsest such equivalence, computed by partition refinement. Merging equivalent instance keys
+ * does not change which types a pointer may point to, now or after dereferencing fields, so clients
+ * that depend on types only, such as call graph construction, devirtualization or cast checking,
+ * get the same answers as from the original analysis; aliasing gets less precise. {@link
+ * #expand(OrdinalSet)} gives back the instance keys of the original analysis that the
+ * representatives in a set stand for.
+ *
+ * <p>The fields and array contents of merged instance keys are answered by those of the
+ * representative, which point to everything the fields of the merged instance keys point to. Only
+ * the latter are among {@link #getPointerKeys()}.
+ */
+public class MergedPointerAnalysis extends AbstractPointerAnalysis {
+
+  private final PointerAnalysis<InstanceKey> original;
+
+  /** index in the original mapping -&gt; index of its representative in {@link #instanceKeys} */
+  private final int[] representative;
+
+  /** index of a representative -&gt; indices in the original mapping of the keys it stands for */
+  private final IntSet[] members;
+
+  private final Map<PointerKey, IntSet> pointsTo = HashMapFactory.make();
+
+  private final List<PointerKey> pointerKeys = new ArrayList<>();
+
+  private final HeapModel heapModel;
+
+  private MergedPointerAnalysis(
+      CallGraph cg,
+      PointerAnalysis<InstanceKey> original,
+      MutableMapping<InstanceKey> representatives,
+      int[] representative,
+      IntSet[] members) {
+    super(cg, representatives);
+    this.original = original;
+    this.representative = representative;
+    this.members = members;
+    this.heapModel = new HModel(original.getHeapModel());
+  }
+
+  /**
+   * Merge the interchangeable instance keys of a solved pointer analysis.
+   *
+   * @param cg the call graph the pointer analysis was computed for
+   */
+  public static MergedPointerAnalysis make(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    OrdinalSetMapping<InstanceKey> mapping = pa.getInstanceKeyMapping();
+    int size = mapping.getMaximumIndex() + 1;
+
+    // start with one class per concrete type
+    int[] classOf = new int[size];
+    Map<IClass, Integer> typeClasses = HashMapFactory.make();
+    for (InstanceKey ik : mapping) {
+      Integer c = typeClasses.get(ik.getConcreteType());
+      if (c == null) {
+        c = typeClasses.size();
+        typeClasses.put(ik.getConcreteType(), c);
+      }
+      classOf[mapping.getMappedIndex(ik)] = c;
+    }
+    int numberOfClasses = typeClasses.size();
+
+    // instance key -> field number -> the points-to set of its field
+    Map<Object, Integer> fieldNumbers = HashMapFactory.make();
+    Map<Integer, Map<Integer, IntSet>> fields = HashMapFactory.make();
+    for (PointerKey key : pa.getPointerKeys()) {
+      Object field = field(key);
+      if (field == null) {
+        continue;
+      }
+      int i = mapping.getMappedIndex(((AbstractFieldPointerKey) key).getInstanceKey());
+      IntSet s = pa.getPointsToSet(key).getBackingSet();
+      if (i >= 0 && s != null && !s.isEmpty()) {
+        int f = fieldNumbers.computeIfAbsent(field, x -> fieldNumbers.size());
+        fields.computeIfAbsent(i, x -> HashMapFactory.make()).put(f, s);
+      }
+    }
+
+    // split classes until the fields of the instance keys in a class point to the same classes
+    while (true) {
+      int[] next = new int[size];
+      Map<Signature, Integer> classes = HashMapFactory.make();
+      for (InstanceKey ik : mapping) {
+        int i = mapping.getMappedIndex(ik);
+        Signature sig = new Signature(classOf, i, fields.get(i));
+        Integer c = classes.get(sig);
+        if (c == null) {
+          c = classes.size();
+          classes.put(sig, c);
+        }
+        next[i] = c;
+      }
+      classOf = next;
+      if (classes.size() == numberOfClasses) {
+        break;
+      }
+      numberOfClasses = classes.size();
+    }
+
+    // the first member of each class represents it
+    MutableMapping<InstanceKey> representatives = MutableMapping.make();
+    int[] representative = new int[size];
+    int[] classRepresentative = new int[size];
+    Arrays.fill(classRepresentative, -1);
+    List<IntSet> members = new ArrayList<>();
+    for (InstanceKey ik : mapping) {
+      int i = mapping.getMappedIndex(ik);
+      int c = classOf[i];
+      if (classRepresentative[c] == -1) {
+        classRepresentative[c] = representatives.add(ik);
+        members.add(MutableSparseIntSet.makeEmpty());
+      }
+      representative[i] = classRepresentative[c];
+      ((MutableIntSet) members.get(representative[i])).add(i);
+    }
+
+    MergedPointerAnalysis result =
+        new MergedPointerAnalysis(
+            cg, pa, representatives, representative, members.toArray(new IntSet[0]));
+    for (PointerKey key : pa.getPointerKeys()) {
+      PointerKey rep = result.representativeKey(key);
+      if (rep == key) {
+        result.pointerKeys.add(key);
+      }
+      IntSet s = pa.getPointsToSet(key).getBackingSet();
+      if (s != null && !s.isEmpty()) {
+        IntSet compressed = result.compress(s);
+        IntSet old = result.pointsTo.get(rep);
+        if (old == null) {
+          result.pointsTo.put(rep, compressed);
+        } else {
+          ((MutableIntSet) old).addAll(compressed);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return what distinguishes the field of the instance key that key stands for, or null if key is
+   *     not the field of an instance key
+   */
+  private static Object field(PointerKey key) {
+    if (key instanceof InstanceFieldKey) {
+      return ((InstanceFieldKey) key).getField();
+    } else if (key instanceof ArrayContentsKey) {
+      return ArrayContentsKey.class;
+    } else {
+      return null;
+    }
+  }
+
+  /** @return the indices of the representatives of the instance keys in s */
+  private IntSet compress(IntSet s) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    s.foreach(i -> result.add(representative[i]));
+    return result;
+  }
+
+  /** @return the key that answers for key: the same field of the representative */
+  private PointerKey representativeKey(PointerKey key) {
+    if (key instanceof InstanceFieldKey || key instanceof ArrayContentsKey) {
+      InstanceKey ik = ((AbstractFieldPointerKey) key).getInstanceKey();
+      InstanceKey rep = getRepresentative(ik);
+      if (rep != ik) {
+        return key instanceof ArrayContentsKey
+            ? new ArrayContentsKey(rep)
+            : new InstanceFieldKey(rep, ((InstanceFieldKey) key).getField());
+      }
+    }
+    return key;
+  }
+
+  /** @return the pointer analysis the instance keys of which were merged */
+  public PointerAnalysis<InstanceKey> getOriginal() {
+    return original;
+  }
+
+  /**
+   * @return the representative of ik, which is ik itself if it was not merged or is not an instance
+   *     key of the original analysis
+   */
+  public InstanceKey getRepresentative(InstanceKey ik) {
+    int i = original.getInstanceKeyMapping().getMappedIndex(ik);
+    return i < 0 ? ik : instanceKeys.getMappedObject(representative[i]);
+  }
+
+  /** @return the instance keys of the original analysis that the representative rep stands for */
+  public OrdinalSet<InstanceKey> getMembers(InstanceKey rep) {
+    int r = instanceKeys.getMappedIndex(rep);
+    if (r < 0) {
+      throw new IllegalArgumentException("not a representative: " + rep);
+    }
+    return new OrdinalSet<>(members[r], original.getInstanceKeyMapping());
+  }
+
+  /**
+   * @return the set of instance keys of the original analysis that the representatives in s stand
+   *     for
+   */
+  public OrdinalSet<InstanceKey> expand(OrdinalSet<InstanceKey> s) {
+    if (s == null) {
+      throw new IllegalArgumentException("null s");
+    }
+    if (s.getBackingSet() == null) {
+      return OrdinalSet.empty();
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    s.getBackingSet().foreach(r -> result.addAll(members[r]));
+    return new OrdinalSet<>(result, original.getInstanceKeyMapping());
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    IntSet s = pointsTo.get(representativeKey(key));
+    return s == null ? OrdinalSet.empty() : new OrdinalSet<>(s, instanceKeys);
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return heapModel;
+  }
+
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    return Collections.unmodifiableList(pointerKeys);
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey pk) {
+    return original.isFiltered(pk);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return original.getClassHierarchy();
+  }
+
+  @Override
+  public String toString() {
+    return "MergedPointerAnalysis: "
+        + original.getInstanceKeyMapping().getSize()
+        + " instance keys merged into "
+        + instanceKeys.getSize();
+  }
+
+  /** The class of an instance key, and the classes its fields point to */
+  private static final class Signature {
+
+    private final int classOf;
+
+    /** field number &lt;&lt; 32 | class, for each class each field points to, sorted */
+    private final long[] edges;
+
+    Signature(int[] classOf, int i, Map<Integer, IntSet> fields) {
+      this.classOf = classOf[i];
+      if (fields == null) {
+        edges = new long[0];
+      } else {
+        int size = 0;
+        for (IntSet s : fields.values()) {
+          size += s.size();
+        }
+        long[] e = new long[size];
+        int n = 0;
+        for (Map.Entry<Integer, IntSet> entry : fields.entrySet()) {
+          long f = (long) entry.getKey() << 32;
+          for (IntIterator it = entry.getValue().intIterator(); it.hasNext(); ) {
+            e[n++] = f | classOf[it.next()];
+          }
+        }
+        Arrays.sort(e);
+        // drop duplicates
+        int unique = 0;
+        for (int j = 0; j < n; j++) {
+          if (unique == 0 || e[j] != e[unique - 1]) {
+            e[unique++] = e[j];
+          }
+        }
+        edges = Arrays.copyOf(e, unique);
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return classOf * 4099 + Arrays.hashCode(edges);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Signature)) {
+        return false;
+      }
+      Signature other = (Signature) obj;
+      return classOf == other.classOf && Arrays.equals(edges, other.edges);
+    }
+  }
+
+  /** The heap model of the original analysis, giving representatives for instance keys. */
+  private class HModel implements HeapModel {
+
+    private final HeapModel delegate;
+
+    HModel(HeapModel delegate) {
+      this.delegate = delegate;
+    }
+
+    private InstanceKey rep(InstanceKey ik) {
+      return ik == null ? null : getRepresentative(ik);
+    }
+
+    @Override
+    public Iterator<PointerKey> iteratePointerKeys() {
+      return pointerKeys.iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return delegate.getClassHierarchy();
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+      return rep(delegate.getInstanceKeyForAllocation(node, allocation));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMultiNewArray(
+        CGNode node, NewSiteReference allocation, int dim) {
+      return rep(delegate.getInstanceKeyForMultiNewArray(node, allocation, dim));
+    }
+
+    @Override
+    public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+      return rep(delegate.getInstanceKeyForConstant(type, S));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+      return rep(delegate.getInstanceKeyForPEI(node, instr, type));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+      return rep(delegate.getInstanceKeyForMetadataObject(obj, objType));
+    }
+
+    @Override
+    public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+      return delegate.getPointerKeyForLocal(node, valueNumber);
+    }
+
+    @Override
+    public FilteredPointerKey getFilteredPointerKeyForLocal(
+        CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+      return delegate.getFilteredPointerKeyForLocal(node, valueNumber, filter);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForReturnValue(CGNode node) {
+      return delegate.getPointerKeyForReturnValue(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+      return delegate.getPointerKeyForExceptionalReturnValue(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForStaticField(IField f) {
+      return delegate.getPointerKeyForStaticField(f);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+      return delegate.getPointerKeyForInstanceField(I, field);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+      return delegate.getPointerKeyForArrayContents(I);
+    }
+  }
+}
@@ -40,6 +40,7 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -133,6 +134,24 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
     }
   }
 
+  /**
+   * Register the char[] contents of all Java string constants as instance keys, which {@link
+   * #getPointsToSet(PointerKey)} otherwise does on demand. Afterwards, queries no longer modify the
+   * instance key mapping, so they may come from several threads.
+   */
+  @SuppressWarnings("unchecked")
+  public void internStringConstantContents() {
+    for (InstanceKey ik : new ArrayList<>(instanceKeys.getObjects())) {
+      if (ik instanceof ConstantKey) {
+        ConstantKey<?> i = (ConstantKey<?>) ik;
+        if (i.getValue() instanceof String
+            && i.getConcreteType().getClassLoader().getLanguage().equals(Language.JAVA)) {
+          instanceKeys.add(StringConstantCharArray.make((ConstantKey<String>) i));
+        }
+      }
+    }
+  }
+
   /** did the pointer analysis use a type filter for a given points-to set? (this is ugly). */
   @Override
   public boolean isFiltered(PointerKey key) {
@@ -116,6 +116,19 @@ public class PointsToMap {
     pointsToSets.set(i, v);
   }
 
+  /**
+   * forget a pointer key, e.g. one of a node removed from the call graph. Its number is not used
+   * again.
+   */
+  public void remove(PointerKey key) {
+    int i = getIndex(key);
+    if (i != -1) {
+      pointsToSets.set(i, null);
+      pointerKeys.deleteMappedObject(key);
+      transitiveRoots.clear(i);
+    }
+  }
+
   private int findOrCreateIndex(PointerKey key) {
     int result = pointerKeys.getMappedIndex(key);
     if (result == -1) {
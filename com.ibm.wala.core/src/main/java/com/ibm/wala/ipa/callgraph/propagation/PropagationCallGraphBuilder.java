@@ -11,9 +11,13 @@
 package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
+import com.ibm.wala.analysis.typeInference.ConeType;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
 import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMember;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.classLoader.NewSiteReference;
@@ -25,19 +29,26 @@ import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
@@ -45,9 +56,13 @@ import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.warnings.Warning;
 import com.ibm.wala.util.warnings.Warnings;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * This abstract base class provides the general algorithm for a call graph builder that relies on
@@ -131,6 +146,9 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   /** A context selector which may use information derived from the propagation-based dataflow. */
   protected ContextSelector contextSelector;
 
+  /** enforces the time and heap budget while solving, if the options set one; else null */
+  private BudgetedContextSelector solverBudget;
+
   /** An object that abstracts how to model instances in the heap. */
   protected InstanceKeyFactory instanceKeyFactory;
 
@@ -140,6 +158,9 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    */
   private final boolean rememberGetPutHistory = true;
 
+  /** listeners told about the progress of call graph construction */
+  private final List<PropagationListener> listeners = new ArrayList<>();
+
   /**
    * @param options governing call graph construction options
    * @param pointerKeyFactory factory which embodies pointer abstraction policy
@@ -201,6 +222,8 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       throw new IllegalArgumentException("options is null");
     }
     system = makeSystem(options);
+    system.setListeners(listeners.toArray(new PropagationListener[0]));
+    firePhaseStarted(PropagationListener.PHASE_TOTAL);
 
     if (DEBUG_GENERAL) {
       System.err.println("Enter makeCallGraph!");
@@ -237,6 +260,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
      * should not go undetected!
      */
     if (entrypointCallSites.isEmpty()) {
+      firePhaseFinished(PropagationListener.PHASE_TOTAL);
       throw new IllegalStateException(
           "Could not create a entrypoint callsites: " + Warnings.asString());
     }
@@ -247,18 +271,384 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     customInit();
 
     solver = makeSolver();
+    if (options.hasSolverBudget() && contextSelector != null) {
+      solverBudget = new BudgetedContextSelector(contextSelector, callGraph, options);
+      contextSelector = solverBudget;
+    } else {
+      solverBudget = null;
+    }
+    try {
+      solver.solve(monitor);
+    } catch (CancelException | CancelRuntimeException e) {
+      CallGraphBuilderCancelException c =
+          CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
+              e, callGraph, system.extractPointerAnalysis(this));
+      throw c;
+    } finally {
+      if (solverBudget != null) {
+        contextSelector = solverBudget.getBase();
+      }
+      firePhaseFinished(PropagationListener.PHASE_TOTAL);
+      for (PropagationListener l : listeners) {
+        l.callGraphBuilt(this);
+      }
+    }
+
+    return callGraph;
+  }
+
+  /**
+   * Tell a listener about the progress of subsequent call graph constructions.
+   *
+   * @see CallGraphMetrics
+   */
+  public void addListener(PropagationListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("null listener");
+    }
+    listeners.add(listener);
+  }
+
+  public void removeListener(PropagationListener listener) {
+    listeners.remove(listener);
+  }
+
+  boolean hasListeners() {
+    return !listeners.isEmpty();
+  }
+
+  void firePhaseStarted(String phase) {
+    for (PropagationListener l : listeners) {
+      l.phaseStarted(phase);
+    }
+  }
+
+  void firePhaseFinished(String phase) {
+    for (PropagationListener l : listeners) {
+      l.phaseFinished(phase);
+    }
+  }
+
+  void fireRoundFinished(int round) {
+    for (PropagationListener l : listeners) {
+      l.roundFinished(round);
+    }
+  }
+
+  void fireIRBuilt(CGNode node, long nanos) {
+    for (PropagationListener l : listeners) {
+      l.irBuilt(node, nanos);
+    }
+  }
+
+  /**
+   * @return the selector that enforced the time and heap budget of the last call graph
+   *     construction, telling which methods lost context sensitivity; null if there was no budget
+   */
+  public BudgetedContextSelector getSolverBudget() {
+    return solverBudget;
+  }
+
+  /** Give up context sensitivity if the time or heap budget of the solver is running out. */
+  void checkSolverBudget() {
+    if (solverBudget != null) {
+      solverBudget.checkBudget();
+    }
+  }
+
+  /**
+   * Update the call graph and pointer analysis after classes changed, e.g. after {@link
+   * com.ibm.wala.ipa.cha.ClassHierarchy#reloadClasses(Collection)}.
+   *
+   * <p>The constraint system records which node contributed each constraint. Nodes for methods of
+   * stale classes, or whose context refers to something stale, are removed from the call graph, and
+   * their IRs are dropped from the analysis cache. The constraints of the affected nodes are
+   * removed: those of the removed nodes, of their callers, of nodes whose constraints refer to
+   * stale pointer or instance keys, and of nodes only reachable through affected nodes. The
+   * points-to sets that depended on removed constraints are emptied and recomputed from the
+   * remaining ones, and only the affected nodes are visited again. The other nodes keep their
+   * numbers and constraints. Nodes that are no longer reachable are removed.
+   *
+   * <p>Class initializers and allocations recorded by an RTA builder are not taken back unless
+   * their class is stale.
+   *
+   * @param options options that govern call graph construction; the entrypoints must refer to the
+   *     current versions of the classes
+   * @param staleClasses the old versions of all changed and removed classes
+   * @throws IllegalStateException if no call graph has been built yet
+   */
+  public CallGraph updateCallGraph(
+      AnalysisOptions options, Collection<IClass> staleClasses, IProgressMonitor monitor)
+      throws IllegalArgumentException, CallGraphBuilderCancelException {
+    if (options == null) {
+      throw new IllegalArgumentException("options is null");
+    }
+    if (staleClasses == null) {
+      throw new IllegalArgumentException("staleClasses is null");
+    }
+    if (system == null) {
+      throw new IllegalStateException("no call graph to update");
+    }
+    Set<IClass> stale = HashSetFactory.make(staleClasses);
+    CGNode root = callGraph.getFakeRootNode();
+    CGNode worldClinit = callGraph.getFakeWorldClinitNode();
+
+    Set<CGNode> dead = HashSetFactory.make();
+    for (boolean changed = true; changed; ) {
+      changed = false;
+      for (CGNode n : callGraph) {
+        if (!n.equals(root)
+            && !n.equals(worldClinit)
+            && !dead.contains(n)
+            && isStale(n, stale, dead)) {
+          dead.add(n);
+          changed = true;
+        }
+      }
+    }
+    Predicate<PointerKey> stalePointer = key -> refersToStale(key, stale, dead);
+    IntSet staleInstances = system.getInstanceIndices(ik -> refersToStale(ik, stale, dead));
+
+    Set<CGNode> affected = HashSetFactory.make(dead);
+    for (CGNode n : dead) {
+      affected.addAll(Iterator2Collection.toSet(callGraph.getPredNodes(n)));
+    }
+    affected.addAll(system.getNodesWithStaleContributions(staleInstances, stalePointer));
+    Set<PointsToSetVariable> vars = system.getVariablesContaining(staleInstances);
+    // a node only reachable through affected nodes may not be reachable any more
+    for (int size = -1; size != affected.size(); ) {
+      size = affected.size();
+      system.addAffected(affected, vars);
+      affected.addAll(getUnreachableNodes(affected));
+    }
+
+    // the call to the fake world clinit is not derived from constraints
+    Set<CallSiteReference> worldClinitSites =
+        (worldClinit == null)
+            ? Collections.emptySet()
+            : Iterator2Collection.toSet(callGraph.getPossibleSites(root, worldClinit));
+    system.removeContributions(affected, vars, staleInstances, stalePointer);
+    for (CGNode n : affected) {
+      if (dead.contains(n)) {
+        analysisCache.invalidate(n.getMethod(), n.getContext());
+        analysisCache.invalidate(n.getMethod(), Everywhere.EVERYWHERE);
+        callGraph.removeNodeAndEdges(n);
+      } else {
+        callGraph.getEdgeManager().removeOutgoingEdges(n);
+      }
+    }
+    for (CallSiteReference site : worldClinitSites) {
+      root.addTarget(site, worldClinit);
+    }
+    alreadyVisited.removeAll(affected);
+    forgetDerivedState(stale);
+
+    discoveredNodes = HashSetFactory.make();
+    for (CGNode n : affected) {
+      if (!dead.contains(n) && (n.equals(root) || callGraph.getPredNodeCount(n) > 0)) {
+        discoveredNodes.add(n);
+      }
+    }
+    Set<MethodReference> entrypoints = HashSetFactory.make();
+    for (CallSiteReference site : entrypointCallSites) {
+      entrypoints.add(site.getDeclaredTarget());
+    }
+    for (Entrypoint E : options.getEntrypoints()) {
+      if (!entrypoints.contains(E.getMethod().getReference())) {
+        SSAAbstractInvokeInstruction call = E.addCall(getFakeRootMethod());
+        if (call == null) {
+          Warnings.add(EntrypointResolutionWarning.create(E));
+        } else {
+          entrypointCallSites.add(call.getCallSite());
+          markChanged(root);
+        }
+      }
+    }
+
+    firePhaseStarted(PropagationListener.PHASE_TOTAL);
     try {
+      // visit the fake world clinit first, so that calls to class initializers it already has are
+      // not added again
+      if (discoveredNodes.remove(worldClinit)) {
+        CGNode outer = system.setProducer(worldClinit);
+        try {
+          addConstraintsFromNode(worldClinit, monitor);
+        } finally {
+          system.setProducer(outer);
+        }
+      }
       solver.solve(monitor);
     } catch (CancelException | CancelRuntimeException e) {
       CallGraphBuilderCancelException c =
           CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
               e, callGraph, system.extractPointerAnalysis(this));
       throw c;
+    } finally {
+      firePhaseFinished(PropagationListener.PHASE_TOTAL);
+      for (PropagationListener l : listeners) {
+        l.callGraphBuilt(this);
+      }
     }
 
+    Set<CGNode> unreachable = HashSetFactory.make();
+    for (CGNode n : affected) {
+      if (!dead.contains(n)
+          && !n.equals(root)
+          && !n.equals(worldClinit)
+          && callGraph.getPredNodeCount(n) == 0) {
+        unreachable.add(n);
+        callGraph.removeNodeAndEdges(n);
+      }
+    }
+    if (!unreachable.isEmpty()) {
+      system.removeInstanceKeys(
+          system.getInstanceIndices(
+              ik ->
+                  ik instanceof AbstractTypeInNode
+                      && unreachable.contains(((AbstractTypeInNode) ik).getNode())));
+      system.removeStaleVariables(
+          key ->
+              key instanceof AbstractLocalPointerKey
+                  && unreachable.contains(((AbstractLocalPointerKey) key).getNode()));
+    }
     return callGraph;
   }
 
+  /** @return the nodes that cannot be reached from the fake roots through unaffected nodes */
+  private Set<CGNode> getUnreachableNodes(Set<CGNode> affected) {
+    Set<CGNode> reached = HashSetFactory.make();
+    List<CGNode> worklist = new ArrayList<>();
+    worklist.add(callGraph.getFakeRootNode());
+    if (callGraph.getFakeWorldClinitNode() != null) {
+      worklist.add(callGraph.getFakeWorldClinitNode());
+    }
+    while (!worklist.isEmpty()) {
+      CGNode n = worklist.remove(worklist.size() - 1);
+      if (reached.add(n) && !affected.contains(n)) {
+        callGraph.getSuccNodes(n).forEachRemaining(worklist::add);
+      }
+    }
+    Set<CGNode> result = HashSetFactory.make();
+    for (CGNode n : callGraph) {
+      if (!reached.contains(n)) {
+        result.add(n);
+      }
+    }
+    return result;
+  }
+
+  /** @return true iff n is a node of a stale method, or its context refers to something stale */
+  private static boolean isStale(CGNode n, Set<IClass> stale, Set<CGNode> dead) {
+    if (stale.contains(n.getMethod().getDeclaringClass())) {
+      return true;
+    }
+    Context c = n.getContext();
+    for (ContextKey k :
+        new ContextKey[] {
+          ContextKey.CALLER,
+          ContextKey.TARGET,
+          ContextKey.NAME,
+          ContextKey.CALLSITE,
+          ContextKey.RECEIVER,
+          CallStringContextSelector.CALL_STRING
+        }) {
+      if (refersToStale(c.get(k), stale, dead)) {
+        return true;
+      }
+    }
+    int params = Math.min(n.getMethod().getNumberOfParameters(), ContextKey.PARAMETERS.length);
+    for (int i = 0; i < params; i++) {
+      if (refersToStale(c.get(ContextKey.PARAMETERS[i]), stale, dead)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true iff o is, or refers to, a stale class or one of its members, a removed node, or an
+   *     instance key or pointer key of one of these
+   */
+  private static boolean refersToStale(Object o, Set<IClass> stale, Set<CGNode> dead) {
+    if (o instanceof ContextItem.Value) {
+      return refersToStale(((ContextItem.Value<?>) o).getValue(), stale, dead);
+    } else if (o instanceof IClass) {
+      return stale.contains(o);
+    } else if (o instanceof IMember) {
+      return stale.contains(((IMember) o).getDeclaringClass());
+    } else if (o instanceof CGNode) {
+      return dead.contains(o);
+    } else if (o instanceof PointType || o instanceof ConeType) {
+      return stale.contains(((TypeAbstraction) o).getType());
+    } else if (o instanceof CallString) {
+      for (IMethod m : ((CallString) o).getMethods()) {
+        if (refersToStale(m, stale, dead)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (o instanceof InstanceKey) {
+      InstanceKey ik = (InstanceKey) o;
+      return stale.contains(ik.getConcreteType())
+          || (ik instanceof AbstractTypeInNode
+              && dead.contains(((AbstractTypeInNode) ik).getNode()))
+          || (ik instanceof ConstantKey
+              && refersToStale(((ConstantKey<?>) ik).getValue(), stale, dead));
+    } else if (o instanceof PointerKey) {
+      if (o instanceof AbstractLocalPointerKey
+          && dead.contains(((AbstractLocalPointerKey) o).getNode())) {
+        return true;
+      }
+      if (o instanceof AbstractFieldPointerKey
+          && refersToStale(((AbstractFieldPointerKey) o).getInstanceKey(), stale, dead)) {
+        return true;
+      }
+      if (o instanceof InstanceFieldKey
+          && refersToStale(((InstanceFieldKey) o).getField(), stale, dead)) {
+        return true;
+      }
+      if (o instanceof StaticFieldKey
+          && refersToStale(((StaticFieldKey) o).getField(), stale, dead)) {
+        return true;
+      }
+      if (o instanceof FilteredPointerKey) {
+        FilteredPointerKey.TypeFilter f = ((FilteredPointerKey) o).getTypeFilter();
+        if (f instanceof FilteredPointerKey.SingleClassFilter) {
+          return refersToStale(
+              ((FilteredPointerKey.SingleClassFilter) f).getConcreteType(), stale, dead);
+        } else if (f instanceof FilteredPointerKey.MultipleClassesFilter) {
+          for (IClass k : ((FilteredPointerKey.MultipleClassesFilter) f).getConcreteTypes()) {
+            if (refersToStale(k, stale, dead)) {
+              return true;
+            }
+          }
+        } else if (f instanceof FilteredPointerKey.SingleInstanceFilter) {
+          return refersToStale(
+              ((FilteredPointerKey.SingleInstanceFilter) f).getInstance(), stale, dead);
+        } else if (f instanceof FilteredPointerKey.TargetMethodFilter) {
+          return refersToStale(
+              ((FilteredPointerKey.TargetMethodFilter) f).getMethod(), stale, dead);
+        }
+      }
+      return false;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Forget state derived from stale classes while solving the constraints, before {@link
+   * #updateCallGraph} generates the affected constraints again. Subclasses that keep such state
+   * must override this and call super.
+   *
+   * @param staleClasses the old versions of all changed and removed classes
+   */
+  protected void forgetDerivedState(Set<IClass> staleClasses) {}
+
+  private AbstractRootMethod getFakeRootMethod() {
+    return (AbstractRootMethod) callGraph.getFakeRootNode().getMethod();
+  }
+
   protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
@@ -302,12 +692,23 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    * @return true iff any new constraints are added.
    */
   protected boolean addConstraintsFromNewNodes(IProgressMonitor monitor) throws CancelException {
+    CGNode outer = system.setProducer(null);
+    try {
+      return addConstraintsFromDiscoveredNodes(monitor);
+    } finally {
+      system.setProducer(outer);
+    }
+  }
+
+  private boolean addConstraintsFromDiscoveredNodes(IProgressMonitor monitor)
+      throws CancelException {
     boolean result = false;
     while (!discoveredNodes.isEmpty()) {
       Iterator<CGNode> it = discoveredNodes.iterator();
       discoveredNodes = HashSetFactory.make();
       while (it.hasNext()) {
         CGNode n = it.next();
+        system.setProducer(n);
         if(this.options.isOnlyClientCode()){
           //zhh
           IMethod m = n.getMethod();
@@ -1450,7 +1851,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   /** Add constraints when the interpretation of a node changes (e.g. reflection) */
   public void addConstraintsFromChangedNode(CGNode node, IProgressMonitor monitor)
       throws CancelException {
-    unconditionallyAddConstraintsFromNode(node, monitor);
+    CGNode outer = system.setProducer(node);
+    try {
+      unconditionallyAddConstraintsFromNode(node, monitor);
+    } finally {
+      system.setProducer(outer);
+    }
   }
 
   protected abstract boolean unconditionallyAddConstraintsFromNode(
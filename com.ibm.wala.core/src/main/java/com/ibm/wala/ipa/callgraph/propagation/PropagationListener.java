@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.ipa.callgraph.CGNode;
+
+/**
+ * Receives events during call graph construction by a {@link PropagationCallGraphBuilder}, e.g. to
+ * collect metrics as {@link CallGraphMetrics} does.
+ *
+ * <p>{@link #statementEvaluated} is called for every evaluation of the solver, so it should be
+ * cheap.
+ *
+ * @see PropagationCallGraphBuilder#addListener(PropagationListener)
+ */
+public interface PropagationListener {
+
+  /** the whole construction of the call graph */
+  String PHASE_TOTAL = "total";
+
+  /** solving the constraints added so far */
+  String PHASE_SOLVE = "solve";
+
+  /** adding the constraints of newly discovered nodes */
+  String PHASE_CONSTRAINTS = "constraints";
+
+  /** updating the call graph for reflection */
+  String PHASE_REFLECTION = "reflection";
+
+  /** a phase of call graph construction, one of the PHASE_ constants, starts */
+  default void phaseStarted(String phase) {}
+
+  /** a phase of call graph construction, one of the PHASE_ constants, ends */
+  default void phaseFinished(String phase) {}
+
+  /**
+   * the solver evaluated a statement
+   *
+   * @param operator the operator of the statement
+   * @param worklistSize the number of statements left on the worklist
+   */
+  default void statementEvaluated(
+      AbstractOperator<PointsToSetVariable> operator, int worklistSize) {}
+
+  /**
+   * the builder got the IR of a node, to add its constraints
+   *
+   * @param nanos time taken to get the IR, including building it if it was not cached
+   */
+  default void irBuilt(CGNode node, long nanos) {}
+
+  /**
+   * a round of the solver, i.e. solving followed by adding new constraints and handling reflection,
+   * ended
+   *
+   * @param round the number of the round, starting at 1
+   */
+  default void roundFinished(int round) {}
+
+  /** the builder finished, or gave up, constructing the call graph */
+  default void callGraphBuilt(PropagationCallGraphBuilder builder) {}
+}
@@ -13,19 +13,22 @@ package com.ibm.wala.ipa.callgraph.propagation;
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
-import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixedpoint.impl.GeneralStatement;
+import com.ibm.wala.fixedpoint.impl.IWorklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
@@ -38,6 +41,7 @@ import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.ref.ReferenceCleanser;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,6 +51,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /** System of constraints that define propagation for call graph construction */
 public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariable> {
@@ -57,6 +62,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private static int DEBUG_MEM_COUNTER = 0;
 
+  /** listeners told about each evaluation of a statement */
+  private PropagationListener[] listeners = new PropagationListener[0];
+
   private static final int DEBUG_MEM_INTERVAL = 5;
 
   /** object that tracks points-to sets */
@@ -94,6 +102,35 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   /** Governing call graph; */
   protected final CallGraph cg;
 
+  /**
+   * The node whose constraints are being added, or whose side effect is being evaluated. Statements
+   * and instance keys added meanwhile are recorded as contributions of this node, so that {@link
+   * #removeContributions} can take them back.
+   */
+  private CGNode producer;
+
+  /**
+   * The statements each node contributed, from its instructions or by the evaluation of its side
+   * effects. A statement is recorded for the node that added it first; almost all statements
+   * involve a local of that node, so no other node adds them.
+   */
+  private final Map<CGNode, List<AbstractStatement<PointsToSetVariable, ?>>> nodeStatements =
+      HashMapFactory.make();
+
+  /** The node that added each side effect, i.e. each statement without a left-hand side */
+  private final Map<AbstractStatement<PointsToSetVariable, ?>, CGNode> sideEffectNodes =
+      HashMapFactory.make();
+
+  /**
+   * The instance keys each node added directly to points-to sets. Those added for no node are
+   * recorded for null.
+   */
+  private final Map<CGNode, Map<PointsToSetVariable, MutableIntSet>> nodeInstances =
+      HashMapFactory.make();
+
+  /** The instance keys each node used, including those of implicitly represented points-to sets */
+  private final Map<CGNode, MutableIntSet> nodeInstanceKeys = HashMapFactory.make();
+
   private int verboseInterval = DEFAULT_VERBOSE_INTERVAL;
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
@@ -288,6 +325,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (result == -1) {
       result = instanceKeys.add(key);
     }
+    if (producer != null) {
+      MapUtil.findOrCreateMutableIntSet(nodeInstanceKeys, producer).add(result);
+    }
     if (DEBUG) {
       System.err.println("getIndexForInstanceKey " + key + ' ' + result);
     }
@@ -407,6 +447,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     // This works since the solver is monotonic with TOP = {}
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     int index = findOrCreateIndexForInstanceKey(value);
+    MapUtil.findOrCreateMutableIntSet(MapUtil.findOrCreateMap(nodeInstances, producer), L)
+        .add(index);
     if (!L.add(index)) {
       // a no-op
       return false;
@@ -654,10 +696,58 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   }
 
   /** Use with care. */
-  Worklist getWorklist() {
+  IWorklist getWorklist() {
     return workList;
   }
 
+  void setListeners(PropagationListener[] listeners) {
+    this.listeners = listeners;
+  }
+
+  /**
+   * Record statements and instance keys added from now on as contributions of a node.
+   *
+   * @param node the node, or null to stop recording
+   * @return the node recorded before
+   */
+  public CGNode setProducer(CGNode node) {
+    CGNode result = producer;
+    producer = node;
+    return result;
+  }
+
+  @Override
+  protected void statementAdded(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (producer != null) {
+      MapUtil.findOrCreateList(nodeStatements, producer).add(s);
+      if (s.getLHS() == null) {
+        sideEffectNodes.put(s, producer);
+      }
+    }
+  }
+
+  @Override
+  protected byte evaluate(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (s.getLHS() != null) {
+      return super.evaluate(s);
+    }
+    // statements added by a side effect belong to the node of the side effect
+    CGNode outer = producer;
+    producer = sideEffectNodes.get(s);
+    try {
+      return super.evaluate(s);
+    } finally {
+      producer = outer;
+    }
+  }
+
+  @Override
+  protected void statementEvaluated(AbstractStatement<PointsToSetVariable, ?> s, byte code) {
+    for (PropagationListener l : listeners) {
+      l.statementEvaluated(s.getOperator(), workList.size());
+    }
+  }
+
   public Iterator<AbstractStatement> getStatementsThatUse(PointsToSetVariable v) {
     return flowGraph.getStatementsThatUse(v);
   }
@@ -721,6 +811,230 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /** @return the numbers of the instance keys that satisfy p */
+  MutableIntSet getInstanceIndices(Predicate<InstanceKey> p) {
+    MutableIntSet result = IntSetUtil.make();
+    for (InstanceKey ik : instanceKeys) {
+      if (p.test(ik)) {
+        result.add(instanceKeys.getMappedIndex(ik));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the nodes that contributed a statement over a stale pointer key, or that added or used
+   *     a stale instance key
+   */
+  Set<CGNode> getNodesWithStaleContributions(IntSet staleInstances, Predicate<PointerKey> stale) {
+    Set<CGNode> result = HashSetFactory.make();
+    for (Map.Entry<CGNode, List<AbstractStatement<PointsToSetVariable, ?>>> e :
+        nodeStatements.entrySet()) {
+      for (AbstractStatement<PointsToSetVariable, ?> s : e.getValue()) {
+        if (isStale(s, stale)) {
+          result.add(e.getKey());
+          break;
+        }
+      }
+    }
+    for (Map.Entry<CGNode, Map<PointsToSetVariable, MutableIntSet>> e : nodeInstances.entrySet()) {
+      if (e.getKey() != null) {
+        for (Map.Entry<PointsToSetVariable, MutableIntSet> seeds : e.getValue().entrySet()) {
+          if (stale.test(seeds.getKey().getPointerKey())
+              || seeds.getValue().containsAny(staleInstances)) {
+            result.add(e.getKey());
+            break;
+          }
+        }
+      }
+    }
+    for (Map.Entry<CGNode, MutableIntSet> e : nodeInstanceKeys.entrySet()) {
+      if (e.getValue().containsAny(staleInstances)) {
+        result.add(e.getKey());
+      }
+    }
+    return result;
+  }
+
+  private static boolean isStale(
+      AbstractStatement<PointsToSetVariable, ?> s, Predicate<PointerKey> stale) {
+    if (s.getLHS() != null && stale.test(s.getLHS().getPointerKey())) {
+      return true;
+    }
+    if (s instanceof UnaryStatement) {
+      Object rhs = ((UnaryStatement<?>) s).getRightHandSide();
+      return rhs instanceof PointsToSetVariable
+          && stale.test(((PointsToSetVariable) rhs).getPointerKey());
+    }
+    if (s instanceof GeneralStatement) {
+      for (PointsToSetVariable v : s.getRHS()) {
+        if (v != null && stale.test(v.getPointerKey())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** @return the points-to sets that contain any of the given instance keys */
+  Set<PointsToSetVariable> getVariablesContaining(IntSet instances) {
+    Set<PointsToSetVariable> result = HashSetFactory.make();
+    for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+      if (!pointsToMap.isImplicit(key) && !pointsToMap.isUnified(key)) {
+        PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+        if (v != null && v.getValue() != null && v.getValue().containsAny(instances)) {
+          result.add(v);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Close the nodes and points-to sets affected by a change: the statements of an affected node
+   * will be removed, so the points-to sets they define are affected; the contents of an affected
+   * points-to set will be recomputed, so the points-to sets defined from it are affected, and so is
+   * the node of a side effect that reads it, since the side effect cannot take back what it added.
+   */
+  void addAffected(Set<CGNode> nodes, Set<PointsToSetVariable> vars) {
+    List<CGNode> newNodes = new ArrayList<>(nodes);
+    List<PointsToSetVariable> newVars = new ArrayList<>(vars);
+    while (!newNodes.isEmpty() || !newVars.isEmpty()) {
+      while (!newNodes.isEmpty()) {
+        CGNode n = newNodes.remove(newNodes.size() - 1);
+        for (AbstractStatement<PointsToSetVariable, ?> s :
+            nodeStatements.getOrDefault(n, Collections.emptyList())) {
+          PointsToSetVariable lhs = s.getLHS();
+          if (lhs != null && flowGraph.containsStatement(s) && vars.add(lhs)) {
+            newVars.add(lhs);
+          }
+        }
+        for (PointsToSetVariable v :
+            nodeInstances.getOrDefault(n, Collections.emptyMap()).keySet()) {
+          if (vars.add(v)) {
+            newVars.add(v);
+          }
+        }
+      }
+      while (!newVars.isEmpty()) {
+        PointsToSetVariable v = newVars.remove(newVars.size() - 1);
+        for (AbstractStatement<?, ?> use : Iterator2Iterable.make(getStatementsThatUse(v))) {
+          PointsToSetVariable lhs = (PointsToSetVariable) use.getLHS();
+          if (lhs != null) {
+            if (vars.add(lhs)) {
+              newVars.add(lhs);
+            }
+          } else {
+            CGNode n = sideEffectNodes.get(use);
+            if (n != null && nodes.add(n)) {
+              newNodes.add(n);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Take back what a change invalidates: remove the statements and instance keys contributed by the
+   * given nodes, forget the stale instance keys, and empty the given points-to sets. The points-to
+   * sets are then seeded again from the instance keys the remaining nodes added to them, and the
+   * statements that define them are scheduled, so that solving the system again recomputes them
+   * from the unaffected points-to sets.
+   *
+   * @param nodes nodes whose contributions are removed; they must be closed under {@link
+   *     #addAffected} together with vars
+   * @param vars points-to sets to recompute
+   * @param staleInstances instance keys that must be forgotten
+   * @param stale pointer keys that must be forgotten
+   */
+  void removeContributions(
+      Set<CGNode> nodes,
+      Set<PointsToSetVariable> vars,
+      IntSet staleInstances,
+      Predicate<PointerKey> stale) {
+    for (CGNode n : nodes) {
+      List<AbstractStatement<PointsToSetVariable, ?>> statements = nodeStatements.remove(n);
+      if (statements != null) {
+        for (AbstractStatement<PointsToSetVariable, ?> s : statements) {
+          if (flowGraph.containsStatement(s)) {
+            flowGraph.removeStatement(s);
+          }
+          sideEffectNodes.remove(s);
+        }
+      }
+      nodeInstances.remove(n);
+      nodeInstanceKeys.remove(n);
+    }
+    removeInstanceKeys(staleInstances);
+
+    for (PointsToSetVariable v : vars) {
+      v.removeAll();
+    }
+    for (Map<PointsToSetVariable, MutableIntSet> seeds : nodeInstances.values()) {
+      for (Map.Entry<PointsToSetVariable, MutableIntSet> e : seeds.entrySet()) {
+        staleInstances.foreach(e.getValue()::remove);
+        if (vars.contains(e.getKey())) {
+          e.getKey().addAll(e.getValue());
+        }
+      }
+    }
+    removeStaleVariables(stale);
+    for (PointsToSetVariable v : vars) {
+      if (pointsToMap.getPointsToSet(v.getPointerKey()) == v) {
+        for (AbstractStatement<PointsToSetVariable, ?> s :
+            Iterator2Iterable.make(getStatementsThatDef(v))) {
+          addToWorkList(s);
+        }
+        if (v.size() > 0) {
+          changedVariable(v);
+        }
+      }
+    }
+    pointerAnalysis = null;
+  }
+
+  /** Forget the given instance keys, which no points-to set may contain any more. */
+  void removeInstanceKeys(IntSet instances) {
+    for (Iterator<MutableIntSet> it = class2InstanceKey.values().iterator(); it.hasNext(); ) {
+      MutableIntSet s = it.next();
+      instances.foreach(s::remove);
+      if (s.isEmpty()) {
+        it.remove();
+      }
+    }
+    for (MutableIntSet s : nodeInstanceKeys.values()) {
+      instances.foreach(s::remove);
+    }
+    instances.foreach(i -> instanceKeys.deleteMappedObject(instanceKeys.getMappedObject(i)));
+  }
+
+  /** Forget the stale pointer keys whose points-to sets are no longer used by any statement. */
+  void removeStaleVariables(Predicate<PointerKey> stale) {
+    for (PointerKey key : Iterator2Collection.toSet(pointsToMap.iterateKeys())) {
+      if (stale.test(key)) {
+        if (pointsToMap.isImplicit(key)) {
+          pointsToMap.remove(key);
+        } else if (!pointsToMap.isUnified(key)) {
+          PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+          if (v == null) {
+            pointsToMap.remove(key);
+          } else if (flowGraph.getNumberOfStatementsThatDef(v) == 0
+              && flowGraph.getNumberOfStatementsThatUse(v) == 0) {
+            if (flowGraph.containsVariable(v)) {
+              flowGraph.removeVariable(v);
+            }
+            for (Map<PointsToSetVariable, MutableIntSet> seeds : nodeInstances.values()) {
+              seeds.remove(v);
+            }
+            pointsToMap.remove(key);
+          }
+        }
+      }
+    }
+    pointerAnalysis = null;
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    *
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.FilterIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntMapIterator;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A call graph reloaded by {@link SolvedAnalysisReader}. Nodes have the numbers they had in the
+ * saved call graph, and the call sites, allocation sites and call-site targets it computed.
+ *
+ * <p>The graph cannot be changed. IRs are rebuilt from bytecode on demand, without the context
+ * interpreters of the original builder; synthetic methods have no IR.
+ */
+final class ReadOnlyCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  /** node number -&gt; node, null for numbers the saved graph did not use */
+  private final ArrayList<Node> nodes = new ArrayList<>();
+
+  private int numberOfNodes = 0;
+
+  private final Map<Pair<IMethod, Context>, Node> nodesByKey = HashMapFactory.make();
+
+  private final Map<MethodReference, Set<CGNode>> nodesByMethod = HashMapFactory.make();
+
+  private final Collection<CGNode> entrypoints = new ArrayList<>();
+
+  private Node fakeRoot;
+
+  private Node fakeWorldClinit;
+
+  private final Nodes nodeManager = new Nodes();
+
+  private final Edges edgeManager = new Edges();
+
+  ReadOnlyCallGraph(IClassHierarchy cha, IAnalysisCacheView cache) {
+    this.cha = cha;
+    this.cache = cache;
+  }
+
+  Node makeNode(
+      int number,
+      IMethod method,
+      Context context,
+      CallSiteReference[] sites,
+      NewSiteReference[] newSites) {
+    while (nodes.size() <= number) {
+      nodes.add(null);
+    }
+    if (nodes.get(number) != null) {
+      throw new IllegalArgumentException("duplicate node number " + number);
+    }
+    Node n = new Node(number, method, context, sites, newSites);
+    nodes.set(number, n);
+    numberOfNodes++;
+    nodesByKey.put(Pair.make(method, context), n);
+    nodesByMethod.computeIfAbsent(method.getReference(), r -> HashSetFactory.make()).add(n);
+    return n;
+  }
+
+  void setTargets(Node n, int site, IntSet targets) {
+    n.targets[site] = targets;
+    n.succs.addAll(targets);
+    targets.foreach(t -> nodes.get(t).preds.add(n.number));
+  }
+
+  void setRoots(Node fakeRoot, Node fakeWorldClinit, Collection<Node> entrypoints) {
+    this.fakeRoot = fakeRoot;
+    this.fakeWorldClinit = fakeWorldClinit;
+    this.entrypoints.addAll(entrypoints);
+  }
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot;
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit;
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    return Collections.unmodifiableCollection(entrypoints);
+  }
+
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    return nodesByKey.get(Pair.make(method, C));
+  }
+
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    Set<CGNode> result = nodesByMethod.get(m);
+    return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    IntSet targets = ((Node) node).getTargets(site);
+    if (targets == null) {
+      return Collections.emptySet();
+    }
+    Set<CGNode> result = HashSetFactory.make(targets.size());
+    targets.foreach(t -> result.add(nodes.get(t)));
+    return result;
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    IntSet targets = ((Node) node).getTargets(site);
+    return targets == null ? 0 : targets.size();
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    Node n = (Node) src;
+    int t = getNumber(target);
+    return new FilterIterator<>(
+        n.iterateCallSites(),
+        site -> {
+          IntSet targets = n.getTargets(site);
+          return targets != null && targets.contains(t);
+        });
+  }
+
+  @Override
+  public String toString() {
+    return "ReadOnlyCallGraph with " + numberOfNodes + " nodes";
+  }
+
+  final class Node implements CGNode {
+
+    private final int number;
+
+    private final IMethod method;
+
+    private final Context context;
+
+    private final CallSiteReference[] sites;
+
+    private final NewSiteReference[] newSites;
+
+    /** targets[i] holds the numbers of the targets of sites[i] */
+    private final IntSet[] targets;
+
+    private final MutableSparseIntSet succs = MutableSparseIntSet.makeEmpty();
+
+    private final MutableSparseIntSet preds = MutableSparseIntSet.makeEmpty();
+
+    private Node(
+        int number,
+        IMethod method,
+        Context context,
+        CallSiteReference[] sites,
+        NewSiteReference[] newSites) {
+      this.number = number;
+      this.method = method;
+      this.context = context;
+      this.sites = sites;
+      this.newSites = newSites;
+      this.targets = new IntSet[sites.length];
+    }
+
+    int getNumberOfSites() {
+      return sites.length;
+    }
+
+    private IntSet getTargets(CallSiteReference site) {
+      for (int i = 0; i < sites.length; i++) {
+        if (sites[i].equals(site)) {
+          return targets[i];
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public IMethod getMethod() {
+      return method;
+    }
+
+    @Override
+    public Context getContext() {
+      return context;
+    }
+
+    @Override
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IR getIR() {
+      return method.isWalaSynthetic() ? null : cache.getIR(method, Everywhere.EVERYWHERE);
+    }
+
+    @Override
+    public DefUse getDU() {
+      IR ir = getIR();
+      return ir == null ? null : cache.getDefUse(ir);
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites() {
+      return Arrays.asList(newSites).iterator();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      return Arrays.asList(sites).iterator();
+    }
+
+    @Override
+    public int getGraphNodeId() {
+      return number;
+    }
+
+    @Override
+    public void setGraphNodeId(int number) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    @Override
+    public int hashCode() {
+      return method.hashCode() * 8681 + context.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + method.toString() + " Context: " + context.toString();
+    }
+  }
+
+  private final class Nodes implements NumberedNodeManager<CGNode> {
+
+    @Override
+    public Stream<CGNode> stream() {
+      return nodes.stream().filter(Objects::nonNull).map(n -> n);
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return numberOfNodes;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      return n instanceof Node && getNode(((Node) n).number) == n;
+    }
+
+    @Override
+    public int getNumber(CGNode n) {
+      return containsNode(n) ? ((Node) n).number : -1;
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return number >= 0 && number < nodes.size() ? nodes.get(number) : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.size() - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<>(s, this);
+    }
+  }
+
+  private final class Edges implements NumberedEdgeManager<CGNode> {
+
+    private Iterator<CGNode> toNodes(IntSet s) {
+      return s.isEmpty()
+          ? EmptyIterator.instance()
+          : new IntMapIterator<>(s.intIterator(), nodes::get);
+    }
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      return toNodes(((Node) n).preds);
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      return ((Node) n).preds.size();
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      return toNodes(((Node) n).succs);
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode n) {
+      return ((Node) n).succs.size();
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      return ((Node) src).succs.contains(((Node) dst).number);
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode node) {
+      return ((Node) node).succs;
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode node) {
+      return ((Node) node).preds;
+    }
+  }
+}
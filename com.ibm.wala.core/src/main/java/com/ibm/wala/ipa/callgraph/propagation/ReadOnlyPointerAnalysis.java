@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.DefaultPointerKeyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A pointer analysis reloaded by {@link SolvedAnalysisReader}: the points-to sets of the pointer
+ * keys it saved, over the instance keys it saved, numbered as before.
+ *
+ * <p>The heap model makes pointer keys as {@link DefaultPointerKeyFactory} does. Since the policy
+ * that made the instance keys is not saved, its instance-key methods only find keys the analysis
+ * recorded, modelling allocations and constants the way the standard Java policies do, and return
+ * null for anything else.
+ */
+final class ReadOnlyPointerAnalysis extends AbstractPointerAnalysis {
+
+  private final IClassHierarchy cha;
+
+  private final List<PointerKey> pointerKeys;
+
+  private final Map<PointerKey, IntSet> pointsTo;
+
+  private final Set<PointerKey> filtered;
+
+  private final HeapModel heapModel = new HModel();
+
+  ReadOnlyPointerAnalysis(
+      CallGraph cg,
+      MutableMapping<InstanceKey> instanceKeys,
+      List<PointerKey> pointerKeys,
+      Map<PointerKey, IntSet> pointsTo,
+      Set<PointerKey> filtered) {
+    super(cg, instanceKeys);
+    this.cha = cg.getClassHierarchy();
+    this.pointerKeys = Collections.unmodifiableList(pointerKeys);
+    this.pointsTo = pointsTo;
+    this.filtered = filtered;
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    IntSet s = pointsTo.get(key);
+    return s == null ? OrdinalSet.empty() : new OrdinalSet<>(s, instanceKeys);
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return heapModel;
+  }
+
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    return pointerKeys;
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey pk) {
+    return filtered.contains(pk);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public String toString() {
+    return "ReadOnlyPointerAnalysis with " + pointerKeys.size() + " pointer keys";
+  }
+
+  /** @return the first of the keys that the analysis recorded, or null if there is none */
+  private InstanceKey recorded(InstanceKey... keys) {
+    for (InstanceKey k : keys) {
+      if (instanceKeys.hasMappedIndex(k)) {
+        return k;
+      }
+    }
+    return null;
+  }
+
+  private class HModel implements HeapModel {
+
+    private final PointerKeyFactory pointerKeyFactory = new DefaultPointerKeyFactory();
+
+    @Override
+    public Iterator<PointerKey> iteratePointerKeys() {
+      return pointerKeys.iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+      IClass type = cha.lookupClass(allocation.getDeclaredType());
+      if (type == null) {
+        return null;
+      }
+      return recorded(
+          new NormalAllocationInNode(node, allocation, type),
+          new ZeroLengthArrayInNode(node, allocation, type),
+          new SmushedAllocationSiteInNode(node, type),
+          new AllocationSite(node.getMethod(), allocation, type),
+          new ConcreteTypeKey(type));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMultiNewArray(
+        CGNode node, NewSiteReference allocation, int dim) {
+      IClass type = cha.lookupClass(allocation.getDeclaredType());
+      if (!(type instanceof ArrayClass)) {
+        return null;
+      }
+      return recorded(new MultiNewArrayInNode(node, allocation, (ArrayClass) type, dim));
+    }
+
+    @Override
+    public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+      IClass klass = cha.lookupClass(type);
+      if (klass == null) {
+        return null;
+      }
+      return recorded(new ConstantKey<>(S, klass), new ConcreteTypeKey(klass));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+      IClass klass = cha.lookupClass(type);
+      return klass == null ? null : recorded(new ConcreteTypeKey(klass));
+    }
+
+    @Override
+    public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+      IClass cls = cha.lookupClass(objType);
+      if (cls == null) {
+        return null;
+      }
+      Object value = obj;
+      if (obj instanceof TypeReference) {
+        value = cha.lookupClass((TypeReference) obj);
+      } else if (obj instanceof MethodReference) {
+        value = cha.resolveMethod((MethodReference) obj);
+      }
+      return value == null
+          ? recorded(new ConcreteTypeKey(cls))
+          : recorded(new ConstantKey<>(value, cls), new ConcreteTypeKey(cls));
+    }
+
+    @Override
+    public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+      return pointerKeyFactory.getPointerKeyForLocal(node, valueNumber);
+    }
+
+    @Override
+    public FilteredPointerKey getFilteredPointerKeyForLocal(
+        CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+      return pointerKeyFactory.getFilteredPointerKeyForLocal(node, valueNumber, filter);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForReturnValue(CGNode node) {
+      return pointerKeyFactory.getPointerKeyForReturnValue(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+      return pointerKeyFactory.getPointerKeyForExceptionalReturnValue(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForStaticField(IField f) {
+      return pointerKeyFactory.getPointerKeyForStaticField(f);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+      return pointerKeyFactory.getPointerKeyForInstanceField(I, field);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+      return pointerKeyFactory.getPointerKeyForArrayContents(I);
+    }
+  }
+}
@@ -157,6 +157,13 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     // this.usePreTransitiveSolver = options.usePreTransitiveSolver();
   }
 
+  @Override
+  protected void forgetDerivedState(Set<IClass> staleClasses) {
+    super.forgetDerivedState(staleClasses);
+    clinitVisited.removeAll(staleClasses);
+    finalizeVisited.removeAll(staleClasses);
+  }
+
   public SSAContextInterpreter getCFAContextInterpreter() {
     return (SSAContextInterpreter) getContextInterpreter();
   }
@@ -205,7 +212,14 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     if (DEBUG) {
       System.err.println("\n\nAdd constraints from node " + node);
     }
-    IRView ir = getCFAContextInterpreter().getIRView(node);
+    IRView ir;
+    if (hasListeners()) {
+      long start = System.nanoTime();
+      ir = getCFAContextInterpreter().getIRView(node);
+      fireIRBuilt(node, System.nanoTime() - start);
+    } else {
+      ir = getCFAContextInterpreter().getIRView(node);
+    }
     if (DEBUG) {
       if (ir == null) {
         System.err.println("\n   No statements\n");
@@ -1618,9 +1632,15 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
             SSAAbstractInvokeInstruction s = fakeWorldClinitMethod.addInvocation(new int[0], site);
             PointerKey uniqueCatch =
                 getBuilder().getPointerKeyForExceptionalReturnValue(callGraph.getFakeRootNode());
-            getBuilder()
-                .processResolvedCall(
-                    callGraph.getFakeWorldClinitNode(), s, target, null, uniqueCatch);
+            // the call belongs to the fake world clinit, not to the node that triggered it
+            CGNode outer = system.setProducer(callGraph.getFakeWorldClinitNode());
+            try {
+              getBuilder()
+                  .processResolvedCall(
+                      callGraph.getFakeWorldClinitNode(), s, target, null, uniqueCatch);
+            } finally {
+              system.setProducer(outer);
+            }
           }
         }
       }
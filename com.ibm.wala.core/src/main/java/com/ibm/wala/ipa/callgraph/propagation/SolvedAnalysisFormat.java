@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and encoding helpers shared by {@link SolvedAnalysisWriter} and {@link
+ * SolvedAnalysisReader}.
+ *
+ * <p>A file starts with {@link #MAGIC} and {@link #VERSION}, followed by a stream of definitions,
+ * each a tag byte and a body. Strings, methods, call graph nodes, instance keys and pointer keys
+ * each get numbered, in their own table, in the order they are defined; every definition refers to
+ * others only by these numbers, and only to ones defined before it. The definitions end with {@link
+ * #END}, followed by the call-site targets of every node, the entrypoints and the fake root nodes.
+ * All integers except the header are unsigned LEB128 varints.
+ */
+final class SolvedAnalysisFormat {
+
+  static final int MAGIC = 0x57414c43;
+
+  static final int VERSION = 1;
+
+  /* definition tags */
+  static final byte END = 0;
+
+  static final byte STRING = 1;
+
+  static final byte METHOD = 2;
+
+  static final byte NODE = 3;
+
+  static final byte INSTANCE_KEY = 4;
+
+  static final byte POINTER_KEY = 5;
+
+  /* method kinds */
+  static final byte DECLARED_METHOD = 0;
+
+  static final byte SYNTHETIC_METHOD = 1;
+
+  /* context kinds */
+  static final byte EVERYWHERE = 0;
+
+  static final byte CALL_STRING = 1;
+
+  static final byte RECEIVER_INSTANCE = 2;
+
+  static final byte POINT_TYPE = 3;
+
+  static final byte CONE_TYPE = 4;
+
+  static final byte OPAQUE_CONTEXT = 5;
+
+  /* instance key kinds */
+  static final byte CONCRETE_TYPE = 0;
+
+  static final byte CONSTANT = 1;
+
+  static final byte NORMAL_ALLOCATION = 2;
+
+  static final byte ZERO_LENGTH_ARRAY = 3;
+
+  static final byte MULTI_NEW_ARRAY = 4;
+
+  static final byte SMUSHED_ALLOCATION = 5;
+
+  static final byte ALLOCATION_SITE = 6;
+
+  static final byte STRING_CHAR_ARRAY = 7;
+
+  static final byte OPAQUE_INSTANCE = 8;
+
+  /* constant kinds */
+  static final byte NULL_VALUE = 0;
+
+  static final byte STRING_VALUE = 1;
+
+  static final byte INT_VALUE = 2;
+
+  static final byte LONG_VALUE = 3;
+
+  static final byte FLOAT_VALUE = 4;
+
+  static final byte DOUBLE_VALUE = 5;
+
+  static final byte CLASS_VALUE = 6;
+
+  static final byte METHOD_VALUE = 7;
+
+  static final byte DESCRIPTOR_VALUE = 8;
+
+  /* pointer key kinds */
+  static final byte LOCAL = 0;
+
+  static final byte RETURN_VALUE = 1;
+
+  static final byte EXCEPTION_RETURN_VALUE = 2;
+
+  static final byte STATIC_FIELD = 3;
+
+  static final byte INSTANCE_FIELD = 4;
+
+  static final byte ARRAY_CONTENTS = 5;
+
+  static final byte OPAQUE_POINTER = 6;
+
+  private SolvedAnalysisFormat() {}
+
+  static void writeInt(DataOutput out, int i) throws IOException {
+    while ((i & ~0x7f) != 0) {
+      out.writeByte((i & 0x7f) | 0x80);
+      i >>>= 7;
+    }
+    out.writeByte(i);
+  }
+
+  static int readInt(DataInput in) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
+
+  /** unlike {@link DataOutput#writeUTF(String)}, not limited to 64k bytes */
+  static void writeString(DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[readInt(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
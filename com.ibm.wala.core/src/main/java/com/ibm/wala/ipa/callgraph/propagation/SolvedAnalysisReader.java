@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.analysis.typeInference.ConeType;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.FakeRootClass;
+import com.ibm.wala.ipa.callgraph.propagation.ReadOnlyCallGraph.Node;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.strings.Atom;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reloads a call graph and pointer analysis saved by {@link SolvedAnalysisWriter}, as read-only
+ * views that clients can use like the originals.
+ *
+ * <p>The class hierarchy must be built from the same analysis scope as the one the analysis ran on.
+ * Synthetic methods are reloaded as {@link SyntheticMethod}s with the same reference, without
+ * bodies. Contexts, instance keys and pointer keys the writer could only save by their string form
+ * are reloaded as opaque objects that are equal only to themselves.
+ */
+public final class SolvedAnalysisReader {
+
+  private final IClassHierarchy cha;
+
+  private final DataInputStream in;
+
+  private final ReadOnlyCallGraph cg;
+
+  private final List<String> strings = new ArrayList<>();
+
+  private final List<IMethod> methods = new ArrayList<>();
+
+  /** nodes, in the order they were defined */
+  private final List<Node> nodes = new ArrayList<>();
+
+  private final List<InstanceKey> instanceKeys = new ArrayList<>();
+
+  private final MutableMapping<InstanceKey> instanceKeyMapping = MutableMapping.make();
+
+  private final List<PointerKey> pointerKeys = new ArrayList<>();
+
+  private final Map<PointerKey, IntSet> pointsTo = HashMapFactory.make();
+
+  private final Set<PointerKey> filtered = HashSetFactory.make();
+
+  /** declaring classes of synthetic methods that are not in the class hierarchy */
+  private final Map<TypeReference, IClass> syntheticClasses = HashMapFactory.make();
+
+  private ReadOnlyPointerAnalysis pa;
+
+  private SolvedAnalysisReader(InputStream in, IClassHierarchy cha, IAnalysisCacheView cache) {
+    this.cha = cha;
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    this.cg = new ReadOnlyCallGraph(cha, cache);
+  }
+
+  /**
+   * @param cha the class hierarchy the analysis was run on, or one built from the same scope
+   * @param cache used to build the IRs of reloaded nodes on demand
+   * @throws IOException if the stream cannot be read or is not a saved analysis
+   * @throws IllegalArgumentException if the saved analysis refers to types or methods that cha does
+   *     not contain
+   */
+  public static SolvedAnalysisReader read(
+      InputStream in, IClassHierarchy cha, IAnalysisCacheView cache) throws IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("null in");
+    }
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("null cache");
+    }
+    SolvedAnalysisReader result = new SolvedAnalysisReader(in, cha, cache);
+    result.read();
+    return result;
+  }
+
+  /** @return the reloaded call graph, which cannot be changed */
+  public CallGraph getCallGraph() {
+    return cg;
+  }
+
+  /** @return the reloaded pointer analysis, over {@link #getCallGraph()} */
+  public PointerAnalysis<InstanceKey> getPointerAnalysis() {
+    return pa;
+  }
+
+  private void read() throws IOException {
+    if (in.readInt() != SolvedAnalysisFormat.MAGIC) {
+      throw new IOException("not a saved analysis");
+    }
+    if (in.readInt() != SolvedAnalysisFormat.VERSION) {
+      throw new IOException("unsupported version of saved analysis");
+    }
+    definitions:
+    while (true) {
+      byte tag = in.readByte();
+      switch (tag) {
+        case SolvedAnalysisFormat.END:
+          break definitions;
+        case SolvedAnalysisFormat.STRING:
+          strings.add(SolvedAnalysisFormat.readString(in));
+          break;
+        case SolvedAnalysisFormat.METHOD:
+          methods.add(readMethodDefinition());
+          break;
+        case SolvedAnalysisFormat.NODE:
+          nodes.add(readNodeDefinition());
+          break;
+        case SolvedAnalysisFormat.INSTANCE_KEY:
+          instanceKeys.add(readInstanceKeyDefinition());
+          break;
+        case SolvedAnalysisFormat.POINTER_KEY:
+          readPointerKeyDefinition();
+          break;
+        default:
+          throw new IOException("unexpected definition " + tag);
+      }
+    }
+
+    for (Node n : nodes) {
+      for (int i = 0; i < n.getNumberOfSites(); i++) {
+        IntSet targets = readIntSet(false);
+        if (!targets.isEmpty()) {
+          cg.setTargets(n, i, targets);
+        }
+      }
+    }
+    List<Node> entrypoints = new ArrayList<>();
+    for (int i = readInt(); i > 0; i--) {
+      entrypoints.add(node(readInt()));
+    }
+    int fakeRoot = readInt();
+    int fakeWorldClinit = readInt();
+    cg.setRoots(
+        fakeRoot == 0 ? null : node(fakeRoot - 1),
+        fakeWorldClinit == 0 ? null : node(fakeWorldClinit - 1),
+        entrypoints);
+
+    pa = new ReadOnlyPointerAnalysis(cg, instanceKeyMapping, pointerKeys, pointsTo, filtered);
+  }
+
+  private int readInt() throws IOException {
+    return SolvedAnalysisFormat.readInt(in);
+  }
+
+  private String string() throws IOException {
+    return strings.get(readInt());
+  }
+
+  private Node node(int number) throws IOException {
+    CGNode n = cg.getNode(number);
+    if (n == null) {
+      throw new IOException("undefined node " + number);
+    }
+    return (Node) n;
+  }
+
+  private TypeReference type() throws IOException {
+    String loader = string();
+    ClassLoaderReference ref = cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(loader));
+    if (ref == null) {
+      throw new IllegalArgumentException("unknown class loader " + loader);
+    }
+    return TypeReference.findOrCreate(ref, TypeName.findOrCreate(string()));
+  }
+
+  private IClass klass() throws IOException {
+    TypeReference t = type();
+    IClass result = cha.lookupClass(t);
+    if (result == null) {
+      throw new IllegalArgumentException("class hierarchy does not contain " + t);
+    }
+    return result;
+  }
+
+  private MethodReference methodReference() throws IOException {
+    TypeReference t = type();
+    return MethodReference.findOrCreate(t, Selector.make(string()));
+  }
+
+  private IField field() throws IOException {
+    TypeReference declaringClass = type();
+    Atom name = Atom.findOrCreateUnicodeAtom(string());
+    FieldReference ref = FieldReference.findOrCreate(declaringClass, name, type());
+    IField result = cha.resolveField(ref);
+    if (result == null) {
+      throw new IllegalArgumentException("class hierarchy does not contain " + ref);
+    }
+    return result;
+  }
+
+  private CallSiteReference callSite() throws IOException {
+    int pc = readInt();
+    MethodReference target = methodReference();
+    return CallSiteReference.make(pc, target, IInvokeInstruction.Dispatch.values()[in.readByte()]);
+  }
+
+  private NewSiteReference newSite() throws IOException {
+    int pc = readInt();
+    return NewSiteReference.make(pc, type());
+  }
+
+  private IntSet readIntSet(boolean check) throws IOException {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    int last = 0;
+    for (int i = readInt(); i > 0; i--) {
+      last += readInt();
+      if (check
+          && (last > instanceKeyMapping.getMaximumIndex()
+              || instanceKeyMapping.getMappedObject(last) == null)) {
+        throw new IOException("undefined instance key " + last);
+      }
+      result.add(last);
+    }
+    return result;
+  }
+
+  private IMethod readMethodDefinition() throws IOException {
+    byte kind = in.readByte();
+    if (kind == SolvedAnalysisFormat.SYNTHETIC_METHOD) {
+      boolean isStatic = in.readBoolean();
+      boolean isFactory = in.readBoolean();
+      MethodReference ref = methodReference();
+      IClass declaringClass = cha.lookupClass(ref.getDeclaringClass());
+      if (declaringClass == null) {
+        declaringClass =
+            syntheticClasses.computeIfAbsent(
+                ref.getDeclaringClass(), t -> new FakeRootClass(t, cha));
+      }
+      return new SyntheticMethod(ref, declaringClass, isStatic, isFactory);
+    } else if (kind == SolvedAnalysisFormat.DECLARED_METHOD) {
+      MethodReference ref = methodReference();
+      IClass declaringClass = cha.lookupClass(ref.getDeclaringClass());
+      IMethod result =
+          (declaringClass == null) ? null : declaringClass.getMethod(ref.getSelector());
+      if (result == null) {
+        throw new IllegalArgumentException("class hierarchy does not contain " + ref);
+      }
+      return result;
+    } else {
+      throw new IOException("unexpected method kind " + kind);
+    }
+  }
+
+  private Node readNodeDefinition() throws IOException {
+    int number = readInt();
+    IMethod method = methods.get(readInt());
+    Context context = readContext();
+    CallSiteReference[] sites = new CallSiteReference[readInt()];
+    for (int i = 0; i < sites.length; i++) {
+      sites[i] = callSite();
+    }
+    NewSiteReference[] newSites = new NewSiteReference[readInt()];
+    for (int i = 0; i < newSites.length; i++) {
+      newSites[i] = newSite();
+    }
+    return cg.makeNode(number, method, context, sites, newSites);
+  }
+
+  private Context readContext() throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case SolvedAnalysisFormat.EVERYWHERE:
+        return Everywhere.EVERYWHERE;
+      case SolvedAnalysisFormat.CALL_STRING:
+        {
+          CallSiteReference[] sites = new CallSiteReference[readInt()];
+          IMethod[] callers = new IMethod[sites.length];
+          for (int i = 0; i < sites.length; i++) {
+            sites[i] = callSite();
+            callers[i] = methods.get(readInt());
+          }
+          return new CallStringContext(new CallString(sites, callers));
+        }
+      case SolvedAnalysisFormat.RECEIVER_INSTANCE:
+        return new ReceiverInstanceContext(instanceKeys.get(readInt()));
+      case SolvedAnalysisFormat.POINT_TYPE:
+        return new JavaTypeContext(new PointType(klass()));
+      case SolvedAnalysisFormat.CONE_TYPE:
+        return new JavaTypeContext(new ConeType(klass()));
+      case SolvedAnalysisFormat.OPAQUE_CONTEXT:
+        return new OpaqueContext(string());
+      default:
+        throw new IOException("unexpected context kind " + kind);
+    }
+  }
+
+  private InstanceKey readInstanceKeyDefinition() throws IOException {
+    int index = readInt() - 1;
+    InstanceKey result = readInstanceKey();
+    if (index != -1) {
+      instanceKeyMapping.put(index, result);
+    }
+    return result;
+  }
+
+  private InstanceKey readInstanceKey() throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case SolvedAnalysisFormat.CONCRETE_TYPE:
+        return new ConcreteTypeKey(klass());
+      case SolvedAnalysisFormat.CONSTANT:
+        {
+          IClass type = klass();
+          return new ConstantKey<>(readConstant(), type);
+        }
+      case SolvedAnalysisFormat.NORMAL_ALLOCATION:
+        {
+          Node n = node(readInt());
+          NewSiteReference site = newSite();
+          return new NormalAllocationInNode(n, site, klass());
+        }
+      case SolvedAnalysisFormat.ZERO_LENGTH_ARRAY:
+        {
+          Node n = node(readInt());
+          NewSiteReference site = newSite();
+          return new ZeroLengthArrayInNode(n, site, klass());
+        }
+      case SolvedAnalysisFormat.MULTI_NEW_ARRAY:
+        {
+          Node n = node(readInt());
+          NewSiteReference site = newSite();
+          IClass type = cha.lookupClass(site.getDeclaredType());
+          if (!(type instanceof ArrayClass)) {
+            throw new IllegalArgumentException("not an array class: " + site.getDeclaredType());
+          }
+          return new MultiNewArrayInNode(n, site, (ArrayClass) type, readInt());
+        }
+      case SolvedAnalysisFormat.SMUSHED_ALLOCATION:
+        {
+          Node n = node(readInt());
+          return new SmushedAllocationSiteInNode(n, klass());
+        }
+      case SolvedAnalysisFormat.ALLOCATION_SITE:
+        {
+          IMethod m = methods.get(readInt());
+          NewSiteReference site = newSite();
+          return new AllocationSite(m, site, klass());
+        }
+      case SolvedAnalysisFormat.STRING_CHAR_ARRAY:
+        {
+          @SuppressWarnings("unchecked")
+          ConstantKey<String> constant = (ConstantKey<String>) instanceKeys.get(readInt());
+          return StringConstantCharArray.make(constant);
+        }
+      case SolvedAnalysisFormat.OPAQUE_INSTANCE:
+        {
+          IClass type = in.readBoolean() ? klass() : null;
+          return new OpaqueInstanceKey(type, string());
+        }
+      default:
+        throw new IOException("unexpected instance key kind " + kind);
+    }
+  }
+
+  private Object readConstant() throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case SolvedAnalysisFormat.NULL_VALUE:
+        return null;
+      case SolvedAnalysisFormat.STRING_VALUE:
+        return string();
+      case SolvedAnalysisFormat.INT_VALUE:
+        return in.readInt();
+      case SolvedAnalysisFormat.LONG_VALUE:
+        return in.readLong();
+      case SolvedAnalysisFormat.FLOAT_VALUE:
+        return in.readFloat();
+      case SolvedAnalysisFormat.DOUBLE_VALUE:
+        return in.readDouble();
+      case SolvedAnalysisFormat.CLASS_VALUE:
+        return klass();
+      case SolvedAnalysisFormat.METHOD_VALUE:
+        return methods.get(readInt());
+      case SolvedAnalysisFormat.DESCRIPTOR_VALUE:
+        return Descriptor.findOrCreateUTF8(string());
+      default:
+        throw new IOException("unexpected constant kind " + kind);
+    }
+  }
+
+  private void readPointerKeyDefinition() throws IOException {
+    PointerKey key;
+    byte kind = in.readByte();
+    switch (kind) {
+      case SolvedAnalysisFormat.LOCAL:
+        {
+          Node n = node(readInt());
+          key = new LocalPointerKey(n, readInt());
+          break;
+        }
+      case SolvedAnalysisFormat.RETURN_VALUE:
+        key = new ReturnValueKey(node(readInt()));
+        break;
+      case SolvedAnalysisFormat.EXCEPTION_RETURN_VALUE:
+        key = new ExceptionReturnValueKey(node(readInt()));
+        break;
+      case SolvedAnalysisFormat.STATIC_FIELD:
+        key = new StaticFieldKey(field());
+        break;
+      case SolvedAnalysisFormat.INSTANCE_FIELD:
+        {
+          InstanceKey ik = instanceKeys.get(readInt());
+          key = new InstanceFieldKey(ik, field());
+          break;
+        }
+      case SolvedAnalysisFormat.ARRAY_CONTENTS:
+        key = new ArrayContentsKey(instanceKeys.get(readInt()));
+        break;
+      case SolvedAnalysisFormat.OPAQUE_POINTER:
+        key = new OpaquePointerKey(string());
+        break;
+      default:
+        throw new IOException("unexpected pointer key kind " + kind);
+    }
+    if (in.readBoolean()) {
+      filtered.add(key);
+    }
+    pointerKeys.add(key);
+    pointsTo.put(key, readIntSet(true));
+  }
+
+  /** A context that was saved by its string form only. */
+  private static final class OpaqueContext implements Context {
+
+    private final String description;
+
+    OpaqueContext(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public ContextItem get(ContextKey name) {
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  /** An instance key that was saved by its type and string form only. */
+  private static final class OpaqueInstanceKey implements InstanceKey {
+
+    private final IClass type;
+
+    private final String description;
+
+    OpaqueInstanceKey(IClass type, String description) {
+      this.type = type;
+      this.description = description;
+    }
+
+    @Override
+    public IClass getConcreteType() {
+      return type;
+    }
+
+    @Override
+    public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(CallGraph CG) {
+      return EmptyIterator.instance();
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+
+  /** A pointer key that was saved by its string form only. */
+  private static final class OpaquePointerKey implements PointerKey {
+
+    private final String description;
+
+    OpaquePointerKey(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.analysis.typeInference.ConeType;
+import com.ibm.wala.analysis.typeInference.PointType;
+import com.ibm.wala.analysis.typeInference.TypeAbstraction;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallString;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContext;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Saves a solved call graph together with its pointer analysis, in the format described by {@link
+ * SolvedAnalysisFormat}, so that {@link SolvedAnalysisReader} can give it to clients later without
+ * running the call graph builder again.
+ *
+ * <p>Nodes keep their numbers, and points-to sets keep the numbering of the instance keys. The
+ * contexts, instance keys and pointer keys made by the standard Java builders are saved exactly;
+ * any other kind is saved by its string form only, so it is reloaded as an opaque object that is
+ * equal only to itself.
+ */
+public final class SolvedAnalysisWriter {
+
+  private final CallGraph cg;
+
+  private final PointerAnalysis<? extends InstanceKey> pa;
+
+  private final DataOutputStream out;
+
+  private final Map<String, Integer> strings = HashMapFactory.make();
+
+  private final Map<IMethod, Integer> methods = HashMapFactory.make();
+
+  private final Map<InstanceKey, Integer> instanceKeys = HashMapFactory.make();
+
+  /** nodes, in the order they were defined, and their call sites */
+  private final Map<CGNode, List<CallSiteReference>> nodes = HashMapFactory.make();
+
+  private final List<CGNode> nodeOrder = new ArrayList<>();
+
+  /** objects whose definition is being written, to detect cycles */
+  private final Set<Object> pending = HashSetFactory.make();
+
+  private SolvedAnalysisWriter(
+      CallGraph cg, PointerAnalysis<? extends InstanceKey> pa, OutputStream out) {
+    this.cg = cg;
+    this.pa = pa;
+    this.out = new DataOutputStream(out);
+  }
+
+  /**
+   * Write a call graph and the pointer analysis that built it. Points-to sets that the pointer
+   * analysis computes on demand are computed now.
+   *
+   * @throws IllegalArgumentException if the pointer analysis refers to nodes that are not in cg
+   */
+  public static void write(
+      CallGraph cg, PointerAnalysis<? extends InstanceKey> pa, OutputStream out)
+      throws IOException {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    new SolvedAnalysisWriter(cg, pa, out).write();
+  }
+
+  private void write() throws IOException {
+    out.writeInt(SolvedAnalysisFormat.MAGIC);
+    out.writeInt(SolvedAnalysisFormat.VERSION);
+    for (CGNode n : cg) {
+      node(n);
+    }
+
+    // computing implicit points-to sets may add instance keys, so do it before saving the keys
+    List<PointerKey> keys = new ArrayList<>();
+    List<IntSet> sets = new ArrayList<>();
+    for (PointerKey k : pa.getPointerKeys()) {
+      keys.add(k);
+      sets.add(pa.getPointsToSet(k).getBackingSet());
+    }
+    OrdinalSetMapping<? extends InstanceKey> mapping = pa.getInstanceKeyMapping();
+    for (int i = 0; i <= mapping.getMaximumIndex(); i++) {
+      InstanceKey ik = mapping.getMappedObject(i);
+      if (ik != null) {
+        instanceKey(ik);
+      }
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      pointerKey(keys.get(i), sets.get(i));
+    }
+    out.writeByte(SolvedAnalysisFormat.END);
+
+    for (CGNode n : nodeOrder) {
+      for (CallSiteReference site : nodes.get(n)) {
+        MutableSparseIntSet targets = MutableSparseIntSet.makeEmpty();
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          targets.add(cg.getNumber(t));
+        }
+        intSet(out, targets);
+      }
+    }
+    SolvedAnalysisFormat.writeInt(out, cg.getEntrypointNodes().size());
+    for (CGNode n : cg.getEntrypointNodes()) {
+      SolvedAnalysisFormat.writeInt(out, cg.getNumber(n));
+    }
+    writeNullableNode(cg.getFakeRootNode());
+    writeNullableNode(cg.getFakeWorldClinitNode());
+    out.flush();
+  }
+
+  private void writeNullableNode(CGNode n) throws IOException {
+    SolvedAnalysisFormat.writeInt(out, n == null ? 0 : cg.getNumber(n) + 1);
+  }
+
+  private void enter(Object o) {
+    if (!pending.add(o)) {
+      throw new IllegalArgumentException("cyclic definition of " + o);
+    }
+  }
+
+  private int string(String s) throws IOException {
+    Integer result = strings.get(s);
+    if (result == null) {
+      out.writeByte(SolvedAnalysisFormat.STRING);
+      SolvedAnalysisFormat.writeString(out, s);
+      result = strings.size();
+      strings.put(s, result);
+    }
+    return result;
+  }
+
+  private int method(IMethod m) throws IOException {
+    Integer result = methods.get(m);
+    if (result == null) {
+      Definition d = new Definition();
+      if (m.isWalaSynthetic()) {
+        d.writeByte(SolvedAnalysisFormat.SYNTHETIC_METHOD);
+        d.writeBoolean(m.isStatic());
+        d.writeBoolean(m instanceof SyntheticMethod && ((SyntheticMethod) m).isFactoryMethod());
+      } else {
+        d.writeByte(SolvedAnalysisFormat.DECLARED_METHOD);
+      }
+      methodReference(d, m.getReference());
+      d.writeTo(SolvedAnalysisFormat.METHOD);
+      result = methods.size();
+      methods.put(m, result);
+    }
+    return result;
+  }
+
+  private int node(CGNode n) throws IOException {
+    if (!cg.containsNode(n)) {
+      throw new IllegalArgumentException("not in the call graph: " + n);
+    }
+    if (!nodes.containsKey(n)) {
+      enter(n);
+      List<CallSiteReference> sites = Iterator2Collection.toList(n.iterateCallSites());
+      List<NewSiteReference> news = Iterator2Collection.toList(n.iterateNewSites());
+      Definition d = new Definition();
+      SolvedAnalysisFormat.writeInt(d, cg.getNumber(n));
+      SolvedAnalysisFormat.writeInt(d, method(n.getMethod()));
+      context(d, n.getContext());
+      SolvedAnalysisFormat.writeInt(d, sites.size());
+      for (CallSiteReference site : sites) {
+        callSite(d, site);
+      }
+      SolvedAnalysisFormat.writeInt(d, news.size());
+      for (NewSiteReference site : news) {
+        newSite(d, site);
+      }
+      d.writeTo(SolvedAnalysisFormat.NODE);
+      nodes.put(n, sites);
+      nodeOrder.add(n);
+      pending.remove(n);
+    }
+    return cg.getNumber(n);
+  }
+
+  private int instanceKey(InstanceKey ik) throws IOException {
+    Integer result = instanceKeys.get(ik);
+    if (result == null) {
+      enter(ik);
+      Definition d = new Definition();
+      SolvedAnalysisFormat.writeInt(d, pa.getInstanceKeyMapping().getMappedIndex(ik) + 1);
+      if (ik instanceof ConcreteTypeKey) {
+        d.writeByte(SolvedAnalysisFormat.CONCRETE_TYPE);
+        type(d, ik.getConcreteType().getReference());
+      } else if (ik instanceof ConstantKey
+          && isSupportedConstant(((ConstantKey<?>) ik).getValue())) {
+        d.writeByte(SolvedAnalysisFormat.CONSTANT);
+        type(d, ik.getConcreteType().getReference());
+        constant(d, ((ConstantKey<?>) ik).getValue());
+      } else if (ik instanceof NormalAllocationInNode || ik instanceof ZeroLengthArrayInNode) {
+        AllocationSiteInNode a = (AllocationSiteInNode) ik;
+        d.writeByte(
+            ik instanceof NormalAllocationInNode
+                ? SolvedAnalysisFormat.NORMAL_ALLOCATION
+                : SolvedAnalysisFormat.ZERO_LENGTH_ARRAY);
+        SolvedAnalysisFormat.writeInt(d, node(a.getNode()));
+        newSite(d, a.getSite());
+        type(d, a.getConcreteType().getReference());
+      } else if (ik instanceof MultiNewArrayInNode) {
+        MultiNewArrayInNode a = (MultiNewArrayInNode) ik;
+        d.writeByte(SolvedAnalysisFormat.MULTI_NEW_ARRAY);
+        SolvedAnalysisFormat.writeInt(d, node(a.getNode()));
+        newSite(d, a.getSite());
+        SolvedAnalysisFormat.writeInt(d, a.getDim());
+      } else if (ik.getClass() == SmushedAllocationSiteInNode.class) {
+        SmushedAllocationSiteInNode a = (SmushedAllocationSiteInNode) ik;
+        d.writeByte(SolvedAnalysisFormat.SMUSHED_ALLOCATION);
+        SolvedAnalysisFormat.writeInt(d, node(a.getNode()));
+        type(d, a.getConcreteType().getReference());
+      } else if (ik.getClass() == AllocationSite.class) {
+        AllocationSite a = (AllocationSite) ik;
+        d.writeByte(SolvedAnalysisFormat.ALLOCATION_SITE);
+        SolvedAnalysisFormat.writeInt(d, method(a.getMethod()));
+        newSite(d, a.getSite());
+        type(d, a.getConcreteType().getReference());
+      } else if (ik.getClass() == StringConstantCharArray.class) {
+        d.writeByte(SolvedAnalysisFormat.STRING_CHAR_ARRAY);
+        SolvedAnalysisFormat.writeInt(d, instanceKey(((StringConstantCharArray) ik).getConstant()));
+      } else {
+        d.writeByte(SolvedAnalysisFormat.OPAQUE_INSTANCE);
+        IClass type = ik.getConcreteType();
+        d.writeBoolean(type != null);
+        if (type != null) {
+          type(d, type.getReference());
+        }
+        SolvedAnalysisFormat.writeInt(d, string(ik.toString()));
+      }
+      d.writeTo(SolvedAnalysisFormat.INSTANCE_KEY);
+      result = instanceKeys.size();
+      instanceKeys.put(ik, result);
+      pending.remove(ik);
+    }
+    return result;
+  }
+
+  private static boolean isSupportedConstant(Object v) {
+    return v == null
+        || v instanceof String
+        || v instanceof Integer
+        || v instanceof Long
+        || v instanceof Float
+        || v instanceof Double
+        || v instanceof IClass
+        || v instanceof IMethod
+        || v instanceof Descriptor;
+  }
+
+  private void constant(Definition d, Object v) throws IOException {
+    if (v == null) {
+      d.writeByte(SolvedAnalysisFormat.NULL_VALUE);
+    } else if (v instanceof String) {
+      d.writeByte(SolvedAnalysisFormat.STRING_VALUE);
+      SolvedAnalysisFormat.writeInt(d, string((String) v));
+    } else if (v instanceof Integer) {
+      d.writeByte(SolvedAnalysisFormat.INT_VALUE);
+      d.writeInt((Integer) v);
+    } else if (v instanceof Long) {
+      d.writeByte(SolvedAnalysisFormat.LONG_VALUE);
+      d.writeLong((Long) v);
+    } else if (v instanceof Float) {
+      d.writeByte(SolvedAnalysisFormat.FLOAT_VALUE);
+      d.writeFloat((Float) v);
+    } else if (v instanceof Double) {
+      d.writeByte(SolvedAnalysisFormat.DOUBLE_VALUE);
+      d.writeDouble((Double) v);
+    } else if (v instanceof IClass) {
+      d.writeByte(SolvedAnalysisFormat.CLASS_VALUE);
+      type(d, ((IClass) v).getReference());
+    } else if (v instanceof IMethod) {
+      d.writeByte(SolvedAnalysisFormat.METHOD_VALUE);
+      SolvedAnalysisFormat.writeInt(d, method((IMethod) v));
+    } else {
+      d.writeByte(SolvedAnalysisFormat.DESCRIPTOR_VALUE);
+      SolvedAnalysisFormat.writeInt(d, string(((Descriptor) v).toUnicodeString()));
+    }
+  }
+
+  private void pointerKey(PointerKey k, IntSet set) throws IOException {
+    Definition d = new Definition();
+    if (k instanceof LocalPointerKey) {
+      // LocalPointerKey.equals ignores the type filter
+      d.writeByte(SolvedAnalysisFormat.LOCAL);
+      SolvedAnalysisFormat.writeInt(d, node(((LocalPointerKey) k).getNode()));
+      SolvedAnalysisFormat.writeInt(d, ((LocalPointerKey) k).getValueNumber());
+    } else if (k.getClass() == ReturnValueKey.class
+        || k.getClass() == ReturnValueKeyWithFilter.class) {
+      d.writeByte(SolvedAnalysisFormat.RETURN_VALUE);
+      SolvedAnalysisFormat.writeInt(d, node(((ReturnValueKey) k).getNode()));
+    } else if (k instanceof ExceptionReturnValueKey) {
+      d.writeByte(SolvedAnalysisFormat.EXCEPTION_RETURN_VALUE);
+      SolvedAnalysisFormat.writeInt(d, node(((ExceptionReturnValueKey) k).getNode()));
+    } else if (k instanceof StaticFieldKey) {
+      d.writeByte(SolvedAnalysisFormat.STATIC_FIELD);
+      field(d, ((StaticFieldKey) k).getField());
+    } else if (k.getClass() == InstanceFieldKey.class) {
+      d.writeByte(SolvedAnalysisFormat.INSTANCE_FIELD);
+      SolvedAnalysisFormat.writeInt(d, instanceKey(((InstanceFieldKey) k).getInstanceKey()));
+      field(d, ((InstanceFieldKey) k).getField());
+    } else if (k instanceof ArrayContentsKey) {
+      d.writeByte(SolvedAnalysisFormat.ARRAY_CONTENTS);
+      SolvedAnalysisFormat.writeInt(d, instanceKey(((ArrayContentsKey) k).getInstanceKey()));
+    } else {
+      d.writeByte(SolvedAnalysisFormat.OPAQUE_POINTER);
+      SolvedAnalysisFormat.writeInt(d, string(k.toString()));
+    }
+    d.writeBoolean(pa.isFiltered(k));
+    intSet(d, set);
+    d.writeTo(SolvedAnalysisFormat.POINTER_KEY);
+  }
+
+  private void context(Definition d, Context c) throws IOException {
+    if (c.equals(Everywhere.EVERYWHERE)) {
+      d.writeByte(SolvedAnalysisFormat.EVERYWHERE);
+    } else if (c.getClass() == CallStringContext.class
+        && c.get(CallStringContextSelector.CALL_STRING).getClass() == CallString.class) {
+      CallString cs = (CallString) c.get(CallStringContextSelector.CALL_STRING);
+      d.writeByte(SolvedAnalysisFormat.CALL_STRING);
+      SolvedAnalysisFormat.writeInt(d, cs.getCallSiteRefs().length);
+      for (int i = 0; i < cs.getCallSiteRefs().length; i++) {
+        callSite(d, cs.getCallSiteRefs()[i]);
+        SolvedAnalysisFormat.writeInt(d, method(cs.getMethods()[i]));
+      }
+    } else if (c.getClass() == ReceiverInstanceContext.class) {
+      d.writeByte(SolvedAnalysisFormat.RECEIVER_INSTANCE);
+      SolvedAnalysisFormat.writeInt(d, instanceKey(((ReceiverInstanceContext) c).getReceiver()));
+    } else if (c.getClass() == JavaTypeContext.class
+        && (((JavaTypeContext) c).getType().getClass() == PointType.class
+            || ((JavaTypeContext) c).getType().getClass() == ConeType.class)) {
+      TypeAbstraction t = ((JavaTypeContext) c).getType();
+      d.writeByte(
+          t instanceof PointType
+              ? SolvedAnalysisFormat.POINT_TYPE
+              : SolvedAnalysisFormat.CONE_TYPE);
+      type(d, t.getTypeReference());
+    } else {
+      d.writeByte(SolvedAnalysisFormat.OPAQUE_CONTEXT);
+      SolvedAnalysisFormat.writeInt(d, string(c.toString()));
+    }
+  }
+
+  private void type(Definition d, TypeReference t) throws IOException {
+    SolvedAnalysisFormat.writeInt(d, string(t.getClassLoader().getName().toString()));
+    SolvedAnalysisFormat.writeInt(d, string(t.getName().toString()));
+  }
+
+  private void methodReference(Definition d, MethodReference m) throws IOException {
+    type(d, m.getDeclaringClass());
+    SolvedAnalysisFormat.writeInt(d, string(m.getSelector().toString()));
+  }
+
+  private void field(Definition d, IField f) throws IOException {
+    FieldReference r = f.getReference();
+    type(d, r.getDeclaringClass());
+    SolvedAnalysisFormat.writeInt(d, string(r.getName().toString()));
+    type(d, r.getFieldType());
+  }
+
+  private void callSite(Definition d, CallSiteReference site) throws IOException {
+    if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+      throw new IllegalArgumentException("unsupported invocation code: " + site);
+    }
+    SolvedAnalysisFormat.writeInt(d, site.getProgramCounter());
+    methodReference(d, site.getDeclaredTarget());
+    d.writeByte(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+  }
+
+  private void newSite(Definition d, NewSiteReference site) throws IOException {
+    SolvedAnalysisFormat.writeInt(d, site.getProgramCounter());
+    type(d, site.getDeclaredType());
+  }
+
+  /** write a set as its size and the differences between its sorted elements */
+  private static void intSet(DataOutput d, IntSet s) throws IOException {
+    if (s == null) {
+      SolvedAnalysisFormat.writeInt(d, 0);
+      return;
+    }
+    int[] elements = new int[s.size()];
+    int i = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      elements[i++] = it.next();
+    }
+    Arrays.sort(elements);
+    SolvedAnalysisFormat.writeInt(d, elements.length);
+    int last = 0;
+    for (int e : elements) {
+      SolvedAnalysisFormat.writeInt(d, e - last);
+      last = e;
+    }
+  }
+
+  /**
+   * The body of one definition. Definitions it refers to are written out while it is being built,
+   * so it is buffered and only written once complete.
+   */
+  private final class Definition extends DataOutputStream {
+
+    Definition() {
+      super(new ByteArrayOutputStream());
+    }
+
+    void writeTo(byte tag) throws IOException {
+      SolvedAnalysisWriter.this.out.writeByte(tag);
+      ((ByteArrayOutputStream) out).writeTo(SolvedAnalysisWriter.this.out);
+    }
+  }
+}
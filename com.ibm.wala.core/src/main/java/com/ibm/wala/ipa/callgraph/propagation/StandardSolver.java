@@ -34,11 +34,15 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("Iteration " + i);
       }
+      getBuilder().firePhaseStarted(PropagationListener.PHASE_SOLVE);
       getSystem().solve(monitor);
+      getBuilder().firePhaseFinished(PropagationListener.PHASE_SOLVE);
       if (DEBUG_PHASES) {
         System.err.println("Solved " + i);
       }
 
+      getBuilder().checkSolverBudget();
+
       if (getBuilder().getOptions().getMaxNumberOfNodes() > -1) {
         if (getBuilder().getCallGraph().getNumberOfNodes()
             >= getBuilder().getOptions().getMaxNumberOfNodes()) {
@@ -53,7 +57,9 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("adding constraints");
       }
+      getBuilder().firePhaseStarted(PropagationListener.PHASE_CONSTRAINTS);
       getBuilder().addConstraintsFromNewNodes(monitor);
+      getBuilder().firePhaseFinished(PropagationListener.PHASE_CONSTRAINTS);
 
       // getBuilder().callGraph.summarizeByPackage();
 
@@ -61,14 +67,19 @@ public class StandardSolver extends AbstractPointsToSolver {
         System.err.println("handling reflection");
       }
       if (i <= getBuilder().getOptions().getReflectionOptions().getNumFlowToCastIterations()) {
+        getBuilder().firePhaseStarted(PropagationListener.PHASE_REFLECTION);
         getReflectionHandler().updateForReflection(monitor);
+        getBuilder().firePhaseFinished(PropagationListener.PHASE_REFLECTION);
       }
       // Handling reflection may have discovered new nodes!
       if (DEBUG_PHASES) {
         System.err.println("adding constraints again");
       }
+      getBuilder().firePhaseStarted(PropagationListener.PHASE_CONSTRAINTS);
       getBuilder().addConstraintsFromNewNodes(monitor);
+      getBuilder().firePhaseFinished(PropagationListener.PHASE_CONSTRAINTS);
 
+      getBuilder().fireRoundFinished(i);
       if (monitor != null) {
         monitor.worked(i);
       }
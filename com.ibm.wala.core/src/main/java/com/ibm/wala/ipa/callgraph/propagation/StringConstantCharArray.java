@@ -37,6 +37,11 @@ public class StringConstantCharArray implements InstanceKey {
     return new StringConstantCharArray(constant);
   }
 
+  /** @return the string constant whose contents this key represents */
+  public ConstantKey<String> getConstant() {
+    return constant;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
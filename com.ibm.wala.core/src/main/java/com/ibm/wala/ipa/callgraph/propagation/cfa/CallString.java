@@ -27,6 +27,21 @@ public class CallString implements ContextItem {
     this.methods = new IMethod[] {method};
   }
 
+  /**
+   * @param sites the call sites, innermost first
+   * @param methods methods[i] is the method containing sites[i]
+   */
+  public CallString(CallSiteReference[] sites, IMethod[] methods) {
+    if (sites == null || sites.length == 0) {
+      throw new IllegalArgumentException("no sites");
+    }
+    if (methods == null || methods.length != sites.length) {
+      throw new IllegalArgumentException("need one method per site");
+    }
+    this.sites = sites.clone();
+    this.methods = methods.clone();
+  }
+
   protected CallString(CallSiteReference site, IMethod method, int length, CallString base) {
     int sitesLength = Math.min(length, base.sites.length + 1);
     int methodsLength = Math.min(length, base.methods.length + 1);
@@ -34,6 +34,10 @@ public class CallerContextPair extends CallerContext {
     assert !(baseContext instanceof CallerContextPair);
   }
 
+  public Context getBaseContext() {
+    return baseContext;
+  }
+
   @Override
   public ContextItem get(ContextKey name) {
     if (name == null) {
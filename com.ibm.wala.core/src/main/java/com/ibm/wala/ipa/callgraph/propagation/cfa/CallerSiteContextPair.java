@@ -36,6 +36,10 @@ public class CallerSiteContextPair extends CallerSiteContext {
     assert !(baseContext instanceof CallerContextPair);
   }
 
+  public Context getBaseContext() {
+    return baseContext;
+  }
+
   @Override
   public ContextItem get(ContextKey name) {
     if (name == null) {
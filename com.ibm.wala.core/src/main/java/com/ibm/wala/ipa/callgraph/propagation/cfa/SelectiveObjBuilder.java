@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.cfa;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+
+/**
+ * call graph builder based on object sensitivity, which first builds a context-insensitive call
+ * graph to decide how deep the contexts of each method should be
+ *
+ * @see SelectiveObjContextSelector
+ */
+public class SelectiveObjBuilder extends ZeroXCFABuilder {
+
+  private final int n;
+
+  private final long maxCost;
+
+  private final ContextSelector appContextSelector;
+
+  private final SSAContextInterpreter appContextInterpreter;
+
+  private final int instancePolicy;
+
+  public SelectiveObjBuilder(
+      int n,
+      long maxCost,
+      IClassHierarchy cha,
+      AnalysisOptions options,
+      IAnalysisCacheView cache,
+      ContextSelector appContextSelector,
+      SSAContextInterpreter appContextInterpreter,
+      int instancePolicy) {
+    super(
+        Language.JAVA,
+        cha,
+        options,
+        cache,
+        appContextSelector,
+        appContextInterpreter,
+        instancePolicy);
+    if (n <= 0) {
+      throw new IllegalArgumentException("n must be a positive number");
+    }
+    this.n = n;
+    this.maxCost = maxCost;
+    this.appContextSelector = appContextSelector;
+    this.appContextInterpreter = appContextInterpreter;
+    this.instancePolicy = instancePolicy;
+  }
+
+  /**
+   * Build the context-insensitive call graph, if not done before, and then the call graph with the
+   * contexts it leads to.
+   */
+  @Override
+  public CallGraph makeCallGraph(AnalysisOptions options, IProgressMonitor monitor)
+      throws IllegalArgumentException, CallGraphBuilderCancelException {
+    if (!(getContextSelector() instanceof SelectiveObjContextSelector)) {
+      // the pre-analysis shares the IRs it builds through the cache
+      ZeroXCFABuilder pre =
+          new ZeroXCFABuilder(
+              Language.JAVA,
+              getClassHierarchy(),
+              options,
+              getAnalysisCache(),
+              appContextSelector,
+              appContextInterpreter,
+              instancePolicy);
+      CallGraph cg = pre.makeCallGraph(options, monitor);
+      setContextSelector(
+          SelectiveObjContextSelector.make(
+              n, getContextSelector(), cg, pre.getPointerAnalysis(), maxCost));
+    }
+    return super.makeCallGraph(options, monitor);
+  }
+}
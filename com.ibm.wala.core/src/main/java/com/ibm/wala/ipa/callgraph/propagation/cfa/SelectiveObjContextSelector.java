@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.cfa;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Object sensitivity that is only as deep as it pays off, method by method.
+ *
+ * <p>The depth of each method is chosen from a context-insensitive pre-analysis, with allocation
+ * sites as heap abstraction. For each method m and depth k &le; n, the pre-analysis gives an
+ * estimate of the number of contexts k-limited object sensitivity would create for m: the number of
+ * distinct k-strings of receiver allocation sites. The cost of a depth is that estimate times the
+ * total size of the points-to sets of the locals of m. Each method gets the smallest depth that
+ * distinguishes as many contexts as the deepest one within {@code maxCost}; methods that would get
+ * only one context, or whose cost is too high even at depth 1, are analyzed context-insensitively.
+ * Objects allocated in a method get its context as heap context, so the depth also decides how many
+ * copies of those objects there are.
+ *
+ * <p>Static methods either take the context of their caller, as in {@link nObjContextSelector}, or
+ * the base context, by the same cost estimate over the contexts of their callers.
+ */
+public class SelectiveObjContextSelector implements ContextSelector {
+
+  private final ContextSelector base;
+
+  /** selectors[k] implements k-limited object sensitivity */
+  private final nObjContextSelector[] selectors;
+
+  /** methods that get object-sensitive contexts -&gt; depth; absent methods get the base context */
+  private final Map<IMethod, Integer> depths;
+
+  private SelectiveObjContextSelector(
+      ContextSelector base, nObjContextSelector[] selectors, Map<IMethod, Integer> depths) {
+    this.base = base;
+    this.selectors = selectors;
+    this.depths = depths;
+  }
+
+  /**
+   * @param n the maximal depth of object sensitivity
+   * @param base selector for contexts besides object sensitivity, e.g. for reflection
+   * @param cg the call graph of the pre-analysis
+   * @param pa the pointer analysis of the pre-analysis
+   * @param maxCost the highest acceptable cost, number of contexts times size of the points-to sets
+   *     of the locals, for a method
+   */
+  public static SelectiveObjContextSelector make(
+      int n, ContextSelector base, CallGraph cg, PointerAnalysis<InstanceKey> pa, long maxCost) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("n must be a positive number");
+    }
+    if (base == null) {
+      throw new IllegalArgumentException("null base");
+    }
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    nObjContextSelector[] selectors = new nObjContextSelector[n + 1];
+    for (int k = 1; k <= n; k++) {
+      selectors[k] = new nObjContextSelector(k, base);
+    }
+    return new SelectiveObjContextSelector(base, selectors, computeDepths(n, cg, pa, maxCost));
+  }
+
+  /** @return the depth of object sensitivity for m; 0 if m is analyzed with the base context */
+  public int getDepth(IMethod m) {
+    Integer depth = depths.get(m);
+    return depth == null ? 0 : depth;
+  }
+
+  @Override
+  public Context getCalleeTarget(
+      CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    Integer depth = depths.get(callee);
+    if (depth == null) {
+      return base.getCalleeTarget(caller, site, callee, actualParameters);
+    }
+    return selectors[depth].getCalleeTarget(caller, site, callee, actualParameters);
+  }
+
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return selectors[1].getRelevantParameters(caller, site);
+  }
+
+  private static Map<IMethod, Integer> computeDepths(
+      int n, CallGraph cg, PointerAnalysis<InstanceKey> pa, long maxCost) {
+    // points-to sizes of locals and receivers, per method
+    Map<IMethod, Long> localSizes = HashMapFactory.make();
+    Map<IMethod, Set<InstanceKey>> receivers = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (k instanceof LocalPointerKey) {
+        LocalPointerKey lk = (LocalPointerKey) k;
+        IMethod m = lk.getNode().getMethod();
+        OrdinalSet<InstanceKey> pts = pa.getPointsToSet(lk);
+        localSizes.merge(m, (long) pts.size(), Long::sum);
+        if (!m.isStatic() && lk.getValueNumber() == 1) {
+          Set<InstanceKey> r = receivers.computeIfAbsent(m, x -> HashSetFactory.make());
+          for (InstanceKey ik : pts) {
+            r.add(ik);
+          }
+        }
+      }
+    }
+
+    // contexts.get(k).get(m) estimates the number of contexts of m with depth k; depth 0 has none
+    List<Map<IMethod, Double>> contexts = new ArrayList<>(n + 1);
+    contexts.add(Collections.emptyMap());
+    for (int k = 1; k <= n; k++) {
+      Map<IMethod, Double> counts = HashMapFactory.make();
+      for (Map.Entry<IMethod, Set<InstanceKey>> e : receivers.entrySet()) {
+        double count = 0;
+        for (InstanceKey o : e.getValue()) {
+          count += heapContexts(contexts, o, k - 1);
+        }
+        counts.put(e.getKey(), count);
+      }
+      contexts.add(counts);
+    }
+
+    Map<IMethod, Integer> depths = HashMapFactory.make();
+    for (IMethod m : receivers.keySet()) {
+      double size = Math.max(1, localSizes.getOrDefault(m, 0L));
+      int depth = 0;
+      for (int k = 1; k <= n && contexts.get(k).get(m) * size <= maxCost; k++) {
+        if (depth == 0 || contexts.get(k).get(m) > contexts.get(depth).get(m)) {
+          depth = k;
+        }
+      }
+      if (depth > 0 && contexts.get(depth).get(m) > 1) {
+        depths.put(m, depth);
+      }
+    }
+
+    // a static method takes the context of its caller, so it has as many contexts as its callers
+    for (CGNode node : cg) {
+      IMethod m = node.getMethod();
+      if (!m.isStatic() || depths.containsKey(m)) {
+        continue;
+      }
+      double count = 0;
+      for (CGNode pred : Iterator2Iterable.make(cg.getPredNodes(node))) {
+        Integer d = depths.get(pred.getMethod());
+        count +=
+            d == null || pred.getMethod().isStatic() ? 1 : contexts.get(d).get(pred.getMethod());
+      }
+      if (count > 1 && count * Math.max(1, localSizes.getOrDefault(m, 0L)) <= maxCost) {
+        depths.put(m, n);
+      }
+    }
+    return depths;
+  }
+
+  /**
+   * @return the estimated number of heap contexts of length k of o, which are the contexts of its
+   *     allocating method
+   */
+  private static double heapContexts(List<Map<IMethod, Double>> contexts, InstanceKey o, int k) {
+    if (k == 0 || !(o instanceof AllocationSiteInNode)) {
+      return 1;
+    }
+    Double count = contexts.get(k).get(((AllocationSiteInNode) o).getNode().getMethod());
+    return count == null || count < 1 ? 1 : count;
+  }
+}
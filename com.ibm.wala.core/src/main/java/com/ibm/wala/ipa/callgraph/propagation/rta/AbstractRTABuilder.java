@@ -209,7 +209,12 @@ public abstract class AbstractRTABuilder extends PropagationCallGraphBuilder {
           SSAAbstractInvokeInstruction s = fakeWorldClinitMethod.addInvocation(null, site);
           try {
             target = callGraph.findOrCreateNode(targetMethod, Everywhere.EVERYWHERE);
-            processResolvedCall(callGraph.getFakeWorldClinitNode(), s.getCallSite(), target);
+            CGNode outer = system.setProducer(callGraph.getFakeWorldClinitNode());
+            try {
+              processResolvedCall(callGraph.getFakeWorldClinitNode(), s.getCallSite(), target);
+            } finally {
+              system.setProducer(outer);
+            }
           } catch (CancelException e) {
             if (DEBUG) {
               System.err.println(
@@ -332,7 +337,13 @@ public abstract class AbstractRTABuilder extends PropagationCallGraphBuilder {
     if (!allocatedClasses.add(klass)) {
       return;
     }
-    updateSetsForNewClass(klass, iKey, node, newSite);
+    // only the first allocation of a class is recorded, so it belongs to no node
+    CGNode outer = system.setProducer(null);
+    try {
+      updateSetsForNewClass(klass, iKey, node, newSite);
+    } finally {
+      system.setProducer(outer);
+    }
 
     // side effect of new: may call class initializer
     processClassInitializer(klass);
@@ -358,6 +369,13 @@ public abstract class AbstractRTABuilder extends PropagationCallGraphBuilder {
     }
   }
 
+  @Override
+  protected void forgetDerivedState(Set<IClass> staleClasses) {
+    super.forgetDerivedState(staleClasses);
+    clinitProcessed.removeAll(staleClasses);
+    allocatedClasses.removeAll(staleClasses);
+  }
+
   /** @return set of IClasses determined to be allocated */
   @SuppressWarnings("unchecked")
   public Set<IClass> getAllocatedTypes() {
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation.rta;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link BasicRTABuilder} that builds the IRs of newly reachable methods on a thread pool.
+ *
+ * <p>The constraint system is still built and solved by a single thread, so the call graph is
+ * identical to the one {@link BasicRTABuilder} computes, down to node numbers. When a node is
+ * discovered, a worker thread starts building the IR of its method; by the time the solver visits
+ * the node, the IR is usually in the cache. The cache must be safe for concurrent use; a {@link
+ * ConcurrentAnalysisCacheImpl} lets different methods be built at the same time.
+ */
+public class ParallelRTABuilder extends BasicRTABuilder {
+
+  private final ExecutorService executor;
+
+  /** methods whose IR has been requested */
+  private final Set<IMethod> prefetched = HashSetFactory.make();
+
+  /** prefetch tasks that may still be running */
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  public ParallelRTABuilder(
+      IClassHierarchy cha,
+      AnalysisOptions options,
+      IAnalysisCacheView cache,
+      ContextSelector contextSelector,
+      SSAContextInterpreter contextInterpreter,
+      ExecutorService executor) {
+    super(cha, options, cache, contextSelector, contextInterpreter);
+    if (executor == null) {
+      throw new IllegalArgumentException("null executor");
+    }
+    this.executor = executor;
+  }
+
+  @Override
+  public CallGraph makeCallGraph(AnalysisOptions options, IProgressMonitor monitor)
+      throws IllegalArgumentException, CallGraphBuilderCancelException {
+    try {
+      return super.makeCallGraph(options, monitor);
+    } finally {
+      for (Future<?> f : pending) {
+        f.cancel(true);
+      }
+      pending.clear();
+      prefetched.clear();
+    }
+  }
+
+  @Override
+  public void markDiscovered(CGNode node) {
+    super.markDiscovered(node);
+    final IMethod m = node.getMethod();
+    if (m instanceof IBytecodeMethod && !m.isAbstract() && !m.isNative() && prefetched.add(m)) {
+      pending.add(
+          executor.submit(
+              () -> {
+                try {
+                  getAnalysisCache().getIR(m, Everywhere.EVERYWHERE);
+                } catch (RuntimeException e) {
+                  // the solver will hit, and report, the same problem
+                }
+              }));
+    }
+  }
+}
@@ -14,6 +14,7 @@ package com.ibm.wala.ipa.cha;
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.BytecodeClass;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IClassLoader;
 import com.ibm.wala.classLoader.IField;
@@ -38,12 +39,14 @@ import com.ibm.wala.util.collections.MapIterator;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
-import com.ibm.wala.util.ref.CacheReference;
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.strings.Atom;
 import com.ibm.wala.util.warnings.Warning;
 import com.ibm.wala.util.warnings.Warnings;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
@@ -102,8 +105,13 @@ public class ClassHierarchy implements IClassHierarchy {
   /** The loaders used to define this class hierarchy. */
   private final IClassLoader[] loaders;
 
+  /** The region caching the targets of method references, for all class hierarchies */
+  private static final CacheRegion<Map<MethodReference, Set<IMethod>>> TARGETS =
+      CacheManager.getDefault().getRegion("ClassHierarchy.targets", CacheRegion.Policy.LRU, 20000);
+
   /** A mapping from IClass -&gt; Selector -&gt; Set of IMethod */
-  private final HashMap<IClass, Object> targetCache = HashMapFactory.make();
+  private final HashMap<IClass, CacheRegion.Handle<Map<MethodReference, Set<IMethod>>>>
+      targetCache = HashMapFactory.make();
 
   /** Governing analysis scope */
   private final AnalysisScope scope;
@@ -114,6 +122,12 @@ public class ClassHierarchy implements IClassHierarchy {
    */
   private final Map<IClass, Set<IClass>> implementors = HashMapFactory.make();
 
+  /** Index for constant-time subtype tests, built on demand once the hierarchy is complete */
+  private volatile SubtypeIndex subtypeIndex;
+
+  /** Memoized virtual dispatch over the types of {@link #subtypeIndex} */
+  private volatile DispatchTable dispatchTable;
+
   /** A temporary hack : TODO: do intelligent caching somehow */
   private Collection<IClass> subclassesOfError;
 
@@ -475,13 +489,105 @@ public class ClassHierarchy implements IClassHierarchy {
     impls.add(klass);
   }
 
+  /**
+   * Replace classes by the versions now found in the modules they were read from, e.g. after their
+   * class files were recompiled. A class whose class file is gone is removed. Subclasses and
+   * implementors of a reloaded class are reloaded too, since they refer to their supertypes.
+   *
+   * <p>Only classes read from class files by a {@link ClassLoaderImpl} can be reloaded. Old and new
+   * versions of a class are {@link Object#equals(Object) equal}, so clients must discard whatever
+   * they derived from the old versions themselves, e.g. with {@link
+   * com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder#updateCallGraph}.
+   *
+   * @param types the changed and removed classes
+   * @return the old versions of all reloaded and removed classes
+   * @throws IllegalArgumentException if one of the classes cannot be reloaded
+   */
+  public Set<IClass> reloadClasses(Collection<TypeReference> types) {
+    if (types == null) {
+      throw new IllegalArgumentException("types is null");
+    }
+    Set<IClass> stale = HashSetFactory.make();
+    ArrayDeque<IClass> worklist = new ArrayDeque<>();
+    for (TypeReference t : types) {
+      Node n = map.get(t);
+      if (n != null) {
+        worklist.push(n.getJavaClass());
+      }
+    }
+    while (!worklist.isEmpty()) {
+      IClass klass = worklist.pop();
+      if (stale.add(klass)) {
+        for (Node child : Iterator2Iterable.make(map.get(klass.getReference()).getChildren())) {
+          worklist.push(child.getJavaClass());
+        }
+        Set<IClass> impls = implementors.get(klass);
+        if (impls != null) {
+          worklist.addAll(impls);
+        }
+      }
+    }
+    if (stale.isEmpty()) {
+      return stale;
+    }
+
+    Map<ClassLoaderImpl, Set<IClass>> byLoader = HashMapFactory.make();
+    for (IClass klass : stale) {
+      if (klass.getReference().equals(rootTypeRef)) {
+        throw new IllegalArgumentException("cannot reload the root class " + klass);
+      }
+      if (!(klass.getClassLoader() instanceof ClassLoaderImpl)) {
+        throw new IllegalArgumentException("cannot reload " + klass);
+      }
+      MapUtil.findOrCreateSet(byLoader, (ClassLoaderImpl) klass.getClassLoader()).add(klass);
+    }
+
+    // detach the old versions
+    for (IClass klass : stale) {
+      map.remove(klass.getReference());
+    }
+    for (Node n : map.values()) {
+      n.children.removeIf(c -> stale.contains(c.getJavaClass()));
+    }
+    implementors.keySet().removeAll(stale);
+    for (Set<IClass> impls : implementors.values()) {
+      impls.removeAll(stale);
+    }
+
+    // attach the new ones
+    for (Map.Entry<ClassLoaderImpl, Set<IClass>> e : byLoader.entrySet()) {
+      Collection<IClass> toRemove = HashSetFactory.make();
+      for (IClass klass : e.getKey().reloadClasses(e.getValue())) {
+        if (!addClass(klass)) {
+          toRemove.add(klass);
+        }
+      }
+      e.getKey().removeAll(toRemove);
+    }
+
+    for (CacheRegion.Handle<Map<MethodReference, Set<IMethod>>> h : targetCache.values()) {
+      TARGETS.remove(h);
+    }
+    targetCache.clear();
+    subtypeIndex = null;
+    dispatchTable = null;
+    subclassesOfError = null;
+    subTypeRefsOfError = null;
+    runtimeExceptionClasses = null;
+    runtimeExceptionTypeRefs = null;
+    nextNumber = 1;
+    numberTree();
+    return stale;
+  }
+
   /**
    * Find the possible targets of a call to a method reference. Note that if the reference is to an
    * instance initialization method, we assume the method was called with invokespecial rather than
    * invokevirtual.
    *
    * @param ref method reference
-   * @return the set of IMethods that this call can resolve to.
+   * @return the set of IMethods that this call can resolve to. The set is cached and cannot be
+   *     modified.
    * @throws IllegalArgumentException if ref is null
    */
   @Override
@@ -500,28 +606,24 @@ public class ClassHierarchy implements IClassHierarchy {
     if (declaredClass == null) {
       return Collections.emptySet();
     }
-    Set<IMethod> targets = HashSetFactory.make();
-    targets.addAll(findOrCreateTargetSet(declaredClass, ref));
-    return (targets);
+    return findOrCreateTargetSet(declaredClass, ref);
   }
 
   /**
    * Find the possible targets of a call to a method reference
    *
    * @param ref method reference
-   * @return the set of IMethods that this call can resolve to.
+   * @return the set of IMethods that this call can resolve to, shared with other callers
    */
-  @SuppressWarnings("unchecked")
   private Set<IMethod> findOrCreateTargetSet(IClass declaredClass, MethodReference ref) {
-    Map<MethodReference, Set<IMethod>> classCache =
-        (Map<MethodReference, Set<IMethod>>) CacheReference.get(targetCache.get(declaredClass));
+    Map<MethodReference, Set<IMethod>> classCache = TARGETS.get(targetCache.get(declaredClass));
     if (classCache == null) {
       classCache = HashMapFactory.make(3);
-      targetCache.put(declaredClass, CacheReference.make(classCache));
+      targetCache.put(declaredClass, TARGETS.make(classCache));
     }
     Set<IMethod> result = classCache.get(ref);
     if (result == null) {
-      result = getPossibleTargets(declaredClass, ref);
+      result = Collections.unmodifiableSet(getPossibleTargets(declaredClass, ref));
       classCache.put(ref, result);
     }
     return result;
@@ -656,6 +758,15 @@ public class ClassHierarchy implements IClassHierarchy {
     if (receiverClass == null) {
       throw new IllegalArgumentException("receiverClass is null");
     }
+    DispatchTable table = getDispatchTable();
+    if (table != null) {
+      return table.resolve(receiverClass, selector);
+    }
+    return computeResolvedMethod(receiverClass, selector);
+  }
+
+  /** Resolve a method by walking up the superclass chain, without consulting the dispatch table. */
+  private IMethod computeResolvedMethod(IClass receiverClass, Selector selector) {
     IMethod result = findMethod(receiverClass, selector);
     if (result != null) {
       return result;
@@ -677,7 +788,7 @@ public class ClassHierarchy implements IClassHierarchy {
                   + ' '
                   + selector));
         }
-        return resolveMethod(superclass, selector);
+        return computeResolvedMethod(superclass, selector);
       }
     }
   }
@@ -702,6 +813,20 @@ public class ClassHierarchy implements IClassHierarchy {
    */
   private Set<IMethod> computeOverriders(Node node, Selector selector) {
     HashSet<IMethod> result = HashSetFactory.make(3);
+    SubtypeIndex index = getSubtypeIndex();
+    // classes added after the index was built may be missing from its subclass ranges
+    if (index != null && index.getNumberOfTypes() == map.size()) {
+      int n = index.getNumber(node.getJavaClass());
+      if (n != -1) {
+        for (int sub = n + 1; sub <= index.getLastSubclass(n); sub++) {
+          IMethod m = findMethod(index.getType(sub), selector);
+          if (m != null) {
+            result.add(m);
+          }
+        }
+        return result;
+      }
+    }
     for (Node child : Iterator2Iterable.make(node.getChildren())) {
       IMethod m = findMethod(child.getJavaClass(), selector);
       if (m != null) {
@@ -1013,6 +1138,14 @@ public class ClassHierarchy implements IClassHierarchy {
       if (c.getReference().equals(t.getReference())) {
         return true;
       }
+      SubtypeIndex index = getSubtypeIndex();
+      if (index != null) {
+        int i1 = index.getNumber(c);
+        int i2 = index.getNumber(t);
+        if (i1 != -1 && i2 != -1) {
+          return index.isSubclassOf(i1, i2);
+        }
+      }
       Node n1 = map.get(c.getReference());
       if (n1 == null) {
         // some wacky case, like a FakeRootClass
@@ -1058,6 +1191,14 @@ public class ClassHierarchy implements IClassHierarchy {
       return i.equals(lookupClass(TypeReference.JavaLangCloneable))
           || i.equals(lookupClass(TypeReference.JavaIoSerializable));
     }
+    SubtypeIndex index = getSubtypeIndex();
+    if (index != null) {
+      int ic = index.getNumber(c);
+      int ii = index.getNumber(i);
+      if (ic != -1 && ii != -1) {
+        return index.implementsInterface(ic, ii);
+      }
+    }
     Set<IClass> impls = implementors.get(i);
     if (impls != null && impls.contains(c)) {
       return true;
@@ -1316,6 +1457,14 @@ public class ClassHierarchy implements IClassHierarchy {
     if (c1 == null) {
       throw new IllegalArgumentException("c1 is null");
     }
+    SubtypeIndex index = getSubtypeIndex();
+    if (index != null) {
+      int i1 = index.getNumber(c1);
+      int i2 = index.getNumber(c2);
+      if (i1 != -1 && i2 != -1) {
+        return index.isAssignableFrom(i1, i2);
+      }
+    }
     if (c1.isInterface()) {
       return implementsInterface(c2, c1);
     } else {
@@ -1327,6 +1476,49 @@ public class ClassHierarchy implements IClassHierarchy {
     }
   }
 
+  /**
+   * Subtype relations between classes never change once both are in the hierarchy, so the index
+   * stays valid when classes are added later; tests involving such classes just take the slower
+   * paths. {@link #reloadClasses(Collection)} discards the index.
+   *
+   * @return an index for constant-time subtype tests and subtype cones over the classes and
+   *     interfaces of this hierarchy, or null while the hierarchy is still being constructed
+   */
+  public SubtypeIndex getSubtypeIndex() {
+    SubtypeIndex result = subtypeIndex;
+    if (result == null && nextNumber > 1) {
+      synchronized (this) {
+        result = subtypeIndex;
+        if (result == null) {
+          result = new SubtypeIndex(root, implementors);
+          subtypeIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return memoized virtual dispatch for the types of the {@link #getSubtypeIndex() subtype
+   *     index}, or null while the hierarchy is still being constructed
+   */
+  public DispatchTable getDispatchTable() {
+    DispatchTable result = dispatchTable;
+    if (result == null) {
+      SubtypeIndex index = getSubtypeIndex();
+      if (index != null) {
+        synchronized (this) {
+          result = dispatchTable;
+          if (result == null) {
+            result = new DispatchTable(index, this::computeResolvedMethod);
+            dispatchTable = result;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
   /* BEGIN Custom change: remember unresolved classes */
   private final Set<TypeReference> unresolved = HashSetFactory.make();
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.types.Selector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Virtual dispatch tables for the types of a {@link SubtypeIndex}.
+ *
+ * <p>For every selector, the table holds a column mapping type numbers to the method a receiver of
+ * that type dispatches to. Columns are filled lazily from a resolver function, so the table gives
+ * the same answers as the resolver, including Java 8 default methods, and only stores results that
+ * were asked for. Receivers of a selector usually lie in the subtype cone of the type declaring it,
+ * which the {@link SubtypeIndex} numbers contiguously, so each column is an array over the range of
+ * type numbers seen so far.
+ *
+ * <p>Lookups of filled entries take no locks and allocate nothing; types that are not in the index,
+ * e.g. array classes, are always passed to the resolver.
+ */
+public final class DispatchTable {
+
+  /** marks a selector that does not resolve for a type */
+  private static final Object NONE = new Object();
+
+  private final SubtypeIndex types;
+
+  /** computes the target of a selector for a receiver type; may return null */
+  private final BiFunction<IClass, Selector, IMethod> resolver;
+
+  private final ConcurrentHashMap<Selector, Column> columns = new ConcurrentHashMap<>();
+
+  DispatchTable(SubtypeIndex types, BiFunction<IClass, Selector, IMethod> resolver) {
+    this.types = types;
+    this.resolver = resolver;
+  }
+
+  /** @return the method a call of selector on a receiver of type klass dispatches to, or null */
+  public IMethod resolve(IClass klass, Selector selector) {
+    int n = types.getNumber(klass);
+    if (n == -1) {
+      return resolver.apply(klass, selector);
+    }
+    return resolve(n, selector);
+  }
+
+  /**
+   * @param type a type number of the {@link SubtypeIndex}
+   * @return the method a call of selector on a receiver of that type dispatches to, or null
+   */
+  public IMethod resolve(int type, Selector selector) {
+    Column column = columns.get(selector);
+    if (column == null) {
+      column = columns.computeIfAbsent(selector, s -> new Column());
+    }
+    Object result = column.get(type);
+    if (result == null) {
+      result = resolver.apply(types.getType(type), selector);
+      if (result == null) {
+        result = NONE;
+      }
+      column.set(type, result, types.getNumberOfTypes());
+    }
+    return (result == NONE) ? null : (IMethod) result;
+  }
+
+  /** @return the number of selectors with a column */
+  public int getNumberOfSelectors() {
+    return columns.size();
+  }
+
+  /** The targets of one selector, over a range of type numbers. */
+  private static final class Column {
+
+    private volatile Slice slice = new Slice(0, new Object[0]);
+
+    Object get(int type) {
+      Slice s = slice;
+      int i = type - s.offset;
+      return (i >= 0 && i < s.targets.length) ? s.targets[i] : null;
+    }
+
+    synchronized void set(int type, Object target, int numberOfTypes) {
+      Slice s = slice;
+      int lo = s.offset;
+      int hi = s.offset + s.targets.length - 1;
+      if (s.targets.length == 0) {
+        s = new Slice(type, new Object[1]);
+      } else if (type < lo || type > hi) {
+        // grow by at least the current size, towards the new type
+        int len = s.targets.length;
+        int newLo = (type < lo) ? Math.max(0, Math.min(type, lo - len)) : lo;
+        int newHi = (type > hi) ? Math.min(numberOfTypes - 1, Math.max(type, hi + len)) : hi;
+        Object[] targets = new Object[newHi - newLo + 1];
+        System.arraycopy(s.targets, 0, targets, lo - newLo, len);
+        s = new Slice(newLo, targets);
+      }
+      s.targets[type - s.offset] = target;
+      slice = s;
+    }
+  }
+
+  private static final class Slice {
+    final int offset;
+
+    final Object[] targets;
+
+    Slice(int offset, Object[] targets) {
+      this.offset = offset;
+      this.targets = targets;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.ipa.cha.ClassHierarchy.Node;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A precomputed subtype index for the classes and interfaces of a {@link ClassHierarchy}.
+ *
+ * <p>Types are numbered densely in depth-first preorder of the superclass tree, so the subclasses
+ * of a class form the contiguous range [number, coneEnd] and a subclass test is two comparisons.
+ * For every interface, the index keeps a row of a bit matrix holding the numbers of all its
+ * implementors and subinterfaces, so an implements test is a single bit test. {@link
+ * #isAssignableFrom(int, int)} picks the right one of the two.
+ *
+ * <p>Array classes are created on demand and are not numbered; {@link ClassHierarchy} reduces
+ * subtype tests on arrays to tests on their element types.
+ *
+ * <p>The index is a snapshot of the hierarchy when it was built; classes added to the hierarchy
+ * later are not numbered.
+ */
+public final class SubtypeIndex {
+
+  /** all indexed types, numbered in preorder of the superclass tree */
+  private final MutableMapping<IClass> types = MutableMapping.make();
+
+  /** type number -&gt; largest number of a (transitive) subclass */
+  private final int[] coneEnd;
+
+  /** type number -&gt; implementors and subinterfaces of an interface, null for classes */
+  private final BitVector[] implementors;
+
+  /** type number -&gt; cached subtype cone, see {@link #getSubtypes(int)} */
+  private final IntSet[] cones;
+
+  SubtypeIndex(Node root, Map<IClass, Set<IClass>> implementorMap) {
+    // number the tree in preorder; with an explicit stack, each subtree is popped completely before
+    // anything pushed earlier, so its numbers are contiguous
+    ArrayDeque<Node> stack = new ArrayDeque<>();
+    ArrayDeque<Integer> parents = new ArrayDeque<>();
+    int[] parent = new int[16];
+    stack.push(root);
+    parents.push(-1);
+    while (!stack.isEmpty()) {
+      Node n = stack.pop();
+      int p = parents.pop();
+      if (types.hasMappedIndex(n.getJavaClass())) {
+        continue;
+      }
+      int number = types.add(n.getJavaClass());
+      if (number >= parent.length) {
+        int[] old = parent;
+        parent = new int[2 * old.length];
+        System.arraycopy(old, 0, parent, 0, old.length);
+      }
+      parent[number] = p;
+      for (Iterator<Node> it = n.getChildren(); it.hasNext(); ) {
+        stack.push(it.next());
+        parents.push(number);
+      }
+    }
+
+    int size = types.getSize();
+    coneEnd = new int[size];
+    for (int i = 0; i < size; i++) {
+      coneEnd[i] = i;
+    }
+    // children have larger numbers than their parent, so one backwards pass suffices
+    for (int i = size - 1; i > 0; i--) {
+      int p = parent[i];
+      if (p >= 0 && coneEnd[i] > coneEnd[p]) {
+        coneEnd[p] = coneEnd[i];
+      }
+    }
+
+    implementors = new BitVector[size];
+    for (Map.Entry<IClass, Set<IClass>> e : implementorMap.entrySet()) {
+      int i = getNumber(e.getKey());
+      if (i == -1) {
+        continue;
+      }
+      BitVector row = new BitVector(size);
+      row.set(i);
+      for (IClass c : e.getValue()) {
+        int n = getNumber(c);
+        if (n != -1) {
+          row.set(n);
+        }
+      }
+      implementors[i] = row;
+    }
+    // interfaces nobody implements still need a row holding themselves
+    for (int i = 0; i < size; i++) {
+      if (implementors[i] == null && types.getMappedObject(i).isInterface()) {
+        implementors[i] = new BitVector(i + 1);
+        implementors[i].set(i);
+      }
+    }
+
+    cones = new IntSet[size];
+  }
+
+  /** @return the number of indexed types */
+  public int getNumberOfTypes() {
+    return types.getSize();
+  }
+
+  /** @return the number of a type, or -1 if it is not indexed (e.g. an array class) */
+  public int getNumber(IClass c) {
+    return types.getMappedIndex(c);
+  }
+
+  /** @return the type with a given number */
+  public IClass getType(int number) {
+    return types.getMappedObject(number);
+  }
+
+  /** @return the numbering of the indexed types */
+  public OrdinalSetMapping<IClass> getMapping() {
+    return types;
+  }
+
+  /**
+   * @return the largest number of a (transitive) subclass of type t; the subclasses of t are
+   *     exactly the types numbered from t to this number
+   */
+  public int getLastSubclass(int t) {
+    return coneEnd[t];
+  }
+
+  /** @return true iff type c is t or a (transitive) subclass of class t */
+  public boolean isSubclassOf(int c, int t) {
+    return t <= c && c <= coneEnd[t];
+  }
+
+  /** @return true iff i is an interface and c is i, implements i, or is an interface extending i */
+  public boolean implementsInterface(int c, int i) {
+    BitVector row = implementors[i];
+    return row != null && row.get(c);
+  }
+
+  /**
+   * Does an expression t x := c y typecheck, i.e. is c a subtype of t?
+   *
+   * <p>Interfaces are children of the root class in the superclass tree, so for a class t the
+   * subclass range already holds the interfaces assignable to it.
+   */
+  public boolean isAssignableFrom(int t, int c) {
+    BitVector row = implementors[t];
+    return (row != null) ? row.get(c) : isSubclassOf(c, t);
+  }
+
+  /**
+   * @return the numbers of all types assignable to type t, including t itself. The set is shared
+   *     and must not be modified.
+   */
+  public synchronized IntSet getSubtypes(int t) {
+    IntSet result = cones[t];
+    if (result == null) {
+      BitVector bits = implementors[t];
+      if (bits == null) {
+        bits = new BitVector(coneEnd[t] + 1);
+        for (int i = t; i <= coneEnd[t]; i++) {
+          bits.set(i);
+        }
+      }
+      // copies the bits
+      result = new BitVectorIntSet(bits);
+      cones[t] = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return all types assignable to t, including t itself
+   * @throws IllegalArgumentException if t is not indexed
+   */
+  public OrdinalSet<IClass> getSubtypes(IClass t) {
+    int n = getNumber(t);
+    if (n == -1) {
+      throw new IllegalArgumentException("not indexed: " + t);
+    }
+    return new OrdinalSet<>(getSubtypes(n), types);
+  }
+}
@@ -18,6 +18,7 @@ import com.ibm.wala.ipa.callgraph.CallGraphTransitiveClosure;
 import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.slicer.HeapExclusions;
 import com.ibm.wala.ssa.IR;
@@ -34,6 +35,7 @@ import com.ibm.wala.util.intset.OrdinalSet;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Mod-ref analysis for heap locations.
@@ -79,6 +81,57 @@ public class ModRef<T extends InstanceKey> {
     return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
   }
 
+  /**
+   * For each call graph node, what heap locations (as determined by a heap model) may it write,
+   * including its callees transitively. The individual nodes are scanned in parallel on pool; the
+   * pointer analysis must therefore tolerate concurrent queries. A {@link PointerAnalysisImpl} is
+   * prepared for them with {@link PointerAnalysisImpl#internStringConstantContents()}.
+   *
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeMod(
+      CallGraph cg, PointerAnalysis<T> pa, HeapExclusions heapExclude, ForkJoinPool pool) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    prepareForConcurrentQueries(pa);
+    Map<CGNode, Collection<PointerKey>> scan =
+        CallGraphTransitiveClosure.collectNodeResults(
+            cg, n -> scanNodeForMod(n, pa, heapExclude), pool);
+    return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+  }
+
+  /**
+   * For each call graph node, what heap locations (as determined by a heap model) may it read,
+   * including its callees transitively. The individual nodes are scanned in parallel on pool; the
+   * pointer analysis must therefore tolerate concurrent queries. A {@link PointerAnalysisImpl} is
+   * prepared for them with {@link PointerAnalysisImpl#internStringConstantContents()}.
+   *
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeRef(
+      CallGraph cg, PointerAnalysis<T> pa, HeapExclusions heapExclude, ForkJoinPool pool) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    prepareForConcurrentQueries(pa);
+    Map<CGNode, Collection<PointerKey>> scan =
+        CallGraphTransitiveClosure.collectNodeResults(
+            cg, n -> scanNodeForRef(n, pa, heapExclude), pool);
+    return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+  }
+
+  /**
+   * A {@link PointerAnalysisImpl} registers instance keys for the contents of string constants when
+   * they are first queried; do that up front, so that concurrent queries only read its instance key
+   * mapping.
+   */
+  private static void prepareForConcurrentQueries(PointerAnalysis<?> pa) {
+    if (pa instanceof PointerAnalysisImpl) {
+      ((PointerAnalysisImpl) pa).internStringConstantContents();
+    }
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write,
    * including its callees transitively
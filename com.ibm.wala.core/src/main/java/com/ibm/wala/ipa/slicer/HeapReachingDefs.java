@@ -23,6 +23,7 @@ import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphTransitiveClosure;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
@@ -37,6 +38,7 @@ import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.analysis.ExplodedControlFlowGraph;
 import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.collections.FilterIterator;
@@ -44,6 +46,7 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.ObjectArrayMapping;
+import com.ibm.wala.util.config.SetOfClasses;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BitVector;
@@ -55,10 +58,12 @@ import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.OrdinalSetMapping;
 import com.ibm.wala.util.intset.SparseIntSet;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 
 /** Computation of reaching definitions for heap locations, relying on pointer analysis */
@@ -155,6 +160,143 @@ public class HeapReachingDefs<T extends InstanceKey> {
         cg);
   }
 
+  /**
+   * Compute heap reaching defs for a node separately for each of several heap locations, as a
+   * {@link PDG} does. For each location, only the heap statements on that location are considered,
+   * and only heap effects on locations of its type are tracked.
+   *
+   * @param statements the statements whose def-use are considered interesting
+   * @param locations the heap locations to compute reaching defs for
+   * @return for each location with a type, the reaching defs of the statements relevant to it
+   * @throws IllegalArgumentException if statements is null
+   * @throws IllegalArgumentException if locations is null
+   */
+  public Map<PointerKey, Map<Statement, OrdinalSet<Statement>>> computeReachingDefs(
+      CGNode node,
+      IR ir,
+      PointerAnalysis<T> pa,
+      Map<CGNode, OrdinalSet<PointerKey>> mod,
+      Collection<Statement> statements,
+      Collection<PointerKey> locations,
+      CallGraph cg) {
+    if (statements == null) {
+      throw new IllegalArgumentException("statements is null");
+    }
+    if (locations == null) {
+      throw new IllegalArgumentException("locations is null");
+    }
+    Map<PointerKey, Map<Statement, OrdinalSet<Statement>>> result = HashMapFactory.make();
+    for (PointerKey pk : locations) {
+      TypeReference t = HeapExclusions.getType(pk);
+      if (t == null) {
+        continue;
+      }
+      // exclude heap statements that are irrelevant to pk
+      Predicate<Statement> f =
+          o -> !(o instanceof HeapStatement) || ((HeapStatement) o).getLocation().equals(pk);
+      Collection<Statement> relevantStatements =
+          Iterator2Collection.toSet(new FilterIterator<>(statements.iterator(), f));
+      result.put(
+          pk,
+          computeReachingDefs(
+              node,
+              ir,
+              pa,
+              mod,
+              relevantStatements,
+              new HeapExclusions(SetComplement.complement(new SingletonSet(t))),
+              cg));
+    }
+    return result;
+  }
+
+  /**
+   * Compute heap reaching defs for several call graph nodes in parallel on the given pool. Each
+   * node is solved independently, as by {@link #computeReachingDefs(CGNode, IR, PointerAnalysis,
+   * Map, Collection, Collection, CallGraph)} with the IR from {@link CGNode#getIR()}.
+   *
+   * @param statements for each node to analyze, the statements whose def-use are considered
+   *     interesting
+   * @param locations for each node to analyze, the heap locations to compute reaching defs for
+   * @param pa governing pointer analysis; it is queried concurrently
+   * @param mod the set of heap locations which may be written (transitively) by each node
+   * @return for each node with an IR, the reaching defs of its statements for each location
+   * @throws IllegalArgumentException if statements is null
+   * @throws IllegalArgumentException if locations is null
+   */
+  public Map<CGNode, Map<PointerKey, Map<Statement, OrdinalSet<Statement>>>> computeReachingDefs(
+      final Map<CGNode, ? extends Collection<Statement>> statements,
+      final Map<CGNode, ? extends Collection<PointerKey>> locations,
+      final PointerAnalysis<T> pa,
+      final Map<CGNode, OrdinalSet<PointerKey>> mod,
+      final CallGraph cg,
+      ForkJoinPool pool) {
+    if (statements == null) {
+      throw new IllegalArgumentException("statements is null");
+    }
+    if (locations == null) {
+      throw new IllegalArgumentException("locations is null");
+    }
+    return CallGraphTransitiveClosure.collectNodeResults(
+        statements.keySet(),
+        node -> {
+          IR ir = node.getIR();
+          return ir == null || !locations.containsKey(node)
+              ? null
+              : computeReachingDefs(
+                  node, ir, pa, mod, statements.get(node), locations.get(node), cg);
+        },
+        pool);
+  }
+
+  private static class SingletonSet extends SetOfClasses implements Serializable {
+
+    /* Serial version */
+    private static final long serialVersionUID = -3256390509887654324L;
+
+    private final TypeReference t;
+
+    SingletonSet(TypeReference t) {
+      this.t = t;
+    }
+
+    @Override
+    public void add(String klass) {
+      Assertions.UNREACHABLE();
+    }
+
+    @Override
+    public boolean contains(String klassName) {
+      return t.getName().toString().substring(1).equals(klassName);
+    }
+  }
+
+  private static class SetComplement extends SetOfClasses implements Serializable {
+
+    /* Serial version */
+    private static final long serialVersionUID = -3256390509887654323L;
+
+    private final SetOfClasses set;
+
+    SetComplement(SetOfClasses set) {
+      this.set = set;
+    }
+
+    static SetComplement complement(SetOfClasses set) {
+      return new SetComplement(set);
+    }
+
+    @Override
+    public void add(String klass) {
+      Assertions.UNREACHABLE();
+    }
+
+    @Override
+    public boolean contains(String klassName) {
+      return !set.contains(klassName);
+    }
+  }
+
   private class RDMap implements Map<Statement, OrdinalSet<Statement>> {
     final Map<Statement, OrdinalSet<Statement>> delegate = HashMapFactory.make();
 
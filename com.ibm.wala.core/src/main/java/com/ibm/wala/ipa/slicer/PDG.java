@@ -45,7 +45,6 @@ import com.ibm.wala.ssa.SSAPiInstruction;
 import com.ibm.wala.ssa.SSAReturnInstruction;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.*;
-import com.ibm.wala.util.config.SetOfClasses;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.graph.GraphUtil;
@@ -56,9 +55,9 @@ import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -618,54 +617,6 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
     }
   }
 
-  private static class SingletonSet extends SetOfClasses implements Serializable {
-
-    /* Serial version */
-    private static final long serialVersionUID = -3256390509887654324L;
-
-    private final TypeReference t;
-
-    SingletonSet(TypeReference t) {
-      this.t = t;
-    }
-
-    @Override
-    public void add(String klass) {
-      Assertions.UNREACHABLE();
-    }
-
-    @Override
-    public boolean contains(String klassName) {
-      return t.getName().toString().substring(1).equals(klassName);
-    }
-  }
-
-  private static class SetComplement extends SetOfClasses implements Serializable {
-
-    /* Serial version */
-    private static final long serialVersionUID = -3256390509887654323L;
-
-    private final SetOfClasses set;
-
-    SetComplement(SetOfClasses set) {
-      this.set = set;
-    }
-
-    static SetComplement complement(SetOfClasses set) {
-      return new SetComplement(set);
-    }
-
-    @Override
-    public void add(String klass) {
-      Assertions.UNREACHABLE();
-    }
-
-    @Override
-    public boolean contains(String klassName) {
-      return !set.contains(klassName);
-    }
-  }
-
   /** Create heap data dependence edges in this PDG relevant to a particular {@link PointerKey}. */
   private void createHeapDataDependenceEdges(final PointerKey pk) {
 
@@ -678,11 +629,6 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
       return;
     }
 
-    TypeReference t = HeapExclusions.getType(pk);
-    if (t == null) {
-      return;
-    }
-
     // It's OK to create a new IR here; we're not keeping any hashing live up to this point
     IR ir = node.getIR();
     if (ir == null) {
@@ -693,20 +639,6 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
       System.err.println("Location " + pk);
     }
 
-    // in reaching defs calculation, exclude heap statements that are
-    // irrelevant.
-    Predicate<Statement> f =
-        o -> {
-          if (o instanceof HeapStatement) {
-            HeapStatement h = (HeapStatement) o;
-            return h.getLocation().equals(pk);
-          } else {
-            return true;
-          }
-        };
-    Collection<Statement> relevantStatements =
-        Iterator2Collection.toSet(new FilterIterator<>(iterator(), f));
-
     Map<Statement, OrdinalSet<Statement>> heapReachingDefs =
         new HeapReachingDefs<>(modRef, heapModel)
             .computeReachingDefs(
@@ -714,10 +646,69 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
                 ir,
                 pa,
                 mod,
-                relevantStatements,
-                new HeapExclusions(SetComplement.complement(new SingletonSet(t))),
-                cg);
+                Iterator2Collection.toSet(iterator()),
+                Collections.singleton(pk),
+                cg)
+            .get(pk);
+    if (heapReachingDefs != null) {
+      addHeapReachingDefEdges(heapReachingDefs);
+    }
+  }
+
+  /**
+   * @return the heap locations for which the statements of this PDG may have heap data dependence
+   *     edges that have not been created yet
+   */
+  Collection<PointerKey> getPendingHeapLocations() {
+    populate();
+    Set<PointerKey> result = HashSetFactory.make();
+    if (dOptions.isIgnoreHeap()) {
+      return result;
+    }
+    for (Statement s : this) {
+      switch (s.getKind()) {
+        case NORMAL:
+          NormalStatement st = (NormalStatement) s;
+          if (!(ignoreAllocHeapDefs && st.getInstruction() instanceof SSANewInstruction)) {
+            result.addAll(modRef.getRef(node, heapModel, pa, st.getInstruction(), exclusions));
+            result.addAll(modRef.getMod(node, heapModel, pa, st.getInstruction(), exclusions));
+          }
+          break;
+        case HEAP_PARAM_CALLEE:
+        case HEAP_PARAM_CALLER:
+        case HEAP_RET_CALLEE:
+        case HEAP_RET_CALLER:
+          result.add(((HeapStatement) s).getLocation());
+          break;
+        default:
+          // do nothing
+      }
+    }
+    result.removeAll(locationsHandled);
+    if (exclusions != null) {
+      result.removeIf(exclusions::excludes);
+    }
+    return result;
+  }
+
+  /**
+   * Create the heap data dependence edges in this PDG for heap reaching defs computed elsewhere, as
+   * by {@link HeapReachingDefs#computeReachingDefs(Map, Map, PointerAnalysis, Map, CallGraph,
+   * java.util.concurrent.ForkJoinPool)}.
+   *
+   * @param heapReachingDefs for each location, the reaching defs of the statements of this PDG
+   */
+  void addHeapDataDependenceEdges(
+      Map<PointerKey, Map<Statement, OrdinalSet<Statement>>> heapReachingDefs) {
+    for (Map.Entry<PointerKey, Map<Statement, OrdinalSet<Statement>>> e :
+        heapReachingDefs.entrySet()) {
+      if (locationsHandled.add(e.getKey())) {
+        addHeapReachingDefEdges(e.getValue());
+      }
+    }
+  }
 
+  private void addHeapReachingDefEdges(Map<Statement, OrdinalSet<Statement>> heapReachingDefs) {
     for (Map.Entry<Statement, OrdinalSet<Statement>> entry : heapReachingDefs.entrySet()) {
       switch (entry.getKey().getKind()) {
         case NORMAL:
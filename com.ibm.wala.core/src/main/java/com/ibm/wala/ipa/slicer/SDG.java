@@ -45,6 +45,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * System dependence graph.
@@ -99,6 +100,9 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
 
   private final ModRef<T> modRef;
 
+  /** If non-null, the pool on which to compute heap data dependences of all PDGs in parallel */
+  private final ForkJoinPool pool;
+
   /** Have we eagerly populated all nodes of this SDG? */
   private boolean eagerComputed = false;
 
@@ -127,6 +131,22 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
       ControlDependenceOptions cOptions,
       HeapExclusions heapExclude)
       throws IllegalArgumentException {
+    this(cg, pa, modRef, dOptions, cOptions, heapExclude, null);
+  }
+
+  /**
+   * @param pool if non-null, the mod and ref sets of the call graph nodes are computed in parallel
+   *     on this pool, as are the heap data dependences when the whole SDG is constructed
+   */
+  public SDG(
+      CallGraph cg,
+      PointerAnalysis<T> pa,
+      ModRef<T> modRef,
+      DataDependenceOptions dOptions,
+      ControlDependenceOptions cOptions,
+      HeapExclusions heapExclude,
+      ForkJoinPool pool)
+      throws IllegalArgumentException {
     super();
     if (dOptions == null) {
       throw new IllegalArgumentException("dOptions must not be null");
@@ -134,11 +154,20 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     this.modRef = modRef;
     this.cg = cg;
     this.pa = pa;
-    this.mod = dOptions.isIgnoreHeap() ? null : modRef.computeMod(cg, pa, heapExclude);
-    this.ref = dOptions.isIgnoreHeap() ? null : modRef.computeRef(cg, pa, heapExclude);
+    if (dOptions.isIgnoreHeap()) {
+      this.mod = null;
+      this.ref = null;
+    } else if (pool == null) {
+      this.mod = modRef.computeMod(cg, pa, heapExclude);
+      this.ref = modRef.computeRef(cg, pa, heapExclude);
+    } else {
+      this.mod = modRef.computeMod(cg, pa, heapExclude, pool);
+      this.ref = modRef.computeRef(cg, pa, heapExclude, pool);
+    }
     this.dOptions = dOptions;
     this.cOptions = cOptions;
     this.heapExclude = heapExclude;
+    this.pool = pool;
   }
 
   /**
@@ -183,6 +212,29 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     for (CGNode n : cg) {
       getPDG(n);
     }
+    if (pool != null && !dOptions.isIgnoreHeap()) {
+      computeHeapDataDependences();
+    }
+  }
+
+  /** compute the heap reaching defs of all PDGs in parallel, and add the resulting edges */
+  private void computeHeapDataDependences() {
+    Map<CGNode, Collection<Statement>> statements = HashMapFactory.make();
+    Map<CGNode, Collection<PointerKey>> locations = HashMapFactory.make();
+    for (PDG<T> pdg : pdgMap.values()) {
+      Collection<PointerKey> pending = pdg.getPendingHeapLocations();
+      if (!pending.isEmpty()) {
+        statements.put(pdg.getCallGraphNode(), Iterator2Collection.toSet(pdg.iterator()));
+        locations.put(pdg.getCallGraphNode(), pending);
+      }
+    }
+    Map<CGNode, Map<PointerKey, Map<Statement, OrdinalSet<Statement>>>> defs =
+        new HeapReachingDefs<>(modRef, modRef.makeHeapModel(pa))
+            .computeReachingDefs(statements, locations, pa, mod, cg, pool);
+    for (Map.Entry<CGNode, Map<PointerKey, Map<Statement, OrdinalSet<Statement>>>> e :
+        defs.entrySet()) {
+      pdgMap.get(e.getKey()).addHeapDataDependenceEdges(e.getValue());
+    }
   }
 
   /**
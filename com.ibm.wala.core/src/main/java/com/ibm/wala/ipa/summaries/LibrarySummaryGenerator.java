@@ -0,0 +1,685 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.summaries;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractFieldPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.AllocationSiteInNode;
+import com.ibm.wala.ipa.callgraph.propagation.ArrayContentsKey;
+import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
+import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.nObjBuilder;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Computes method summaries for library methods from a points-to analysis of the library itself, so
+ * that analyses of programs using the library can bypass the summarized methods.
+ *
+ * <p>The summaries are written in the format read by {@link XMLMethodSummaryReader}, and can be
+ * computed once per library version and installed with {@link Util#addBypassLogic(AnalysisOptions,
+ * AnalysisScope, ClassLoader, XMLMethodSummaryReader, IClassHierarchy)}.
+ *
+ * <p>A method is summarized only if its effect on the heap of its caller can be expressed by a
+ * summary: it returns or throws objects that it allocates itself, its parameters, or objects of
+ * static fields. The objects it allocates, and those reachable from them through their fields, are
+ * recreated by the summary. A method is not summarized if it writes static fields or fields of
+ * objects it may reach through its parameters or the static fields it reads, if it returns objects
+ * loaded from fields of such objects, or if it calls a method on such objects that classes outside
+ * the library could override.
+ *
+ * <p>Summaries are as precise as the pointer analysis they are computed from, so that analysis
+ * should allocate by allocation site and distinguish the receivers of shared library code.
+ */
+public class LibrarySummaryGenerator {
+
+  /** largest number of objects a summary allocates */
+  private static final int MAX_OBJECTS = 64;
+
+  /** name of the constant used as size of arrays */
+  private static final String ARRAY_SIZE = "size";
+
+  private final CallGraph cg;
+
+  private final PointerAnalysis<InstanceKey> pa;
+
+  private final HeapModel heap;
+
+  private final IClassHierarchy cha;
+
+  private final Map<CGNode, OrdinalSet<PointerKey>> mod;
+
+  private final Map<CGNode, OrdinalSet<PointerKey>> ref;
+
+  /** summarized methods -&gt; their summary, as XML */
+  private final Map<MethodReference, Summary> summaries = HashMapFactory.make();
+
+  public LibrarySummaryGenerator(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    if (cg == null) {
+      throw new IllegalArgumentException("null cg");
+    }
+    if (pa == null) {
+      throw new IllegalArgumentException("null pa");
+    }
+    this.cg = cg;
+    this.pa = pa;
+    this.heap = pa.getHeapModel();
+    this.cha = cg.getClassHierarchy();
+    ModRef<InstanceKey> modRef = ModRef.make();
+    this.mod = modRef.computeMod(cg, pa);
+    this.ref = modRef.computeRef(cg, pa);
+  }
+
+  /**
+   * Analyze the given library methods, with each of them as entrypoint, and summarize those that
+   * can be.
+   *
+   * @param scope scope holding the library
+   * @param cha class hierarchy of the scope
+   * @param methods library methods to summarize
+   */
+  public static LibrarySummaryGenerator make(
+      AnalysisScope scope,
+      IClassHierarchy cha,
+      Iterable<? extends IMethod> methods,
+      IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (methods == null) {
+      throw new IllegalArgumentException("null methods");
+    }
+    List<Entrypoint> entrypoints = new ArrayList<>();
+    for (IMethod m : methods) {
+      if (!m.isAbstract()) {
+        entrypoints.add(new DefaultEntrypoint(m, cha));
+      }
+    }
+    AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+    IAnalysisCacheView cache = new AnalysisCacheImpl();
+    Util.addDefaultSelectors(options, cha);
+    Util.addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
+    // object sensitivity keeps apart the objects that go through shared library code, such as
+    // the buffers of string builders
+    nObjBuilder builder =
+        new nObjBuilder(
+            1,
+            cha,
+            options,
+            cache,
+            null,
+            null,
+            ZeroXInstanceKeys.ALLOCATIONS | ZeroXInstanceKeys.CONSTANT_SPECIFIC);
+    CallGraph cg = builder.makeCallGraph(options, monitor);
+    LibrarySummaryGenerator generator =
+        new LibrarySummaryGenerator(cg, builder.getPointerAnalysis());
+    for (IMethod m : methods) {
+      generator.summarize(m);
+    }
+    return generator;
+  }
+
+  /** @return the methods summarized so far */
+  public Set<MethodReference> getSummarizedMethods() {
+    return Collections.unmodifiableSet(summaries.keySet());
+  }
+
+  /**
+   * Summarize m, if its effects can be expressed by a summary.
+   *
+   * @return true iff m is summarized
+   */
+  public boolean summarize(IMethod m) {
+    if (m == null) {
+      throw new IllegalArgumentException("null m");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return false;
+    }
+    Set<CGNode> nodes = cg.getNodes(m.getReference());
+    if (nodes.isEmpty()) {
+      return false;
+    }
+    // the summary is of calls from outside the library, so prefer the nodes of m as entrypoint,
+    // with parameters that come from the fake root
+    Set<CGNode> entries = HashSetFactory.make(nodes);
+    entries.retainAll(cg.getEntrypointNodes());
+    if (!entries.isEmpty()) {
+      nodes = entries;
+    }
+    Summary s = new SummaryBuilder(m, nodes).build();
+    if (s == null) {
+      return false;
+    }
+    summaries.put(m.getReference(), s);
+    return true;
+  }
+
+  /** Write the summaries in the format read by {@link XMLMethodSummaryReader} */
+  public void write(OutputStream out) throws IOException {
+    if (out == null) {
+      throw new IllegalArgumentException("null out");
+    }
+    // loader -> package -> class -> summaries, in a stable order
+    SortedMap<String, SortedMap<String, SortedMap<String, List<Summary>>>> tree = new TreeMap<>();
+    for (Summary s : summaries.values()) {
+      TypeName t = s.method.getDeclaringClass().getName();
+      String pkg = t.getPackage() == null ? "" : t.getPackage().toString();
+      tree.computeIfAbsent(s.loader, x -> new TreeMap<>())
+          .computeIfAbsent(pkg, x -> new TreeMap<>())
+          .computeIfAbsent(t.getClassName().toString(), x -> new ArrayList<>())
+          .add(s);
+    }
+    Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    w.write("<?xml version=\"1.0\" ?>\n<!DOCTYPE summary-spec>\n<summary-spec>\n");
+    for (Map.Entry<String, SortedMap<String, SortedMap<String, List<Summary>>>> l :
+        tree.entrySet()) {
+      w.write("  <classloader name=\"" + escape(l.getKey()) + "\">\n");
+      for (Map.Entry<String, SortedMap<String, List<Summary>>> p : l.getValue().entrySet()) {
+        String indent = "    ";
+        if (!p.getKey().isEmpty()) {
+          w.write("    <package name=\"" + escape(p.getKey()) + "\">\n");
+          indent = "      ";
+        }
+        for (Map.Entry<String, List<Summary>> c : p.getValue().entrySet()) {
+          w.write(indent + "<class name=\"" + escape(c.getKey()) + "\">\n");
+          List<Summary> methods = c.getValue();
+          methods.sort(
+              (a, b) ->
+                  a.method.getSelector().toString().compareTo(b.method.getSelector().toString()));
+          for (Summary s : methods) {
+            s.write(w, indent + "  ");
+          }
+          w.write(indent + "</class>\n");
+        }
+        if (!p.getKey().isEmpty()) {
+          w.write("    </package>\n");
+        }
+      }
+      w.write("  </classloader>\n");
+    }
+    w.write("</summary-spec>\n");
+    w.flush();
+  }
+
+  private static String escape(String s) {
+    return s.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+
+  /** the XML elements of the summary of one method */
+  private static class Summary {
+    private final MethodReference method;
+
+    private final String loader;
+
+    private final boolean isStatic;
+
+    private final List<String> statements;
+
+    Summary(MethodReference method, String loader, boolean isStatic, List<String> statements) {
+      this.method = method;
+      this.loader = loader;
+      this.isStatic = isStatic;
+      this.statements = statements;
+    }
+
+    void write(Writer w, String indent) throws IOException {
+      w.write(
+          indent
+              + "<method name=\""
+              + escape(method.getName().toString())
+              + "\" descriptor=\""
+              + escape(method.getDescriptor().toString())
+              + '"'
+              + (isStatic ? " static=\"true\"" : "")
+              + ">\n");
+      for (String s : statements) {
+        w.write(indent + "  " + s + '\n');
+      }
+      w.write(indent + "</method>\n");
+    }
+  }
+
+  /**
+   * builds the summary of one method, from the nodes of the method and those reachable from them
+   */
+  private class SummaryBuilder {
+    private final IMethod method;
+
+    private final Set<CGNode> nodes;
+
+    private final Set<CGNode> extent = HashSetFactory.make();
+
+    /** i -&gt; the objects parameter i may point to */
+    private final List<Set<InstanceKey>> formals = new ArrayList<>();
+
+    /**
+     * objects of the caller the method may reach, through the parameters or the static fields it
+     * reads
+     */
+    private final Set<InstanceKey> observable = HashSetFactory.make();
+
+    /** objects that may be loaded from fields of objects the caller may reach */
+    private final Set<InstanceKey> loaded = HashSetFactory.make();
+
+    /** static fields the method may read */
+    private final Set<StaticFieldKey> staticsRead = HashSetFactory.make();
+
+    /** static fields read by the summary -&gt; their name in the summary */
+    private final Map<StaticFieldKey, String> staticNames = HashMapFactory.make();
+
+    /** objects allocated by the summary -&gt; their name in the summary */
+    private final Map<InstanceKey, String> names = HashMapFactory.make();
+
+    private final Deque<InstanceKey> worklist = new ArrayDeque<>();
+
+    SummaryBuilder(IMethod method, Set<CGNode> nodes) {
+      this.method = method;
+      this.nodes = nodes;
+    }
+
+    /** @return the summary, or null if the method cannot be summarized */
+    Summary build() {
+      Deque<CGNode> todo = new ArrayDeque<>(nodes);
+      while (!todo.isEmpty()) {
+        CGNode n = todo.pop();
+        if (extent.add(n)) {
+          for (CGNode succ : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+            todo.push(succ);
+          }
+        }
+      }
+
+      for (int i = 0; i < method.getNumberOfParameters(); i++) {
+        Set<InstanceKey> pts = HashSetFactory.make();
+        for (CGNode n : nodes) {
+          IR ir = n.getIR();
+          if (ir != null) {
+            addAll(pts, heap.getPointerKeyForLocal(n, ir.getParameter(i)));
+          }
+        }
+        formals.add(pts);
+        addReachable(observable, pts);
+      }
+      Set<InstanceKey> statics = HashSetFactory.make();
+      for (CGNode n : nodes) {
+        OrdinalSet<PointerKey> read = ref.get(n);
+        if (read != null) {
+          for (PointerKey k : read) {
+            if (k instanceof StaticFieldKey) {
+              staticsRead.add((StaticFieldKey) k);
+              addAll(statics, k);
+            }
+          }
+        }
+      }
+      addReachable(observable, statics);
+
+      if (!checkEffects() || !checkCalls()) {
+        return null;
+      }
+
+      Set<String> returns = new LinkedHashSet<>();
+      Set<String> throwsStatements = new LinkedHashSet<>();
+      for (CGNode n : nodes) {
+        if (method.getReturnType().isReferenceType()) {
+          for (InstanceKey ik : pa.getPointsToSet(heap.getPointerKeyForReturnValue(n))) {
+            List<String> values = valuesOf(ik);
+            if (values.contains(null)) {
+              return null;
+            }
+            for (String v : values) {
+              returns.add("<return value=\"" + v + "\"/>");
+            }
+          }
+        }
+        for (InstanceKey ik : pa.getPointsToSet(heap.getPointerKeyForExceptionalReturnValue(n))) {
+          List<String> values = valuesOf(ik);
+          if (values.contains(null)) {
+            return null;
+          }
+          for (String v : values) {
+            throwsStatements.add("<throw value=\"" + v + "\"/>");
+          }
+        }
+      }
+
+      // recreate the objects, and then their fields
+      List<String> allocations = new ArrayList<>();
+      Set<String> stores = new LinkedHashSet<>();
+      boolean hasArrays = false;
+      while (!worklist.isEmpty()) {
+        if (names.size() > MAX_OBJECTS) {
+          return null;
+        }
+        InstanceKey ik = worklist.pop();
+        String name = names.get(ik);
+        IClass type = ik.getConcreteType();
+        TypeReference t = type.getReference();
+        if (t.isArrayType()) {
+          if (t.getArrayElementType().isArrayType()) {
+            // the summary format only allocates arrays with one dimension
+            return null;
+          }
+          hasArrays = true;
+          allocations.add(
+              "<new def=\""
+                  + name
+                  + "\" class=\""
+                  + escape(t.getName().toString())
+                  + "\" size=\""
+                  + ARRAY_SIZE
+                  + "\"/>");
+          if (t.getArrayElementType().isReferenceType()) {
+            for (InstanceKey v : pa.getPointsToSet(heap.getPointerKeyForArrayContents(ik))) {
+              List<String> values = valuesOf(v);
+              if (values.contains(null)) {
+                return null;
+              }
+              for (String value : values) {
+                stores.add(
+                    "<aastore ref=\""
+                        + name
+                        + "\" index=\"0\" value=\""
+                        + value
+                        + "\" type=\""
+                        + escape(t.getArrayElementType().getName().toString())
+                        + "\"/>");
+              }
+            }
+          }
+        } else {
+          allocations.add(
+              "<new def=\"" + name + "\" class=\"" + escape(t.getName().toString()) + "\"/>");
+          for (IField f : type.getAllInstanceFields()) {
+            if (!f.getFieldTypeReference().isReferenceType()) {
+              continue;
+            }
+            for (InstanceKey v : pa.getPointsToSet(heap.getPointerKeyForInstanceField(ik, f))) {
+              List<String> values = valuesOf(v);
+              if (values.contains(null)) {
+                return null;
+              }
+              for (String value : values) {
+                stores.add(
+                    "<putfield class=\""
+                        + escape(f.getDeclaringClass().getName().toString())
+                        + "\" field=\""
+                        + escape(f.getName().toString())
+                        + "\" fieldType=\""
+                        + escape(f.getFieldTypeReference().getName().toString())
+                        + "\" ref=\""
+                        + name
+                        + "\" value=\""
+                        + value
+                        + "\"/>");
+              }
+            }
+          }
+        }
+      }
+
+      List<String> statements = new ArrayList<>();
+      if (hasArrays) {
+        statements.add("<constant name=\"" + ARRAY_SIZE + "\" type=\"int\" value=\"1\"/>");
+      }
+      for (Map.Entry<StaticFieldKey, String> e : staticNames.entrySet()) {
+        IField f = e.getKey().getField();
+        statements.add(
+            "<getstatic class=\""
+                + escape(f.getDeclaringClass().getName().toString())
+                + "\" field=\""
+                + escape(f.getName().toString())
+                + "\" fieldType=\""
+                + escape(f.getFieldTypeReference().getName().toString())
+                + "\" def=\""
+                + e.getValue()
+                + "\"/>");
+      }
+      statements.addAll(allocations);
+      statements.addAll(stores);
+      if (method.getReturnType().isReferenceType() && returns.isEmpty()) {
+        returns.add("<return value=\"null\"/>");
+      }
+      statements.addAll(returns);
+      // new objects to throw were allocated above, so the throws end the summary
+      statements.addAll(throwsStatements);
+      return new Summary(
+          method.getReference(),
+          method.getDeclaringClass().getClassLoader().getName().toString(),
+          method.isStatic(),
+          statements);
+    }
+
+    /**
+     * @return false if the method writes static fields, or fields of objects it did not allocate
+     *     that the caller may reach
+     */
+    private boolean checkEffects() {
+      for (CGNode n : nodes) {
+        OrdinalSet<PointerKey> written = mod.get(n);
+        if (written != null) {
+          for (PointerKey k : written) {
+            if (k instanceof StaticFieldKey) {
+              return false;
+            }
+            if (k instanceof AbstractFieldPointerKey
+                && holdsReferences(k)
+                && isObservable(((AbstractFieldPointerKey) k).getInstanceKey())) {
+              return false;
+            }
+          }
+        }
+        OrdinalSet<PointerKey> read = ref.get(n);
+        if (read != null) {
+          for (PointerKey k : read) {
+            if (k instanceof AbstractFieldPointerKey
+                && isObservable(((AbstractFieldPointerKey) k).getInstanceKey())) {
+              addAll(loaded, k);
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return false if the method may call methods that are not final on objects of the caller,
+     *     since an override outside the library may then be called
+     */
+    private boolean checkCalls() {
+      for (CGNode n : extent) {
+        IR ir = n.getIR();
+        if (ir == null) {
+          continue;
+        }
+        for (SSAInstruction s : ir.getInstructions()) {
+          if (s instanceof SSAAbstractInvokeInstruction
+              && ((SSAAbstractInvokeInstruction) s).isDispatch()) {
+            SSAAbstractInvokeInstruction call = (SSAAbstractInvokeInstruction) s;
+            if (!isOverridable(call.getDeclaredTarget())) {
+              continue;
+            }
+            for (InstanceKey ik :
+                pa.getPointsToSet(heap.getPointerKeyForLocal(n, call.getReceiver()))) {
+              if (isObservable(ik)) {
+                return false;
+              }
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return the names of ik in the summary, allocating it in the summary if needed; a null name
+     *     if ik cannot be expressed. Objects that are neither allocated by the method nor reachable
+     *     by its caller are only there by imprecision of the pointer analysis, and have no name.
+     */
+    private List<String> valuesOf(InstanceKey ik) {
+      if (isFresh(ik)) {
+        String name = names.get(ik);
+        if (name == null) {
+          name = "x" + names.size();
+          names.put(ik, name);
+          worklist.push(ik);
+        }
+        return Collections.singletonList(name);
+      }
+      if (loaded.contains(ik)) {
+        return Collections.singletonList(null);
+      }
+      List<String> result = new ArrayList<>();
+      for (int i = 0; i < formals.size(); i++) {
+        if (formals.get(i).contains(ik)) {
+          result.add("arg" + i);
+        }
+      }
+      for (StaticFieldKey k : staticsRead) {
+        if (pa.getPointsToSet(k).contains(ik)) {
+          result.add(staticNames.computeIfAbsent(k, x -> "s" + staticNames.size()));
+        }
+      }
+      if (result.isEmpty() && observable.contains(ik)) {
+        result.add(null);
+      }
+      return result;
+    }
+
+    /**
+     * @return true if ik is allocated by the method or its callees, is an exception created by the
+     *     virtual machine, or is a string constant
+     */
+    private boolean isFresh(InstanceKey ik) {
+      if (ik instanceof AllocationSiteInNode) {
+        return extent.contains(((AllocationSiteInNode) ik).getNode());
+      }
+      if (ik instanceof ConstantKey) {
+        return ((ConstantKey<?>) ik).getValue() instanceof String;
+      }
+      if (ik instanceof ConcreteTypeKey) {
+        IClass throwable = cha.lookupClass(TypeReference.JavaLangThrowable);
+        return throwable != null && cha.isSubclassOf(ik.getConcreteType(), throwable);
+      }
+      return false;
+    }
+
+    private boolean isObservable(InstanceKey ik) {
+      return !isFresh(ik) && observable.contains(ik);
+    }
+
+    private void addAll(Set<InstanceKey> s, PointerKey k) {
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        s.add(ik);
+      }
+    }
+  }
+
+  /** add to result the roots and the objects reachable from them through fields */
+  private void addReachable(Set<InstanceKey> result, Set<InstanceKey> roots) {
+    Deque<InstanceKey> todo = new ArrayDeque<>(roots);
+    while (!todo.isEmpty()) {
+      InstanceKey ik = todo.pop();
+      if (!result.add(ik)) {
+        continue;
+      }
+      IClass type = ik.getConcreteType();
+      if (type.isArrayClass()) {
+        if (type.getReference().getArrayElementType().isReferenceType()) {
+          for (InstanceKey v : pa.getPointsToSet(heap.getPointerKeyForArrayContents(ik))) {
+            todo.push(v);
+          }
+        }
+      } else {
+        for (IField f : type.getAllInstanceFields()) {
+          if (f.getFieldTypeReference().isReferenceType()) {
+            for (InstanceKey v : pa.getPointsToSet(heap.getPointerKeyForInstanceField(ik, f))) {
+              todo.push(v);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** @return false if k is a field or array element of primitive type */
+  private static boolean holdsReferences(PointerKey k) {
+    if (k instanceof InstanceFieldKey) {
+      return ((InstanceFieldKey) k).getField().getFieldTypeReference().isReferenceType();
+    }
+    if (k instanceof ArrayContentsKey) {
+      TypeReference t = ((ArrayContentsKey) k).getInstanceKey().getConcreteType().getReference();
+      return t.getArrayElementType().isReferenceType();
+    }
+    return true;
+  }
+
+  /** @return true if a class outside the library may override the target of a call to m */
+  private boolean isOverridable(MethodReference m) {
+    IClass c = cha.lookupClass(m.getDeclaringClass());
+    if (c == null) {
+      return true;
+    }
+    if (c.isArrayClass() || (c.getModifiers() & Constants.ACC_FINAL) != 0) {
+      return false;
+    }
+    IMethod target = cha.resolveMethod(c, m.getSelector());
+    return target == null || !(target.isFinal() || target.isPrivate());
+  }
+}
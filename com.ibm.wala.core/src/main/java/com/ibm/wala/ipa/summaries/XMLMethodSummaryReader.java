@@ -108,6 +108,8 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
 
   private static final int E_AALOAD = 15;
 
+  private static final int E_GETSTATIC = 16;
+
   private static final Map<String, Integer> elementMap = HashMapFactory.make(14);
 
   static {
@@ -127,6 +129,7 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
     elementMap.put("throw", E_ATHROW);
     elementMap.put("constant", E_CONSTANT);
     elementMap.put("aaload", E_AALOAD);
+    elementMap.put("getstatic", E_GETSTATIC);
   }
 
   //
@@ -304,6 +307,9 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
         case E_GETFIELD:
           processGetField(atts);
           break;
+        case E_GETSTATIC:
+          processGetStatic(atts);
+          break;
         case E_ATHROW:
           processAthrow(atts);
           break;
@@ -368,6 +374,7 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
           break;
         case E_CALL:
         case E_GETFIELD:
+        case E_GETSTATIC:
         case E_NEW:
         case E_POISON:
         case E_PUTSTATIC:
@@ -660,6 +667,41 @@ public class XMLMethodSummaryReader implements BytecodeConstants {
       governingMethod.addStatement(P);
     }
 
+    /** Process an element indicating a getstatic. */
+    private void processGetStatic(Attributes atts) {
+      Language lang = scope.getLanguage(governingLoader.getLanguage());
+      SSAInstructionFactory insts = lang.instructionFactory();
+
+      // deduce the field read
+      String classString = atts.getValue(A_CLASS);
+      TypeReference type =
+          TypeReference.findOrCreate(governingLoader, TypeName.string2TypeName(classString));
+
+      String fieldString = atts.getValue(A_FIELD);
+      Atom fieldName = Atom.findOrCreateAsciiAtom(fieldString);
+
+      String ftString = atts.getValue(A_FIELD_TYPE);
+      TypeReference fieldType =
+          TypeReference.findOrCreate(governingLoader, TypeName.string2TypeName(ftString));
+
+      FieldReference field = FieldReference.findOrCreate(type, fieldName, fieldType);
+
+      // get the value def'fed
+      String defVar = atts.getValue(A_DEF);
+      if (symbolTable.containsKey(defVar)) {
+        Assertions.UNREACHABLE("Cannot def variable twice: " + defVar + " in " + governingMethod);
+      }
+      if (defVar == null) {
+        Assertions.UNREACHABLE("Must specify def for getstatic " + governingMethod);
+      }
+      int defNum = nextLocal;
+      symbolTable.put(defVar, nextLocal++);
+
+      SSAGetInstruction G =
+          insts.GetInstruction(governingMethod.getNumberOfStatements(), defNum, field);
+      governingMethod.addStatement(G);
+    }
+
     /** Process an element indicating a putstatic. */
     private void processPutStatic(Attributes atts) {
       Language lang = scope.getLanguage(governingLoader.getLanguage());
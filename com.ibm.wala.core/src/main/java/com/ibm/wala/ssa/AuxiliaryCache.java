@@ -16,7 +16,8 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.Pair;
-import com.ibm.wala.util.ref.CacheReference;
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -25,15 +26,20 @@ import java.util.Map.Entry;
 /**
  * A cache for auxiliary information based on an SSA representation
  *
- * <p>A mapping from (IMethod,Context) -&gt; SSAOptions -&gt; SoftReference -&gt; something
- *
- * <p>This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp
- * it.
+ * <p>A mapping from (IMethod,Context) -&gt; SSAOptions -&gt; {@link CacheRegion.Handle} -&gt;
+ * something
  */
 public class AuxiliaryCache implements IAuxiliaryCache {
 
-  /** A mapping from IMethod -&gt; SSAOptions -&gt; SoftReference -&gt; IR */
-  private HashMap<Pair<IMethod, Context>, Map<SSAOptions, Object>> dictionary =
+  /**
+   * The region caching the auxiliary information of all caches; soft by default, since IRs are
+   * large and their number is hard to predict
+   */
+  private static final CacheRegion<Object> VALUES =
+      CacheManager.getDefault().getRegion("AuxiliaryCache.values", CacheRegion.Policy.SOFT, 20000);
+
+  /** A mapping from IMethod -&gt; SSAOptions -&gt; handle -&gt; IR */
+  private HashMap<Pair<IMethod, Context>, Map<SSAOptions, CacheRegion.Handle<Object>>> dictionary =
       HashMapFactory.make();
 
   /**
@@ -50,23 +56,30 @@ public class AuxiliaryCache implements IAuxiliaryCache {
    */
   @Override
   public synchronized void wipe() {
+    for (Map<SSAOptions, CacheRegion.Handle<Object>> m : dictionary.values()) {
+      for (CacheRegion.Handle<Object> h : m.values()) {
+        VALUES.remove(h);
+      }
+    }
     dictionary = HashMapFactory.make();
     nItems = 0;
   }
 
   /** clear out things from which no IR is reachable */
   private void reset() {
-    Map<Pair<IMethod, Context>, Map<SSAOptions, Object>> oldDictionary = dictionary;
+    Map<Pair<IMethod, Context>, Map<SSAOptions, CacheRegion.Handle<Object>>> oldDictionary =
+        dictionary;
     dictionary = HashMapFactory.make();
     nItems = 0;
 
-    for (Entry<Pair<IMethod, Context>, Map<SSAOptions, Object>> e : oldDictionary.entrySet()) {
-      Map<SSAOptions, Object> m = e.getValue();
+    for (Entry<Pair<IMethod, Context>, Map<SSAOptions, CacheRegion.Handle<Object>>> e :
+        oldDictionary.entrySet()) {
+      Map<SSAOptions, CacheRegion.Handle<Object>> m = e.getValue();
       HashSet<Object> toRemove = HashSetFactory.make();
-      for (Entry<SSAOptions, Object> e2 : m.entrySet()) {
+      for (Entry<SSAOptions, CacheRegion.Handle<Object>> e2 : m.entrySet()) {
         Object key = e2.getKey();
-        Object val = e2.getValue();
-        if (CacheReference.get(val) == null) {
+        CacheRegion.Handle<Object> val = e2.getValue();
+        if (VALUES.peek(val) == null) {
           toRemove.add(key);
         }
       }
@@ -84,15 +97,10 @@ public class AuxiliaryCache implements IAuxiliaryCache {
    */
   @Override
   public synchronized Object find(IMethod m, Context c, SSAOptions options) {
-    // methodMap: SSAOptions -> SoftReference
+    // methodMap: SSAOptions -> handle
     Pair<IMethod, Context> p = Pair.make(m, c);
-    Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = methodMap.get(options);
-    if (ref == null || CacheReference.get(ref) == null) {
-      return null;
-    } else {
-      return CacheReference.get(ref);
-    }
+    Map<SSAOptions, CacheRegion.Handle<Object>> methodMap = MapUtil.findOrCreateMap(dictionary, p);
+    return VALUES.get(methodMap.get(options));
   }
 
   /*
@@ -106,10 +114,9 @@ public class AuxiliaryCache implements IAuxiliaryCache {
       reset();
     }
     Pair<IMethod, Context> p = Pair.make(m, c);
-    // methodMap: SSAOptions -> SoftReference
-    Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = CacheReference.make(aux);
-    methodMap.put(options, ref);
+    // methodMap: SSAOptions -> handle
+    Map<SSAOptions, CacheRegion.Handle<Object>> methodMap = MapUtil.findOrCreateMap(dictionary, p);
+    VALUES.remove(methodMap.put(options, VALUES.make(aux)));
   }
 
   /*
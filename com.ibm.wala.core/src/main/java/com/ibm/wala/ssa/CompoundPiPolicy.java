@@ -46,6 +46,14 @@ public class CompoundPiPolicy implements SSAPiNodePolicy {
     }
   }
 
+  SSAPiNodePolicy getFirst() {
+    return p1;
+  }
+
+  SSAPiNodePolicy getSecond() {
+    return p2;
+  }
+
   /*
    * @see com.ibm.wala.ssa.SSAPiNodePolicy#getPi(com.ibm.wala.ssa.SSAConditionalBranchInstruction, com.ibm.wala.ssa.SSAInstruction, com.ibm.wala.ssa.SSAInstruction, com.ibm.wala.ssa.SymbolTable)
    */
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An {@link SSACache} that can be shared by many threads building IRs at the same time.
+ *
+ * <p>{@link SSACache} holds its lock while an IR is built, so concurrent clients build IRs one at a
+ * time. This cache only holds its lock to access the underlying {@link IAuxiliaryCache}s; IRs of
+ * different methods are built in parallel, and threads asking for an IR that is being built by
+ * another thread wait for that thread instead of building it again. As with {@link SSACache}, all
+ * threads see the same IR instance for a given method, context and options while it is cached.
+ *
+ * <p>The {@link IRFactory} must be safe to call from several threads at once, which {@link
+ * DefaultIRFactory} is for bytecode methods.
+ */
+public class ConcurrentSSACache extends SSACache {
+
+  /** The factory that actually creates new IR objects */
+  private final IRFactory<IMethod> factory;
+
+  /** A cache of SSA IRs */
+  private final IAuxiliaryCache irCache;
+
+  /** A cache of DefUse information */
+  private final IAuxiliaryCache duCache;
+
+  /** IRs currently being built, so that each is built by only one thread */
+  private final ConcurrentHashMap<Key, FutureTask<IR>> inFlight = new ConcurrentHashMap<>();
+
+  public ConcurrentSSACache(
+      IRFactory<IMethod> factory, IAuxiliaryCache irCache, IAuxiliaryCache duCache) {
+    super(factory, irCache, duCache);
+    this.factory = factory;
+    this.irCache = irCache;
+    this.duCache = duCache;
+  }
+
+  @Override
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+
+    IR ir = findIR(m, c, options);
+    if (ir != null) {
+      return ir;
+    }
+
+    final Context context = c;
+    Key key = new Key(m, c, options);
+    FutureTask<IR> task = new FutureTask<>(() -> factory.makeIR(m, context, options));
+    FutureTask<IR> running = inFlight.putIfAbsent(key, task);
+    if (running != null) {
+      return getIR(running);
+    }
+    try {
+      // another thread may have cached the IR between our lookup and claiming the key
+      ir = findIR(m, c, options);
+      if (ir != null) {
+        task.cancel(false);
+        return ir;
+      }
+      task.run();
+      ir = getIR(task);
+      synchronized (this) {
+        irCache.cache(m, c, options, ir);
+      }
+      return ir;
+    } finally {
+      inFlight.remove(key);
+    }
+  }
+
+  private synchronized IR findIR(IMethod m, Context c, SSAOptions options) {
+    return (IR) irCache.find(m, c, options);
+  }
+
+  private static IR getIR(FutureTask<IR> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for an IR", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  @Override
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+    return findOrCreateDU(findOrCreateIR(m, c, options), m, c, options);
+  }
+
+  @Override
+  public DefUse findOrCreateDU(IR ir, Context C) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    return findOrCreateDU(ir, ir.getMethod(), C, ir.getOptions());
+  }
+
+  /** Build the DefUse outside the lock; if another thread was faster, use its DefUse instead. */
+  private DefUse findOrCreateDU(IR ir, IMethod m, Context c, SSAOptions options) {
+    DefUse du;
+    synchronized (this) {
+      du = (DefUse) duCache.find(m, c, options);
+    }
+    if (du == null) {
+      DefUse fresh = new DefUse(ir);
+      synchronized (this) {
+        du = (DefUse) duCache.find(m, c, options);
+        if (du == null) {
+          du = fresh;
+          duCache.cache(m, c, options, du);
+        }
+      }
+    }
+    return du;
+  }
+
+  @Override
+  public synchronized void wipe() {
+    super.wipe();
+  }
+
+  @Override
+  public synchronized void invalidateIR(IMethod method, Context c) {
+    super.invalidateIR(method, c);
+  }
+
+  @Override
+  public synchronized void invalidateDU(IMethod method, Context c) {
+    super.invalidateDU(method, c);
+  }
+
+  private static final class Key {
+    private final IMethod method;
+
+    private final Context context;
+
+    private final SSAOptions options;
+
+    Key(IMethod method, Context context, SSAOptions options) {
+      this.method = method;
+      this.context = context;
+      this.options = options;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, context, options);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return method.equals(other.method)
+          && Objects.equals(context, other.context)
+          && Objects.equals(options, other.options);
+    }
+  }
+}
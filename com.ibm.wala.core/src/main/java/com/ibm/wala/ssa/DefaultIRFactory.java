@@ -28,10 +28,22 @@ import com.ibm.wala.util.debug.Assertions;
  */
 public class DefaultIRFactory implements IRFactory<IMethod> {
 
-  private final ShrikeIRFactory shrikeFactory = new ShrikeIRFactory();
+  private final ShrikeIRFactory shrikeFactory;
 
   private final SyntheticIRFactory syntheticFactory = new SyntheticIRFactory();
 
+  public DefaultIRFactory() {
+    this(null);
+  }
+
+  /**
+   * @param store a persistent store for the IRs of bytecode methods, e.g. to share them across
+   *     analysis runs; null for none
+   */
+  public DefaultIRFactory(IRStore store) {
+    shrikeFactory = new ShrikeIRFactory(store);
+  }
+
   /*
    * @see com.ibm.wala.ssa.IRFactory#makeCFG(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context,
    * com.ibm.wala.ipa.cha.IClassHierarchy, com.ibm.wala.util.warnings.WarningSet)
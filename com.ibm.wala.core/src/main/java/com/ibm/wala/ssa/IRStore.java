@@ -0,0 +1,1314 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeBT.InvokeDynamicInstruction;
+import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.strings.Atom;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent store of the {@link IR}s of bytecode methods, so that {@link
+ * com.ibm.wala.classLoader.ShrikeIRFactory} can read the result of SSA construction from disk
+ * instead of running {@link SSABuilder} again, e.g. for the library methods shared by many analysis
+ * runs.
+ *
+ * <p>Each IR is kept in a file of its own, named by a hash of the loader and the SHA-1 of its class
+ * file, its selector and the pi node policy of its {@link SSAOptions}, and the file is
+ * memory-mapped to read it. Only the results of SSA construction are stored: the instructions, the
+ * symbol table, the phi, pi and catch instructions of each basic block, and the map from value
+ * numbers to locals; the control flow graph is cheap to rebuild from the bytecode. IRs are neither
+ * written nor read if their options have default values or a pi node policy other than the built-in
+ * ones, or if they have instructions that cannot be encoded.
+ *
+ * <p>The store is a cache: files that cannot be read or written are ignored, and the directory may
+ * be deleted at any time.
+ */
+public class IRStore {
+
+  private static final int MAGIC = 0x57495253;
+
+  /** bump this whenever the encoding, or SSA construction itself, changes */
+  private static final int VERSION = 1;
+
+  /* instruction tags */
+  private static final byte GOTO = 0;
+
+  private static final byte ARRAY_LOAD = 1;
+
+  private static final byte ARRAY_STORE = 2;
+
+  private static final byte BINARY_OP = 3;
+
+  private static final byte UNARY_OP = 4;
+
+  private static final byte CONVERSION = 5;
+
+  private static final byte COMPARISON = 6;
+
+  private static final byte CONDITIONAL_BRANCH = 7;
+
+  private static final byte SWITCH = 8;
+
+  private static final byte RETURN = 9;
+
+  private static final byte GET = 10;
+
+  private static final byte PUT = 11;
+
+  private static final byte INVOKE = 12;
+
+  private static final byte NEW = 13;
+
+  private static final byte ARRAY_LENGTH = 14;
+
+  private static final byte THROW = 15;
+
+  private static final byte MONITOR = 16;
+
+  private static final byte CHECK_CAST = 17;
+
+  private static final byte INSTANCEOF = 18;
+
+  private static final byte LOAD_METADATA = 19;
+
+  /* symbol table entries */
+  private static final byte PHI_VALUE = 0;
+
+  private static final byte NULL_CONSTANT = 1;
+
+  private static final byte BOOLEAN_CONSTANT = 2;
+
+  private static final byte INT_CONSTANT = 3;
+
+  private static final byte LONG_CONSTANT = 4;
+
+  private static final byte FLOAT_CONSTANT = 5;
+
+  private static final byte DOUBLE_CONSTANT = 6;
+
+  private static final byte STRING_CONSTANT = 7;
+
+  /* binary operator kinds */
+  private static final byte ARITHMETIC = 0;
+
+  private static final byte SHIFT = 1;
+
+  /* metadata token kinds */
+  private static final byte TYPE_TOKEN = 0;
+
+  private static final byte METHOD_TOKEN = 1;
+
+  private final File directory;
+
+  /** SHA-1 of the class file of each class; weak, so that the classes can be collected */
+  private final Map<IClass, String> classHashes = new WeakHashMap<>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  private final AtomicInteger writes = new AtomicInteger();
+
+  /**
+   * @param directory where to keep the IRs; created if it does not exist
+   * @throws IllegalArgumentException if the directory cannot be created
+   */
+  public IRStore(File directory) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create " + directory);
+    }
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /** @return number of IRs read from the store */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** @return number of IRs looked up, but not found, in the store */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /** @return number of IRs written to the store */
+  public int getWrites() {
+    return writes.get();
+  }
+
+  /**
+   * Read the result of SSA construction for a method, if the store has it, into the structures of a
+   * new IR, in place of {@link SSABuilder#build()} and the elimination of dead phis.
+   *
+   * @param shrikeCFG the control flow graph of the bytecode of method
+   * @param cfg the new, empty SSA control flow graph
+   * @param instructions the new, empty instruction array
+   * @param symbolTable the new symbol table, holding only the parameters
+   * @return the local map of the IR read, or null, leaving the structures untouched, if the store
+   *     does not have the IR
+   */
+  public IR.SSA2LocalMap read(
+      IBytecodeMethod<IInstruction> method,
+      SSAOptions options,
+      ShrikeCFG shrikeCFG,
+      SSACFG cfg,
+      SSAInstruction[] instructions,
+      SymbolTable symbolTable) {
+    String key = key(method, options);
+    if (key == null) {
+      return null;
+    }
+    File file = file(key);
+    if (!file.exists()) {
+      misses.incrementAndGet();
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      IR.SSA2LocalMap result =
+          new Decoder(buffer, method, shrikeCFG).decode(key, cfg, instructions, symbolTable);
+      hits.incrementAndGet();
+      return result;
+    } catch (IOException | RuntimeException e) {
+      // an unreadable, truncated or corrupt file; it is overwritten once the IR is built again
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Write the result of SSA construction for a method, after {@link SSABuilder#build()} and the
+   * elimination of dead phis, to the store.
+   */
+  public void write(
+      IBytecodeMethod<IInstruction> method,
+      SSAOptions options,
+      SSACFG cfg,
+      SSAInstruction[] instructions,
+      SymbolTable symbolTable,
+      IR.SSA2LocalMap localMap) {
+    if (!(localMap instanceof SSABuilder.SSA2LocalMap)) {
+      return;
+    }
+    String key = key(method, options);
+    if (key == null) {
+      return;
+    }
+    byte[] bytes =
+        new Encoder()
+            .encode(key, cfg, instructions, symbolTable, (SSABuilder.SSA2LocalMap) localMap);
+    if (bytes == null) {
+      return;
+    }
+    File file = file(key);
+    File tmp = null;
+    try {
+      // write a temporary file first, so that readers never see a partial one
+      tmp = File.createTempFile(file.getName(), ".tmp", directory);
+      Files.write(tmp.toPath(), bytes);
+      Files.move(
+          tmp.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      writes.incrementAndGet();
+    } catch (IOException e) {
+      // the store is only a cache
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private File file(String key) {
+    return new File(directory, hex(sha1(key.getBytes(StandardCharsets.UTF_8))) + ".ir");
+  }
+
+  /** @return the key of the IR of method built with options, or null if it cannot be stored */
+  private String key(IBytecodeMethod<IInstruction> method, SSAOptions options) {
+    if (options.getDefaultValues() != null) {
+      return null;
+    }
+    String policy = policyKey(options.getPiNodePolicy());
+    if (policy == null) {
+      return null;
+    }
+    String classHash = classHash(method.getDeclaringClass());
+    if (classHash == null) {
+      return null;
+    }
+    // the types of the IR are relative to the loader of the class, so the same bytes loaded by
+    // another loader have another IR
+    ClassLoaderReference loader = method.getDeclaringClass().getClassLoader().getReference();
+    return VERSION
+        + " "
+        + loader.getName()
+        + '/'
+        + loader.getLanguage()
+        + ' '
+        + classHash
+        + ' '
+        + method.getSelector()
+        + ' '
+        + policy
+        + (options.getPrunePhis() ? " pruned" : "");
+  }
+
+  private static String policyKey(SSAPiNodePolicy policy) {
+    if (policy == null) {
+      return "none";
+    } else if (policy instanceof InstanceOfPiPolicy
+        || policy instanceof NullTestPiPolicy
+        || policy instanceof AllIntegerDueToBranchePiPolicy) {
+      // stateless
+      return policy.getClass().getSimpleName();
+    } else if (policy instanceof CompoundPiPolicy) {
+      String first = policyKey(((CompoundPiPolicy) policy).getFirst());
+      String second = policyKey(((CompoundPiPolicy) policy).getSecond());
+      return (first == null || second == null) ? null : '(' + first + ',' + second + ')';
+    } else {
+      return null;
+    }
+  }
+
+  private String classHash(IClass klass) {
+    if (!(klass instanceof ShrikeClass)) {
+      return null;
+    }
+    synchronized (classHashes) {
+      String result = classHashes.get(klass);
+      if (result == null) {
+        result = hex(sha1(((ShrikeClass) klass).getReader().getBytes()));
+        classHashes.put(klass, result);
+      }
+      return result;
+    }
+  }
+
+  private static byte[] sha1(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+
+  /**
+   * Encodes the result of SSA construction. All integers are LEB128 varints, zigzag-encoded where
+   * they may be negative; strings are pooled, and written out in full only where first used.
+   */
+  private static final class Encoder extends SSAInstruction.Visitor
+      implements IVisitorWithAddresses {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    /** set when something cannot be encoded */
+    private boolean unsupported;
+
+    /** @return the encoding of the IR, or null if it cannot be encoded */
+    byte[] encode(
+        String key,
+        SSACFG cfg,
+        SSAInstruction[] instructions,
+        SymbolTable symbolTable,
+        SSABuilder.SSA2LocalMap localMap) {
+      writeInt(MAGIC);
+      writeInt(VERSION);
+      writeString(key);
+      writeInt(instructions.length);
+      writeInt(cfg.getNumberOfNodes());
+
+      // symbol table
+      int max = symbolTable.getMaxValueNumber();
+      writeInt(max);
+      int count = 0;
+      for (int vn = 1; vn <= max; vn++) {
+        if (symbolTable.getValue(vn) != null) {
+          count++;
+        }
+      }
+      writeInt(count);
+      for (int vn = 1; vn <= max; vn++) {
+        Value v = symbolTable.getValue(vn);
+        if (v != null) {
+          writeInt(vn);
+          writeValue(v);
+        }
+      }
+
+      // normal instructions
+      count = 0;
+      for (SSAInstruction s : instructions) {
+        if (s != null) {
+          count++;
+        }
+      }
+      writeInt(count);
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] != null) {
+          writeInt(i);
+          writeInstruction(instructions[i]);
+        }
+      }
+
+      // phis, pis and catch instructions of the blocks
+      for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+        SSACFG.BasicBlock bb = cfg.getNode(b);
+        writePhis(bb.getStackSlotPhis(), symbolTable);
+        writePhis(bb.getLocalPhis(), symbolTable);
+        List<SSAPiInstruction> pis = new ArrayList<>();
+        bb.iteratePis().forEachRemaining(pis::add);
+        writeInt(pis.size());
+        for (SSAPiInstruction pi : pis) {
+          writeSigned(pi.iIndex());
+          writeSigned(pi.getDef());
+          writeSigned(pi.getVal());
+          writeInt(pi.getPiBlock());
+          writeInt(pi.getSuccessor());
+          SSAInstruction cause = pi.getCause();
+          if (cause == null) {
+            writeInt(0);
+          } else if (cause.iIndex() >= 0
+              && cause.iIndex() < instructions.length
+              && instructions[cause.iIndex()] == cause) {
+            writeInt(cause.iIndex() + 1);
+          } else {
+            unsupported = true;
+          }
+        }
+        SSAGetCaughtExceptionInstruction c =
+            (bb instanceof SSACFG.ExceptionHandlerBasicBlock)
+                ? ((SSACFG.ExceptionHandlerBasicBlock) bb).getCatchInstruction()
+                : null;
+        if (c == null) {
+          writeInt(0);
+        } else {
+          writeInt(1);
+          writeSigned(c.iIndex());
+          writeInt(c.getBasicBlockNumber());
+          writeSigned(c.getDef());
+        }
+      }
+
+      // local map
+      IntPair[] stores = localMap.getLocalStoreMap();
+      writeInt(stores.length);
+      count = 0;
+      for (IntPair p : stores) {
+        if (p != null) {
+          count++;
+        }
+      }
+      writeInt(count);
+      for (int pc = 0; pc < stores.length; pc++) {
+        if (stores[pc] != null) {
+          writeInt(pc);
+          writeSigned(stores[pc].getX());
+          writeInt(stores[pc].getY());
+        }
+      }
+      int[][] states = localMap.getBlock2LocalState();
+      writeInt(states.length);
+      for (int[] locals : states) {
+        writeInts(locals);
+      }
+      return unsupported ? null : out.toByteArray();
+    }
+
+    private void writeValue(Value v) {
+      if (v instanceof PhiValue) {
+        out.write(PHI_VALUE);
+        SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+        writeSigned(phi.iIndex());
+        int[] uses = new int[phi.getNumberOfUses()];
+        for (int i = 0; i < uses.length; i++) {
+          uses[i] = phi.getUse(i);
+        }
+        writeInts(uses);
+      } else if (v instanceof ConstantValue) {
+        Object o = ((ConstantValue) v).getValue();
+        if (o == null) {
+          out.write(NULL_CONSTANT);
+        } else if (o instanceof Boolean) {
+          out.write(BOOLEAN_CONSTANT);
+          out.write((Boolean) o ? 1 : 0);
+        } else if (o instanceof Integer) {
+          out.write(INT_CONSTANT);
+          writeSigned((Integer) o);
+        } else if (o instanceof Long) {
+          out.write(LONG_CONSTANT);
+          writeLong((Long) o);
+        } else if (o instanceof Float) {
+          out.write(FLOAT_CONSTANT);
+          writeInt(Float.floatToRawIntBits((Float) o));
+        } else if (o instanceof Double) {
+          out.write(DOUBLE_CONSTANT);
+          writeLong(Double.doubleToRawLongBits((Double) o));
+        } else if (o instanceof String) {
+          out.write(STRING_CONSTANT);
+          writeString((String) o);
+        } else {
+          unsupported = true;
+        }
+      } else {
+        unsupported = true;
+      }
+    }
+
+    /** write the phis of a block by their value numbers, which refer to the symbol table */
+    private void writePhis(SSAPhiInstruction[] phis, SymbolTable symbolTable) {
+      if (phis == null) {
+        writeInt(0);
+        return;
+      }
+      int count = 0;
+      for (SSAPhiInstruction phi : phis) {
+        if (phi != null) {
+          count++;
+        }
+      }
+      writeInt(count);
+      for (int i = 0; i < phis.length; i++) {
+        SSAPhiInstruction phi = phis[i];
+        if (phi != null) {
+          Value v = symbolTable.getValue(phi.getDef());
+          if (!(v instanceof PhiValue) || ((PhiValue) v).getPhiInstruction() != phi) {
+            unsupported = true;
+          }
+          writeInt(i);
+          writeInt(phi.getDef());
+        }
+      }
+    }
+
+    private void writeInstruction(SSAInstruction s) {
+      writeSigned(s.iIndex());
+      int size = out.size();
+      s.visit(this);
+      if (out.size() == size) {
+        // not an instruction this encoder knows
+        unsupported = true;
+      }
+    }
+
+    @Override
+    public void visitGoto(SSAGotoInstruction instruction) {
+      out.write(GOTO);
+      writeSigned(instruction.getTarget());
+    }
+
+    @Override
+    public void visitArrayLoad(SSAArrayLoadInstruction instruction) {
+      out.write(ARRAY_LOAD);
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getArrayRef());
+      writeSigned(instruction.getIndex());
+      writeType(instruction.getElementType());
+    }
+
+    @Override
+    public void visitArrayStore(SSAArrayStoreInstruction instruction) {
+      out.write(ARRAY_STORE);
+      writeSigned(instruction.getArrayRef());
+      writeSigned(instruction.getIndex());
+      writeSigned(instruction.getValue());
+      writeType(instruction.getElementType());
+    }
+
+    @Override
+    public void visitBinaryOp(SSABinaryOpInstruction instruction) {
+      out.write(BINARY_OP);
+      IBinaryOpInstruction.IOperator operator = instruction.getOperator();
+      if (operator instanceof IBinaryOpInstruction.Operator) {
+        out.write(ARITHMETIC);
+        writeInt(((IBinaryOpInstruction.Operator) operator).ordinal());
+      } else if (operator instanceof IShiftInstruction.Operator) {
+        out.write(SHIFT);
+        writeInt(((IShiftInstruction.Operator) operator).ordinal());
+      } else {
+        unsupported = true;
+      }
+      out.write(instruction.mayBeIntegerOp() ? 1 : 0);
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getUse(0));
+      writeSigned(instruction.getUse(1));
+    }
+
+    @Override
+    public void visitUnaryOp(SSAUnaryOpInstruction instruction) {
+      out.write(UNARY_OP);
+      if (instruction.getOpcode() instanceof IUnaryOpInstruction.Operator) {
+        writeInt(((IUnaryOpInstruction.Operator) instruction.getOpcode()).ordinal());
+      } else {
+        unsupported = true;
+      }
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getUse(0));
+    }
+
+    @Override
+    public void visitConversion(SSAConversionInstruction instruction) {
+      out.write(CONVERSION);
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getUse(0));
+      writeType(instruction.getFromType());
+      writeType(instruction.getToType());
+    }
+
+    @Override
+    public void visitComparison(SSAComparisonInstruction instruction) {
+      out.write(COMPARISON);
+      writeInt(instruction.getOperator().ordinal());
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getUse(0));
+      writeSigned(instruction.getUse(1));
+    }
+
+    @Override
+    public void visitConditionalBranch(SSAConditionalBranchInstruction instruction) {
+      out.write(CONDITIONAL_BRANCH);
+      if (instruction.getOperator() instanceof IConditionalBranchInstruction.Operator) {
+        writeInt(((IConditionalBranchInstruction.Operator) instruction.getOperator()).ordinal());
+      } else {
+        unsupported = true;
+      }
+      writeType(instruction.getType());
+      writeSigned(instruction.getUse(0));
+      writeSigned(instruction.getUse(1));
+      writeSigned(instruction.getTarget());
+    }
+
+    @Override
+    public void visitSwitch(SSASwitchInstruction instruction) {
+      out.write(SWITCH);
+      writeSigned(instruction.getUse(0));
+      writeSigned(instruction.getDefault());
+      writeInts(instruction.getCasesAndLabels());
+    }
+
+    @Override
+    public void visitReturn(SSAReturnInstruction instruction) {
+      out.write(RETURN);
+      writeSigned(instruction.getResult());
+      out.write(instruction.returnsPrimitiveType() ? 1 : 0);
+    }
+
+    @Override
+    public void visitGet(SSAGetInstruction instruction) {
+      out.write(GET);
+      out.write(instruction.isStatic() ? 1 : 0);
+      writeSigned(instruction.getDef());
+      if (!instruction.isStatic()) {
+        writeSigned(instruction.getRef());
+      }
+      writeField(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitPut(SSAPutInstruction instruction) {
+      out.write(PUT);
+      out.write(instruction.isStatic() ? 1 : 0);
+      if (!instruction.isStatic()) {
+        writeSigned(instruction.getRef());
+      }
+      writeSigned(instruction.getVal());
+      writeField(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitInvoke(SSAInvokeInstruction instruction) {
+      out.write(INVOKE);
+      // the bootstrap method is read from the bytecode again
+      out.write(instruction instanceof SSAInvokeDynamicInstruction ? 1 : 0);
+      writeSigned(instruction.getNumberOfReturnValues() == 0 ? -1 : instruction.getReturnValue(0));
+      int[] params = new int[instruction.getNumberOfPositionalParameters()];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = instruction.getUse(i);
+      }
+      writeInts(params);
+      writeSigned(instruction.getException());
+      CallSiteReference site = instruction.getCallSite();
+      writeInt(site.getProgramCounter());
+      writeMethod(site.getDeclaredTarget());
+      if (site.getInvocationCode() instanceof IInvokeInstruction.Dispatch) {
+        writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+      } else {
+        unsupported = true;
+      }
+    }
+
+    @Override
+    public void visitNew(SSANewInstruction instruction) {
+      out.write(NEW);
+      writeSigned(instruction.getDef());
+      writeInt(instruction.getNewSite().getProgramCounter());
+      writeType(instruction.getNewSite().getDeclaredType());
+      int[] params = new int[instruction.getNumberOfUses()];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = instruction.getUse(i);
+      }
+      writeInts(params);
+    }
+
+    @Override
+    public void visitArrayLength(SSAArrayLengthInstruction instruction) {
+      out.write(ARRAY_LENGTH);
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getArrayRef());
+    }
+
+    @Override
+    public void visitThrow(SSAThrowInstruction instruction) {
+      out.write(THROW);
+      writeSigned(instruction.getException());
+    }
+
+    @Override
+    public void visitMonitor(SSAMonitorInstruction instruction) {
+      out.write(MONITOR);
+      writeSigned(instruction.getRef());
+      out.write(instruction.isMonitorEnter() ? 1 : 0);
+    }
+
+    @Override
+    public void visitCheckCast(SSACheckCastInstruction instruction) {
+      out.write(CHECK_CAST);
+      writeSigned(instruction.getResult());
+      writeSigned(instruction.getVal());
+      TypeReference[] types = instruction.getDeclaredResultTypes();
+      writeInt(types.length);
+      for (TypeReference t : types) {
+        writeType(t);
+      }
+      out.write(instruction.isPEI() ? 1 : 0);
+    }
+
+    @Override
+    public void visitInstanceof(SSAInstanceofInstruction instruction) {
+      out.write(INSTANCEOF);
+      writeSigned(instruction.getDef());
+      writeSigned(instruction.getRef());
+      writeType(instruction.getCheckedType());
+    }
+
+    @Override
+    public void visitLoadMetadata(SSALoadMetadataInstruction instruction) {
+      out.write(LOAD_METADATA);
+      writeSigned(instruction.getDef());
+      writeType(instruction.getType());
+      Object token = instruction.getToken();
+      if (token instanceof TypeReference) {
+        out.write(TYPE_TOKEN);
+        writeType((TypeReference) token);
+      } else if (token instanceof MethodReference) {
+        out.write(METHOD_TOKEN);
+        writeMethod((MethodReference) token);
+      } else {
+        // e.g. method handles
+        unsupported = true;
+      }
+    }
+
+    // phis, pis and catch instructions live in the basic blocks, not the instruction array
+
+    @Override
+    public void visitPhi(SSAPhiInstruction instruction) {
+      unsupported = true;
+    }
+
+    @Override
+    public void visitPi(SSAPiInstruction instruction) {
+      unsupported = true;
+    }
+
+    @Override
+    public void visitGetCaughtException(SSAGetCaughtExceptionInstruction instruction) {
+      unsupported = true;
+    }
+
+    // indirect memory accesses would need the indirection data too
+
+    @Override
+    public void visitAddressOf(SSAAddressOfInstruction instruction) {
+      unsupported = true;
+    }
+
+    @Override
+    public void visitLoadIndirect(SSALoadIndirectInstruction instruction) {
+      unsupported = true;
+    }
+
+    @Override
+    public void visitStoreIndirect(SSAStoreIndirectInstruction instruction) {
+      unsupported = true;
+    }
+
+    private void writeType(TypeReference t) {
+      ClassLoaderReference loader = t.getClassLoader();
+      writeString(loader.getName().toString());
+      writeString(loader.getLanguage().toString());
+      writeString(t.getName().toString());
+    }
+
+    private void writeField(FieldReference f) {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+
+    private void writeMethod(MethodReference m) {
+      writeType(m.getDeclaringClass());
+      writeString(m.getSelector().toString());
+    }
+
+    private void writeString(String s) {
+      Integer index = strings.get(s);
+      if (index != null) {
+        writeInt(index);
+      } else {
+        writeInt(strings.size());
+        strings.put(s, strings.size());
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes, 0, bytes.length);
+      }
+    }
+
+    /** write an array that may be null */
+    private void writeInts(int[] a) {
+      if (a == null) {
+        writeInt(0);
+      } else {
+        writeInt(a.length + 1);
+        for (int i : a) {
+          writeSigned(i);
+        }
+      }
+    }
+
+    private void writeSigned(int i) {
+      writeInt((i << 1) ^ (i >> 31));
+    }
+
+    private void writeInt(int i) {
+      while ((i & ~0x7f) != 0) {
+        out.write((i & 0x7f) | 0x80);
+        i >>>= 7;
+      }
+      out.write(i);
+    }
+
+    private void writeLong(long l) {
+      writeInt((int) l);
+      writeInt((int) (l >>> 32));
+    }
+  }
+
+  /** Decodes what {@link Encoder} wrote, into the structures of a new IR. */
+  private static final class Decoder {
+
+    private final ByteBuffer in;
+
+    private final IBytecodeMethod<IInstruction> method;
+
+    private final ShrikeCFG shrikeCFG;
+
+    private final SSAInstructionFactory insts;
+
+    private final List<String> strings = new ArrayList<>();
+
+    /** class loaders the types of the IR may refer to, by name */
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    Decoder(ByteBuffer in, IBytecodeMethod<IInstruction> method, ShrikeCFG shrikeCFG) {
+      this.in = in;
+      this.method = method;
+      this.shrikeCFG = shrikeCFG;
+      this.insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+      for (ClassLoaderReference l = method.getDeclaringClass().getClassLoader().getReference();
+          l != null;
+          l = l.getParent()) {
+        loaders.put(l.getName().toString(), l);
+      }
+      for (ClassLoaderReference l :
+          new ClassLoaderReference[] {
+            ClassLoaderReference.Primordial,
+            ClassLoaderReference.Extension,
+            ClassLoaderReference.Application
+          }) {
+        loaders.putIfAbsent(l.getName().toString(), l);
+      }
+    }
+
+    /**
+     * Everything is decoded before the structures of the IR are touched, so that they stay
+     * untouched if the decoding fails.
+     */
+    IR.SSA2LocalMap decode(
+        String key, SSACFG cfg, SSAInstruction[] instructions, SymbolTable symbolTable)
+        throws IOException {
+      if (readInt() != MAGIC || readInt() != VERSION || !readString().equals(key)) {
+        throw new IOException("not an IR of " + method);
+      }
+      if (readInt() != instructions.length || readInt() != cfg.getNumberOfNodes()) {
+        throw new IOException("bytecode changed for " + method);
+      }
+
+      // symbol table
+      int max = readInt();
+      int count = readInt();
+      int[] valueNumbers = new int[count];
+      Value[] values = new Value[count];
+      Map<Integer, SSAPhiInstruction> phis = HashMapFactory.make();
+      for (int i = 0; i < count; i++) {
+        valueNumbers[i] = readInt();
+        values[i] = readValue(valueNumbers[i]);
+        if (values[i] instanceof PhiValue) {
+          phis.put(valueNumbers[i], ((PhiValue) values[i]).getPhiInstruction());
+        }
+      }
+
+      // normal instructions
+      SSAInstruction[] decoded = new SSAInstruction[instructions.length];
+      count = readInt();
+      for (int i = 0; i < count; i++) {
+        int index = readInt();
+        decoded[index] = readInstruction();
+      }
+
+      // phis, pis and catch instructions of the blocks
+      int nBlocks = cfg.getNumberOfNodes();
+      int[][] stackSlotPhis = new int[nBlocks][];
+      int[][] localPhis = new int[nBlocks][];
+      SSAPiInstruction[][] pis = new SSAPiInstruction[nBlocks][];
+      SSAGetCaughtExceptionInstruction[] catches = new SSAGetCaughtExceptionInstruction[nBlocks];
+      for (int b = 0; b < nBlocks; b++) {
+        stackSlotPhis[b] = readPhis(phis);
+        localPhis[b] = readPhis(phis);
+        pis[b] = new SSAPiInstruction[readInt()];
+        for (int i = 0; i < pis[b].length; i++) {
+          int iindex = readSigned();
+          int def = readSigned();
+          int val = readSigned();
+          int piBlock = readInt();
+          int successor = readInt();
+          int cause = readInt();
+          pis[b][i] =
+              insts.PiInstruction(
+                  iindex,
+                  def,
+                  val,
+                  piBlock,
+                  successor,
+                  cause == 0 ? null : nonNull(decoded[cause - 1]));
+        }
+        if (readInt() != 0) {
+          int iindex = readSigned();
+          int bbNumber = readInt();
+          catches[b] = insts.GetCaughtExceptionInstruction(iindex, bbNumber, readSigned());
+        }
+      }
+
+      // local map
+      IntPair[] stores = new IntPair[readInt()];
+      count = readInt();
+      for (int i = 0; i < count; i++) {
+        int pc = readInt();
+        int vn = readSigned();
+        stores[pc] = new IntPair(vn, readInt());
+      }
+      int[][] states = new int[readInt()][];
+      for (int b = 0; b < states.length; b++) {
+        states[b] = readInts();
+      }
+      if (in.hasRemaining()) {
+        throw new IOException("trailing bytes for " + method);
+      }
+
+      // all decoded: install
+      symbolTable.ensureSymbol(max);
+      for (int i = 0; i < valueNumbers.length; i++) {
+        symbolTable.restoreValue(valueNumbers[i], values[i]);
+      }
+      System.arraycopy(decoded, 0, instructions, 0, decoded.length);
+      for (int b = 0; b < nBlocks; b++) {
+        SSACFG.BasicBlock bb = cfg.getNode(b);
+        for (int i = 0; i < stackSlotPhis[b].length; i += 2) {
+          bb.addPhiForStackSlot(stackSlotPhis[b][i], phis.get(stackSlotPhis[b][i + 1]));
+        }
+        for (int i = 0; i < localPhis[b].length; i += 2) {
+          bb.addPhiForLocal(localPhis[b][i], phis.get(localPhis[b][i + 1]));
+        }
+        for (SSAPiInstruction pi : pis[b]) {
+          bb.addPiForRefAndPath(pi.getVal(), shrikeCFG.getNode(pi.getSuccessor()), pi);
+        }
+        if (catches[b] != null) {
+          ((SSACFG.ExceptionHandlerBasicBlock) bb).setCatchInstruction(catches[b]);
+        }
+      }
+      return new SSABuilder.SSA2LocalMap(shrikeCFG, stores, states);
+    }
+
+    private Value readValue(int vn) throws IOException {
+      byte tag = in.get();
+      switch (tag) {
+        case PHI_VALUE:
+          int iindex = readSigned();
+          return new PhiValue(new SSAPhiInstruction(iindex, vn, nonNull(readInts())));
+        case NULL_CONSTANT:
+          return new ConstantValue(null);
+        case BOOLEAN_CONSTANT:
+          return new ConstantValue(in.get() != 0);
+        case INT_CONSTANT:
+          return new ConstantValue(Integer.valueOf(readSigned()));
+        case LONG_CONSTANT:
+          return new ConstantValue(Long.valueOf(readLong()));
+        case FLOAT_CONSTANT:
+          return new ConstantValue(Float.valueOf(Float.intBitsToFloat(readInt())));
+        case DOUBLE_CONSTANT:
+          return new ConstantValue(Double.valueOf(Double.longBitsToDouble(readLong())));
+        case STRING_CONSTANT:
+          return new ConstantValue(readString());
+        default:
+          throw new IOException("unknown value " + tag);
+      }
+    }
+
+    /** @return pairs of slot and value number */
+    private int[] readPhis(Map<Integer, SSAPhiInstruction> phis) throws IOException {
+      int[] result = new int[2 * readInt()];
+      for (int i = 0; i < result.length; i += 2) {
+        result[i] = readInt();
+        result[i + 1] = readInt();
+        if (!phis.containsKey(result[i + 1])) {
+          throw new IOException("no phi for v" + result[i + 1]);
+        }
+      }
+      return result;
+    }
+
+    private SSAInstruction readInstruction() throws IOException {
+      int iindex = readSigned();
+      byte tag = in.get();
+      switch (tag) {
+        case GOTO:
+          return insts.GotoInstruction(iindex, readSigned());
+        case ARRAY_LOAD:
+          {
+            int def = readSigned();
+            int ref = readSigned();
+            int index = readSigned();
+            return insts.ArrayLoadInstruction(iindex, def, ref, index, readType());
+          }
+        case ARRAY_STORE:
+          {
+            int ref = readSigned();
+            int index = readSigned();
+            int value = readSigned();
+            return insts.ArrayStoreInstruction(iindex, ref, index, value, readType());
+          }
+        case BINARY_OP:
+          {
+            byte kind = in.get();
+            int ordinal = readInt();
+            IBinaryOpInstruction.IOperator operator =
+                (kind == SHIFT)
+                    ? IShiftInstruction.Operator.values()[ordinal]
+                    : IBinaryOpInstruction.Operator.values()[ordinal];
+            boolean mayBeInteger = in.get() != 0;
+            int def = readSigned();
+            int val1 = readSigned();
+            int val2 = readSigned();
+            return insts.BinaryOpInstruction(
+                iindex, operator, false, false, def, val1, val2, mayBeInteger);
+          }
+        case UNARY_OP:
+          {
+            IUnaryOpInstruction.Operator operator =
+                IUnaryOpInstruction.Operator.values()[readInt()];
+            int def = readSigned();
+            return insts.UnaryOpInstruction(iindex, operator, def, readSigned());
+          }
+        case CONVERSION:
+          {
+            int def = readSigned();
+            int val = readSigned();
+            TypeReference from = readType();
+            return insts.ConversionInstruction(iindex, def, val, from, readType(), false);
+          }
+        case COMPARISON:
+          {
+            IComparisonInstruction.Operator operator =
+                IComparisonInstruction.Operator.values()[readInt()];
+            int def = readSigned();
+            int val1 = readSigned();
+            return insts.ComparisonInstruction(iindex, operator, def, val1, readSigned());
+          }
+        case CONDITIONAL_BRANCH:
+          {
+            IConditionalBranchInstruction.Operator operator =
+                IConditionalBranchInstruction.Operator.values()[readInt()];
+            TypeReference type = readType();
+            int val1 = readSigned();
+            int val2 = readSigned();
+            return insts.ConditionalBranchInstruction(
+                iindex, operator, type, val1, val2, readSigned());
+          }
+        case SWITCH:
+          {
+            int val = readSigned();
+            int defaultLabel = readSigned();
+            return insts.SwitchInstruction(iindex, val, defaultLabel, nonNull(readInts()));
+          }
+        case RETURN:
+          {
+            int result = readSigned();
+            boolean isPrimitive = in.get() != 0;
+            return (result == -1)
+                ? insts.ReturnInstruction(iindex)
+                : insts.ReturnInstruction(iindex, result, isPrimitive);
+          }
+        case GET:
+          {
+            boolean isStatic = in.get() != 0;
+            int def = readSigned();
+            if (isStatic) {
+              return insts.GetInstruction(iindex, def, readField());
+            } else {
+              int ref = readSigned();
+              return insts.GetInstruction(iindex, def, ref, readField());
+            }
+          }
+        case PUT:
+          {
+            boolean isStatic = in.get() != 0;
+            if (isStatic) {
+              int val = readSigned();
+              return insts.PutInstruction(iindex, val, readField());
+            } else {
+              int ref = readSigned();
+              int val = readSigned();
+              return insts.PutInstruction(iindex, ref, val, readField());
+            }
+          }
+        case INVOKE:
+          {
+            boolean isDynamic = in.get() != 0;
+            int result = readSigned();
+            int[] params = nonNull(readInts());
+            int exception = readSigned();
+            int pc = readInt();
+            MethodReference target = readMethod();
+            CallSiteReference site =
+                CallSiteReference.make(pc, target, IInvokeInstruction.Dispatch.values()[readInt()]);
+            return insts.InvokeInstruction(
+                iindex, result, params, exception, site, isDynamic ? bootstrap(iindex) : null);
+          }
+        case NEW:
+          {
+            int def = readSigned();
+            int pc = readInt();
+            NewSiteReference site = NewSiteReference.make(pc, readType());
+            int[] params = nonNull(readInts());
+            return (params.length == 0)
+                ? insts.NewInstruction(iindex, def, site)
+                : insts.NewInstruction(iindex, def, site, params);
+          }
+        case ARRAY_LENGTH:
+          {
+            int def = readSigned();
+            return insts.ArrayLengthInstruction(iindex, def, readSigned());
+          }
+        case THROW:
+          return insts.ThrowInstruction(iindex, readSigned());
+        case MONITOR:
+          {
+            int ref = readSigned();
+            return insts.MonitorInstruction(iindex, ref, in.get() != 0);
+          }
+        case CHECK_CAST:
+          {
+            int def = readSigned();
+            int val = readSigned();
+            TypeReference[] types = new TypeReference[readInt()];
+            for (int i = 0; i < types.length; i++) {
+              types[i] = readType();
+            }
+            return insts.CheckCastInstruction(iindex, def, val, types, in.get() != 0);
+          }
+        case INSTANCEOF:
+          {
+            int def = readSigned();
+            int ref = readSigned();
+            return insts.InstanceofInstruction(iindex, def, ref, readType());
+          }
+        case LOAD_METADATA:
+          {
+            int def = readSigned();
+            TypeReference type = readType();
+            byte kind = in.get();
+            Object token = (kind == METHOD_TOKEN) ? readMethod() : readType();
+            return insts.LoadMetadataInstruction(iindex, def, type, token);
+          }
+        default:
+          throw new IOException("unknown instruction " + tag);
+      }
+    }
+
+    private BootstrapMethod bootstrap(int iindex) throws IOException {
+      try {
+        IInstruction instruction = method.getInstructions()[iindex];
+        if (!(instruction instanceof InvokeDynamicInstruction)) {
+          throw new IOException("no invokedynamic at " + iindex + " of " + method);
+        }
+        return ((InvokeDynamicInstruction) instruction).getBootstrap();
+      } catch (InvalidClassFileException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private TypeReference readType() {
+      String loaderName = readString();
+      String language = readString();
+      ClassLoaderReference loader =
+          loaders.computeIfAbsent(
+              loaderName,
+              n ->
+                  new ClassLoaderReference(
+                      Atom.findOrCreateUnicodeAtom(n),
+                      Atom.findOrCreateUnicodeAtom(language),
+                      null));
+      return TypeReference.findOrCreate(loader, TypeName.string2TypeName(readString()));
+    }
+
+    private FieldReference readField() {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return FieldReference.findOrCreate(declaringClass, name, readType());
+    }
+
+    private MethodReference readMethod() {
+      TypeReference declaringClass = readType();
+      return MethodReference.findOrCreate(
+          declaringClass,
+          Selector.make(method.getDeclaringClass().getClassLoader().getLanguage(), readString()));
+    }
+
+    private String readString() {
+      int index = readInt();
+      if (index < strings.size()) {
+        return strings.get(index);
+      }
+      byte[] bytes = new byte[readInt()];
+      in.get(bytes);
+      String s = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(s);
+      return s;
+    }
+
+    private int[] readInts() {
+      int length = readInt();
+      if (length == 0) {
+        return null;
+      }
+      int[] result = new int[length - 1];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = readSigned();
+      }
+      return result;
+    }
+
+    private int readSigned() {
+      int i = readInt();
+      return (i >>> 1) ^ -(i & 1);
+    }
+
+    private int readInt() {
+      int result = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = in.get() & 0xff;
+        result |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return result;
+        }
+      }
+      throw new IllegalStateException("malformed varint");
+    }
+
+    private long readLong() {
+      long low = readInt() & 0xffffffffL;
+      return low | ((long) readInt() << 32);
+    }
+
+    private static <T> T nonNull(T t) throws IOException {
+      if (t == null) {
+        throw new IOException("missing value");
+      }
+      return t;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.util.debug.Assertions;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Def-use information of a {@link PackedIR}, in the style of {@link DefUse}, kept in flat arrays of
+ * record numbers rather than sets of instructions.
+ */
+public class PackedDefUse {
+
+  private final PackedIR ir;
+
+  /** the record defining each value number, -1 if none */
+  private final int[] defs;
+
+  /**
+   * the records using value number v are uses[useStart[v]..useStart[v+1]), in increasing order,
+   * each once
+   */
+  private final int[] useStart;
+
+  private final int[] uses;
+
+  /** @throws IllegalArgumentException if ir is null */
+  public PackedDefUse(PackedIR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    this.ir = ir;
+    int max = ir.getSymbolTable().getMaxValueNumber();
+    defs = new int[max + 1];
+    Arrays.fill(defs, -1);
+    useStart = new int[max + 2];
+    // the last record counted for each value number, to count a record once
+    int[] last = new int[max + 1];
+    Arrays.fill(last, -1);
+    for (int r = 0; r < ir.getNumberOfRecords(); r++) {
+      for (int i = 0; i < ir.getNumberOfDefs(r); i++) {
+        int def = ir.getDef(r, i);
+        if (def != -1) {
+          defs[def] = r;
+        }
+      }
+      for (int j = 0; j < ir.getNumberOfUses(r); j++) {
+        int use = ir.getUse(r, j);
+        if (use != -1 && last[use] != r) {
+          last[use] = r;
+          useStart[use + 1]++;
+        }
+      }
+    }
+    for (int v = 1; v < useStart.length; v++) {
+      useStart[v] += useStart[v - 1];
+    }
+    uses = new int[useStart[max + 1]];
+    int[] next = Arrays.copyOf(useStart, max + 1);
+    Arrays.fill(last, -1);
+    for (int r = 0; r < ir.getNumberOfRecords(); r++) {
+      for (int j = 0; j < ir.getNumberOfUses(r); j++) {
+        int use = ir.getUse(r, j);
+        if (use != -1 && last[use] != r) {
+          last[use] = r;
+          uses[next[use]++] = r;
+        }
+      }
+    }
+  }
+
+  public PackedIR getIR() {
+    return ir;
+  }
+
+  /** @return the record that defines the variable with value number v, or -1 if none */
+  public int getDefRecord(int v) {
+    return (v >= 0 && v < defs.length) ? defs[v] : -1;
+  }
+
+  /** @return the {@link SSAInstruction} that defines the variable with value number v. */
+  public SSAInstruction getDef(int v) {
+    int r = getDefRecord(v);
+    return r == -1 ? null : ir.getInstruction(r);
+  }
+
+  /**
+   * @param v a value number
+   * @return the number of uses of the variable with the given value number
+   */
+  public int getNumberOfUses(int v) {
+    return useStart[v + 1] - useStart[v];
+  }
+
+  /** @return the ith record that uses the variable with value number v */
+  public int getUseRecord(int v, int i) {
+    if (i < 0 || i >= getNumberOfUses(v)) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    return uses[useStart[v] + i];
+  }
+
+  /** Return all uses of the variable with the given value number */
+  public Iterator<SSAInstruction> getUses(final int v) {
+    return new Iterator<SSAInstruction>() {
+      private int next = useStart[v];
+
+      @Override
+      public boolean hasNext() {
+        return next < useStart[v + 1];
+      }
+
+      @Override
+      public SSAInstruction next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return ir.getInstruction(uses[next++]);
+      }
+
+      @Override
+      public void remove() {
+        Assertions.UNREACHABLE();
+      }
+    };
+  }
+
+  /**
+   * @param v a value number
+   * @return true if the variable with the given value number has no uses
+   */
+  public boolean isUnused(int v) {
+    return getNumberOfUses(v) == 0;
+  }
+}
@@ -0,0 +1,768 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact, read-only form of the instructions of an {@link IR}.
+ *
+ * <p>An {@link IR} has an object per instruction, most with an array of uses of their own. A
+ * PackedIR keeps each instruction as a <em>record</em> in a few flat arrays instead: the kind,
+ * instruction index and basic block of each record, the defs and uses of all records in one int
+ * array, the other operands of all records in another, and the types, fields, call sites and other
+ * references in a pool shared by the records. Records are numbered from 0: first the normal
+ * instructions in the order of {@link IR#getInstructions()}, then the phis, pis and catch
+ * instruction of each basic block.
+ *
+ * <p>The defs and uses of a record are read without creating any object. {@link
+ * #getInstruction(int)} creates an {@link SSAInstruction} for a record when needed, e.g. to {@link
+ * #visit(int, SSAInstruction.Visitor) visit} it; it is made by the {@link SSAInstructionFactory} of
+ * the method's language and is not kept, so it should not be held on to. Instructions of kinds this
+ * class does not know, such as those of other front ends, are kept as they are.
+ *
+ * <p>The control flow graph and the local names of the IR are not kept, nor are the phi values of
+ * its symbol table. A {@link PackedIRCache} caches only the packed forms of the IRs it builds.
+ *
+ * @see PackedDefUse
+ */
+public class PackedIR {
+
+  // kinds of records
+
+  private static final byte OPAQUE = 0;
+
+  private static final byte GOTO = 1;
+
+  private static final byte ARRAY_LOAD = 2;
+
+  private static final byte ARRAY_STORE = 3;
+
+  private static final byte BINARY_OP = 4;
+
+  private static final byte UNARY_OP = 5;
+
+  private static final byte CONVERSION = 6;
+
+  private static final byte COMPARISON = 7;
+
+  private static final byte CONDITIONAL_BRANCH = 8;
+
+  private static final byte SWITCH = 9;
+
+  private static final byte RETURN = 10;
+
+  private static final byte GET = 11;
+
+  private static final byte PUT = 12;
+
+  private static final byte INVOKE = 13;
+
+  private static final byte NEW = 14;
+
+  private static final byte ARRAY_LENGTH = 15;
+
+  private static final byte THROW = 16;
+
+  private static final byte MONITOR = 17;
+
+  private static final byte CHECK_CAST = 18;
+
+  private static final byte INSTANCEOF = 19;
+
+  private static final byte LOAD_METADATA = 20;
+
+  private static final byte PHI = 21;
+
+  private static final byte PI = 22;
+
+  private static final byte GET_CAUGHT_EXCEPTION = 23;
+
+  // how the cause of a pi is kept
+
+  private static final int NO_CAUSE = 0;
+
+  private static final int RECORD_CAUSE = 1;
+
+  /** a cause that is not an instruction of the IR */
+  private static final int POOL_CAUSE = 2;
+
+  /**
+   * classes of the instructions that are packed; the factories make anonymous subclasses of them,
+   * which the factory of the language makes again when unpacking
+   */
+  private static final Set<Class<?>> PACKED = HashSetFactory.make();
+
+  static {
+    PACKED.addAll(
+        Arrays.asList(
+            SSAGotoInstruction.class,
+            SSAArrayLoadInstruction.class,
+            SSAArrayStoreInstruction.class,
+            SSABinaryOpInstruction.class,
+            SSAUnaryOpInstruction.class,
+            SSAConversionInstruction.class,
+            SSAComparisonInstruction.class,
+            SSAConditionalBranchInstruction.class,
+            SSASwitchInstruction.class,
+            SSAReturnInstruction.class,
+            SSAGetInstruction.class,
+            SSAPutInstruction.class,
+            SSAInvokeInstruction.class,
+            SSAInvokeDynamicInstruction.class,
+            SSANewInstruction.class,
+            SSAArrayLengthInstruction.class,
+            SSAThrowInstruction.class,
+            SSAMonitorInstruction.class,
+            SSACheckCastInstruction.class,
+            SSAInstanceofInstruction.class,
+            SSALoadMetadataInstruction.class,
+            SSAPhiInstruction.class,
+            SSAPiInstruction.class,
+            SSAGetCaughtExceptionInstruction.class));
+  }
+
+  private final IMethod method;
+
+  private final SymbolTable symbolTable;
+
+  private final SSAInstructionFactory insts;
+
+  /** position in {@link IR#getInstructions()} of each normal record, in increasing order */
+  private final int[] indices;
+
+  private final byte[] kinds;
+
+  private final int[] iindices;
+
+  private final int[] blocks;
+
+  /**
+   * the defs of record r are values[defStart[r]..useStart[r]), its uses
+   * values[useStart[r]..defStart[r+1])
+   */
+  private final int[] defStart;
+
+  private final int[] useStart;
+
+  private final int[] values;
+
+  /** the operands of record r are operands[operandStart[r]..operandStart[r+1]) */
+  private final int[] operandStart;
+
+  /** ints specific to the kind of each record, including indices into the pool */
+  private final int[] operands;
+
+  private final Object[] pool;
+
+  /** @throws IllegalArgumentException if ir is null */
+  public PackedIR(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    this.method = ir.getMethod();
+    this.insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+    this.symbolTable = ir.getSymbolTable().copyWithoutPhis();
+
+    Packer packer = new Packer(insts);
+    SSACFG cfg = ir.getControlFlowGraph();
+    SSAInstruction[] instructions = ir.getInstructions();
+    int[] blockOf = new int[instructions.length];
+    for (ISSABasicBlock b : cfg) {
+      SSACFG.BasicBlock bb = (SSACFG.BasicBlock) b;
+      for (int i = bb.getFirstInstructionIndex(); i <= bb.getLastInstructionIndex(); i++) {
+        if (i >= 0 && i < instructions.length) {
+          blockOf[i] = bb.getNumber();
+        }
+      }
+    }
+    int[] normal = new int[instructions.length];
+    int count = 0;
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] != null) {
+        normal[count++] = i;
+        packer.add(instructions[i], blockOf[i]);
+      }
+    }
+    this.indices = Arrays.copyOf(normal, count);
+    for (ISSABasicBlock b : cfg) {
+      SSACFG.BasicBlock bb = (SSACFG.BasicBlock) b;
+      for (SSAPhiInstruction phi : Iterator2Iterable.make(bb.iteratePhis())) {
+        packer.add(phi, bb.getNumber());
+      }
+      for (SSAPiInstruction pi : Iterator2Iterable.make(bb.iteratePis())) {
+        packer.add(pi, bb.getNumber());
+      }
+      if (bb instanceof SSACFG.ExceptionHandlerBasicBlock) {
+        SSAGetCaughtExceptionInstruction s =
+            ((SSACFG.ExceptionHandlerBasicBlock) bb).getCatchInstruction();
+        if (s != null) {
+          packer.add(s, bb.getNumber());
+        }
+      }
+    }
+
+    int size = packer.size;
+    this.kinds = Arrays.copyOf(packer.kinds, size);
+    this.iindices = Arrays.copyOf(packer.iindices, size);
+    this.blocks = Arrays.copyOf(packer.blocks, size);
+    this.defStart = Arrays.copyOf(packer.defStart, size + 1);
+    this.useStart = Arrays.copyOf(packer.useStart, size);
+    this.values = Arrays.copyOf(packer.values, packer.nValues);
+    this.operandStart = Arrays.copyOf(packer.operandStart, size + 1);
+    this.operands = Arrays.copyOf(packer.operands, packer.nOperands);
+    this.pool = packer.pool.toArray();
+    this.defStart[size] = packer.nValues;
+    this.operandStart[size] = packer.nOperands;
+  }
+
+  public IMethod getMethod() {
+    return method;
+  }
+
+  /** @return the symbol table of the IR, without its phi values */
+  public SymbolTable getSymbolTable() {
+    return symbolTable;
+  }
+
+  /** @return the number of records, i.e. of instructions of the IR */
+  public int getNumberOfRecords() {
+    return kinds.length;
+  }
+
+  /**
+   * @return the record of the normal instruction at a position of {@link IR#getInstructions()}, or
+   *     -1 if there is none
+   */
+  public int getRecord(int index) {
+    int r = Arrays.binarySearch(indices, index);
+    return r < 0 ? -1 : r;
+  }
+
+  /**
+   * @return the position in {@link IR#getInstructions()} of a record, or -1 for phis, pis and catch
+   *     instructions
+   */
+  public int getIndex(int record) {
+    return record < indices.length ? indices[record] : -1;
+  }
+
+  /** @see SSAInstruction#iIndex() */
+  public int iIndex(int record) {
+    return iindices[record];
+  }
+
+  /** @return the number of the basic block of a record */
+  public int getBasicBlockNumber(int record) {
+    return blocks[record];
+  }
+
+  /** @see SSAInstruction#getNumberOfDefs() */
+  public int getNumberOfDefs(int record) {
+    return useStart[record] - defStart[record];
+  }
+
+  /** @see SSAInstruction#getDef(int) */
+  public int getDef(int record, int i) {
+    if (i < 0 || i >= getNumberOfDefs(record)) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    return values[defStart[record] + i];
+  }
+
+  /** @see SSAInstruction#getNumberOfUses() */
+  public int getNumberOfUses(int record) {
+    return defStart[record + 1] - useStart[record];
+  }
+
+  /** @see SSAInstruction#getUse(int) */
+  public int getUse(int record, int j) {
+    if (j < 0 || j >= getNumberOfUses(record)) {
+      throw new IllegalArgumentException("invalid j: " + j);
+    }
+    return values[useStart[record] + j];
+  }
+
+  /** @return true iff a record is a phi instruction */
+  public boolean isPhi(int record) {
+    return kinds[record] == PHI;
+  }
+
+  /** Visit the instruction of a record. */
+  public void visit(int record, SSAInstruction.Visitor v) {
+    getInstruction(record).visit(v);
+  }
+
+  /** Visit the instructions of all records, in order. */
+  public void visitAllInstructions(SSAInstruction.Visitor v) {
+    for (int r = 0; r < kinds.length; r++) {
+      visit(r, v);
+    }
+  }
+
+  /**
+   * @return an instruction equal to the one a record was made from; a new one each time, except for
+   *     instructions of kinds this class does not pack
+   */
+  public SSAInstruction getInstruction(int record) {
+    int iindex = iindices[record];
+    int o = operandStart[record];
+    int d = defStart[record];
+    int u = useStart[record];
+    switch (kinds[record]) {
+      case OPAQUE:
+        return (SSAInstruction) pool[operands[o]];
+      case GOTO:
+        return insts.GotoInstruction(iindex, operands[o]);
+      case ARRAY_LOAD:
+        return insts.ArrayLoadInstruction(
+            iindex, values[d], values[u], values[u + 1], (TypeReference) pool[operands[o]]);
+      case ARRAY_STORE:
+        return insts.ArrayStoreInstruction(
+            iindex, values[u], values[u + 1], values[u + 2], (TypeReference) pool[operands[o]]);
+      case BINARY_OP:
+        return insts.BinaryOpInstruction(
+            iindex,
+            (IBinaryOpInstruction.IOperator) pool[operands[o]],
+            false,
+            false,
+            values[d],
+            values[u],
+            values[u + 1],
+            operands[o + 1] != 0);
+      case UNARY_OP:
+        return insts.UnaryOpInstruction(
+            iindex, (IUnaryOpInstruction.IOperator) pool[operands[o]], values[d], values[u]);
+      case CONVERSION:
+        return insts.ConversionInstruction(
+            iindex,
+            values[d],
+            values[u],
+            (TypeReference) pool[operands[o]],
+            (TypeReference) pool[operands[o + 1]],
+            false);
+      case COMPARISON:
+        return insts.ComparisonInstruction(
+            iindex,
+            (IComparisonInstruction.Operator) pool[operands[o]],
+            values[d],
+            values[u],
+            values[u + 1]);
+      case CONDITIONAL_BRANCH:
+        return insts.ConditionalBranchInstruction(
+            iindex,
+            (IConditionalBranchInstruction.IOperator) pool[operands[o]],
+            (TypeReference) pool[operands[o + 1]],
+            values[u],
+            values[u + 1],
+            operands[o + 2]);
+      case SWITCH:
+        return insts.SwitchInstruction(
+            iindex,
+            values[u],
+            operands[o],
+            Arrays.copyOfRange(operands, o + 1, operandStart[record + 1]));
+      case RETURN:
+        return getNumberOfUses(record) == 0
+            ? insts.ReturnInstruction(iindex)
+            : insts.ReturnInstruction(iindex, values[u], operands[o] != 0);
+      case GET:
+        return getNumberOfUses(record) == 0
+            ? insts.GetInstruction(iindex, values[d], (FieldReference) pool[operands[o]])
+            : insts.GetInstruction(
+                iindex, values[d], values[u], (FieldReference) pool[operands[o]]);
+      case PUT:
+        return getNumberOfUses(record) == 1
+            ? insts.PutInstruction(iindex, values[u], (FieldReference) pool[operands[o]])
+            : insts.PutInstruction(
+                iindex, values[u], values[u + 1], (FieldReference) pool[operands[o]]);
+      case INVOKE:
+        {
+          // the defs are the result, if any, and the exception
+          boolean hasResult = getNumberOfDefs(record) == 2;
+          return insts.InvokeInstruction(
+              iindex,
+              hasResult ? values[d] : -1,
+              Arrays.copyOfRange(values, u, defStart[record + 1]),
+              values[hasResult ? d + 1 : d],
+              (CallSiteReference) pool[operands[o]],
+              operands[o + 1] == -1 ? null : (BootstrapMethod) pool[operands[o + 1]]);
+        }
+      case NEW:
+        {
+          NewSiteReference site = (NewSiteReference) pool[operands[o]];
+          return getNumberOfUses(record) == 0
+              ? insts.NewInstruction(iindex, values[d], site)
+              : insts.NewInstruction(
+                  iindex, values[d], site, Arrays.copyOfRange(values, u, defStart[record + 1]));
+        }
+      case ARRAY_LENGTH:
+        return insts.ArrayLengthInstruction(iindex, values[d], values[u]);
+      case THROW:
+        return insts.ThrowInstruction(iindex, values[u]);
+      case MONITOR:
+        return insts.MonitorInstruction(iindex, values[u], operands[o] != 0);
+      case CHECK_CAST:
+        {
+          TypeReference[] types = new TypeReference[operandStart[record + 1] - o - 1];
+          for (int i = 0; i < types.length; i++) {
+            types[i] = (TypeReference) pool[operands[o + 1 + i]];
+          }
+          return insts.CheckCastInstruction(iindex, values[d], values[u], types, operands[o] != 0);
+        }
+      case INSTANCEOF:
+        return insts.InstanceofInstruction(
+            iindex, values[d], values[u], (TypeReference) pool[operands[o]]);
+      case LOAD_METADATA:
+        return insts.LoadMetadataInstruction(
+            iindex, values[d], (TypeReference) pool[operands[o]], pool[operands[o + 1]]);
+      case PHI:
+        return insts.PhiInstruction(
+            iindex, values[d], Arrays.copyOfRange(values, u, defStart[record + 1]));
+      case PI:
+        return insts.PiInstruction(
+            iindex,
+            values[d],
+            values[u],
+            operands[o],
+            operands[o + 1],
+            cause(operands[o + 2], operands[o + 3]));
+      case GET_CAUGHT_EXCEPTION:
+        return insts.GetCaughtExceptionInstruction(iindex, operands[o], values[d]);
+      default:
+        throw new IllegalStateException("unexpected kind " + kinds[record]);
+    }
+  }
+
+  private SSAInstruction cause(int kind, int i) {
+    switch (kind) {
+      case RECORD_CAUSE:
+        return getInstruction(i);
+      case POOL_CAUSE:
+        return (SSAInstruction) pool[i];
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("packed IR of ").append(method).append('\n');
+    for (int r = 0; r < kinds.length; r++) {
+      result
+          .append(r)
+          .append(" BB")
+          .append(blocks[r])
+          .append("   ")
+          .append(getInstruction(r).toString(symbolTable))
+          .append('\n');
+    }
+    return result.toString();
+  }
+
+  /** Appends the records of the instructions of an IR to growing arrays. */
+  private static final class Packer extends SSAInstruction.Visitor {
+
+    int size;
+
+    byte[] kinds = new byte[16];
+
+    int[] iindices = new int[16];
+
+    int[] blocks = new int[16];
+
+    int[] defStart = new int[17];
+
+    int[] useStart = new int[16];
+
+    int nValues;
+
+    int[] values = new int[64];
+
+    int[] operandStart = new int[17];
+
+    int nOperands;
+
+    int[] operands = new int[64];
+
+    final List<Object> pool = new ArrayList<>();
+
+    private final Map<Object, Integer> poolIndices = HashMapFactory.make();
+
+    /**
+     * records of the instructions, for the causes of pis; by identity, since the cause of a pi may
+     * be a stale copy of the instruction with the same index
+     */
+    private final Map<SSAInstruction, Integer> records = new IdentityHashMap<>();
+
+    /** class of the factory that makes the instructions again */
+    private final Class<?> factory;
+
+    Packer(SSAInstructionFactory insts) {
+      this.factory = insts.getClass();
+    }
+
+    void add(SSAInstruction s, int block) {
+      if (size == kinds.length) {
+        int length = 2 * size;
+        kinds = Arrays.copyOf(kinds, length);
+        iindices = Arrays.copyOf(iindices, length);
+        blocks = Arrays.copyOf(blocks, length);
+        defStart = Arrays.copyOf(defStart, length + 1);
+        useStart = Arrays.copyOf(useStart, length);
+        operandStart = Arrays.copyOf(operandStart, length + 1);
+      }
+      iindices[size] = s.iIndex();
+      blocks[size] = block;
+      defStart[size] = nValues;
+      for (int i = 0; i < s.getNumberOfDefs(); i++) {
+        value(s.getDef(i));
+      }
+      useStart[size] = nValues;
+      for (int j = 0; j < s.getNumberOfUses(); j++) {
+        value(s.getUse(j));
+      }
+      operandStart[size] = nOperands;
+      if (isPacked(s.getClass())) {
+        s.visit(this);
+      } else {
+        kinds[size] = OPAQUE;
+        // not by equality: instructions are equal if their indices are
+        pool.add(s);
+        operand(pool.size() - 1);
+      }
+      records.put(s, size);
+      size++;
+    }
+
+    /**
+     * Anonymous subclasses are packed only if the factory declares them, since others, e.g. those
+     * made by {@link com.ibm.wala.classLoader.ShrikeIRFactory} to drop exceptions, would not be
+     * made again.
+     */
+    private boolean isPacked(Class<?> c) {
+      if (c.isAnonymousClass()) {
+        Class<?> declaring = c.getEnclosingClass();
+        return declaring != null
+            && declaring.isAssignableFrom(factory)
+            && PACKED.contains(c.getSuperclass());
+      }
+      return PACKED.contains(c);
+    }
+
+    private void value(int vn) {
+      if (nValues == values.length) {
+        values = Arrays.copyOf(values, 2 * nValues);
+      }
+      values[nValues++] = vn;
+    }
+
+    private void operand(int i) {
+      if (nOperands == operands.length) {
+        operands = Arrays.copyOf(operands, 2 * nOperands);
+      }
+      operands[nOperands++] = i;
+    }
+
+    private void reference(Object o) {
+      Integer index = poolIndices.get(o);
+      if (index == null) {
+        index = pool.size();
+        pool.add(o);
+        poolIndices.put(o, index);
+      }
+      operand(index);
+    }
+
+    @Override
+    public void visitGoto(SSAGotoInstruction instruction) {
+      kinds[size] = GOTO;
+      operand(instruction.getTarget());
+    }
+
+    @Override
+    public void visitArrayLoad(SSAArrayLoadInstruction instruction) {
+      kinds[size] = ARRAY_LOAD;
+      reference(instruction.getElementType());
+    }
+
+    @Override
+    public void visitArrayStore(SSAArrayStoreInstruction instruction) {
+      kinds[size] = ARRAY_STORE;
+      reference(instruction.getElementType());
+    }
+
+    @Override
+    public void visitBinaryOp(SSABinaryOpInstruction instruction) {
+      kinds[size] = BINARY_OP;
+      reference(instruction.getOperator());
+      operand(instruction.mayBeIntegerOp() ? 1 : 0);
+    }
+
+    @Override
+    public void visitUnaryOp(SSAUnaryOpInstruction instruction) {
+      kinds[size] = UNARY_OP;
+      reference(instruction.getOpcode());
+    }
+
+    @Override
+    public void visitConversion(SSAConversionInstruction instruction) {
+      kinds[size] = CONVERSION;
+      reference(instruction.getFromType());
+      reference(instruction.getToType());
+    }
+
+    @Override
+    public void visitComparison(SSAComparisonInstruction instruction) {
+      kinds[size] = COMPARISON;
+      reference(instruction.getOperator());
+    }
+
+    @Override
+    public void visitConditionalBranch(SSAConditionalBranchInstruction instruction) {
+      kinds[size] = CONDITIONAL_BRANCH;
+      reference(instruction.getOperator());
+      reference(instruction.getType());
+      operand(instruction.getTarget());
+    }
+
+    @Override
+    public void visitSwitch(SSASwitchInstruction instruction) {
+      kinds[size] = SWITCH;
+      operand(instruction.getDefault());
+      for (int i : instruction.getCasesAndLabels()) {
+        operand(i);
+      }
+    }
+
+    @Override
+    public void visitReturn(SSAReturnInstruction instruction) {
+      kinds[size] = RETURN;
+      operand(instruction.returnsPrimitiveType() ? 1 : 0);
+    }
+
+    @Override
+    public void visitGet(SSAGetInstruction instruction) {
+      kinds[size] = GET;
+      reference(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitPut(SSAPutInstruction instruction) {
+      kinds[size] = PUT;
+      reference(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitInvoke(SSAInvokeInstruction instruction) {
+      kinds[size] = INVOKE;
+      reference(instruction.getCallSite());
+      if (instruction instanceof SSAInvokeDynamicInstruction) {
+        reference(((SSAInvokeDynamicInstruction) instruction).getBootstrap());
+      } else {
+        operand(-1);
+      }
+    }
+
+    @Override
+    public void visitNew(SSANewInstruction instruction) {
+      kinds[size] = NEW;
+      reference(instruction.getNewSite());
+    }
+
+    @Override
+    public void visitArrayLength(SSAArrayLengthInstruction instruction) {
+      kinds[size] = ARRAY_LENGTH;
+    }
+
+    @Override
+    public void visitThrow(SSAThrowInstruction instruction) {
+      kinds[size] = THROW;
+    }
+
+    @Override
+    public void visitMonitor(SSAMonitorInstruction instruction) {
+      kinds[size] = MONITOR;
+      operand(instruction.isMonitorEnter() ? 1 : 0);
+    }
+
+    @Override
+    public void visitCheckCast(SSACheckCastInstruction instruction) {
+      kinds[size] = CHECK_CAST;
+      operand(instruction.isPEI() ? 1 : 0);
+      for (TypeReference t : instruction.getDeclaredResultTypes()) {
+        reference(t);
+      }
+    }
+
+    @Override
+    public void visitInstanceof(SSAInstanceofInstruction instruction) {
+      kinds[size] = INSTANCEOF;
+      reference(instruction.getCheckedType());
+    }
+
+    @Override
+    public void visitLoadMetadata(SSALoadMetadataInstruction instruction) {
+      kinds[size] = LOAD_METADATA;
+      reference(instruction.getType());
+      reference(instruction.getToken());
+    }
+
+    @Override
+    public void visitPhi(SSAPhiInstruction instruction) {
+      kinds[size] = PHI;
+    }
+
+    @Override
+    public void visitPi(SSAPiInstruction instruction) {
+      kinds[size] = PI;
+      operand(instruction.getPiBlock());
+      operand(instruction.getSuccessor());
+      SSAInstruction cause = instruction.getCause();
+      Integer record = cause == null ? null : records.get(cause);
+      if (cause == null) {
+        operand(NO_CAUSE);
+        operand(-1);
+      } else if (record != null) {
+        operand(RECORD_CAUSE);
+        operand(record);
+      } else {
+        operand(POOL_CAUSE);
+        pool.add(cause);
+        operand(pool.size() - 1);
+      }
+    }
+
+    @Override
+    public void visitGetCaughtException(SSAGetCaughtExceptionInstruction instruction) {
+      kinds[size] = GET_CAUGHT_EXCEPTION;
+      operand(instruction.getBasicBlockNumber());
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+
+/**
+ * A cache of {@link PackedIR}s, in the style of {@link SSACache}. An IR is built by the factory,
+ * packed, and dropped; only the packed form and its {@link PackedDefUse} are cached, for clients
+ * that keep the instructions of many methods at once but only read them.
+ */
+public class PackedIRCache {
+
+  /** The factory that creates the IRs to pack */
+  private final IRFactory<IMethod> factory;
+
+  /** A cache of packed IRs */
+  private final IAuxiliaryCache irCache;
+
+  /** A cache of packed def-use information */
+  private final IAuxiliaryCache duCache;
+
+  /** @param factory a factory for creating IRs */
+  public PackedIRCache(IRFactory<IMethod> factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("null factory");
+    }
+    this.factory = factory;
+    this.irCache = new AuxiliaryCache();
+    this.duCache = new AuxiliaryCache();
+  }
+
+  /**
+   * @param m a "normal" (bytecode-based) method
+   * @param options options governing ssa construction
+   * @return the packed IR for m, built according to the specified options. null if m is abstract or
+   *     native.
+   * @throws IllegalArgumentException if m is null
+   */
+  public synchronized PackedIR findOrCreatePackedIR(IMethod m, Context c, SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+    PackedIR ir = (PackedIR) irCache.find(m, c, options);
+    if (ir == null) {
+      ir = new PackedIR(factory.makeIR(m, c, options));
+      irCache.cache(m, c, options, ir);
+    }
+    return ir;
+  }
+
+  /**
+   * @param m a method
+   * @param options options governing ssa construction
+   * @return packed def-use information for m, built according to the specified options. null if m
+   *     is abstract or native.
+   * @throws IllegalArgumentException if m is null
+   */
+  public synchronized PackedDefUse findOrCreatePackedDU(IMethod m, Context c, SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+    if (factory.contextIsIrrelevant(m)) {
+      c = Everywhere.EVERYWHERE;
+    }
+    PackedDefUse du = (PackedDefUse) duCache.find(m, c, options);
+    if (du == null) {
+      du = new PackedDefUse(findOrCreatePackedIR(m, c, options));
+      duCache.cache(m, c, options, du);
+    }
+    return du;
+  }
+
+  /** Invalidate all cached information for a &lt;method,context&gt; pair */
+  public synchronized void invalidate(IMethod method, Context c) {
+    irCache.invalidate(method, c);
+    duCache.invalidate(method, c);
+  }
+
+  /** Drop all cached information. */
+  public synchronized void wipe() {
+    irCache.wipe();
+    duCache.wipe();
+  }
+}
@@ -11,6 +11,7 @@
 package com.ibm.wala.ssa;
 
 import com.ibm.wala.analysis.stackMachine.AbstractIntStackMachine;
+import com.ibm.wala.analysis.stackMachine.LocalLiveness;
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.cfg.ShrikeCFG;
 import com.ibm.wala.cfg.ShrikeCFG.BasicBlock;
@@ -79,11 +80,27 @@ public class SSABuilder extends AbstractIntStackMachine {
       boolean buildLocalMap,
       SSAPiNodePolicy piNodePolicy)
       throws IllegalArgumentException {
+    return make(method, cfg, scfg, instructions, symbolTable, buildLocalMap, piNodePolicy, false);
+  }
+
+  /**
+   * @param prunePhis if true, create no phis for dead locals; see {@link SSAOptions#setPrunePhis}
+   */
+  public static SSABuilder make(
+      IBytecodeMethod<?> method,
+      SSACFG cfg,
+      ShrikeCFG scfg,
+      SSAInstruction[] instructions,
+      SymbolTable symbolTable,
+      boolean buildLocalMap,
+      SSAPiNodePolicy piNodePolicy,
+      boolean prunePhis)
+      throws IllegalArgumentException {
     if (scfg == null) {
       throw new IllegalArgumentException("scfg == null");
     }
     return new SSABuilder(
-        method, cfg, scfg, instructions, symbolTable, buildLocalMap, piNodePolicy);
+        method, cfg, scfg, instructions, symbolTable, buildLocalMap, piNodePolicy, prunePhis);
   }
 
   /** A wrapper around the method being analyzed. */
@@ -112,12 +129,13 @@ public class SSABuilder extends AbstractIntStackMachine {
       SSAInstruction[] instructions,
       SymbolTable symbolTable,
       boolean buildLocalMap,
-      SSAPiNodePolicy piNodePolicy) {
+      SSAPiNodePolicy piNodePolicy,
+      boolean prunePhis) {
     super(scfg);
     localMap =
         buildLocalMap ? new SSA2LocalMap(scfg, instructions.length, cfg.getNumberOfNodes()) : null;
     init(
-        new SymbolTableMeeter(symbolTable, cfg, scfg),
+        new SymbolTableMeeter(symbolTable, cfg, scfg, prunePhis),
         new SymbolicPropagator(scfg, instructions, symbolTable, localMap, cfg, piNodePolicy));
     this.method = method;
     this.symbolTable = symbolTable;
@@ -135,10 +153,26 @@ public class SSABuilder extends AbstractIntStackMachine {
 
     final ShrikeCFG shrikeCFG;
 
-    SymbolTableMeeter(SymbolTable symbolTable, SSACFG cfg, ShrikeCFG shrikeCFG) {
+    /** if true, locals that are dead at a merge get no phi */
+    private boolean prunePhis;
+
+    /** computed when the first phi for a local is about to be created */
+    private LocalLiveness liveness;
+
+    SymbolTableMeeter(SymbolTable symbolTable, SSACFG cfg, ShrikeCFG shrikeCFG, boolean prunePhis) {
       this.cfg = cfg;
       this.symbolTable = symbolTable;
       this.shrikeCFG = shrikeCFG;
+      this.prunePhis = prunePhis;
+    }
+
+    private boolean isDead(int local, BasicBlock bb) {
+      if (prunePhis && liveness == null) {
+        liveness = LocalLiveness.make(shrikeCFG);
+        // no liveness if locals are accessed indirectly
+        prunePhis = liveness != null;
+      }
+      return prunePhis && !liveness.isLiveAtEntry(bb, local);
     }
 
     @Override
@@ -195,6 +229,10 @@ public class SSABuilder extends AbstractIntStackMachine {
           // no phis in exit block please
           return TOP;
         }
+        if (isDead(n, bb)) {
+          // the local is stored before it is loaded again, so a phi would be dead
+          return TOP;
+        }
         // if we already have a phi for this local
         SSAPhiInstruction phi = newBB.getPhiForLocal(n);
         int result;
@@ -964,7 +1002,7 @@ public class SSABuilder extends AbstractIntStackMachine {
    * A logical mapping from &lt;pc, valueNumber&gt; -&gt; local number Note: make sure this class
    * remains static: this persists as part of the IR!!
    */
-  private static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
+  static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
 
     private final ShrikeCFG shrikeCFG;
 
@@ -990,6 +1028,21 @@ public class SSABuilder extends AbstractIntStackMachine {
       block2LocalState = new int[nBlocks][];
     }
 
+    /** a map read back from an {@link IRStore} */
+    SSA2LocalMap(ShrikeCFG shrikeCfg, IntPair[] localStoreMap, int[][] block2LocalState) {
+      shrikeCFG = shrikeCfg;
+      this.localStoreMap = localStoreMap;
+      this.block2LocalState = block2LocalState;
+    }
+
+    IntPair[] getLocalStoreMap() {
+      return localStoreMap;
+    }
+
+    int[][] getBlock2LocalState() {
+      return block2LocalState;
+    }
+
     /**
      * Record the beginning of a new range, starting at the given program counter, in which a
      * particular value number corresponds to a particular local number
@@ -363,6 +363,16 @@ public class SSACFG
       }
     }
 
+    /** @return the phis for stack slots, indexed by slot; may contain nulls */
+    SSAPhiInstruction[] getStackSlotPhis() {
+      return stackSlotPhis;
+    }
+
+    /** @return the phis for locals, indexed by local number; may contain nulls */
+    SSAPhiInstruction[] getLocalPhis() {
+      return localPhis;
+    }
+
     public void addPhiForStackSlot(int slot, SSAPhiInstruction phi) {
       if (stackSlotPhis == null) {
         stackSlotPhis = new SSAPhiInstruction[initialCapacity];
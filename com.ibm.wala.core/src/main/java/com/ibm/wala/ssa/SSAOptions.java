@@ -30,6 +30,9 @@ public class SSAOptions {
 
   private DefaultValues defaultValues = null;
 
+  /** build pruned SSA, without phis for locals that are dead where control flow merges */
+  private boolean prunePhis = false;
+
   private static final SSAOptions defaultOptions = new SSAOptions();
 
   /** return a policy that enables all built-in pi node policies */
@@ -46,6 +49,20 @@ public class SSAOptions {
     return defaultValues;
   }
 
+  /**
+   * Build pruned SSA for bytecode: no phis are created for locals that are dead at the start of a
+   * basic block. This saves time and value numbers on large methods; the only phis left out are
+   * dead ones, but the remaining values are numbered differently, and the local names of dead
+   * locals are lost where control flow merges.
+   */
+  public void setPrunePhis(boolean prunePhis) {
+    this.prunePhis = prunePhis;
+  }
+
+  public boolean getPrunePhis() {
+    return prunePhis;
+  }
+
   /** @return the default SSA Options */
   public static SSAOptions defaultOptions() {
     return defaultOptions;
@@ -64,6 +81,7 @@ public class SSAOptions {
     final int prime = 31;
     int result = 1;
     result = prime * result + ((piNodePolicy == null) ? 0 : piNodePolicy.hashCode());
+    result = prime * result + (prunePhis ? 1231 : 1237);
     return result;
   }
 
@@ -76,6 +94,7 @@ public class SSAOptions {
     if (piNodePolicy == null) {
       if (other.piNodePolicy != null) return false;
     } else if (!piNodePolicy.equals(other.piNodePolicy)) return false;
+    if (prunePhis != other.prunePhis) return false;
     return true;
   }
 }
@@ -94,6 +94,18 @@ public class SymbolTable implements Cloneable {
     }
   }
 
+  /**
+   * Define the value of a value number, e.g. when reading a symbol table back from an {@link
+   * IRStore}.
+   */
+  void restoreValue(int vn, Value v) {
+    ensureSymbol(vn);
+    values[vn] = v;
+    if (v instanceof ConstantValue) {
+      constants.put((ConstantValue) v, vn);
+    }
+  }
+
   private Object[] defaultValues;
 
   /**
@@ -438,9 +450,27 @@ public class SymbolTable implements Cloneable {
   }
 
   public SymbolTable copy() {
+    return copy(values.clone());
+  }
+
+  /**
+   * @return a copy without the phi values, which would keep the phi instructions alive, and without
+   *     room for more value numbers
+   */
+  SymbolTable copyWithoutPhis() {
+    Value[] v = Arrays.copyOf(values, nextFreeValueNumber + 1);
+    for (int vn = 0; vn < v.length; vn++) {
+      if (v[vn] instanceof PhiValue) {
+        v[vn] = null;
+      }
+    }
+    return copy(v);
+  }
+
+  private SymbolTable copy(Value[] newValues) {
     try {
       SymbolTable nt = (SymbolTable) clone();
-      nt.values = this.values.clone();
+      nt.values = newValues;
       if (this.defaultValues != null) {
         nt.defaultValues = this.defaultValues.clone();
       }
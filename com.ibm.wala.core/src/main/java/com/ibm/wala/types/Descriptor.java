@@ -35,7 +35,7 @@ public final class Descriptor {
    * @param returnType the return type
    * @return the canonical representative for this descriptor value
    */
-  public static Descriptor findOrCreate(TypeName[] parameters, TypeName returnType) {
+  public static synchronized Descriptor findOrCreate(TypeName[] parameters, TypeName returnType) {
     if (returnType == null) {
       throw new IllegalArgumentException("null returnType");
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.ref;
+
+import com.ibm.wala.util.ref.CacheRegion.Policy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * The named {@link CacheRegion}s that hold lazily computed structures, such as the bytecode
+ * information of methods or the contents of jar files.
+ *
+ * <p>The code that owns a cache asks for its region with a default policy and budget. These can be
+ * changed with {@link #configure(String, Policy, long)}, or with the system property {@code
+ * wala.cache.}<i>name</i>, whose value is a policy optionally followed by a colon and a budget,
+ * e.g. {@code -Dwala.cache.ShrikeBTMethod.bytecodeInfo=FIFO:5000}.
+ */
+public final class CacheManager {
+
+  private static final CacheManager DEFAULT = new CacheManager();
+
+  /** prefix of the system properties that configure regions */
+  public static final String PROPERTY_PREFIX = "wala.cache.";
+
+  public static CacheManager getDefault() {
+    return DEFAULT;
+  }
+
+  private final Map<String, CacheRegion<?>> regions = new TreeMap<>();
+
+  /** A policy and budget configured for a region not made yet */
+  private static final class Configuration {
+    final Policy policy;
+
+    /** null to keep the default */
+    final Long budget;
+
+    Configuration(Policy policy, Long budget) {
+      this.policy = policy;
+      this.budget = budget;
+    }
+  }
+
+  private final Map<String, Configuration> configurations = new TreeMap<>();
+
+  /**
+   * @param name name of the region
+   * @param policy policy of the region, unless configured otherwise
+   * @param budget budget of the region, unless configured otherwise
+   * @param weigher weight of each value, or null to count values
+   * @return the region with the given name, made if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <V> CacheRegion<V> getRegion(
+      String name, Policy policy, long budget, ToLongFunction<? super V> weigher) {
+    if (name == null) {
+      throw new IllegalArgumentException("null name");
+    }
+    CacheRegion<V> result = (CacheRegion<V>) regions.get(name);
+    if (result == null) {
+      Configuration configuration = configurations.remove(name);
+      if (configuration == null) {
+        configuration = fromProperty(name);
+      }
+      if (configuration != null) {
+        policy = configuration.policy;
+        budget = configuration.budget == null ? budget : configuration.budget;
+      }
+      result = new CacheRegion<>(name, policy, budget, weigher);
+      regions.put(name, result);
+    }
+    return result;
+  }
+
+  /** @return the region with the given name, counting values */
+  public <V> CacheRegion<V> getRegion(String name, Policy policy, long budget) {
+    return getRegion(name, policy, budget, null);
+  }
+
+  /** @return the policy and budget set by the system property for a region, or null */
+  private static Configuration fromProperty(String name) {
+    String value = System.getProperty(PROPERTY_PREFIX + name);
+    if (value == null) {
+      return null;
+    }
+    int colon = value.indexOf(':');
+    try {
+      Policy policy = Policy.valueOf(colon == -1 ? value.trim() : value.substring(0, colon).trim());
+      Long budget = colon == -1 ? null : Long.valueOf(value.substring(colon + 1).trim());
+      return new Configuration(policy, budget);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "bad value of " + PROPERTY_PREFIX + name + ": " + value, e);
+    }
+  }
+
+  /** Set the policy and budget of a region, whether it is made already or not. */
+  public synchronized void configure(String name, Policy policy, long budget) {
+    if (name == null) {
+      throw new IllegalArgumentException("null name");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("negative budget: " + budget);
+    }
+    CacheRegion<?> region = regions.get(name);
+    if (region != null) {
+      region.configure(policy, budget);
+    } else {
+      configurations.put(name, new Configuration(policy, budget));
+    }
+  }
+
+  /** @return the region with the given name, or null if it was not made yet */
+  public synchronized CacheRegion<?> lookupRegion(String name) {
+    return regions.get(name);
+  }
+
+  /** @return all regions made so far, by name */
+  public synchronized Collection<CacheRegion<?>> getRegions() {
+    return new ArrayList<>(regions.values());
+  }
+
+  /** Drop the values held strongly by all regions. */
+  public void clear() {
+    for (CacheRegion<?> region : getRegions()) {
+      region.clear();
+    }
+  }
+
+  /** Reset the statistics of all regions. */
+  public void resetStatistics() {
+    for (CacheRegion<?> region : getRegions()) {
+      region.resetStatistics();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (CacheRegion<?> region : getRegions()) {
+      result.append(region).append('\n');
+    }
+    return result.toString();
+  }
+}
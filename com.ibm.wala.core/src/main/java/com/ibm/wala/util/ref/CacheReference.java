@@ -14,7 +14,13 @@ import com.ibm.wala.util.debug.Assertions;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 
-/** A factory for References ... useful for debugging. */
+/**
+ * A factory for References ... useful for debugging.
+ *
+ * @deprecated use a {@link CacheRegion} of the {@link CacheManager}, which has a budget and
+ *     statistics
+ */
+@Deprecated
 public final class CacheReference {
 
   private static final byte SOFT = 0;
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.ref;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A named cache of a {@link CacheManager}, holding lazily computed values up to a budget.
+ *
+ * <p>A client keeps the {@link Handle} that {@link #make(Object)} returns in place of the value,
+ * and asks the region for the value with {@link #get(Handle)}. A null result means the value was
+ * never made, or was collected, and must be computed again:
+ *
+ * <pre>
+ * V v = region.get(handle);
+ * if (v == null) {
+ *   v = compute();
+ *   handle = region.make(v);
+ * }
+ * </pre>
+ *
+ * <p>Each value has a weight, 1 unless the region was made with a weigher. The region holds values
+ * strongly up to its budget; when the total weight exceeds the budget, values are evicted in the
+ * order of the {@link Policy} and are held softly from then on, so the garbage collector can
+ * reclaim them when memory runs short. A value that is used again while held softly is held
+ * strongly again. The region counts hits, misses of values never made, recomputes of collected
+ * values, and evictions.
+ *
+ * <p>Only the handle holds its value; the region refers to the handles weakly. So a value goes away
+ * with the client that keeps its handle, e.g. a class hierarchy, even if the value refers back to
+ * the client, and a region shared by many such clients does not keep them alive.
+ *
+ * <p>{@link #get(Handle)} takes no lock unless it has to hold a soft value strongly again; {@link
+ * #make(Object)} and the other operations lock the region.
+ */
+public final class CacheRegion<V> {
+
+  /** The order in which values are evicted */
+  public enum Policy {
+    /**
+     * evict the least recently used values, approximately: a value used since the eviction last
+     * passed over it gets a second chance
+     */
+    LRU,
+    /** evict the oldest values */
+    FIFO,
+    /** hold the values softly and leave eviction to the garbage collector; there is no budget */
+    SOFT
+  }
+
+  /** A value cached in a region, to be kept by the client in place of the value. */
+  public static final class Handle<V> {
+
+    /** the value, a {@link SoftReference} to it, or null once removed */
+    private volatile Object value;
+
+    private final long weight;
+
+    /** the entry of this handle while its value is held strongly, guarded by the region */
+    private volatile Entry<V> entry;
+
+    /** whether the value was used since the eviction last passed over it */
+    private volatile boolean used;
+
+    private Handle(Object value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /** A handle whose value is held strongly; weak, so the handle can go away with its client */
+  private static final class Entry<V> extends WeakReference<Handle<V>> {
+
+    private final long weight;
+
+    private Entry(Handle<V> handle, ReferenceQueue<? super Handle<V>> queue) {
+      super(handle, queue);
+      this.weight = handle.weight;
+    }
+  }
+
+  private final String name;
+
+  private final ToLongFunction<? super V> weigher;
+
+  private volatile Policy policy;
+
+  private long budget;
+
+  /** total weight of the values in {@link #strong} */
+  private long weight;
+
+  /** the entries of the values held strongly, in the order they are evicted */
+  private final LinkedHashSet<Entry<V>> strong = new LinkedHashSet<>();
+
+  /** the entries of handles that went away with their clients */
+  private final ReferenceQueue<Handle<V>> dropped = new ReferenceQueue<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder recomputes = new LongAdder();
+
+  private long evictions;
+
+  CacheRegion(String name, Policy policy, long budget, ToLongFunction<? super V> weigher) {
+    this.name = name;
+    this.weigher = weigher;
+    configure(policy, budget);
+  }
+
+  /** Change the policy and budget; values held strongly become soft when switching to SOFT. */
+  synchronized void configure(Policy policy, long budget) {
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("negative budget: " + budget);
+    }
+    this.policy = policy;
+    this.budget = budget;
+    if (policy == Policy.SOFT) {
+      for (Entry<V> e : strong) {
+        Handle<V> h = e.get();
+        if (h != null) {
+          soften(h);
+        }
+      }
+      strong.clear();
+      weight = 0;
+    } else {
+      evict();
+    }
+  }
+
+  /** @return a handle holding a newly computed value */
+  public synchronized Handle<V> make(V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("null value");
+    }
+    long w = weigher == null ? 1 : weigher.applyAsLong(value);
+    if (policy == Policy.SOFT) {
+      return new Handle<>(new SoftReference<>(value), w);
+    }
+    Handle<V> h = new Handle<>(value, w);
+    hold(h);
+    evict();
+    return h;
+  }
+
+  /**
+   * @param handle a handle made by this region, or null if the value was never made
+   * @return the value, or null if it must be computed (again)
+   */
+  public V get(Handle<V> handle) {
+    if (handle == null) {
+      misses.increment();
+      return null;
+    }
+    V result = value(handle);
+    if (result == null) {
+      recomputes.increment();
+    } else {
+      hits.increment();
+      if (handle.entry != null) {
+        handle.used = true;
+      } else if (policy != Policy.SOFT) {
+        strengthen(handle, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the value of a handle, like {@link #get(Handle)} but without counting or touching it
+   */
+  public V peek(Handle<V> handle) {
+    return handle == null ? null : value(handle);
+  }
+
+  /** @return true iff the value of a handle is held strongly, within the budget */
+  public boolean isStrong(Handle<V> handle) {
+    return handle != null && handle.entry != null;
+  }
+
+  /** Drop the value of a handle. */
+  public synchronized void remove(Handle<V> handle) {
+    if (handle != null) {
+      Entry<V> e = handle.entry;
+      if (e != null && strong.remove(e)) {
+        weight -= e.weight;
+      }
+      handle.entry = null;
+      handle.value = null;
+    }
+  }
+
+  /** Drop all values held strongly; soft values are left to the garbage collector. */
+  public synchronized void clear() {
+    for (Entry<V> e : strong) {
+      Handle<V> h = e.get();
+      if (h != null) {
+        h.entry = null;
+        h.value = null;
+      }
+    }
+    strong.clear();
+    weight = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V value(Handle<V> handle) {
+    Object v = handle.value;
+    return (V) (v instanceof SoftReference ? ((SoftReference<?>) v).get() : v);
+  }
+
+  /** Hold the value of a handle strongly again, since it is used again. */
+  private synchronized void strengthen(Handle<V> handle, V value) {
+    if (handle.entry == null && handle.value != null && policy != Policy.SOFT) {
+      handle.value = value;
+      hold(handle);
+      evict();
+    }
+  }
+
+  private void hold(Handle<V> handle) {
+    Entry<V> e = new Entry<>(handle, dropped);
+    handle.entry = e;
+    strong.add(e);
+    weight += e.weight;
+  }
+
+  private void soften(Handle<V> handle) {
+    handle.entry = null;
+    Object v = handle.value;
+    if (v != null && !(v instanceof SoftReference)) {
+      handle.value = new SoftReference<>(v);
+    }
+  }
+
+  /** Forget the entries of handles that went away with their clients. */
+  private void purge() {
+    for (Object e = dropped.poll(); e != null; e = dropped.poll()) {
+      if (strong.remove(e)) {
+        weight -= ((Entry<?>) e).weight;
+      }
+    }
+  }
+
+  private void evict() {
+    purge();
+    while (weight > budget && !strong.isEmpty()) {
+      Iterator<Entry<V>> it = strong.iterator();
+      Entry<V> e = it.next();
+      it.remove();
+      Handle<V> h = e.get();
+      if (h != null && policy == Policy.LRU && h.used) {
+        // used since the last pass: move it to the end
+        h.used = false;
+        strong.add(e);
+        continue;
+      }
+      weight -= e.weight;
+      if (h != null) {
+        soften(h);
+        evictions++;
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  public synchronized long getBudget() {
+    return budget;
+  }
+
+  /** @return the total weight of the values held strongly */
+  public synchronized long getWeight() {
+    purge();
+    return weight;
+  }
+
+  /** @return the number of values held strongly */
+  public synchronized int size() {
+    purge();
+    return strong.size();
+  }
+
+  /** @return the number of gets that found their value */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** @return the number of gets of values never made */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** @return the number of gets of values that were collected, and so are computed again */
+  public long getRecomputes() {
+    return recomputes.sum();
+  }
+
+  /** @return the number of values evicted to stay within the budget, and so held softly */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized void resetStatistics() {
+    hits.reset();
+    misses.reset();
+    recomputes.reset();
+    evictions = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name
+        + ": "
+        + policy
+        + (policy == Policy.SOFT ? "" : " " + weight + '/' + budget)
+        + ", hits "
+        + hits
+        + ", misses "
+        + misses
+        + ", recomputes "
+        + recomputes
+        + ", evictions "
+        + evictions;
+  }
+}
@@ -14,16 +14,17 @@ import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.util.debug.Assertions;
-import com.ibm.wala.util.ref.CacheReference;
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * A soft handle to a Shrike class reader
+ * A handle to a Shrike class reader, which is cached in a {@link CacheRegion} and read again when
+ * evicted
  *
- * <p>TODO: implement more effective caching than just soft references TODO: push weakness up the
- * chain the InputStream, etc ... TODO: reduce reliance on reader throughout the analysis packages
+ * <p>TODO: reduce reliance on reader throughout the analysis packages
  */
 public class ShrikeClassReaderHandle {
 
@@ -31,7 +32,16 @@ public class ShrikeClassReaderHandle {
   /** The module entry that defines the class file */
   private final ModuleEntry entry;
 
-  private Object reader;
+  /** The region caching the readers of all classes, weighed by the sizes of their class files */
+  private static final CacheRegion<ClassReader> READERS =
+      CacheManager.getDefault()
+          .getRegion(
+              "ShrikeClassReaderHandle.readers",
+              CacheRegion.Policy.LRU,
+              64 << 20,
+              (ClassReader r) -> r.getBytes().length);
+
+  private CacheRegion.Handle<ClassReader> reader;
 
   /** The number of times we hydrate the reader */
   private int hydrateCount = 0;
@@ -44,11 +54,12 @@ public class ShrikeClassReaderHandle {
   }
 
   /**
-   * @return an instance of the class reader ... create one if necessary
+   * @return an instance of the class reader ... create one if necessary. Synchronized, since
+   *     methods of the class may build their IRs on different threads.
    * @throws InvalidClassFileException iff Shrike fails to read the class file correctly.
    */
-  public ClassReader get() throws InvalidClassFileException {
-    ClassReader result = (ClassReader) CacheReference.get(reader);
+  public synchronized ClassReader get() throws InvalidClassFileException {
+    ClassReader result = READERS.get(reader);
     if (result == null) {
       hydrateCount++;
       if (DEBUG) {
@@ -71,7 +82,7 @@ public class ShrikeClassReaderHandle {
         Assertions.UNREACHABLE();
       }
       result = new ClassReader(S.toByteArray());
-      reader = CacheReference.make(result);
+      reader = READERS.make(result);
     }
     return result;
   }
@@ -93,7 +104,8 @@ public class ShrikeClassReaderHandle {
   }
 
   /** Force the reference to be cleared/collected */
-  public void clear() {
+  public synchronized void clear() {
+    READERS.remove(reader);
     reader = null;
   }
 
@@ -19,6 +19,8 @@ import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.dataflow.graph.BitVectorUnion;
 import com.ibm.wala.dataflow.graph.BitVectorUnionConstant;
 import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixedpoint.impl.IWorklistStrategy;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.util.CancelException;
@@ -70,6 +72,37 @@ public class GraphDataflowTest extends WalaTestCase {
     Assert.assertEquals(expectedStringNodeOnly(), result);
   }
 
+  @Test
+  public void testWorklistStrategies() throws CancelException {
+    Graph<String> G = buildGraph();
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      Assert.assertEquals(
+          strategy.toString(), expectedStringNodeOnly(), solveNodeOnly(G, strategy));
+      Assert.assertEquals(
+          strategy.toString(), expectedStringNodeEdge(), solveNodeEdge(G, strategy));
+    }
+    // a loop E -> B, so that the system has a non-trivial SCC
+    G.addEdge(nodes[4], nodes[1]);
+    String expected = solveNodeEdge(G, WorklistStrategy.PRIORITY);
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      Assert.assertEquals(strategy.toString(), expected, solveNodeEdge(G, strategy));
+    }
+
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      BitVectorSolver<String> s = makeNodeEdgeSolver(G, strategy);
+      s.solve(null);
+      Assert.assertTrue(strategy.toString(), s.getNumberOfScheduledStatements() > 0);
+      Assert.assertTrue(strategy.toString(), s.getMaxWorkListSize() > 0);
+      Assert.assertEquals(
+          strategy.toString(), strategy.usesTopologicalOrder(), s.getNumberOfReorderings() > 0);
+      // nothing is left to do, so the counters of a second solve start from zero again
+      s.solve(null);
+      Assert.assertEquals(strategy.toString(), 0, s.getNumberOfScheduledStatements());
+      Assert.assertEquals(strategy.toString(), 0, s.getMaxWorkListSize());
+      Assert.assertEquals(strategy.toString(), 0, s.getNumberOfReorderings());
+    }
+  }
+
   /** @return the expected dataflow result as a String */
   public static String expectedStringNodeOnly() {
     return "------\n"
@@ -114,6 +147,12 @@ public class GraphDataflowTest extends WalaTestCase {
 
   /** Solve the dataflow system and return the result as a string */
   public static String solveNodeOnly(Graph<String> G) throws CancelException {
+    return solveNodeOnly(G, WorklistStrategy.PRIORITY);
+  }
+
+  /** Solve the dataflow system with the given worklist strategy */
+  public static String solveNodeOnly(Graph<String> G, IWorklistStrategy strategy)
+      throws CancelException {
     final OrdinalSetMapping<String> values = new MutableMapping<>(nodes);
     ITransferFunctionProvider<String, BitVectorVariable> functions =
         new ITransferFunctionProvider<String, BitVectorVariable>() {
@@ -146,12 +185,24 @@ public class GraphDataflowTest extends WalaTestCase {
         };
 
     BitVectorFramework<String, String> F = new BitVectorFramework<>(G, functions, values);
-    BitVectorSolver<String> s = new BitVectorSolver<>(F);
+    BitVectorSolver<String> s = new BitVectorSolver<>(F, strategy);
     s.solve(null);
     return result2String(s);
   }
 
   public static String solveNodeEdge(Graph<String> G) throws CancelException {
+    return solveNodeEdge(G, WorklistStrategy.PRIORITY);
+  }
+
+  public static String solveNodeEdge(Graph<String> G, IWorklistStrategy strategy)
+      throws CancelException {
+    BitVectorSolver<String> s = makeNodeEdgeSolver(G, strategy);
+    s.solve(null);
+    return result2String(s);
+  }
+
+  private static BitVectorSolver<String> makeNodeEdgeSolver(
+      Graph<String> G, IWorklistStrategy strategy) {
     final OrdinalSetMapping<String> values = new MutableMapping<>(nodes);
     ITransferFunctionProvider<String, BitVectorVariable> functions =
         new ITransferFunctionProvider<String, BitVectorVariable>() {
@@ -187,9 +238,7 @@ public class GraphDataflowTest extends WalaTestCase {
         };
 
     BitVectorFramework<String, String> F = new BitVectorFramework<>(G, functions, values);
-    BitVectorSolver<String> s = new BitVectorSolver<>(F);
-    s.solve(null);
-    return result2String(s);
+    return new BitVectorSolver<>(F, strategy);
   }
 
   public static String result2String(BitVectorSolver<String> solver) {
@@ -15,12 +15,15 @@ import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.cha.CHACallGraph;
+import com.ibm.wala.ipa.callgraph.cha.ParallelCHACallGraph;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import org.junit.Test;
 
@@ -35,6 +38,29 @@ public class CHACallGraphTest {
         CallGraphTestUtil.REGRESSION_EXCLUSIONS);
   }
 
+  @Test
+  public void testParallelCHA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, "Llambda/SortingExample");
+
+    CHACallGraph expected = new CHACallGraph(cha);
+    expected.init(entrypoints);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CHACallGraph actual = new ParallelCHACallGraph(cha, executor);
+      actual.init(entrypoints);
+      CallGraphTest.assertSameCallGraph(expected, actual);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   public static CallGraph testCHA(
       String scopeFile, final String mainClass, final String exclusionsFile)
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.analysis.reflection.GetMethodContext;
+import com.ibm.wala.analysis.reflection.JavaTypeContext;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.BudgetedContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallStringContextSelector;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.graph.GraphIntegrity;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for call graph construction with a time or heap budget */
+public class CallGraphBudgetTest extends WalaTestCase {
+
+  private static final String MAIN = "Llambda/SortingExample";
+
+  private static SSAPropagationCallGraphBuilder build(long maxHeapBytes) throws Exception {
+    return build(MAIN, maxHeapBytes);
+  }
+
+  private static SSAPropagationCallGraphBuilder build(String main, long maxHeapBytes)
+      throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, main);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setMaxHeapBytes(maxHeapBytes);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeNCFABuilder(2, options, new AnalysisCacheImpl(), cha, scope);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  private static Set<MethodReference> methods(CallGraph cg) {
+    Set<MethodReference> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.getMethod().getReference());
+    }
+    return result;
+  }
+
+  /**
+   * @return the methods with reflection contexts, and the receiver types of those contexts, as
+   *     strings since types of different class hierarchies do not compare
+   */
+  private static Set<Pair<MethodReference, String>> reflectiveNodes(CallGraph cg) {
+    Set<Pair<MethodReference, String>> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      Context c = n.getContext();
+      if (c.isA(JavaTypeContext.class) || c.isA(GetMethodContext.class)) {
+        result.add(
+            Pair.make(n.getMethod().getReference(), String.valueOf(c.get(ContextKey.RECEIVER))));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testNoBudget() throws Exception {
+    SSAPropagationCallGraphBuilder builder = build(-1);
+    Assert.assertNull(builder.getSolverBudget());
+    Assert.assertFalse(builder.getContextSelector() instanceof BudgetedContextSelector);
+  }
+
+  @Test
+  public void testExhaustedBudget() throws Exception {
+    CallGraph precise = build(-1).getCallGraph();
+
+    // no heap is small enough, so the build degrades to context-insensitive calls at once
+    SSAPropagationCallGraphBuilder builder = build(1);
+    CallGraph cg = builder.getCallGraph();
+    GraphIntegrity.check(cg);
+    Assert.assertTrue(builder.getSolverBudget().isExhausted());
+    Assert.assertSame(builder.getSolverBudget().getBase(), builder.getContextSelector());
+    // only the contexts of the reflection models, e.g. of clone(), remain
+    for (CGNode n : cg) {
+      Assert.assertNull(n.toString(), n.getContext().get(CallStringContextSelector.CALL_STRING));
+      Assert.assertTrue(
+          n.toString(),
+          n.getContext().equals(Everywhere.EVERYWHERE)
+              || n.getContext().isA(JavaTypeContext.class)
+              || n.getContext().isA(GetMethodContext.class));
+    }
+
+    // less precise, but sound: every method reachable before is still reachable
+    Assert.assertTrue(precise.getNumberOfNodes() > cg.getNumberOfNodes());
+    Assert.assertTrue(methods(cg).containsAll(methods(precise)));
+  }
+
+  @Test
+  public void testExhaustedBudgetKeepsReflection() throws Exception {
+    CallGraph precise = build(TestConstants.REFLECT1_MAIN, -1).getCallGraph();
+
+    SSAPropagationCallGraphBuilder builder = build(TestConstants.REFLECT1_MAIN, 1);
+    CallGraph cg = builder.getCallGraph();
+    GraphIntegrity.check(cg);
+    Assert.assertTrue(builder.getSolverBudget().isExhausted());
+    for (CGNode n : cg) {
+      Assert.assertNull(n.toString(), n.getContext().get(CallStringContextSelector.CALL_STRING));
+    }
+
+    // the call strings are gone, but every reflection context without a budget is still there
+    Set<Pair<MethodReference, String>> reflective = reflectiveNodes(precise);
+    Assert.assertFalse(reflective.isEmpty());
+    Assert.assertTrue(reflectiveNodes(cg).containsAll(reflective));
+  }
+}
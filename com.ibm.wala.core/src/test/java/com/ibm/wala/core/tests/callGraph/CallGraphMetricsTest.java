@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.CallGraphMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationListener;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for the metrics collected while building a call graph */
+public class CallGraphMetricsTest {
+
+  @Test
+  public void testMetrics() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, "Lstring/SimpleStringOps");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(
+            scope.getLanguage(scope.getApplicationLoader().getLanguage()),
+            options,
+            new AnalysisCacheImpl(),
+            cha,
+            scope);
+    CallGraphMetrics metrics = new CallGraphMetrics();
+    builder.addListener(metrics);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    Assert.assertEquals(cg.getNumberOfNodes(), metrics.getCounter("callGraph.nodes"));
+    long edges = 0;
+    for (CGNode n : cg) {
+      edges += cg.getSuccNodeCount(n);
+    }
+    Assert.assertEquals(edges, metrics.getCounter("callGraph.edges"));
+
+    long statements = 0;
+    for (String counter : metrics.getCounters()) {
+      if (counter.startsWith("statements.")) {
+        statements += metrics.getCounter(counter);
+      }
+    }
+    Assert.assertTrue(statements > 0);
+    long[] worklist = metrics.getHistogram("worklistSize");
+    long recorded = 0;
+    for (long bucket : worklist) {
+      recorded += bucket;
+    }
+    Assert.assertEquals(statements, recorded);
+    Assert.assertTrue(metrics.getCounter("irs") > 0);
+    Assert.assertTrue(metrics.getCounter("pointsToSets") > 0);
+
+    long rounds = metrics.getCounter("rounds");
+    Assert.assertTrue(rounds >= 1);
+    Assert.assertEquals(1, metrics.getPhaseCount(PropagationListener.PHASE_TOTAL));
+    Assert.assertEquals(rounds, metrics.getPhaseCount(PropagationListener.PHASE_SOLVE));
+    Assert.assertEquals(2 * rounds, metrics.getPhaseCount(PropagationListener.PHASE_CONSTRAINTS));
+    Assert.assertEquals(
+        Math.min(rounds, options.getReflectionOptions().getNumFlowToCastIterations()),
+        metrics.getPhaseCount(PropagationListener.PHASE_REFLECTION));
+    Assert.assertTrue(
+        metrics.getPhaseMillis(PropagationListener.PHASE_SOLVE)
+            <= metrics.getPhaseMillis(PropagationListener.PHASE_TOTAL));
+
+    String json = metrics.toJSON();
+    Assert.assertTrue(json, json.startsWith("{"));
+    Assert.assertTrue(json, json.contains("\"counters\""));
+    Assert.assertTrue(json, json.contains("\"pointsToSetSize\": ["));
+    Assert.assertTrue(json, json.contains("\"total\": {\"count\": 1"));
+  }
+}
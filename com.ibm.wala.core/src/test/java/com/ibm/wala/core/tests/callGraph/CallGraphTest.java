@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.core.tests.callGraph;
 
+import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.Language;
@@ -24,6 +25,7 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.CallGraphStats;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AllApplicationEntrypoints;
@@ -60,6 +62,8 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.junit.Assert;
@@ -188,6 +192,32 @@ public class CallGraphTest extends WalaTestCase {
     }
   }
 
+  @Test
+  public void testParallelRTA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            scope, cha, "Llambda/SortingExample");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph expected = CallGraphTestUtil.buildRTA(options, new AnalysisCacheImpl(), cha, scope);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CallGraph actual =
+          com.ibm.wala.ipa.callgraph.impl.Util.makeParallelRTABuilder(
+                  options, new ConcurrentAnalysisCacheImpl(), cha, scope, executor)
+              .makeCallGraph(options, null);
+      assertSameCallGraph(expected, actual);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void testJava8Smoke()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -526,6 +556,32 @@ public class CallGraphTest extends WalaTestCase {
     return thisCG;
   }
 
+  /**
+   * Check that two call graphs have the same nodes, with the same numbers, and the same targets at
+   * each call site
+   */
+  public static void assertSameCallGraph(CallGraph expected, CallGraph actual) {
+    Assert.assertEquals(expected.getNumberOfNodes(), actual.getNumberOfNodes());
+    for (CGNode e : expected) {
+      CGNode a = actual.getNode(expected.getNumber(e));
+      Assert.assertNotNull(e.toString(), a);
+      Assert.assertEquals(e.getMethod(), a.getMethod());
+      Assert.assertEquals(e.getContext(), a.getContext());
+      Assert.assertTrue(
+          e.toString(), expected.getSuccNodeNumbers(e).sameValue(actual.getSuccNodeNumbers(a)));
+      for (CallSiteReference site : Iterator2Iterable.make(e.iterateCallSites())) {
+        Set<Integer> targets = HashSetFactory.make();
+        for (CGNode t : expected.getPossibleTargets(e, site)) {
+          targets.add(expected.getNumber(t));
+        }
+        for (CGNode t : actual.getPossibleTargets(a, site)) {
+          Assert.assertTrue(e + " " + site, targets.remove(actual.getNumber(t)));
+        }
+        Assert.assertTrue(e + " " + site, targets.isEmpty());
+      }
+    }
+  }
+
   /**
    * @return a graph whose nodes are MethodReferences, and whose edges represent calls between
    *     MethodReferences
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.IRPrefetcher;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests that prefetching IRs on a thread pool does not change the call graph */
+public class IRPrefetcherTest {
+
+  private static List<String> edges(CallGraph cg) {
+    List<String> result =
+        StreamSupport.stream(cg.spliterator(), false)
+            .flatMap(
+                (CGNode n) ->
+                    StreamSupport.stream(
+                            ((Iterable<CGNode>) () -> cg.getSuccNodes(n)).spliterator(), false)
+                        .map(s -> n + " -> " + s))
+            .collect(Collectors.toList());
+    Collections.sort(result);
+    return result;
+  }
+
+  private static CallGraph makeCallGraph(
+      AnalysisScope scope, ClassHierarchy cha, IAnalysisCacheView cache, IRPrefetcher prefetcher)
+      throws Exception {
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, "Lstring/SimpleStringOps");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(
+            scope.getLanguage(scope.getApplicationLoader().getLanguage()),
+            options,
+            cache,
+            cha,
+            scope);
+    if (prefetcher != null) {
+      builder.addListener(prefetcher);
+    }
+    return builder.makeCallGraph(options, null);
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    CallGraph expected = makeCallGraph(scope, cha, new AnalysisCacheImpl(), null);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      IAnalysisCacheView cache = new ConcurrentAnalysisCacheImpl();
+      IRPrefetcher prefetcher = new IRPrefetcher(cha, cache, executor);
+      CallGraph actual = makeCallGraph(scope, cha, cache, prefetcher);
+      Assert.assertEquals(edges(expected), edges(actual));
+      Assert.assertTrue(prefetcher.getNumberOfPrefetched() > 0);
+      Assert.assertEquals(0, prefetcher.getNumberOfFailures());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
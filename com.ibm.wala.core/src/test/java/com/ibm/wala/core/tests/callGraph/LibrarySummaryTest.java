@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.summaries.LibrarySummaryGenerator;
+import com.ibm.wala.ipa.summaries.SummarizedMethod;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for summaries of library methods computed from an analysis of the library */
+public class LibrarySummaryTest {
+
+  private static final String MAIN = "Lstring/SimpleStringOps";
+
+  private static IMethod method(ClassHierarchy cha, TypeReference type, String selector) {
+    IMethod m = cha.resolveMethod(cha.lookupClass(type), Selector.make(selector));
+    Assert.assertNotNull(selector, m);
+    return m;
+  }
+
+  @Test
+  public void testSummariesReplaceLibraryCode() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+
+    IMethod substring = method(cha, TypeReference.JavaLangString, "substring(I)Ljava/lang/String;");
+    IMethod toString = method(cha, TypeReference.JavaLangString, "toString()Ljava/lang/String;");
+    IMethod valueOf =
+        method(cha, TypeReference.JavaLangString, "valueOf(Ljava/lang/Object;)Ljava/lang/String;");
+    IMethod intToString =
+        method(cha, TypeReference.JavaLangInteger, "toString(I)Ljava/lang/String;");
+    List<IMethod> methods = new ArrayList<>();
+    methods.add(substring);
+    methods.add(toString);
+    methods.add(valueOf);
+    methods.add(intToString);
+
+    LibrarySummaryGenerator generator = LibrarySummaryGenerator.make(scope, cha, methods, null);
+    Set<MethodReference> summarized = generator.getSummarizedMethods();
+    Assert.assertTrue(summarized.toString(), summarized.contains(substring.getReference()));
+    Assert.assertTrue(summarized.toString(), summarized.contains(toString.getReference()));
+    Assert.assertTrue(summarized.toString(), summarized.contains(intToString.getReference()));
+    // valueOf calls toString() on its parameter, which may be any class
+    Assert.assertFalse(summarized.toString(), summarized.contains(valueOf.getReference()));
+
+    // the summaries read back are those written
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.write(out);
+    XMLMethodSummaryReader reader =
+        new XMLMethodSummaryReader(new ByteArrayInputStream(out.toByteArray()), scope);
+    Assert.assertEquals(out.toString(), summarized, reader.getSummaries().keySet());
+
+    CallGraph cg = makeBuilder(scope, cha, null).getCallGraph();
+    SSAPropagationCallGraphBuilder builder = makeBuilder(scope, cha, reader);
+    CallGraph summarizedCg = builder.getCallGraph();
+    Assert.assertTrue(summarizedCg.getNumberOfNodes() <= cg.getNumberOfNodes());
+
+    // substring is bypassed, and still returns strings
+    Set<CGNode> original = cg.getNodes(substring.getReference());
+    Assert.assertEquals(1, original.size());
+    Assert.assertTrue(cg.getSuccNodeCount(original.iterator().next()) > 0);
+    Set<CGNode> nodes = summarizedCg.getNodes(substring.getReference());
+    Assert.assertEquals(1, nodes.size());
+    CGNode node = nodes.iterator().next();
+    Assert.assertTrue(node.getMethod() instanceof SummarizedMethod);
+    Assert.assertEquals(0, summarizedCg.getSuccNodeCount(node));
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+    OrdinalSet<InstanceKey> returned =
+        pa.getPointsToSet(pa.getHeapModel().getPointerKeyForReturnValue(node));
+    Assert.assertFalse(returned.isEmpty());
+    for (InstanceKey ik : returned) {
+      Assert.assertEquals(TypeReference.JavaLangString, ik.getConcreteType().getReference());
+    }
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(
+      AnalysisScope scope, ClassHierarchy cha, XMLMethodSummaryReader summaries) throws Exception {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    Util.addDefaultSelectors(options, cha);
+    Util.addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
+    if (summaries != null) {
+      Util.addBypassLogic(options, scope, Util.class.getClassLoader(), summaries, cha);
+    }
+    SSAPropagationCallGraphBuilder builder =
+        ZeroXCFABuilder.make(
+            Language.JAVA,
+            cha,
+            options,
+            new AnalysisCacheImpl(),
+            null,
+            null,
+            ZeroXInstanceKeys.ALLOCATIONS);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationListener;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.shrikeBT.DupInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.InvokeInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.NewInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.graph.GraphIntegrity;
+import com.ibm.wala.util.io.FileProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for updating a call graph after classes changed */
+public class UpdateCallGraphTest extends WalaTestCase {
+
+  private static final String MAIN = "LdynamicCG/MainClass";
+
+  private static final String EXTRA = "LdynamicCG/ExtraClass";
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File classes;
+
+  /** copy the classes of the program into a directory, so the test can change them */
+  @Before
+  public void copyClasses() throws IOException {
+    classes = tmp.newFolder("classes");
+    try (JarFile jar =
+        new JarFile(new FileProvider().getFile("com.ibm.wala.core.testdata_1.0.0.jar"))) {
+      for (Enumeration<JarEntry> es = jar.entries(); es.hasMoreElements(); ) {
+        JarEntry e = es.nextElement();
+        if (e.getName().startsWith("dynamicCG/") && e.getName().endsWith(".class")) {
+          File f = new File(classes, e.getName());
+          f.getParentFile().mkdirs();
+          try (InputStream s = jar.getInputStream(e)) {
+            Files.copy(s, f.toPath());
+          }
+        }
+      }
+    }
+  }
+
+  private ClassHierarchy makeClassHierarchy() throws Exception {
+    AnalysisScope scope =
+        AnalysisScopeReader.makePrimordialScope(
+            new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    scope.addToScope(ClassLoaderReference.Application, new BinaryDirectoryTreeModule(classes));
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  private static AnalysisOptions makeOptions(ClassHierarchy cha) {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha.getScope(), cha, MAIN);
+    return CallGraphTestUtil.makeAnalysisOptions(cha.getScope(), entrypoints);
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(
+      ClassHierarchy cha, AnalysisOptions options) {
+    return Util.makeZeroCFABuilder(
+        Language.JAVA, options, new AnalysisCacheImpl(), cha, cha.getScope());
+  }
+
+  /**
+   * @return the nodes and call edges of cg, as strings that do not depend on node numbers, nor on
+   *     the order in which calls to class initializers were added to the fake world clinit method
+   */
+  private static Set<String> describe(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      String node = n.getMethod().getSignature() + ' ' + n.getContext();
+      result.add(node);
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        Object call = n.equals(cg.getFakeWorldClinitNode()) ? site.getDeclaredTarget() : site;
+        for (CGNode t : cg.getPossibleTargets(n, site)) {
+          result.add(
+              node + ' ' + call + " -> " + t.getMethod().getSignature() + ' ' + t.getContext());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the points-to set of every pointer key, as strings that do not depend on node numbers.
+   *     The locals of the fake world clinit method are numbered in the order in which calls to
+   *     class initializers were added, so their points-to sets are collected under the node alone.
+   */
+  private static Map<String, Set<String>> describe(CallGraph cg, PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      Set<String> pts = new TreeSet<>();
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        pts.add(ik.toString());
+      }
+      if (pts.isEmpty()) {
+        continue;
+      }
+      if (k instanceof LocalPointerKey
+          && ((LocalPointerKey) k).getNode().equals(cg.getFakeWorldClinitNode())) {
+        result
+            .computeIfAbsent(cg.getFakeWorldClinitNode().toString(), x -> HashSetFactory.make())
+            .add(pts.toString());
+      } else {
+        result.put(k.toString(), pts);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * rewrite ExtraClass.getName so that it allocates an Object and calls its toString() where it
+   * used to call printObject()
+   */
+  private void changeExtraClass() throws Exception {
+    File f = new File(classes, "dynamicCG/ExtraClass.class");
+    ClassInstrumenter ci = new ClassInstrumenter(f.getName(), Files.readAllBytes(f.toPath()), null);
+    boolean changed = false;
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null && d.getName().equals("getName")) {
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        IInstruction[] instrs = me.getInstructions();
+        for (int i = 0; i < instrs.length; i++) {
+          if (instrs[i] instanceof InvokeInstruction
+              && ((InvokeInstruction) instrs[i]).getMethodName().equals("printObject")) {
+            me.replaceWith(
+                i,
+                new MethodEditor.Patch() {
+                  @Override
+                  public void emitTo(MethodEditor.Output w) {
+                    w.emit(NewInstruction.make("Ljava/lang/Object;", 0));
+                    w.emit(DupInstruction.make(0));
+                    w.emit(
+                        InvokeInstruction.make(
+                            "()V",
+                            "Ljava/lang/Object;",
+                            "<init>",
+                            IInvokeInstruction.Dispatch.SPECIAL));
+                    w.emit(
+                        InvokeInstruction.make(
+                            "()Ljava/lang/String;",
+                            "Ljava/lang/Object;",
+                            "toString",
+                            IInvokeInstruction.Dispatch.VIRTUAL));
+                  }
+                });
+            changed = true;
+          }
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    Assert.assertTrue(changed);
+    Files.write(f.toPath(), ci.emitClass().makeBytes());
+  }
+
+  private static CGNode findMain(CallGraph cg) {
+    for (CGNode n : cg) {
+      if (n.getMethod().getDeclaringClass().getName().toString().equals(MAIN)
+          && n.getMethod().getName().toString().equals("main")) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testReloadUnchanged() throws Exception {
+    ClassHierarchy cha = makeClassHierarchy();
+    AnalysisOptions options = makeOptions(cha);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha, options);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    Set<String> before = describe(cg);
+    int main = cg.getNumber(findMain(cg));
+
+    TypeReference extra = TypeReference.findOrCreate(ClassLoaderReference.Application, EXTRA);
+    IClass oldExtra = cha.lookupClass(extra);
+    Set<IClass> stale = cha.reloadClasses(Collections.singleton(extra));
+    Assert.assertEquals(1, stale.size());
+    Assert.assertSame(oldExtra, stale.iterator().next());
+    Assert.assertNotSame(oldExtra, cha.lookupClass(extra));
+    Assert.assertTrue(cha.isSubclassOf(cha.lookupClass(extra), cha.getRootClass()));
+
+    cg = builder.updateCallGraph(makeOptions(cha), stale, null);
+    GraphIntegrity.check(cg);
+    Assert.assertEquals(before, describe(cg));
+    Assert.assertEquals(main, cg.getNumber(findMain(cg)));
+    for (CGNode n : cg) {
+      if (n.getMethod().getDeclaringClass().getReference().equals(extra)) {
+        Assert.assertSame(cha.lookupClass(extra), n.getMethod().getDeclaringClass());
+      }
+    }
+  }
+
+  @Test
+  public void testRemoveClass() throws Exception {
+    ClassHierarchy cha = makeClassHierarchy();
+    AnalysisOptions options = makeOptions(cha);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha, options);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    int main = cg.getNumber(findMain(cg));
+    int size = cg.getNumberOfNodes();
+
+    Assert.assertTrue(new File(classes, "dynamicCG/ExtraClass.class").delete());
+    TypeReference extra = TypeReference.findOrCreate(ClassLoaderReference.Application, EXTRA);
+    Set<IClass> stale = cha.reloadClasses(Collections.singleton(extra));
+    Assert.assertNull(cha.lookupClass(extra));
+
+    cg = builder.updateCallGraph(makeOptions(cha), stale, null);
+    GraphIntegrity.check(cg);
+    Assert.assertTrue(cg.getNumberOfNodes() < size);
+    Assert.assertEquals(main, cg.getNumber(findMain(cg)));
+
+    // compare with a call graph built from scratch
+    ClassHierarchy fresh = makeClassHierarchy();
+    AnalysisOptions freshOptions = makeOptions(fresh);
+    CallGraph expected = makeBuilder(fresh, freshOptions).makeCallGraph(freshOptions, null);
+    Assert.assertEquals(describe(expected), describe(cg));
+    for (InstanceKey ik : builder.getPointerAnalysis().getInstanceKeys()) {
+      Assert.assertNotEquals(extra, ik.getConcreteType().getReference());
+    }
+  }
+
+  @Test
+  public void testChangeClass() throws Exception {
+    ClassHierarchy cha = makeClassHierarchy();
+    AnalysisOptions options = makeOptions(cha);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha, options);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    Set<String> before = describe(cg);
+    int main = cg.getNumber(findMain(cg));
+
+    changeExtraClass();
+    TypeReference extra = TypeReference.findOrCreate(ClassLoaderReference.Application, EXTRA);
+    Set<IClass> stale = cha.reloadClasses(Collections.singleton(extra));
+    cg = builder.updateCallGraph(makeOptions(cha), stale, null);
+    GraphIntegrity.check(cg);
+    Assert.assertNotEquals(before, describe(cg));
+    Assert.assertEquals(main, cg.getNumber(findMain(cg)));
+
+    // the call to printObject() is gone, and getName now allocates an Object
+    Set<String> methods = HashSetFactory.make();
+    boolean allocates = false;
+    for (CGNode n : cg) {
+      methods.add(n.getMethod().getSignature());
+      if (n.getMethod().getName().toString().equals("getName")) {
+        for (NewSiteReference site : Iterator2Iterable.make(n.iterateNewSites())) {
+          allocates |=
+              site.getDeclaredType().getName().equals(TypeReference.JavaLangObject.getName());
+        }
+      }
+    }
+    Assert.assertFalse(methods.contains("dynamicCG.ExtraClass.printObject()Ljava/lang/String;"));
+    Assert.assertTrue(allocates);
+
+    // compare with a call graph and points-to sets built from scratch
+    ClassHierarchy fresh = makeClassHierarchy();
+    AnalysisOptions freshOptions = makeOptions(fresh);
+    SSAPropagationCallGraphBuilder freshBuilder = makeBuilder(fresh, freshOptions);
+    CallGraph expected = freshBuilder.makeCallGraph(freshOptions, null);
+    Assert.assertEquals(describe(expected), describe(cg));
+    Assert.assertEquals(
+        describe(expected, freshBuilder.getPointerAnalysis()),
+        describe(cg, builder.getPointerAnalysis()));
+  }
+
+  @Test
+  public void testUpdateIsIncremental() throws Exception {
+    ClassHierarchy cha = makeClassHierarchy();
+    AnalysisOptions options = makeOptions(cha);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha, options);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    Set<String> before = describe(cg);
+    Set<CGNode> visited = HashSetFactory.make();
+    builder.addListener(
+        new PropagationListener() {
+          @Override
+          public void irBuilt(CGNode node, long nanos) {
+            visited.add(node);
+          }
+        });
+
+    TypeReference extra = TypeReference.findOrCreate(ClassLoaderReference.Application, EXTRA);
+    Set<IClass> stale = cha.reloadClasses(Collections.singleton(extra));
+    cg = builder.updateCallGraph(makeOptions(cha), stale, null);
+    Assert.assertEquals(before, describe(cg));
+
+    // main allocates ExtraClass, so it is visited again, but the fake roots and the nodes that do
+    // not depend on ExtraClass are not
+    Assert.assertTrue(visited.contains(findMain(cg)));
+    Assert.assertFalse(visited.contains(cg.getFakeRootNode()));
+    Assert.assertFalse(visited.contains(cg.getFakeWorldClinitNode()));
+    Assert.assertTrue(visited.size() < cg.getNumberOfNodes());
+
+    // nothing changed, so nothing is visited again
+    visited.clear();
+    cg = builder.updateCallGraph(makeOptions(cha), Collections.emptySet(), null);
+    Assert.assertEquals(before, describe(cg));
+    Assert.assertTrue(visited.isEmpty());
+  }
+}
@@ -16,6 +16,7 @@ import com.ibm.wala.cfg.exc.NullPointerAnalysis;
 import com.ibm.wala.cfg.exc.intra.IntraprocNullPointerAnalysis;
 import com.ibm.wala.cfg.exc.intra.NullPointerState;
 import com.ibm.wala.cfg.exc.intra.NullPointerState.State;
+import com.ibm.wala.cfg.exc.intra.SparseNullPointerAnalysis;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
 import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.IMethod;
@@ -28,7 +29,10 @@ import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.NullTestPiPolicy;
 import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.ssa.SSAReturnInstruction;
 import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.MethodReference;
@@ -769,6 +773,79 @@ public class NullPointerExceptionIntraTest extends WalaTestCase {
     }
   }
 
+  @Test
+  public void testSparseParam() throws CancelException {
+    MethodReference mr =
+        StringStuff.makeMethodReference(
+            "cfg.exc.intra.FieldAccess.testParam(ZLcfg/exc/intra/B;Lcfg/exc/intra/B;)Lcfg/exc/intra/B");
+
+    IMethod m = cha.resolveMethod(mr);
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    IR ir = cache.getIR(m);
+    final int returnVal = returnVal(returnNode(ir.getControlFlowGraph()));
+
+    SparseNullPointerAnalysis sparse = new SparseNullPointerAnalysis(ir);
+    sparse.compute(new NullProgressMonitor());
+
+    Assert.assertEquals(State.NULL, sparse.getState(returnVal));
+    Assert.assertEquals(State.BOTH, sparse.getState(2));
+  }
+
+  @Test
+  public void testSparseWhile() throws CancelException {
+    MethodReference mr =
+        StringStuff.makeMethodReference(
+            "cfg.exc.intra.FieldAccess.testWhile(ZLcfg/exc/intra/B;)Lcfg/exc/intra/B");
+
+    IMethod m = cha.resolveMethod(mr);
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    IR ir = cache.getIR(m);
+    final int returnVal = returnVal(returnNode(ir.getControlFlowGraph()));
+
+    SparseNullPointerAnalysis sparse = new SparseNullPointerAnalysis(ir);
+    sparse.compute(new NullProgressMonitor());
+
+    Assert.assertEquals(State.BOTH, sparse.getState(returnVal));
+    for (SSAInstruction s : ir.getInstructions()) {
+      if (s instanceof SSAPutInstruction) {
+        // b1.f = 42 dereferences an unknown parameter
+        Assert.assertTrue(sparse.mayThrowNullPointerException(s));
+      }
+    }
+  }
+
+  @Test
+  public void testSparseNullCheck() throws CancelException {
+    MethodReference mr =
+        StringStuff.makeMethodReference(
+            "cfg.exc.intra.FieldAccess.testNullCheck(ZLcfg/exc/intra/B;)Lcfg/exc/intra/B");
+
+    IMethod m = cha.resolveMethod(mr);
+    {
+      SSAOptions options = new SSAOptions();
+      options.setPiNodePolicy(NullTestPiPolicy.createNullTestPiPolicy());
+      AnalysisCacheImpl cache = new AnalysisCacheImpl(options);
+      IR ir = cache.getIR(m);
+      final int returnVal = returnVal(returnNode(ir.getControlFlowGraph()));
+
+      SparseNullPointerAnalysis sparse = new SparseNullPointerAnalysis(ir);
+      sparse.compute(new NullProgressMonitor());
+
+      Assert.assertEquals(State.NOT_NULL, sparse.getState(returnVal));
+    }
+    {
+      // without pi nodes the null test is not visible to the sparse analysis
+      AnalysisCacheImpl cache = new AnalysisCacheImpl();
+      IR ir = cache.getIR(m);
+      final int returnVal = returnVal(returnNode(ir.getControlFlowGraph()));
+
+      SparseNullPointerAnalysis sparse = new SparseNullPointerAnalysis(ir);
+      sparse.compute(new NullProgressMonitor());
+
+      Assert.assertEquals(State.BOTH, sparse.getState(returnVal));
+    }
+  }
+
   public static ISSABasicBlock returnNode(ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg) {
     Collection<ISSABasicBlock> returnNodes = cfg.getNormalPredecessors(cfg.exit());
     Assert.assertEquals(1, returnNodes.size());
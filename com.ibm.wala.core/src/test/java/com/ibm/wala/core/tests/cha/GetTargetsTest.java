@@ -20,6 +20,7 @@ import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.DispatchTable;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.Selector;
@@ -27,6 +28,7 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.io.FileProvider;
 import java.util.Collection;
+import java.util.Set;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -97,6 +99,47 @@ public class GetTargetsTest extends WalaTestCase {
     Assert.assertEquals(1, c.size());
   }
 
+  /** check the dispatch table against lookups up the superclass chain */
+  @Test
+  public void testDispatchTable() {
+    DispatchTable table = cha.getDispatchTable();
+    Assert.assertNotNull(table);
+    int checked = 0;
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      for (IMethod declared : klass.getAllMethods()) {
+        Selector selector = declared.getSelector();
+        IMethod expected = null;
+        for (IClass c = klass; c != null && expected == null; c = c.getSuperclass()) {
+          expected = c.getMethod(selector);
+        }
+        Assert.assertSame(klass + " " + selector, expected, table.resolve(klass, selector));
+        Assert.assertSame(expected, cha.resolveMethod(klass, selector));
+        checked++;
+      }
+    }
+    Assert.assertTrue(checked > 0);
+  }
+
+  /** a method is always among the targets of a call to it */
+  @Test
+  public void testTargetsContainDeclaredMethod() {
+    for (IClass klass : cha) {
+      if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isStatic() && !m.isInit() && !m.isClinit() && !klass.isInterface()) {
+          Set<IMethod> targets = cha.getPossibleTargets(m.getReference());
+          Assert.assertTrue(m.toString(), targets.contains(m));
+          Assert.assertSame(targets, cha.getPossibleTargets(m.getReference()));
+        }
+      }
+    }
+  }
+
   @Test
   public void testConstructorLookup() {
     IClass testKlass =
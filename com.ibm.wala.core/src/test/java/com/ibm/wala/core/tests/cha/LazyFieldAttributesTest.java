@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.FieldImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the annotations and signatures of fields, which are read from the class file on first
+ * access, do not depend on whether the class file reader was dropped in the meantime.
+ */
+public class LazyFieldAttributesTest extends WalaTestCase {
+
+  private static Map<String, String> fieldAttributes(boolean clearFirst) throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Map<String, String> result = HashMapFactory.make();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          && klass instanceof ShrikeClass) {
+        if (clearFirst) {
+          ((ShrikeClass) klass).clearSoftCaches();
+        }
+        for (IField f : klass.getAllFields()) {
+          if (f.getDeclaringClass().equals(klass)) {
+            FieldImpl field = (FieldImpl) f;
+            result.put(
+                f.toString(),
+                sorted(field.getAnnotations())
+                    + " "
+                    + sorted(field.getTypeAnnotations())
+                    + " "
+                    + field.getGenericSignature());
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<String> sorted(Iterable<?> xs) {
+    List<String> result = new ArrayList<>();
+    if (xs != null) {
+      for (Object x : xs) {
+        result.add(String.valueOf(x));
+      }
+      Collections.sort(result);
+    }
+    return result;
+  }
+
+  @Test
+  public void testAttributesAfterClearingReader() throws Exception {
+    Map<String, String> direct = fieldAttributes(false);
+    Assert.assertFalse(direct.isEmpty());
+    // the test data has annotated and generic fields
+    Assert.assertTrue(direct.values().stream().anyMatch(s -> s.startsWith("[A")));
+    Assert.assertTrue(direct.values().stream().anyMatch(s -> !s.endsWith(" null")));
+    Assert.assertEquals(direct, fieldAttributes(true));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.SubtypeIndex;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.io.FileProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Test the subtype index of {@link ClassHierarchy} */
+public class SubtypeIndexTest extends WalaTestCase {
+
+  private static ClassHierarchy cha;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    AnalysisScope scope =
+        AnalysisScopeReader.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"),
+            SubtypeIndexTest.class.getClassLoader());
+    cha = ClassHierarchyFactory.make(scope);
+  }
+
+  @AfterClass
+  public static void afterClass() throws Exception {
+    cha = null;
+  }
+
+  /** @return sub and all its supertypes, computed from superclass chains and interfaces */
+  private static Set<IClass> slowSupertypes(IClass sub) {
+    Set<IClass> result = HashSetFactory.make(sub.getAllImplementedInterfaces());
+    for (IClass c = sub; c != null; c = c.getSuperclass()) {
+      result.add(c);
+    }
+    return result;
+  }
+
+  @Test
+  public void testAgainstSuperclassChains() {
+    SubtypeIndex index = cha.getSubtypeIndex();
+    Assert.assertEquals(cha.getNumberOfClasses(), index.getNumberOfTypes());
+
+    List<IClass> application = new ArrayList<>();
+    List<IClass> all = new ArrayList<>();
+    for (IClass c : cha) {
+      all.add(c);
+      if (c.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        application.add(c);
+      }
+    }
+    Assert.assertFalse(application.isEmpty());
+
+    for (IClass sub : application) {
+      Set<IClass> supertypes = slowSupertypes(sub);
+      for (IClass sup : all) {
+        boolean expected = supertypes.contains(sup);
+        int ns = index.getNumber(sub);
+        int nt = index.getNumber(sup);
+        boolean ok =
+            expected == cha.isAssignableFrom(sup, sub)
+                && expected == index.getSubtypes(nt).contains(ns)
+                && (sup.isInterface()
+                    ? expected == cha.implementsInterface(sub, sup)
+                    : sub.isInterface() || expected == cha.isSubclassOf(sub, sup));
+        if (!ok) {
+          Assert.fail(sup + " :> " + sub + " should be " + expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCones() {
+    SubtypeIndex index = cha.getSubtypeIndex();
+    IClass object = cha.getRootClass();
+    IntSet all = index.getSubtypes(index.getNumber(object));
+    Assert.assertEquals(index.getNumberOfTypes(), all.size());
+
+    IClass throwable = cha.lookupClass(TypeReference.JavaLangThrowable);
+    for (IClass c : index.getSubtypes(throwable)) {
+      Assert.assertTrue(c.toString(), cha.isSubclassOf(c, throwable));
+    }
+    Assert.assertEquals(
+        cha.computeSubClasses(TypeReference.JavaLangThrowable).size(),
+        index.getSubtypes(throwable).size());
+
+    IClass serializable = cha.lookupClass(TypeReference.JavaIoSerializable);
+    for (IClass c : index.getSubtypes(serializable)) {
+      Assert.assertTrue(c.toString(), cha.implementsInterface(c, serializable));
+    }
+  }
+
+  @Test
+  public void testArrays() {
+    IClass objArrayClass =
+        cha.lookupClass(TypeReference.JavaLangObject.getArrayTypeForElementType());
+    IClass stringArrayClass =
+        cha.lookupClass(TypeReference.JavaLangString.getArrayTypeForElementType());
+    IClass cloneable = cha.lookupClass(TypeReference.JavaLangCloneable);
+    Assert.assertEquals(-1, cha.getSubtypeIndex().getNumber(stringArrayClass));
+    Assert.assertTrue(cha.isAssignableFrom(objArrayClass, stringArrayClass));
+    Assert.assertFalse(cha.isAssignableFrom(stringArrayClass, objArrayClass));
+    Assert.assertTrue(cha.isAssignableFrom(cloneable, stringArrayClass));
+    Assert.assertTrue(cha.isAssignableFrom(cha.getRootClass(), stringArrayClass));
+  }
+}
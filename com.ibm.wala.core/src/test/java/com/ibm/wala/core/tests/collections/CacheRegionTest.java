@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.util.ref.CacheManager;
+import com.ibm.wala.util.ref.CacheRegion;
+import com.ibm.wala.util.ref.CacheRegion.Handle;
+import com.ibm.wala.util.ref.CacheRegion.Policy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for the regions of a {@link CacheManager} */
+public class CacheRegionTest {
+
+  @Test
+  public void testLRU() {
+    CacheRegion<String> region = new CacheManager().getRegion("lru", Policy.LRU, 2);
+    Handle<String> a = region.make("a");
+    Handle<String> b = region.make("b");
+    Assert.assertEquals("a", region.get(a));
+    // b is the least recently used
+    Handle<String> c = region.make("c");
+    Assert.assertFalse(region.isStrong(b));
+    Assert.assertTrue(region.isStrong(a));
+    Assert.assertTrue(region.isStrong(c));
+    Assert.assertEquals(2, region.size());
+    Assert.assertEquals(1, region.getEvictions());
+
+    // an evicted value is held softly until it is collected or removed
+    region.remove(b);
+    Assert.assertNull(region.get(b));
+    Assert.assertEquals("c", region.get(c));
+    Assert.assertNull(region.get(null));
+
+    Assert.assertEquals(2, region.getHits());
+    Assert.assertEquals(1, region.getMisses());
+    Assert.assertEquals(1, region.getRecomputes());
+    Assert.assertEquals(2, region.size());
+  }
+
+  @Test
+  public void testSoftTier() {
+    CacheRegion<String> region = new CacheManager().getRegion("soft tier", Policy.LRU, 1);
+    Handle<String> a = region.make(new String("a"));
+    region.make("b");
+    Assert.assertFalse(region.isStrong(a));
+    // using a soft value again holds it strongly again, and evicts another
+    String value = region.get(a);
+    if (value != null) {
+      Assert.assertEquals("a", value);
+      Assert.assertTrue(region.isStrong(a));
+      Assert.assertEquals(1, region.size());
+      Assert.assertEquals(2, region.getEvictions());
+    }
+  }
+
+  @Test
+  public void testOwners() {
+    CacheRegion<byte[]> region = new CacheManager().getRegion("owners", Policy.LRU, 10);
+    Handle<byte[]> kept = region.make(new byte[1]);
+    // the handle of this value is dropped at once, like a hierarchy that is no longer used
+    region.make(new byte[1]);
+    for (int i = 0; i < 100 && region.size() > 1; i++) {
+      System.gc();
+    }
+    Assert.assertEquals(1, region.size());
+    Assert.assertEquals(1, region.getWeight());
+    Assert.assertTrue(region.isStrong(kept));
+  }
+
+  @Test
+  public void testConcurrent() throws InterruptedException, ExecutionException {
+    final CacheRegion<Integer> region = new CacheManager().getRegion("concurrent", Policy.LRU, 100);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  List<Handle<Integer>> handles = new ArrayList<>();
+                  for (int i = 0; i < 1000; i++) {
+                    handles.add(region.make(i));
+                  }
+                  for (int round = 0; round < 10; round++) {
+                    for (int i = 0; i < handles.size(); i++) {
+                      Integer v = region.get(handles.get(i));
+                      Assert.assertTrue(v == null || v == i);
+                    }
+                  }
+                }));
+      }
+      for (Future<?> f : results) {
+        f.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertTrue(region.size() <= 100);
+    Assert.assertEquals(region.size(), region.getWeight());
+    Assert.assertEquals(40000, region.getHits() + region.getRecomputes());
+  }
+
+  @Test
+  public void testFIFO() {
+    CacheRegion<String> region = new CacheManager().getRegion("fifo", Policy.FIFO, 2);
+    Handle<String> a = region.make("a");
+    Handle<String> b = region.make("b");
+    Assert.assertEquals("a", region.get(a));
+    // a is the oldest, however recently it was used
+    region.make("c");
+    Assert.assertFalse(region.isStrong(a));
+    Assert.assertTrue(region.isStrong(b));
+  }
+
+  @Test
+  public void testWeights() {
+    CacheRegion<byte[]> region =
+        new CacheManager().getRegion("bytes", Policy.LRU, 100, (byte[] x) -> x.length);
+    Handle<byte[]> a = region.make(new byte[60]);
+    Handle<byte[]> b = region.make(new byte[30]);
+    Assert.assertEquals(90, region.getWeight());
+    region.make(new byte[20]);
+    Assert.assertFalse(region.isStrong(a));
+    Assert.assertTrue(region.isStrong(b));
+    Assert.assertEquals(50, region.getWeight());
+    region.remove(b);
+    Assert.assertEquals(20, region.getWeight());
+    region.clear();
+    Assert.assertEquals(0, region.getWeight());
+    Assert.assertEquals(0, region.size());
+    // peeking does not count
+    Assert.assertEquals(0, region.getHits() + region.getRecomputes());
+  }
+
+  @Test
+  public void testConfigure() {
+    CacheManager manager = new CacheManager();
+    manager.configure("configured", Policy.FIFO, 1);
+    CacheRegion<String> region = manager.getRegion("configured", Policy.LRU, 10);
+    Assert.assertSame(region, manager.getRegion("configured", Policy.LRU, 10));
+    Assert.assertEquals(Policy.FIFO, region.getPolicy());
+    Assert.assertEquals(1, region.getBudget());
+
+    Handle<String> a = region.make("a");
+    manager.configure("configured", Policy.SOFT, 0);
+    // the value is now held softly, not dropped
+    Assert.assertEquals(0, region.size());
+    Assert.assertEquals("a", region.get(a));
+    Assert.assertEquals("b", region.get(region.make("b")));
+    Assert.assertEquals(0, region.getEvictions());
+  }
+
+  @Test
+  public void testProperty() {
+    String property = CacheManager.PROPERTY_PREFIX + "CacheRegionTest.property";
+    System.setProperty(property, "FIFO:7");
+    try {
+      CacheRegion<String> region =
+          new CacheManager().getRegion("CacheRegionTest.property", Policy.LRU, 10);
+      Assert.assertEquals(Policy.FIFO, region.getPolicy());
+      Assert.assertEquals(7, region.getBudget());
+    } finally {
+      System.clearProperty(property);
+    }
+  }
+}
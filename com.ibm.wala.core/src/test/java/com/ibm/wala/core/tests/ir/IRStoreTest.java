@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRStore;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests that IRs read from an {@link IRStore} are the same as those built from the bytecode. */
+public class IRStoreTest extends WalaTestCase {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static List<IMethod> methods(IClassHierarchy cha) {
+    List<IMethod> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          || klass.getReference().equals(TypeReference.JavaLangString)
+          || klass.getName().toString().equals("Ljava/util/HashMap")) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            result.add(m);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameIR(IR expected, IR actual) {
+    String method = expected.getMethod().toString();
+    Assert.assertEquals(expected.toString(), actual.toString());
+    SymbolTable symbols = expected.getSymbolTable();
+    Assert.assertEquals(
+        method, symbols.getMaxValueNumber(), actual.getSymbolTable().getMaxValueNumber());
+    for (int vn = 1; vn <= symbols.getMaxValueNumber(); vn++) {
+      Assert.assertEquals(
+          method,
+          String.valueOf(symbols.getValue(vn)),
+          String.valueOf(actual.getSymbolTable().getValue(vn)));
+    }
+    SSAInstruction[] instructions = expected.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      SSAInstruction s = instructions[i];
+      if (s != null) {
+        SSAInstruction t = actual.getInstructions()[i];
+        Assert.assertEquals(method, s.getClass(), t.getClass());
+        Assert.assertEquals(method, s.getExceptionTypes(), t.getExceptionTypes());
+        for (int d = 0; d < s.getNumberOfDefs(); d++) {
+          Assert.assertArrayEquals(
+              method, expected.getLocalNames(i, s.getDef(d)), actual.getLocalNames(i, s.getDef(d)));
+        }
+      }
+    }
+  }
+
+  private static void checkRoundTrip(IClassHierarchy cha, File directory, SSAOptions options) {
+    IRStore writer = new IRStore(directory);
+    DefaultIRFactory built = new DefaultIRFactory(writer);
+    List<IMethod> methods = new ArrayList<>();
+    List<IR> expected = new ArrayList<>();
+    for (IMethod m : methods(cha)) {
+      try {
+        expected.add(built.makeIR(m, Everywhere.EVERYWHERE, options));
+        methods.add(m);
+      } catch (WalaRuntimeException e) {
+        // the test data has some methods with broken bytecode on purpose
+      }
+    }
+    Assert.assertEquals(methods.size(), writer.getMisses());
+    Assert.assertEquals(0, writer.getHits());
+    // only IRs with method handle constants cannot be stored
+    Assert.assertTrue(writer.getWrites() > methods.size() * 9 / 10);
+
+    IRStore reader = new IRStore(directory);
+    DefaultIRFactory read = new DefaultIRFactory(reader);
+    for (int i = 0; i < methods.size(); i++) {
+      assertSameIR(expected.get(i), read.makeIR(methods.get(i), Everywhere.EVERYWHERE, options));
+    }
+    Assert.assertEquals(writer.getWrites(), reader.getHits());
+    Assert.assertEquals(0, reader.getWrites());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    checkRoundTrip(cha, tmp.newFolder("none"), new SSAOptions());
+    SSAOptions pis = new SSAOptions();
+    pis.setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+    checkRoundTrip(cha, tmp.newFolder("pis"), pis);
+  }
+
+  @Test
+  public void testCorruptFilesAreIgnored() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    IMethod m =
+        cha.resolveMethod(
+            cha.lookupClass(TypeReference.JavaLangString),
+            Selector.make("indexOf(Ljava/lang/String;I)I"));
+    File directory = tmp.newFolder("store");
+    IRStore store = new IRStore(directory);
+    SSAOptions options = new SSAOptions();
+    IR expected = new DefaultIRFactory(store).makeIR(m, Everywhere.EVERYWHERE, options);
+    Assert.assertEquals(1, store.getWrites());
+
+    File[] files = directory.listFiles();
+    Assert.assertEquals(1, files.length);
+    byte[] bytes = Files.readAllBytes(files[0].toPath());
+    Files.write(files[0].toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+    store = new IRStore(directory);
+    assertSameIR(expected, new DefaultIRFactory(store).makeIR(m, Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(0, store.getHits());
+    Assert.assertEquals(1, store.getMisses());
+    // and the IR built again replaces the corrupt file
+    Assert.assertEquals(1, store.getWrites());
+    Assert.assertEquals(bytes.length, files[0].length());
+  }
+
+  @Test
+  public void testSameClassInAnotherLoader() throws Exception {
+    File directory = tmp.newFolder("store");
+    SSAOptions options = new SSAOptions();
+    for (ClassLoaderReference loader :
+        new ClassLoaderReference[] {
+          ClassLoaderReference.Application, ClassLoaderReference.Extension
+        }) {
+      AnalysisScope scope =
+          AnalysisScopeReader.makePrimordialScope(
+              new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+      scope.addToScope(
+          loader, new JarFile(new FileProvider().getFile("com.ibm.wala.core.testdata_1.0.0.jar")));
+      IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+      IMethod m =
+          cha.resolveMethod(
+              cha.lookupClass(TypeReference.findOrCreate(loader, "LdynamicCG/MainClass")),
+              Selector.make("main([Ljava/lang/String;)V"));
+
+      // the IR stored for the class in the other loader is not used
+      IRStore store = new IRStore(directory);
+      IR expected = new DefaultIRFactory(store).makeIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertEquals(0, store.getHits());
+      Assert.assertEquals(1, store.getWrites());
+      assertSameIR(new DefaultIRFactory().makeIR(m, Everywhere.EVERYWHERE, options), expected);
+      Assert.assertTrue(
+          expected
+              .toString()
+              .contains(TypeReference.findOrCreate(loader, "LdynamicCG/ExtraClass").toString()));
+
+      store = new IRStore(directory);
+      assertSameIR(expected, new DefaultIRFactory(store).makeIR(m, Everywhere.EVERYWHERE, options));
+      Assert.assertEquals(1, store.getHits());
+    }
+    Assert.assertEquals(2, directory.listFiles().length);
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.PackedDefUse;
+import com.ibm.wala.ssa.PackedIR;
+import com.ibm.wala.ssa.PackedIRCache;
+import com.ibm.wala.ssa.PhiValue;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests that a {@link PackedIR} has the same instructions and def-use information as its IR. */
+public class PackedIRTest extends WalaTestCase {
+
+  private static List<IR> irs(IClassHierarchy cha, SSAOptions options) {
+    DefaultIRFactory factory = new DefaultIRFactory();
+    List<IR> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          || klass.getReference().equals(TypeReference.JavaLangString)
+          || klass.getName().toString().equals("Ljava/util/HashMap")) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            try {
+              result.add(factory.makeIR(m, Everywhere.EVERYWHERE, options));
+            } catch (WalaRuntimeException e) {
+              // the test data has some methods with broken bytecode on purpose
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<String> strings(Iterator<? extends SSAInstruction> it, SymbolTable symbols) {
+    List<String> result = new ArrayList<>();
+    for (SSAInstruction s : Iterator2Iterable.make(it)) {
+      result.add(s.toString(symbols));
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static void checkPacked(IR ir) {
+    String method = ir.getMethod().toString();
+    SymbolTable symbols = ir.getSymbolTable();
+    PackedIR packed = new PackedIR(ir);
+
+    SSAInstruction[] instructions = ir.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      SSAInstruction s = instructions[i];
+      int r = packed.getRecord(i);
+      if (s == null) {
+        Assert.assertEquals(method, -1, r);
+        continue;
+      }
+      Assert.assertEquals(method, i, packed.getIndex(r));
+      SSAInstruction t = packed.getInstruction(r);
+      Assert.assertEquals(method, s.toString(symbols), t.toString(symbols));
+      Assert.assertEquals(method, s.getClass(), t.getClass());
+      Assert.assertEquals(method, s.getExceptionTypes(), t.getExceptionTypes());
+      Assert.assertEquals(
+          method,
+          ir.getControlFlowGraph().getBlockForInstruction(i).getNumber(),
+          packed.getBasicBlockNumber(r));
+    }
+
+    List<String> all = new ArrayList<>();
+    int phis = 0;
+    for (int r = 0; r < packed.getNumberOfRecords(); r++) {
+      SSAInstruction s = packed.getInstruction(r);
+      all.add(s.toString(symbols));
+      Assert.assertEquals(method, s.getNumberOfDefs(), packed.getNumberOfDefs(r));
+      Assert.assertEquals(method, s.getNumberOfUses(), packed.getNumberOfUses(r));
+      Assert.assertEquals(method, s instanceof SSAPhiInstruction, packed.isPhi(r));
+      if (s instanceof SSAPhiInstruction) {
+        phis++;
+      }
+    }
+    Collections.sort(all);
+    Assert.assertEquals(method, strings(ir.iterateAllInstructions(), symbols), all);
+    Assert.assertEquals(method, strings(ir.iteratePhis(), symbols).size(), phis);
+    for (int vn = 1; vn <= symbols.getMaxValueNumber(); vn++) {
+      if (symbols.isConstant(vn)) {
+        Assert.assertEquals(
+            method, symbols.getConstantValue(vn), packed.getSymbolTable().getConstantValue(vn));
+      }
+      // the phi values would keep the phi instructions alive
+      Assert.assertFalse(method, packed.getSymbolTable().getValue(vn) instanceof PhiValue);
+    }
+
+    DefUse du = new DefUse(ir);
+    PackedDefUse pdu = new PackedDefUse(packed);
+    for (int vn = 1; vn <= symbols.getMaxValueNumber(); vn++) {
+      SSAInstruction def = du.getDef(vn);
+      SSAInstruction packedDef = pdu.getDef(vn);
+      Assert.assertEquals(
+          method,
+          def == null ? null : def.toString(symbols),
+          packedDef == null ? null : packedDef.toString(symbols));
+      Assert.assertEquals(method, du.getNumberOfUses(vn), pdu.getNumberOfUses(vn));
+      Assert.assertEquals(method, du.isUnused(vn), pdu.isUnused(vn));
+      Assert.assertEquals(
+          method, strings(du.getUses(vn), symbols), strings(pdu.getUses(vn), symbols));
+    }
+  }
+
+  private static class InvokeCounter extends SSAInstruction.Visitor {
+    int count;
+
+    @Override
+    public void visitInvoke(SSAInvokeInstruction instruction) {
+      count++;
+    }
+  }
+
+  @Test
+  public void testPackedIRs() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    SSAOptions pis = new SSAOptions();
+    pis.setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+    for (SSAOptions options : new SSAOptions[] {new SSAOptions(), pis}) {
+      List<IR> irs = irs(cha, options);
+      Assert.assertFalse(irs.isEmpty());
+      for (IR ir : irs) {
+        checkPacked(ir);
+      }
+    }
+  }
+
+  @Test
+  public void testVisitor() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    for (IR ir : irs(cha, new SSAOptions())) {
+      InvokeCounter expected = new InvokeCounter();
+      ir.visitAllInstructions(expected);
+      InvokeCounter actual = new InvokeCounter();
+      new PackedIR(ir).visitAllInstructions(actual);
+      Assert.assertEquals(ir.getMethod().toString(), expected.count, actual.count);
+    }
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    SSAOptions options = new SSAOptions();
+    PackedIRCache cache = new PackedIRCache(new DefaultIRFactory());
+    for (IR ir : irs(cha, options)) {
+      IMethod m = ir.getMethod();
+      PackedIR packed = cache.findOrCreatePackedIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertSame(packed, cache.findOrCreatePackedIR(m, Everywhere.EVERYWHERE, options));
+      Assert.assertEquals(
+          m.toString(), new PackedIR(ir).getNumberOfRecords(), packed.getNumberOfRecords());
+      PackedDefUse du = cache.findOrCreatePackedDU(m, Everywhere.EVERYWHERE, options);
+      Assert.assertSame(packed, du.getIR());
+      Assert.assertSame(du, cache.findOrCreatePackedDU(m, Everywhere.EVERYWHERE, options));
+
+      cache.invalidate(m, Everywhere.EVERYWHERE);
+      Assert.assertNotSame(packed, cache.findOrCreatePackedIR(m, Everywhere.EVERYWHERE, options));
+    }
+  }
+}
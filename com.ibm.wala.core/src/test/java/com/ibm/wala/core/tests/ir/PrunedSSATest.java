@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that pruned SSA, see {@link SSAOptions#setPrunePhis(boolean)}, computes the same values as
+ * the default construction, with at most as many phis.
+ */
+public class PrunedSSATest extends WalaTestCase {
+
+  /** how deep to describe the operands of phis */
+  private static final int PHI_DEPTH = 2;
+
+  /** @return a description of value v that does not depend on how values are numbered */
+  private static String describe(IR ir, DefUse du, int v, int depth) {
+    SymbolTable symbols = ir.getSymbolTable();
+    if (v == -1) {
+      return "none";
+    } else if (v <= symbols.getNumberOfParameters()) {
+      return "p" + v;
+    } else if (symbols.isConstant(v)) {
+      return "c" + symbols.getConstantValue(v);
+    }
+    SSAInstruction def = du.getDef(v);
+    if (def == null) {
+      return "undefined";
+    } else if (def instanceof SSAPhiInstruction) {
+      if (depth == 0) {
+        return "phi";
+      }
+      List<String> operands = new ArrayList<>();
+      for (int i = 0; i < def.getNumberOfUses(); i++) {
+        operands.add(describe(ir, du, def.getUse(i), depth - 1));
+      }
+      Collections.sort(operands);
+      return "phi" + operands;
+    } else if (def.iIndex() >= 0) {
+      for (int i = 0; i < def.getNumberOfDefs(); i++) {
+        if (def.getDef(i) == v) {
+          return "i" + def.iIndex() + '.' + i;
+        }
+      }
+    }
+    return def.getClass().getSimpleName()
+        + '@'
+        + ir.getControlFlowGraph().getNumber(ir.getBasicBlockForInstruction(def));
+  }
+
+  private static void compare(IR ir, IR pruned) {
+    String method = ir.getMethod().toString();
+    DefUse du = new DefUse(ir);
+    DefUse prunedDu = new DefUse(pruned);
+    SSAInstruction[] instructions = ir.getInstructions();
+    SSAInstruction[] prunedInstructions = pruned.getInstructions();
+    Assert.assertEquals(method, instructions.length, prunedInstructions.length);
+    for (int i = 0; i < instructions.length; i++) {
+      SSAInstruction s = instructions[i];
+      SSAInstruction t = prunedInstructions[i];
+      if (s == null) {
+        Assert.assertNull(method, t);
+        continue;
+      }
+      Assert.assertEquals(method, s.getClass(), t.getClass());
+      Assert.assertEquals(method, s.getNumberOfUses(), t.getNumberOfUses());
+      for (int j = 0; j < s.getNumberOfUses(); j++) {
+        Assert.assertEquals(
+            method + " " + s,
+            describe(ir, du, s.getUse(j), PHI_DEPTH),
+            describe(pruned, prunedDu, t.getUse(j), PHI_DEPTH));
+      }
+    }
+    Assert.assertTrue(method, count(pruned.iteratePhis()) <= count(ir.iteratePhis()));
+  }
+
+  private static int count(Iterator<?> it) {
+    int result = 0;
+    for (Object x : Iterator2Iterable.make(it)) {
+      if (x != null) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testPrunedIRs() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    DefaultIRFactory factory = new DefaultIRFactory();
+    SSAOptions options = new SSAOptions();
+    SSAOptions prunedOptions = new SSAOptions();
+    prunedOptions.setPrunePhis(true);
+    Assert.assertNotEquals(options, prunedOptions);
+    int compared = 0;
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          || klass.getReference().equals(TypeReference.JavaLangString)
+          || klass.getName().toString().equals("Ljava/util/HashMap")) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            IR ir;
+            try {
+              ir = factory.makeIR(m, Everywhere.EVERYWHERE, options);
+            } catch (WalaRuntimeException e) {
+              // the test data has some methods with broken bytecode on purpose
+              continue;
+            }
+            compare(ir, factory.makeIR(m, Everywhere.EVERYWHERE, prunedOptions));
+            compared++;
+          }
+        }
+      }
+    }
+    Assert.assertTrue(compared > 0);
+  }
+}
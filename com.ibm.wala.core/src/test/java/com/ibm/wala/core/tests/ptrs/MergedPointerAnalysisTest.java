@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.MergedPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for merging equivalent instance keys of a solved pointer analysis */
+public class MergedPointerAnalysisTest {
+
+  private static Set<IClass> types(OrdinalSet<InstanceKey> s) {
+    Set<IClass> result = HashSetFactory.make();
+    for (InstanceKey ik : s) {
+      result.add(ik.getConcreteType());
+    }
+    return result;
+  }
+
+  @Test
+  public void testMergeKeepsTypes() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, "Llambda/SortingExample");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    MergedPointerAnalysis merged = MergedPointerAnalysis.make(cg, pa);
+    Assert.assertTrue(
+        merged.toString(), merged.getInstanceKeys().size() < pa.getInstanceKeys().size());
+
+    // every instance key is represented by one of the same type
+    for (InstanceKey ik : pa.getInstanceKeys()) {
+      InstanceKey rep = merged.getRepresentative(ik);
+      Assert.assertEquals(ik.getConcreteType(), rep.getConcreteType());
+      Assert.assertTrue(ik.toString(), merged.getMembers(rep).contains(ik));
+    }
+
+    // merged points-to sets are smaller, and expand to the original ones or more, with the same
+    // types
+    for (PointerKey k : pa.getPointerKeys()) {
+      OrdinalSet<InstanceKey> original = pa.getPointsToSet(k);
+      OrdinalSet<InstanceKey> expanded = merged.expand(merged.getPointsToSet(k));
+      Assert.assertTrue(merged.getPointsToSet(k).size() <= original.size());
+      for (InstanceKey ik : original) {
+        Assert.assertTrue(k + " " + ik, expanded.contains(ik));
+      }
+      Assert.assertEquals(k.toString(), types(original), types(expanded));
+    }
+  }
+}
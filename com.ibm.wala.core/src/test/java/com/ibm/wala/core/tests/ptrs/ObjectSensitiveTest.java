@@ -10,6 +10,8 @@
  */
 package com.ibm.wala.core.tests.ptrs;
 
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
@@ -20,10 +22,14 @@ import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.SelectiveObjBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.SelectiveObjContextSelector;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
@@ -59,9 +65,47 @@ public class ObjectSensitiveTest {
   public static void doPointsToSizeTest(int n, String mainClass, int expectedSize)
       throws IOException, ClassHierarchyException, CallGraphBuilderCancelException {
     Pair<CallGraph, PointerAnalysis<InstanceKey>> pair = initCallGraph(n, mainClass);
-    CallGraph cg = pair.fst;
-    PointerAnalysis<InstanceKey> pa = pair.snd;
+    checkPointsToSize(pair.fst, pair.snd, mainClass, expectedSize);
+  }
 
+  @Test
+  public void testSelectiveObjSensitive()
+      throws IOException, ClassHierarchyException, CallGraphBuilderCancelException {
+    String mainClass = TestConstants.OBJECT_SENSITIVE_TEST2;
+    Pair<CallGraph, PointerAnalysis<InstanceKey>> full = initCallGraph(3, mainClass);
+    SelectiveObjBuilder selective = initSelectiveBuilder(3, Long.MAX_VALUE, mainClass);
+    CallGraph cg = selective.getCallGraph();
+    // deep contexts where they pay off are as precise as 3-obj everywhere
+    checkPointsToSize(cg, selective.getPointerAnalysis(), mainClass, 1);
+    Assert.assertTrue(cg.getNumberOfNodes() <= full.fst.getNumberOfNodes());
+    SelectiveObjContextSelector selector =
+        (SelectiveObjContextSelector) selective.getContextSelector();
+    Assert.assertEquals(1, selector.getDepth(findMethod(cg, "LobjSensitive/A", "foo")));
+    Assert.assertEquals(2, selector.getDepth(findMethod(cg, "LobjSensitive/B", "bar")));
+    Assert.assertEquals(3, selector.getDepth(findMethod(cg, "LobjSensitive/C", "identity")));
+
+    // no contexts are affordable, so the result is context-insensitive
+    SelectiveObjBuilder insensitive = initSelectiveBuilder(3, 0, mainClass);
+    checkPointsToSize(insensitive.getCallGraph(), insensitive.getPointerAnalysis(), mainClass, 2);
+    for (CGNode n : insensitive.getCallGraph()) {
+      Assert.assertEquals(n.toString(), Everywhere.EVERYWHERE, n.getContext());
+    }
+  }
+
+  private static IMethod findMethod(CallGraph cg, String klass, String name) {
+    IClass c =
+        cg.getClassHierarchy()
+            .lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, klass));
+    for (IMethod m : c.getDeclaredMethods()) {
+      if (m.getName().toString().equals(name)) {
+        return m;
+      }
+    }
+    throw new AssertionError("no method " + name + " in " + klass);
+  }
+
+  private static void checkPointsToSize(
+      CallGraph cg, PointerAnalysis<InstanceKey> pa, String mainClass, int expectedSize) {
     // find the doNothing call, and check the parameter's points-to set
     CGNode doNothing = findDoNothingCall(cg, mainClass);
 
@@ -91,6 +135,32 @@ public class ObjectSensitiveTest {
     return Pair.make(cg, pa);
   }
 
+  private static SelectiveObjBuilder initSelectiveBuilder(int n, long maxCost, String mainClass)
+      throws IOException, ClassHierarchyException, CallGraphBuilderCancelException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    Util.addDefaultSelectors(options, cha);
+    Util.addDefaultBypassLogic(options, scope, Util.class.getClassLoader(), cha);
+
+    SelectiveObjBuilder builder =
+        new SelectiveObjBuilder(
+            n,
+            maxCost,
+            cha,
+            options,
+            new AnalysisCacheImpl(),
+            null,
+            null,
+            ZeroXInstanceKeys.ALLOCATIONS);
+
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
   private static CGNode findDoNothingCall(CallGraph cg, String mainClass) {
     TypeReference mainClassTr =
         TypeReference.findOrCreate(ClassLoaderReference.Application, mainClass);
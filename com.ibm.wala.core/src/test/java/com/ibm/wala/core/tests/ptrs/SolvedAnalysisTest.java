@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.SolvedAnalysisReader;
+import com.ibm.wala.ipa.callgraph.propagation.SolvedAnalysisWriter;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.GraphIntegrity;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for saving and reloading a solved call graph and pointer analysis */
+public class SolvedAnalysisTest {
+
+  private interface BuilderFactory {
+    SSAPropagationCallGraphBuilder make(AnalysisOptions options, ClassHierarchy cha);
+  }
+
+  private static void checkRoundTrip(String mainClass, BuilderFactory factory) throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = factory.make(options, cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    SolvedAnalysisWriter.write(cg, pa, bytes);
+    SolvedAnalysisReader reader =
+        SolvedAnalysisReader.read(
+            new ByteArrayInputStream(bytes.toByteArray()), cha, new AnalysisCacheImpl());
+    CallGraph cg2 = reader.getCallGraph();
+    PointerAnalysis<InstanceKey> pa2 = reader.getPointerAnalysis();
+
+    GraphIntegrity.check(cg2);
+    assertSameCallGraph(cg, cg2);
+    assertSamePointerAnalysis(pa, pa2);
+
+    // lookups through the heap model find the reloaded points-to sets
+    for (CGNode n : cg) {
+      CGNode n2 = cg2.getNode(cg.getNumber(n));
+      if (!n.getMethod().isWalaSynthetic()) {
+        Assert.assertSame(n2, cg2.getNode(n2.getMethod(), n2.getContext()));
+      }
+      if (n.getIR() != null) {
+        for (int vn = 1; vn <= n.getIR().getSymbolTable().getMaxValueNumber(); vn++) {
+          IntSet expected =
+              pa.getPointsToSet(pa.getHeapModel().getPointerKeyForLocal(n, vn)).getBackingSet();
+          IntSet actual =
+              pa2.getPointsToSet(pa2.getHeapModel().getPointerKeyForLocal(n2, vn)).getBackingSet();
+          Assert.assertTrue(n + " v" + vn, sameSet(expected, actual));
+        }
+      }
+    }
+  }
+
+  private static void assertSameCallGraph(CallGraph expected, CallGraph actual) {
+    Assert.assertEquals(expected.getNumberOfNodes(), actual.getNumberOfNodes());
+    Assert.assertEquals(
+        expected.getNumber(expected.getFakeRootNode()), actual.getNumber(actual.getFakeRootNode()));
+    Assert.assertEquals(expected.getEntrypointNodes().size(), actual.getEntrypointNodes().size());
+    for (CGNode e : expected) {
+      CGNode a = actual.getNode(expected.getNumber(e));
+      Assert.assertNotNull(e.toString(), a);
+      Assert.assertEquals(e.getMethod().getReference(), a.getMethod().getReference());
+      Assert.assertEquals(e.getContext().toString(), a.getContext().toString());
+      Assert.assertTrue(
+          e.toString(), sameSet(expected.getSuccNodeNumbers(e), actual.getSuccNodeNumbers(a)));
+      Assert.assertTrue(
+          e.toString(), sameSet(expected.getPredNodeNumbers(e), actual.getPredNodeNumbers(a)));
+      Assert.assertEquals(
+          Iterator2Collection.toList(e.iterateNewSites()),
+          Iterator2Collection.toList(a.iterateNewSites()));
+      for (CallSiteReference site : Iterator2Iterable.make(e.iterateCallSites())) {
+        Set<Integer> targets = HashSetFactory.make();
+        for (CGNode t : expected.getPossibleTargets(e, site)) {
+          targets.add(expected.getNumber(t));
+        }
+        for (CGNode t : actual.getPossibleTargets(a, site)) {
+          Assert.assertTrue(e + " " + site, targets.remove(actual.getNumber(t)));
+        }
+        Assert.assertTrue(e + " " + site, targets.isEmpty());
+      }
+    }
+  }
+
+  private static void assertSamePointerAnalysis(
+      PointerAnalysis<InstanceKey> expected, PointerAnalysis<InstanceKey> actual) {
+    List<PointerKey> keys = Iterator2Collection.toList(expected.getPointerKeys().iterator());
+    List<PointerKey> keys2 = Iterator2Collection.toList(actual.getPointerKeys().iterator());
+    Assert.assertEquals(keys.size(), keys2.size());
+    for (int i = 0; i < keys.size(); i++) {
+      Assert.assertEquals(keys.get(i).toString(), keys2.get(i).toString());
+      OrdinalSet<InstanceKey> s = expected.getPointsToSet(keys.get(i));
+      OrdinalSet<InstanceKey> s2 = actual.getPointsToSet(keys2.get(i));
+      Assert.assertTrue(keys.get(i).toString(), sameSet(s.getBackingSet(), s2.getBackingSet()));
+      Assert.assertEquals(expected.isFiltered(keys.get(i)), actual.isFiltered(keys2.get(i)));
+    }
+    for (InstanceKey ik : expected.getInstanceKeys()) {
+      int index = expected.getInstanceKeyMapping().getMappedIndex(ik);
+      Assert.assertEquals(
+          ik.toString(), actual.getInstanceKeyMapping().getMappedObject(index).toString());
+    }
+  }
+
+  private static boolean sameSet(IntSet a, IntSet b) {
+    if (a == null || a.isEmpty()) {
+      return b == null || b.isEmpty();
+    }
+    return b != null && a.sameValue(b);
+  }
+
+  @Test
+  public void testZeroOneCFA() throws Exception {
+    checkRoundTrip(
+        TestConstants.MULTI_DIM_MAIN,
+        (options, cha) ->
+            Util.makeZeroOneCFABuilder(
+                Language.JAVA, options, new AnalysisCacheImpl(), cha, cha.getScope()));
+  }
+
+  @Test
+  public void testReflection() throws Exception {
+    checkRoundTrip(
+        TestConstants.REFLECT1_MAIN,
+        (options, cha) ->
+            Util.makeZeroOneContainerCFABuilder(
+                options, new AnalysisCacheImpl(), cha, cha.getScope()));
+  }
+
+  @Test
+  public void testCallStrings() throws Exception {
+    checkRoundTrip(
+        "Llambda/SortingExample",
+        (options, cha) ->
+            Util.makeNCFABuilder(2, options, new AnalysisCacheImpl(), cha, cha.getScope()));
+  }
+}
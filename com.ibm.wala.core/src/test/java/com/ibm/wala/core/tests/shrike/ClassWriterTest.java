@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.PopInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests that the ways of getting the data of a {@link ClassWriter} agree */
+public class ClassWriterTest extends WalaTestCase {
+
+  /** @return the class file of this test, with code added to every method */
+  private static ClassWriter emit() throws IOException, InvalidClassFileException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (InputStream s = ClassWriterTest.class.getResourceAsStream("ClassWriterTest.class")) {
+      byte[] buf = new byte[4096];
+      for (int n = s.read(buf); n >= 0; n = s.read(buf)) {
+        bytes.write(buf, 0, n);
+      }
+    }
+    ClassInstrumenter ci = new ClassInstrumenter("ClassWriterTest", bytes.toByteArray(), null);
+    for (int i = 0; i < ci.getReader().getMethodCount(); i++) {
+      MethodData d = ci.visitMethod(i);
+      if (d != null) {
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(ConstantInstruction.make(0));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass();
+  }
+
+  @Test
+  public void testWriteTo() throws IOException, InvalidClassFileException {
+    byte[] expected = emit().makeBytes();
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    emit().writeTo(stream);
+    Assert.assertArrayEquals(expected, stream.toByteArray());
+
+    ByteArrayOutputStream channel = new ByteArrayOutputStream();
+    emit().writeTo(Channels.newChannel(channel));
+    Assert.assertArrayEquals(expected, channel.toByteArray());
+
+    // the reused buffer must not leak into the bytes of the next class
+    Assert.assertArrayEquals(expected, emit().makeBytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmitTwice() throws IOException, InvalidClassFileException {
+    ClassWriter w = emit();
+    w.writeTo(new ByteArrayOutputStream());
+    w.makeBytes();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.ConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.LoadInstruction;
+import com.ibm.wala.shrikeBT.PopInstruction;
+import com.ibm.wala.shrikeBT.StoreInstruction;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests that instructions with small operands are shared, and still behave like fresh ones */
+public class InstructionInterningTest extends WalaTestCase {
+
+  @Test
+  public void testLocals() {
+    for (int i : new int[] {0, 3, 15, 16, 200, 255}) {
+      LoadInstruction l = LoadInstruction.make(Constants.TYPE_long, i);
+      Assert.assertSame(l, LoadInstruction.make(Constants.TYPE_long, i));
+      Assert.assertEquals(i, l.getVarIndex());
+      Assert.assertEquals(Constants.TYPE_long, l.getType());
+
+      StoreInstruction s = StoreInstruction.make(Constants.TYPE_Object, i);
+      Assert.assertSame(s, StoreInstruction.make(Constants.TYPE_Object, i));
+      Assert.assertEquals(i, s.getVarIndex());
+      Assert.assertEquals(Constants.TYPE_Object, s.getType());
+    }
+
+    // wide locals are not interned, but are equal
+    LoadInstruction wide = LoadInstruction.make(Constants.TYPE_int, 300);
+    Assert.assertEquals(wide, LoadInstruction.make(Constants.TYPE_int, 300));
+    Assert.assertEquals(300, wide.getVarIndex());
+  }
+
+  @Test
+  public void testBranches() {
+    ConditionalBranchInstruction b =
+        ConditionalBranchInstruction.make(
+            Constants.TYPE_int, IConditionalBranchInstruction.Operator.LT, 7);
+    Assert.assertSame(
+        b,
+        ConditionalBranchInstruction.make(
+            Constants.TYPE_int, IConditionalBranchInstruction.Operator.LT, 7));
+    Assert.assertEquals(IConditionalBranchInstruction.Operator.LT, b.getOperator());
+    Assert.assertArrayEquals(new int[] {7}, b.getBranchTargets());
+
+    int[] map = new int[8];
+    map[7] = 1000;
+    IInstruction far = b.redirectTargets(map);
+    Assert.assertEquals(1000, ((ConditionalBranchInstruction) far).getTarget());
+    Assert.assertEquals(far, b.redirectTargets(map));
+    Assert.assertNotEquals(b, far);
+    // the target of the shared instruction is unchanged
+    Assert.assertEquals(7, b.getTarget());
+  }
+
+  @Test
+  public void testPops() {
+    Assert.assertSame(PopInstruction.make(2), PopInstruction.make(2));
+    Assert.assertEquals(1, PopInstruction.make(1).getPoppedCount());
+  }
+}
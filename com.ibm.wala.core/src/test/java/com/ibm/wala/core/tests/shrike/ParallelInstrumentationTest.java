@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.PopInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests that parallel offline instrumentation writes the same JAR as sequential instrumentation */
+public class ParallelInstrumentationTest extends WalaTestCase {
+
+  private final String testSubjects = getClasspathEntry("testSubjects");
+
+  /** Push and pop the name of each method at its entry. */
+  private static ClassWriter instrument(ClassInstrumenter ci) throws InvalidClassFileException {
+    for (int i = 0; i < ci.getReader().getMethodCount(); i++) {
+      MethodData d = ci.visitMethod(i);
+      if (d != null) {
+        final String name = ci.getReader().getName() + '.' + ci.getReader().getMethodName(i);
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(ConstantInstruction.makeString(name));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.isChanged() ? ci.emitClass() : null;
+  }
+
+  private OfflineInstrumenter makeInstrumenter(File output) throws IOException {
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter();
+    instrumenter.addInputDirectory(new File(testSubjects), new File(testSubjects));
+    instrumenter.setPassUnmodifiedClasses(true);
+    instrumenter.setOutputJar(output);
+    return instrumenter;
+  }
+
+  /** @return the names and contents of the entries of a JAR, in order */
+  private static List<String> entries(File jar) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (JarFile jf = new JarFile(jar, false)) {
+      for (Enumeration<JarEntry> e = jf.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream s = jf.getInputStream(entry)) {
+          OfflineInstrumenter.copyStream(s, bytes);
+        }
+        result.add(entry.getName() + ' ' + bytes.toString("ISO-8859-1"));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameOutput() throws IOException, InvalidClassFileException {
+    File sequential = Files.createTempFile("wala-sequential", ".jar").toFile();
+    sequential.deleteOnExit();
+    OfflineInstrumenter instrumenter = makeInstrumenter(sequential);
+    instrumenter.beginTraversal();
+    ClassInstrumenter ci;
+    while ((ci = instrumenter.nextClass()) != null) {
+      ClassWriter cw = instrument(ci);
+      if (cw != null) {
+        instrumenter.outputModifiedClass(ci, cw);
+      }
+    }
+    instrumenter.close();
+
+    File parallel = Files.createTempFile("wala-parallel", ".jar").toFile();
+    parallel.deleteOnExit();
+    instrumenter = makeInstrumenter(parallel);
+    // a small window, so that the reader has to wait for the writer
+    instrumenter.instrumentInParallel(ParallelInstrumentationTest::instrument, 4, 3);
+    instrumenter.close();
+
+    List<String> expected = entries(sequential);
+    Assert.assertTrue(expected.size() > 1);
+    Assert.assertEquals(expected, entries(parallel));
+  }
+
+  @Test
+  public void testFailure() throws IOException {
+    File output = Files.createTempFile("wala-failure", ".jar").toFile();
+    output.deleteOnExit();
+    OfflineInstrumenter instrumenter = makeInstrumenter(output);
+    try {
+      instrumenter.instrumentInParallel(
+          ci -> {
+            throw new InvalidClassFileException(0, "failure");
+          },
+          2);
+      Assert.fail("the failure of the transformer should be reported");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof InvalidClassFileException);
+    } finally {
+      instrumenter.close();
+    }
+  }
+
+  @Test
+  public void testRuntimeFailure() throws IOException {
+    File output = Files.createTempFile("wala-failure", ".jar").toFile();
+    output.deleteOnExit();
+    OfflineInstrumenter instrumenter = makeInstrumenter(output);
+    try {
+      instrumenter.instrumentInParallel(
+          ci -> {
+            throw new IllegalStateException("failure");
+          },
+          2);
+      Assert.fail("the failure of the transformer should be reported");
+    } catch (IOException e) {
+      // the report names the class that failed
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains(".class"));
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    } finally {
+      instrumenter.close();
+    }
+  }
+}
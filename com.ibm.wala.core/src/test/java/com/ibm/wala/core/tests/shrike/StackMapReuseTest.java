@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.BinaryOpInstruction;
+import com.ibm.wala.shrikeBT.ConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.GotoInstruction;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.InvokeInstruction;
+import com.ibm.wala.shrikeBT.LoadInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.ReturnInstruction;
+import com.ibm.wala.shrikeBT.StoreInstruction;
+import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.analysis.CachingClassHierarchyProvider;
+import com.ibm.wala.shrikeBT.analysis.ClassHierarchy;
+import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrikeBT.analysis.Verifier;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that classes whose stack map frames are computed from the frames of their original code
+ * still pass the verifier of the JVM
+ */
+public class StackMapReuseTest extends WalaTestCase {
+
+  /** Code with the kinds of frames javac writes; the branch targets get instrumented. */
+  public static class Subject {
+    public static int ticks;
+
+    public static void tick() {
+      ticks++;
+    }
+
+    private final String name;
+
+    public Subject(int x) {
+      this(x > 0 ? new StringBuilder(x > 1 ? "many" : "one").toString() : "none");
+    }
+
+    public Subject(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int loops(int n) {
+      int sum = 0;
+      for (int i = 0; i < n; i++) {
+        for (int j = i; j < n; j++) {
+          sum += j % 3 == 0 ? j : -i;
+        }
+      }
+      return sum;
+    }
+
+    public double longs(long a, double d) {
+      long l = a;
+      double r = d;
+      while (l > 0) {
+        r += l-- * d;
+      }
+      return r;
+    }
+
+    public String tryCatch(String s) {
+      Object o = s;
+      try {
+        o = s.substring(1);
+      } catch (RuntimeException e) {
+        o = e.getClass().getName();
+      } finally {
+        if (o == null) {
+          o = "";
+        }
+      }
+      return String.valueOf(o);
+    }
+  }
+
+  private static byte[] readClass(String name) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (InputStream s = StackMapReuseTest.class.getResourceAsStream(name + ".class")) {
+      byte[] buf = new byte[4096];
+      for (int n = s.read(buf); n >= 0; n = s.read(buf)) {
+        bytes.write(buf, 0, n);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /** @return Subject, with a call to tick() at every branch target */
+  private static byte[] instrumentSubject() throws IOException, InvalidClassFileException {
+    String className = 'L' + Subject.class.getName().replace('.', '/') + ';';
+    ClassInstrumenter ci =
+        new ClassInstrumenter("Subject", readClass("StackMapReuseTest$Subject"), null);
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        BitSet targets = new BitSet();
+        for (IInstruction instr : d.getInstructions()) {
+          for (int t : instr.getBranchTargets()) {
+            targets.set(t);
+          }
+        }
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        for (int t = targets.nextSetBit(0); t >= 0; t = targets.nextSetBit(t + 1)) {
+          me.insertBefore(
+              t,
+              new MethodEditor.Patch() {
+                @Override
+                public void emitTo(MethodEditor.Output w) {
+                  w.emit(
+                      InvokeInstruction.make(
+                          "()V", className, "tick", IInvokeInstruction.Dispatch.STATIC));
+                }
+              });
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+
+  private static final class SubjectLoader extends ClassLoader {
+    private final byte[] subject;
+
+    SubjectLoader(byte[] subject) {
+      super(StackMapReuseTest.class.getClassLoader());
+      this.subject = subject;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (name.equals(Subject.class.getName())) {
+        synchronized (getClassLoadingLock(name)) {
+          Class<?> c = findLoadedClass(name);
+          return c != null ? c : defineClass(name, subject, 0, subject.length);
+        }
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
+
+  @Test
+  public void testInstrumentedCodeRuns() throws Exception {
+    Class<?> c = new SubjectLoader(instrumentSubject()).loadClass(Subject.class.getName());
+    Assert.assertNotSame(Subject.class, c);
+
+    Constructor<?> make = c.getConstructor(int.class);
+    Method getName = c.getMethod("getName");
+    for (int x = 0; x < 3; x++) {
+      Assert.assertEquals(new Subject(x).getName(), getName.invoke(make.newInstance(x)));
+    }
+
+    Object instrumented = make.newInstance(1);
+    Subject original = new Subject(1);
+    Assert.assertEquals(original.loops(7), c.getMethod("loops", int.class).invoke(instrumented, 7));
+    Assert.assertEquals(
+        original.longs(5, 0.5),
+        c.getMethod("longs", long.class, double.class).invoke(instrumented, 5L, 0.5));
+    Method tryCatch = c.getMethod("tryCatch", String.class);
+    Assert.assertEquals(original.tryCatch("abc"), tryCatch.invoke(instrumented, "abc"));
+    Assert.assertEquals(original.tryCatch(""), tryCatch.invoke(instrumented, ""));
+
+    Assert.assertTrue((Integer) c.getField("ticks").get(null) > 0);
+  }
+
+  /** @return the types computed for static int f(int x) { while (x > 0) x--; return x; } */
+  private static String[][] computeLoopTypes(String givenLoopType) throws FailureException {
+    MethodData d =
+        MethodData.makeWithDefaultHandlersAndInstToBytecodes(
+            Constants.ACC_STATIC,
+            "LC;",
+            "f",
+            "(I)I",
+            new IInstruction[] {
+              LoadInstruction.make(Constants.TYPE_int, 0),
+              ConstantInstruction.make(0),
+              ConditionalBranchInstruction.make(
+                  Constants.TYPE_int, IConditionalBranchInstruction.Operator.LE, 8),
+              LoadInstruction.make(Constants.TYPE_int, 0),
+              ConstantInstruction.make(1),
+              BinaryOpInstruction.make(Constants.TYPE_int, IBinaryOpInstruction.Operator.SUB),
+              StoreInstruction.make(Constants.TYPE_int, 0),
+              GotoInstruction.make(0),
+              LoadInstruction.make(Constants.TYPE_int, 0),
+              ReturnInstruction.make(Constants.TYPE_int)
+            });
+    String[][] knownStacks = new String[10][];
+    String[][] knownLocals = new String[10][];
+    knownStacks[0] = new String[0];
+    knownLocals[0] = new String[] {givenLoopType};
+    BitSet changed = new BitSet();
+    changed.set(5);
+    Verifier v = new Verifier(d);
+    return v.computeTypesIncrementally(2, 1, knownStacks, knownLocals, changed)
+        ? v.getLocalTypes()
+        : null;
+  }
+
+  @Test
+  public void testGivenTypesMustHold() throws FailureException {
+    String[][] locals = computeLoopTypes(Constants.TYPE_int);
+    Assert.assertNotNull(locals);
+    Assert.assertArrayEquals(new String[] {Constants.TYPE_int}, locals[8]);
+
+    Assert.assertNull(computeLoopTypes(Constants.TYPE_float));
+  }
+
+  @Test
+  public void testCachingClassHierarchy() {
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    store.setClassInfo("LA;", false, false, "Ljava/lang/Object;", new String[] {"LI;"});
+    store.setClassInfo("LB;", false, false, "LA;", new String[0]);
+    store.setClassInfo("LC;", false, true, "LA;", new String[0]);
+    store.setClassInfo("LI;", true, false, null, new String[0]);
+    CachingClassHierarchyProvider cache = new CachingClassHierarchyProvider(store);
+
+    String[] types = {"LA;", "LB;", "LC;", "LI;", "[LB;", "[LC;", "Ljava/lang/Object;", "L;"};
+    for (int round = 0; round < 2; round++) {
+      for (String t1 : types) {
+        for (String t2 : types) {
+          Assert.assertEquals(
+              ClassHierarchy.isSubtypeOf(store, t1, t2), ClassHierarchy.isSubtypeOf(cache, t1, t2));
+          Assert.assertEquals(
+              ClassHierarchy.findCommonSupertype(store, t1, t2),
+              ClassHierarchy.findCommonSupertype(cache, t1, t2));
+        }
+      }
+    }
+    Assert.assertEquals("[LA;", ClassHierarchy.findCommonSupertype(cache, "[LB;", "[LC;"));
+  }
+}
@@ -37,10 +37,12 @@ import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCaller;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalReturnCaller;
 import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.PDG;
 import com.ibm.wala.ipa.slicer.SDG;
 import com.ibm.wala.ipa.slicer.Slicer;
 import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
@@ -51,10 +53,13 @@ import com.ibm.wala.ipa.slicer.thin.ThinSlicer;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.config.FileOfClasses;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.io.FileProvider;
 import com.ibm.wala.util.io.FileUtil;
 import com.ibm.wala.util.strings.Atom;
@@ -64,6 +69,9 @@ import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -1045,6 +1053,100 @@ public class SlicerTest {
     Assert.assertEquals(7, normalsInMain.size());
   }
 
+  @Test
+  public void testParallelModRef()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha, "Lslice/TestList");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneContainerCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    ModRef<InstanceKey> modRef = ModRef.make();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Map<CGNode, OrdinalSet<PointerKey>> mod = modRef.computeMod(cg, pa, null, pool);
+      Map<CGNode, OrdinalSet<PointerKey>> ref = modRef.computeRef(cg, pa, null, pool);
+      // the parallel scans must have registered every instance key the queries need up front
+      int instanceKeys = pa.getInstanceKeyMapping().getSize();
+      assertSameHeapLocations(modRef.computeMod(cg, pa, null), mod);
+      assertSameHeapLocations(modRef.computeRef(cg, pa, null), ref);
+      Assert.assertEquals(instanceKeys, pa.getInstanceKeyMapping().getSize());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelSDG()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha, "Lslice/TestList");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneContainerCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    SDG<InstanceKey> sequential =
+        new SDG<>(
+            cg,
+            pa,
+            ModRef.make(),
+            DataDependenceOptions.NO_BASE_PTRS,
+            ControlDependenceOptions.NONE,
+            null);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      SDG<InstanceKey> parallel =
+          new SDG<>(
+              cg,
+              pa,
+              ModRef.make(),
+              DataDependenceOptions.NO_BASE_PTRS,
+              ControlDependenceOptions.NONE,
+              null,
+              pool);
+      // force eager construction, which computes the heap reaching defs of all PDGs on the pool
+      Assert.assertEquals(sequential.getNumberOfNodes(), parallel.getNumberOfNodes());
+      for (CGNode n : cg) {
+        Assert.assertEquals(describeEdges(sequential.getPDG(n)), describeEdges(parallel.getPDG(n)));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** @return the edges of pdg, as strings */
+  private static Set<String> describeEdges(PDG<?> pdg) {
+    Set<String> result = HashSetFactory.make();
+    for (Statement s : pdg) {
+      for (Statement t : Iterator2Iterable.make(pdg.getSuccNodes(s))) {
+        result.add(s + " -> " + t);
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameHeapLocations(
+      Map<CGNode, OrdinalSet<PointerKey>> expected, Map<CGNode, OrdinalSet<PointerKey>> actual) {
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<CGNode, OrdinalSet<PointerKey>> e : expected.entrySet()) {
+      Assert.assertEquals(
+          OrdinalSet.toCollection(e.getValue()), OrdinalSet.toCollection(actual.get(e.getKey())));
+    }
+  }
+
   @Test
   public void testListIterator()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
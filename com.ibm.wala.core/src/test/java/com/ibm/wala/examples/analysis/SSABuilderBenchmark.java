@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.examples.analysis;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.perf.Stopwatch;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares the time and allocation of building IRs with the default SSA construction and with
+ * pruned SSA (see {@link SSAOptions#setPrunePhis(boolean)}) on the largest methods of a class
+ * hierarchy, e.g. of rt.jar.
+ *
+ * <p>Allocation is measured with the com.sun.management extension of {@link ThreadMXBean}, and
+ * reported as -1 on JVMs without it.
+ *
+ * <p>Usage: SSABuilderBenchmark &lt;scope file&gt; [number of methods]
+ */
+public class SSABuilderBenchmark {
+
+  /** Number of methods to build if none is given on the command line */
+  private static final int DEFAULT_NUMBER_OF_METHODS = 50;
+
+  /** Number of times each IR is built, to get measurable times */
+  private static final int REPETITIONS = 5;
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static int bytecodeSize(IMethod m) {
+    try {
+      return m instanceof ShrikeCTMethod ? ((ShrikeCTMethod) m).getInstructions().length : 0;
+    } catch (InvalidClassFileException e) {
+      return 0;
+    }
+  }
+
+  private static int phis(IR ir) {
+    int result = 0;
+    for (Object phi : Iterator2Iterable.make(ir.iteratePhis())) {
+      if (phi != null) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  public static void main(String[] args) throws IOException, ClassHierarchyException {
+    String scopeFile = args[0];
+    int numberOfMethods = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUMBER_OF_METHODS;
+
+    AnalysisScope scope =
+        AnalysisScopeReader.readJavaScope(
+            scopeFile, null, SSABuilderBenchmark.class.getClassLoader());
+    System.out.print("building class hierarchy...");
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    System.out.println("done");
+
+    List<IMethod> methods = new ArrayList<>();
+    for (IClass klass : cha) {
+      for (IMethod method : klass.getDeclaredMethods()) {
+        if (!method.isAbstract() && !method.isNative() && bytecodeSize(method) > 0) {
+          methods.add(method);
+        }
+      }
+    }
+    methods.sort(Comparator.comparingInt(SSABuilderBenchmark::bytecodeSize).reversed());
+    if (methods.size() > numberOfMethods) {
+      methods = methods.subList(0, numberOfMethods);
+    }
+
+    SSAOptions options = new SSAOptions();
+    SSAOptions pruned = new SSAOptions();
+    pruned.setPrunePhis(true);
+    DefaultIRFactory factory = new DefaultIRFactory();
+
+    long[] time = new long[2];
+    long[] allocation = new long[2];
+    for (IMethod method : methods) {
+      StringBuilder line = new StringBuilder(method.getSignature());
+      line.append(" instructions: ").append(bytecodeSize(method));
+      SSAOptions[] variants = {options, pruned};
+      for (int v = 0; v < variants.length; v++) {
+        IR ir = null;
+        Stopwatch watch = new Stopwatch();
+        long before = allocatedBytes();
+        watch.start();
+        try {
+          for (int i = 0; i < REPETITIONS; i++) {
+            ir = factory.makeIR(method, Everywhere.EVERYWHERE, variants[v]);
+          }
+        } catch (RuntimeException e) {
+          // malformed bytecode; not interesting for this benchmark
+          System.err.println("skipping " + method.getSignature() + ": " + e.getMessage());
+          break;
+        }
+        watch.stop();
+        long allocated = before == -1 ? -1 : allocatedBytes() - before;
+        time[v] += watch.getElapsedMillis();
+        allocation[v] += allocated;
+        line.append(v == 0 ? " default: " : " pruned: ")
+            .append(watch.getElapsedMillis())
+            .append("ms ")
+            .append(allocated / 1024)
+            .append("KB ")
+            .append(phis(ir))
+            .append(" phis ")
+            .append(ir.getSymbolTable().getMaxValueNumber())
+            .append(" values");
+      }
+      System.out.println(line);
+    }
+
+    System.out.println("METHODS: " + methods.size());
+    System.out.println("DEFAULT: " + time[0] + "ms, " + (allocation[0] / (1024 * 1024)) + "MB");
+    System.out.println("PRUNED: " + time[1] + "ms, " + (allocation[1] / (1024 * 1024)) + "MB");
+    if (time[1] > 0) {
+      System.out.println("SPEEDUP: " + ((double) time[0] / time[1]));
+    }
+  }
+}
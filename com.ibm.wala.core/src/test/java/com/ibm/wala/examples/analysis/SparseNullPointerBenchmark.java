@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.examples.analysis;
+
+import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.cfg.exc.ExceptionPruningAnalysis;
+import com.ibm.wala.cfg.exc.NullPointerAnalysis;
+import com.ibm.wala.cfg.exc.intra.NullPointerState.State;
+import com.ibm.wala.cfg.exc.intra.SparseNullPointerAnalysis;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.NullTestPiPolicy;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.NullProgressMonitor;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.perf.Stopwatch;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares the running time of the exploded CFG null pointer analysis with the sparse, SSA based
+ * {@link SparseNullPointerAnalysis} on the largest methods of a class hierarchy. Both start from
+ * the same IR, and their precision is compared by the number of dereferences they prove cannot
+ * throw a NullPointerException.
+ *
+ * <p>Usage: SparseNullPointerBenchmark &lt;scope file&gt; [number of methods]
+ */
+public class SparseNullPointerBenchmark {
+
+  /** Number of methods to analyze if none is given on the command line */
+  private static final int DEFAULT_NUMBER_OF_METHODS = 50;
+
+  /** Number of times each analysis is run on each method, to get measurable times */
+  private static final int REPETITIONS = 5;
+
+  public static void main(String[] args)
+      throws IOException, ClassHierarchyException, UnsoundGraphException, CancelException {
+    String scopeFile = args[0];
+    int numberOfMethods = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUMBER_OF_METHODS;
+
+    AnalysisScope scope =
+        AnalysisScopeReader.readJavaScope(
+            scopeFile, null, SparseNullPointerBenchmark.class.getClassLoader());
+    System.out.print("building class hierarchy...");
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    System.out.println("done");
+
+    SSAOptions options = new SSAOptions();
+    options.setPiNodePolicy(NullTestPiPolicy.createNullTestPiPolicy());
+    IAnalysisCacheView cache = new AnalysisCacheImpl(options);
+
+    System.out.print("building IRs...");
+    List<IR> irs = new ArrayList<>();
+    for (IClass klass : cha) {
+      for (IMethod method : klass.getDeclaredMethods()) {
+        if (!method.isAbstract() && !method.isNative()) {
+          try {
+            IR ir = cache.getIR(method, Everywhere.EVERYWHERE);
+            if (ir != null) {
+              irs.add(ir);
+            }
+          } catch (RuntimeException e) {
+            // malformed bytecode; not interesting for this benchmark
+            System.err.println("skipping " + method.getSignature() + ": " + e.getMessage());
+          }
+        }
+      }
+    }
+    System.out.println("done");
+
+    irs.sort(Comparator.comparingInt((IR ir) -> ir.getInstructions().length).reversed());
+    if (irs.size() > numberOfMethods) {
+      irs = irs.subList(0, numberOfMethods);
+    }
+
+    long cfgTime = 0;
+    long sparseTime = 0;
+    int cfgPruned = 0;
+    int cfgSafe = 0;
+    int sparseSafe = 0;
+    for (IR ir : irs) {
+      // both analyses start from the IR alone, and build what else they need, i.e. the exploded
+      // CFG or the DefUse, within the timed runs
+      Stopwatch cfgWatch = new Stopwatch();
+      cfgWatch.start();
+      ExceptionPruningAnalysis<SSAInstruction, IExplodedBasicBlock> cfgAnalysis = null;
+      int pruned = 0;
+      for (int i = 0; i < REPETITIONS; i++) {
+        cfgAnalysis = NullPointerAnalysis.createIntraproceduralExplodedCFGAnalysis(ir);
+        pruned = cfgAnalysis.compute(new NullProgressMonitor());
+      }
+      cfgWatch.stop();
+
+      Stopwatch sparseWatch = new Stopwatch();
+      sparseWatch.start();
+      SparseNullPointerAnalysis sparse = null;
+      for (int i = 0; i < REPETITIONS; i++) {
+        sparse = new SparseNullPointerAnalysis(ir);
+        sparse.compute(new NullProgressMonitor());
+      }
+      sparseWatch.stop();
+
+      // compare the results by the dereferences each analysis proves safe
+      ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> prunedCFG = cfgAnalysis.getCFG();
+      int cfgSafeHere = 0;
+      int sparseSafeHere = 0;
+      SSAInstruction[] instructions = ir.getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        SSAInstruction s = instructions[i];
+        int ref = s == null ? -1 : SparseNullPointerAnalysis.getDereferencedValue(s);
+        if (ref > 0) {
+          // the state of an exploded block holds before its instruction
+          IExplodedBasicBlock bb = prunedCFG.getBlockForInstruction(i);
+          if (bb != null && cfgAnalysis.getState(bb).getState(ref) == State.NOT_NULL) {
+            cfgSafeHere++;
+          }
+          if (!sparse.mayThrowNullPointerException(s)) {
+            sparseSafeHere++;
+          }
+        }
+      }
+
+      cfgTime += cfgWatch.getElapsedMillis();
+      sparseTime += sparseWatch.getElapsedMillis();
+      cfgPruned += pruned;
+      cfgSafe += cfgSafeHere;
+      sparseSafe += sparseSafeHere;
+      System.out.println(
+          ir.getMethod().getSignature()
+              + " instructions: "
+              + instructions.length
+              + " cfg: "
+              + cfgWatch.getElapsedMillis()
+              + "ms ("
+              + cfgSafeHere
+              + " safe dereferences, "
+              + pruned
+              + " edges pruned) sparse: "
+              + sparseWatch.getElapsedMillis()
+              + "ms ("
+              + sparseSafeHere
+              + " safe dereferences, "
+              + sparse.getNumberOfEvaluations()
+              + " evaluations)");
+    }
+
+    System.out.println("METHODS: " + irs.size());
+    System.out.println(
+        "CFG TIME: "
+            + cfgTime
+            + "ms, SAFE DEREFERENCES: "
+            + cfgSafe
+            + ", PRUNED EDGES: "
+            + cfgPruned);
+    System.out.println("SPARSE TIME: " + sparseTime + "ms, SAFE DEREFERENCES: " + sparseSafe);
+    if (sparseTime > 0) {
+      System.out.println("SPEEDUP: " + ((double) cfgTime / sparseTime));
+    }
+  }
+}
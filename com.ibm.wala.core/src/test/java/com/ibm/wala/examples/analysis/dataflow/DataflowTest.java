@@ -10,14 +10,18 @@
  */
 package com.ibm.wala.examples.analysis.dataflow;
 
+import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.ShrikeBTMethod;
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSummaryCache;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.dataflow.graph.ParallelDataflowDriver;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
@@ -25,6 +29,7 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
@@ -42,14 +47,26 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.config.FileOfClasses;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -146,6 +163,116 @@ public class DataflowTest extends WalaTestCase {
     }
   }
 
+  /** @return the methods with bytecodes of the dataflow test classes */
+  private static List<IMethod> dataflowMethods() {
+    List<IMethod> result = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (klass.getName().toString().startsWith("Ldataflow/")) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            result.add(m);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testParallelIntraproc() throws CancelException {
+    List<IMethod> methods = dataflowMethods();
+    Assert.assertFalse(methods.isEmpty());
+
+    // one IR cache shared by all worker threads
+    final IAnalysisCacheView cache = new ConcurrentAnalysisCacheImpl();
+    ParallelDataflowDriver<IMethod, BitVectorSolver<IExplodedBasicBlock>> driver =
+        new ParallelDataflowDriver<>(
+            m ->
+                new IntraprocReachingDefs(ExplodedControlFlowGraph.make(cache.getIR(m)), cha)
+                    .makeSolver());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    Map<IMethod, Map<Integer, IntSet>> parallel;
+    try {
+      parallel = driver.solve(methods, executor, null, DataflowTest::outSets);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(methods.size(), parallel.size());
+    Assert.assertEquals(HashSetFactory.make(methods), driver.getSolveTimes().keySet());
+    List<IMethod> slowest = driver.getSlowest(5);
+    Assert.assertEquals(Math.min(5, methods.size()), slowest.size());
+    for (int i = 1; i < slowest.size(); i++) {
+      Assert.assertTrue(
+          driver.getSolveTimes().get(slowest.get(i - 1))
+              >= driver.getSolveTimes().get(slowest.get(i)));
+    }
+    for (IMethod m : methods) {
+      IR ir = new AnalysisCacheImpl().getIR(m);
+      ExplodedControlFlowGraph ecfg = ExplodedControlFlowGraph.make(ir);
+      BitVectorSolver<IExplodedBasicBlock> solver = new IntraprocReachingDefs(ecfg, cha).analyze();
+      Map<Integer, IntSet> expected = outSets(solver);
+      Map<Integer, IntSet> actual = parallel.get(m);
+      Assert.assertEquals(m.toString(), expected.keySet(), actual.keySet());
+      for (Map.Entry<Integer, IntSet> e : expected.entrySet()) {
+        IntSet out = actual.get(e.getKey());
+        Assert.assertTrue(
+            m + " " + e.getKey(),
+            e.getValue() == null ? out == null : out != null && e.getValue().sameValue(out));
+      }
+    }
+  }
+
+  /** Threads that ask a {@link ConcurrentAnalysisCacheImpl} for the same IRs all get one IR each */
+  @Test
+  public void testConcurrentIRCache() throws InterruptedException, ExecutionException {
+    List<IMethod> methods = dataflowMethods();
+    // forget the bytecodes read by other tests, so that the threads race to read them again
+    for (IMethod m : methods) {
+      if (m instanceof ShrikeBTMethod) {
+        ((ShrikeBTMethod) m).clearCaches();
+      }
+    }
+
+    final IAnalysisCacheView cache = new ConcurrentAnalysisCacheImpl();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Map<IMethod, IR>>> results = new ArrayList<>();
+    try {
+      for (int t = 0; t < 4; t++) {
+        final List<IMethod> order = new ArrayList<>(methods);
+        Collections.shuffle(order, new Random(t));
+        results.add(
+            executor.submit(
+                () -> {
+                  Map<IMethod, IR> irs = HashMapFactory.make();
+                  for (IMethod m : order) {
+                    irs.put(m, cache.getIR(m));
+                  }
+                  return irs;
+                }));
+      }
+      Map<IMethod, IR> first = results.get(0).get();
+      for (Future<Map<IMethod, IR>> f : results) {
+        Map<IMethod, IR> irs = f.get();
+        for (IMethod m : methods) {
+          Assert.assertNotNull(m.toString(), irs.get(m));
+          Assert.assertSame(m.toString(), first.get(m), irs.get(m));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Map<Integer, IntSet> outSets(BitVectorSolver<IExplodedBasicBlock> solver) {
+    Map<Integer, IntSet> result = HashMapFactory.make();
+    for (IExplodedBasicBlock ebb : solver.getProblem().getFlowGraph()) {
+      IntSet out = solver.getOut(ebb).getValue();
+      result.put(ebb.getNumber(), out);
+    }
+    return result;
+  }
+
   @Test
   public void testContextInsensitive()
       throws IllegalArgumentException, CallGraphBuilderCancelException {
@@ -226,4 +353,62 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  @Test
+  public void testContextSensitiveSummaryCache()
+      throws IllegalArgumentException, CancelException, IOException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            scope, cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    ContextSensitiveReachingDefs plain = new ContextSensitiveReachingDefs(cg);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        expected = plain.analyze();
+
+    // the first run fills the cache, the second run reads it back from disk
+    File cacheFile = File.createTempFile("summaries", ".bin");
+    cacheFile.deleteOnExit();
+    ContextSensitiveReachingDefs first = new ContextSensitiveReachingDefs(cg);
+    TabulationSummaryCache<CGNode, Pair<CGNode, Integer>> cache =
+        new TabulationSummaryCache<>(first.makeSummaryCacheKeys());
+    first.analyze(cache);
+    Assert.assertTrue(cache.getNumberOfProcedures() > 0);
+    cache.write(cacheFile);
+
+    ContextSensitiveReachingDefs second = new ContextSensitiveReachingDefs(cg);
+    TabulationSummaryCache<CGNode, Pair<CGNode, Integer>> reloaded =
+        TabulationSummaryCache.read(cacheFile, second.makeSummaryCacheKeys());
+    Assert.assertEquals(cache.getNumberOfProcedures(), reloaded.getNumberOfProcedures());
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        actual = second.analyze(reloaded);
+
+    Assert.assertTrue(
+        actual.getSupergraphNodesReached().size() < expected.getSupergraphNodesReached().size());
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : plain.getSupergraph()) {
+      if (bb.getMethod()
+          .getDeclaringClass()
+          .getClassLoader()
+          .getReference()
+          .equals(ClassLoaderReference.Application)) {
+        Assert.assertEquals(
+            bb.toString(),
+            toFacts(plain, expected.getResult(bb)),
+            toFacts(second, actual.getResult(bb)));
+      }
+    }
+  }
+
+  private static Set<Pair<CGNode, Integer>> toFacts(
+      ContextSensitiveReachingDefs reachingDefs, IntSet facts) {
+    Set<Pair<CGNode, Integer>> result = HashSetFactory.make();
+    for (IntIterator it = facts.intIterator(); it.hasNext(); ) {
+      result.add(reachingDefs.getDomain().getMappedObject(it.next()));
+    }
+    return result;
+  }
 }
@@ -110,6 +110,15 @@ public class FieldAccess {
     return b3;
   }
 
+  public static B testNullCheck(boolean unknown, B b1) {
+    B b3 = b1;
+    if (b3 == null) {
+      b3 = new B();
+    }
+
+    return b3;
+  }
+
   public static void main(String[] args) {
 
     B b1 = new B();
@@ -25,6 +25,7 @@ import com.ibm.wala.shrikeBT.ReturnInstruction;
 import com.ibm.wala.shrikeBT.ThrowInstruction;
 import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.analysis.CachingClassHierarchyProvider;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrikeBT.shrikeCT.CTUtils;
@@ -155,7 +156,8 @@ public class OfflineDynamicCallGraph {
         CTUtils.addClassToHierarchy(cha, ci.getReader());
       }
 
-      instrumenter.setClassHierarchyProvider(cha);
+      // the store is complete now, so its answers can be cached for all classes
+      instrumenter.setClassHierarchyProvider(new CachingClassHierarchyProvider(cha));
 
       instrumenter.beginTraversal();
       while ((ci = instrumenter.nextClass()) != null) {
@@ -17,13 +17,21 @@ package com.ibm.wala.shrikeBT;
 public final class ConditionalBranchInstruction extends Instruction
     implements IConditionalBranchInstruction {
 
-  private final int label;
+  private final int[] label;
 
   protected ConditionalBranchInstruction(short opcode, int label) {
     super(opcode);
-    this.label = label;
+    int[] l = {label};
+    this.label = l;
   }
 
+  /**
+   * Interned branches to small labels, indexed by opcode and label; they are created on first use,
+   * and threads racing for the same entry just make equal instances.
+   */
+  private static final ConditionalBranchInstruction[] interned =
+      new ConditionalBranchInstruction[(OP_if_acmpne - OP_ifeq + 1) * 256];
+
   public static ConditionalBranchInstruction make(String type, Operator operator, int label)
       throws IllegalArgumentException {
     int t = Util.getTypeIndex(type);
@@ -54,6 +62,14 @@ public final class ConditionalBranchInstruction extends Instruction
     if (opcode < OP_ifeq || opcode > OP_if_acmpne) {
       throw new IllegalArgumentException("Illegal opcode: " + opcode);
     }
+    if (0 <= label && label < 256) {
+      int k = (opcode - OP_ifeq) * 256 + label;
+      ConditionalBranchInstruction r = interned[k];
+      if (r == null) {
+        r = interned[k] = new ConditionalBranchInstruction(opcode, label);
+      }
+      return r;
+    }
     return new ConditionalBranchInstruction(opcode, label);
   }
 
@@ -61,7 +77,7 @@ public final class ConditionalBranchInstruction extends Instruction
   public boolean equals(Object o) {
     if (o instanceof ConditionalBranchInstruction) {
       ConditionalBranchInstruction i = (ConditionalBranchInstruction) o;
-      return i.opcode == opcode && i.label == label;
+      return i.opcode == opcode && i.label[0] == label[0];
     } else {
       return false;
     }
@@ -69,18 +85,17 @@ public final class ConditionalBranchInstruction extends Instruction
 
   @Override
   public String toString() {
-    return "ConditionalBranch(" + getType() + ',' + getOperator() + ',' + label + ')';
+    return "ConditionalBranch(" + getType() + ',' + getOperator() + ',' + label[0] + ')';
   }
 
   @Override
   public int[] getBranchTargets() {
-    int[] r = {label};
-    return r;
+    return label;
   }
 
   @Override
   public int getTarget() {
-    return label;
+    return label[0];
   }
 
   @Override
@@ -89,7 +104,7 @@ public final class ConditionalBranchInstruction extends Instruction
       throw new IllegalArgumentException("targetMap is null");
     }
     try {
-      return make(opcode, targetMap[label]);
+      return make(opcode, targetMap[label[0]]);
     } catch (ArrayIndexOutOfBoundsException e) {
       throw new IllegalArgumentException("bad target map", e);
     }
@@ -111,7 +126,7 @@ public final class ConditionalBranchInstruction extends Instruction
 
   @Override
   public int hashCode() {
-    return 30190 * opcode + 384101 * label;
+    return 30190 * opcode + 384101 * label[0];
   }
 
   @Override
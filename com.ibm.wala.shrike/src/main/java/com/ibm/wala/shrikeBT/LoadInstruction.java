@@ -22,13 +22,14 @@ public final class LoadInstruction extends Instruction implements ILoadInstructi
   private static final LoadInstruction[] preallocated = preallocate();
 
   private static LoadInstruction[] preallocate() {
-    LoadInstruction[] r = new LoadInstruction[5 * 16];
+    // locals 16 to 255 are interned on first use
+    LoadInstruction[] r = new LoadInstruction[5 * 256];
     for (int p = 0; p < 5; p++) {
       for (int i = 0; i < 4; i++) {
-        r[p * 16 + i] = new LoadInstruction((short) (OP_iload_0 + i + p * 4), i);
+        r[p * 256 + i] = new LoadInstruction((short) (OP_iload_0 + i + p * 4), i);
       }
       for (int i = 4; i < 16; i++) {
-        r[p * 16 + i] = new LoadInstruction((short) (OP_iload + p), i);
+        r[p * 256 + i] = new LoadInstruction((short) (OP_iload + p), i);
       }
     }
     return r;
@@ -39,8 +40,13 @@ public final class LoadInstruction extends Instruction implements ILoadInstructi
     if (t < 0 || t > TYPE_Object_index) {
       throw new IllegalArgumentException("Cannot load local of type " + type);
     }
-    if (index < 16) {
-      return preallocated[t * 16 + index];
+    if (0 <= index && index < 256) {
+      LoadInstruction r = preallocated[t * 256 + index];
+      if (r == null) {
+        // racing threads just make equal instances
+        r = preallocated[t * 256 + index] = new LoadInstruction((short) (OP_iload + t), index);
+      }
+      return r;
     } else {
       return new LoadInstruction((short) (OP_iload + t), index);
     }
@@ -19,12 +19,16 @@ public final class PopInstruction extends Instruction {
     this.size = size;
   }
 
+  private static final PopInstruction[] preallocated = {
+    new PopInstruction((byte) 0), new PopInstruction((byte) 1), new PopInstruction((byte) 2)
+  };
+
   /** @param size 1 or 2, the number of elements to pop */
   public static PopInstruction make(int size) {
     if (size < 0 || size > 2) {
       throw new IllegalArgumentException("Invalid pop size: " + size);
     } else {
-      return new PopInstruction((byte) size);
+      return preallocated[size];
     }
   }
 
@@ -22,13 +22,14 @@ public final class StoreInstruction extends Instruction implements IStoreInstruc
   private static final StoreInstruction[] preallocated = preallocate();
 
   private static StoreInstruction[] preallocate() {
-    StoreInstruction[] r = new StoreInstruction[5 * 16];
+    // locals 16 to 255 are interned on first use
+    StoreInstruction[] r = new StoreInstruction[5 * 256];
     for (int p = 0; p < 5; p++) {
       for (int i = 0; i < 4; i++) {
-        r[p * 16 + i] = new StoreInstruction((short) (OP_istore_0 + i + p * 4), i);
+        r[p * 256 + i] = new StoreInstruction((short) (OP_istore_0 + i + p * 4), i);
       }
       for (int i = 4; i < 16; i++) {
-        r[p * 16 + i] = new StoreInstruction((short) (OP_istore + p), i);
+        r[p * 256 + i] = new StoreInstruction((short) (OP_istore + p), i);
       }
     }
     return r;
@@ -39,8 +40,13 @@ public final class StoreInstruction extends Instruction implements IStoreInstruc
     if (t < 0 || t > TYPE_Object_index) {
       throw new IllegalArgumentException("Cannot store local of type " + type);
     }
-    if (index < 16) {
-      return preallocated[t * 16 + index];
+    if (0 <= index && index < 256) {
+      StoreInstruction r = preallocated[t * 256 + index];
+      if (r == null) {
+        // racing threads just make equal instances
+        r = preallocated[t * 256 + index] = new StoreInstruction((short) (OP_istore + t), index);
+      }
+      return r;
     } else {
       return new StoreInstruction((short) (OP_istore + t), index);
     }
@@ -72,6 +72,12 @@ public class Analyzer {
 
   protected String[][] varTypes;
 
+  /** points whose types were given by computeTypesIncrementally, and are only checked */
+  private BitSet frozen;
+
+  /** set when a state that reaches a frozen point does not fit its given types */
+  private boolean frozenMismatch;
+
   protected static final String[] noStrings = new String[0];
 
   protected static final int[] noEdges = new int[0];
@@ -521,11 +527,47 @@ public class Analyzer {
       int curLocalsSize,
       List<PathElement> path)
       throws FailureException {
+    if (frozen != null && frozen.get(i)) {
+      if (curStackSize != stacks[i].length
+          || !isAssignable(curStack, curStackSize, stacks[i])
+          || !isAssignable(curLocals, curLocalsSize, locals[i])) {
+        frozenMismatch = true;
+      }
+      return false;
+    }
     boolean a = mergeStackTypes(i, curStack, curStackSize, path);
     boolean b = mergeLocalTypes(i, curLocals, curLocalsSize);
     return a || b;
   }
 
+  /** @return true if a value of type from may be used where the verifier expects type to */
+  private boolean isAssignable(String from, String to) {
+    if (to == null || to == topType || (from != null && from.equals(to))) {
+      return true;
+    } else if (from == null || from == topType || isPrimitive(from) || isPrimitive(to)) {
+      // this also covers uninitialized objects, whose types start with #
+      return false;
+    } else if (from.equals(Constants.TYPE_null) || to.equals(Constants.TYPE_Object)) {
+      return true;
+    } else if (hierarchy != null && hierarchy.isInterface(to) == ClassHierarchy.YES) {
+      // the JVM verifier treats all interfaces like Object
+      return true;
+    } else {
+      // as optimistic as the rest of the analysis if the hierarchy is not known
+      return ClassHierarchy.isSubtypeOf(hierarchy, from, to) != ClassHierarchy.NO;
+    }
+  }
+
+  /** locals missing from a state are unusable, so only fit where the given types are TOP */
+  private boolean isAssignable(String[] from, int fromSize, String[] to) {
+    for (int j = 0; j < to.length; j++) {
+      if (!isAssignable(j < fromSize ? from[j] : null, to[j])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static boolean longType(String type) {
     return Constants.TYPE_long.equals(type) || Constants.TYPE_double.equals(type);
   }
@@ -793,7 +835,7 @@ public class Analyzer {
     }
   }
 
-  protected final void initTypeInfo() throws FailureException {
+  private void initEntryTypes() {
     stacks = new String[instructions.length][];
     locals = new String[instructions.length][];
 
@@ -813,6 +855,10 @@ public class Analyzer {
         }
       }
     }
+  }
+
+  protected final void initTypeInfo() throws FailureException {
+    initEntryTypes();
     int[] stackSizes = getStackSizes();
     maxStack = 0;
     for (int stackSize : stackSizes) {
@@ -832,6 +878,112 @@ public class Analyzer {
     computeTypes(0, v, makeTypesAt, wantPath ? new ArrayList<>() : null);
   }
 
+  /**
+   * Compute types like {@link #computeTypes(TypeVisitor, BitSet, boolean)}, but take the types at
+   * some points as given and only simulate the code that may reach a changed instruction without
+   * passing through such a point, e.g. to reuse the stack map frames of the original code of an
+   * edited method. Whenever the simulation reaches a point with given types, the computed types are
+   * only checked against them.
+   *
+   * <p>Types are computed only for the simulated code and for the points in makeTypesAt. If the
+   * given types do not hold, or some point in makeTypesAt is not reached, nothing is guaranteed and
+   * this returns false; use computeTypes then.
+   *
+   * @param maxStack a bound of the size of the stack, e.g. in words
+   * @param maxLocals a bound of the number of locals; with maxStack, it spares a pass over the code
+   * @param knownStacks for each instruction, the given types of its stack, or null; the arrays are
+   *     not modified, but become the results for their instructions
+   * @param knownLocals for each instruction, the given types of its locals, or null where
+   *     knownStacks is null
+   * @param changed the instructions whose effect may differ from the code the types were given for
+   * @return true if the types were computed
+   * @throws FailureException the method contains invalid bytecode
+   */
+  public final boolean computeTypesIncrementally(
+      TypeVisitor v,
+      BitSet makeTypesAt,
+      int maxStack,
+      int maxLocals,
+      String[][] knownStacks,
+      String[][] knownLocals,
+      BitSet changed)
+      throws FailureException {
+    if (knownStacks == null || knownLocals == null || changed == null) {
+      throw new IllegalArgumentException("null known types or changed instructions");
+    }
+    initEntryTypes();
+    this.maxStack = maxStack;
+    this.maxLocals = Math.max(maxLocals, locals[0].length);
+
+    BitSet known = new BitSet(instructions.length);
+    for (int i = 0; i < instructions.length; i++) {
+      if (knownStacks[i] != null) {
+        if (i == 0
+            && !(knownStacks[0].length == 0
+                && isAssignable(locals[0], locals[0].length, knownLocals[0]))) {
+          return false;
+        }
+        stacks[i] = knownStacks[i];
+        locals[i] = knownLocals[i];
+        known.set(i);
+        // the given types may cover the second half of a long or double in the last local
+        this.maxLocals = Math.max(this.maxLocals, locals[i].length);
+        this.maxStack = Math.max(this.maxStack, stacks[i].length);
+      }
+    }
+
+    // an instruction must be simulated if it is changed, or if it branches to changed code
+    BitSet dirty = (BitSet) changed.clone();
+    for (int i = 0; i < instructions.length; i++) {
+      if (!dirty.get(i)) {
+        for (int target : instructions[i].getBranchTargets()) {
+          if (changed.get(target)) {
+            dirty.set(i);
+          }
+        }
+        for (ExceptionHandler h : handlers[i]) {
+          if (changed.get(h.getHandler())) {
+            dirty.set(i);
+          }
+        }
+      }
+    }
+
+    // start at the closest points with types before them, i.e. the given ones or the entry
+    BitSet starts = new BitSet(instructions.length);
+    for (int d = dirty.nextSetBit(0); d >= 0; d = dirty.nextSetBit(d + 1)) {
+      int s = d;
+      while (s > 0 && !known.get(s) && instructions[s - 1].isFallThrough()) {
+        s--;
+      }
+      starts.set(s);
+    }
+
+    BitSet typesAt = (BitSet) makeTypesAt.clone();
+    typesAt.or(known);
+    frozen = known;
+    frozenMismatch = false;
+    try {
+      for (int s = starts.nextSetBit(0); s >= 0; s = starts.nextSetBit(s + 1)) {
+        // other starts are reached by branches, from dirty code or not at all
+        if (stacks[s] != null) {
+          computeTypes(s, v, typesAt, null);
+        }
+      }
+    } finally {
+      frozen = null;
+    }
+    if (frozenMismatch) {
+      return false;
+    }
+    for (int i = makeTypesAt.nextSetBit(0); i >= 0; i = makeTypesAt.nextSetBit(i + 1)) {
+      if (stacks[i] == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public abstract static class TypeVisitor extends IInstruction.Visitor {
     public abstract void setState(
         int index, List<PathElement> path, String[] curStack, String[] curLocals);
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrikeBT.analysis;
+
+import com.ibm.wala.util.collections.Pair;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This ClassHierarchyProvider wraps another one and remembers the answers of {@link
+ * ClassHierarchy#isSubtypeOf} and {@link ClassHierarchy#findCommonSupertype} for it, so that one
+ * instance can be shared by all the methods and classes being instrumented, also from several
+ * threads.
+ *
+ * <p>The answers are never recomputed, so the wrapped provider must not change any more, e.g. a
+ * {@link ClassHierarchyStore} must have been filled completely before it is wrapped.
+ */
+public final class CachingClassHierarchyProvider implements ClassHierarchyProvider {
+  /** stands for a null common supertype, which ConcurrentHashMap cannot hold */
+  private static final String noSupertype = "<none>";
+
+  private final ClassHierarchyProvider delegate;
+
+  private final ConcurrentHashMap<Pair<String, String>, Integer> subtypes =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Pair<String, String>, String> supertypes =
+      new ConcurrentHashMap<>();
+
+  public CachingClassHierarchyProvider(ClassHierarchyProvider delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("null delegate");
+    }
+    this.delegate = delegate;
+  }
+
+  public ClassHierarchyProvider getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public String getSuperClass(String cl) {
+    return delegate.getSuperClass(cl);
+  }
+
+  @Override
+  public String[] getSuperInterfaces(String cl) {
+    return delegate.getSuperInterfaces(cl);
+  }
+
+  @Override
+  public String[] getSubClasses(String cl) {
+    return delegate.getSubClasses(cl);
+  }
+
+  @Override
+  public int isInterface(String cl) {
+    return delegate.isInterface(cl);
+  }
+
+  // the computations below recurse into the caches for array types, so computeIfAbsent would be
+  // a recursive update of the map
+
+  int isSubtypeOf(String t1, String t2) {
+    Pair<String, String> key = Pair.make(t1, t2);
+    Integer r = subtypes.get(key);
+    if (r == null) {
+      r = ClassHierarchy.computeIsSubtypeOf(this, t1, t2);
+      subtypes.put(key, r);
+    }
+    return r;
+  }
+
+  String findCommonSupertype(String t1, String t2) {
+    Pair<String, String> key = Pair.make(t1, t2);
+    String r = supertypes.get(key);
+    if (r == null) {
+      r = ClassHierarchy.computeCommonSupertype(this, t1, t2);
+      supertypes.put(key, r == null ? noSupertype : r);
+      return r;
+    }
+    return r == noSupertype ? null : r;
+  }
+}
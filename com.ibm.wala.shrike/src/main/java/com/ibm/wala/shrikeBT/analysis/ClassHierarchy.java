@@ -155,6 +155,16 @@ public final class ClassHierarchy {
    * @return whether t1 is a subtype of t2 (YES, NO, MAYBE)
    */
   public static int isSubtypeOf(ClassHierarchyProvider hierarchy, String t1, String t2) {
+    if (t1 == null || t2 == null) {
+      return NO;
+    } else if (hierarchy instanceof CachingClassHierarchyProvider) {
+      return ((CachingClassHierarchyProvider) hierarchy).isSubtypeOf(t1, t2);
+    } else {
+      return computeIsSubtypeOf(hierarchy, t1, t2);
+    }
+  }
+
+  static int computeIsSubtypeOf(ClassHierarchyProvider hierarchy, String t1, String t2) {
     if (t1 == null || t2 == null) {
       return NO;
     } else if (t1.equals(t2)) {
@@ -354,6 +364,16 @@ public final class ClassHierarchy {
    *     determined or cannot be represented as a Java type, or null if there is no common supertype
    */
   public static String findCommonSupertype(ClassHierarchyProvider hierarchy, String t1, String t2) {
+    if (t1 == null || t2 == null) {
+      return null;
+    } else if (hierarchy instanceof CachingClassHierarchyProvider) {
+      return ((CachingClassHierarchyProvider) hierarchy).findCommonSupertype(t1, t2);
+    } else {
+      return computeCommonSupertype(hierarchy, t1, t2);
+    }
+  }
+
+  static String computeCommonSupertype(ClassHierarchyProvider hierarchy, String t1, String t2) {
     if (t1 == null || t2 == null) {
       return null;
     } else if (t1.equals(t2)) {
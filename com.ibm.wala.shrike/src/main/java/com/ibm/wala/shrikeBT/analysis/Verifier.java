@@ -306,6 +306,35 @@ public final class Verifier extends Analyzer {
     }
   }
 
+  /**
+   * Notices loads of locals without a type. Given types may leave out locals that the original code
+   * did not use any more, but that inserted code does.
+   */
+  private static final class UndefinedLoadVisitor extends TypeVisitor {
+    private String[] curLocals;
+
+    private boolean undefined;
+
+    @Override
+    public void setState(
+        int offset, List<PathElement> path, String[] curStack, String[] curLocals) {
+      this.curLocals = curLocals;
+    }
+
+    @Override
+    public boolean shouldContinue() {
+      return !undefined;
+    }
+
+    @Override
+    public void visitLocalLoad(ILoadInstruction instruction) {
+      String t = curLocals[instruction.getVarIndex()];
+      if (t == null || t == topType) {
+        undefined = true;
+      }
+    }
+  }
+
   /** Initialize a verifier. */
   public Verifier(
       boolean isConstructor,
@@ -354,4 +383,19 @@ public final class Verifier extends Analyzer {
   public void computeTypes() throws FailureException {
     computeTypes(null, getBasicBlockStarts(), false);
   }
+
+  /**
+   * Compute the types at the basic block starts from the types given at some of them, see {@link
+   * Analyzer#computeTypesIncrementally}.
+   *
+   * @return false if the given types cannot be used; call computeTypes() then
+   */
+  public boolean computeTypesIncrementally(
+      int maxStack, int maxLocals, String[][] knownStacks, String[][] knownLocals, BitSet changed)
+      throws FailureException {
+    UndefinedLoadVisitor v = new UndefinedLoadVisitor();
+    return computeTypesIncrementally(
+            v, getBasicBlockStarts(), maxStack, maxLocals, knownStacks, knownLocals, changed)
+        && v.shouldContinue();
+  }
 }
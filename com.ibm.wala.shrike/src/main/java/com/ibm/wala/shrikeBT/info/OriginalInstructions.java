@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrikeBT.info;
+
+import com.ibm.wala.shrikeBT.ExceptionHandler;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+
+/**
+ * This method annotation remembers which instructions of a method are left over from its original
+ * code, across any number of updates, e.g. by a MethodEditor. It must be attached with {@link
+ * #track(MethodData)} before the first update.
+ */
+public class OriginalInstructions implements MethodData.Results {
+  private static final String key = OriginalInstructions.class.getName();
+
+  /** for each current instruction, the index of the original instruction it is, or -1 */
+  private int[] toOriginal;
+
+  private OriginalInstructions(MethodData info) {
+    toOriginal = new int[info.getInstructions().length];
+    for (int i = 0; i < toOriginal.length; i++) {
+      toOriginal[i] = i;
+    }
+  }
+
+  /** This should not be called by clients. */
+  @Override
+  public boolean notifyUpdate(
+      MethodData info,
+      IInstruction[] newInstructions,
+      ExceptionHandler[][] newHandlers,
+      int[] newInstructionMap) {
+    int[] newToOriginal = new int[newInstructions.length];
+    for (int i = 0; i < newToOriginal.length; i++) {
+      int old = newInstructionMap[i];
+      newToOriginal[i] = old == -1 ? -1 : toOriginal[old];
+    }
+    toOriginal = newToOriginal;
+    return false;
+  }
+
+  /** Start tracking the original instructions of a method whose code has not been updated yet. */
+  public static void track(MethodData info) throws IllegalArgumentException {
+    if (info == null) {
+      throw new IllegalArgumentException("info is null");
+    }
+    if (info.getHasChanged()) {
+      throw new IllegalArgumentException("the code of " + info + " was already updated");
+    }
+    if (info.getInfo(key) == null) {
+      info.putInfo(key, new OriginalInstructions(info));
+    }
+  }
+
+  /**
+   * @return for each instruction of the method, the index of the original instruction it is, or -1
+   *     if it was added by an update; null if the method is not tracked
+   */
+  public static int[] getOriginalInstructions(MethodData info) throws IllegalArgumentException {
+    if (info == null) {
+      throw new IllegalArgumentException("info is null");
+    }
+    OriginalInstructions o = (OriginalInstructions) info.getInfo(key);
+    return o == null ? null : o.toOriginal;
+  }
+}
@@ -20,6 +20,7 @@ import com.ibm.wala.shrikeBT.ReturnInstruction;
 import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyProvider;
+import com.ibm.wala.shrikeBT.info.OriginalInstructions;
 import com.ibm.wala.shrikeCT.ClassConstants;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.ClassWriter;
@@ -132,6 +133,8 @@ public final class ClassInstrumenter {
                   CTDecoder.convertClassToType(cr.getName()),
                   cr.getMethodName(i),
                   cr.getMethodType(i));
+          // lets the StackMapTable of unchanged code be reused
+          OriginalInstructions.track(md);
           methods[i] = md;
           oldCode[i] = code;
           return;
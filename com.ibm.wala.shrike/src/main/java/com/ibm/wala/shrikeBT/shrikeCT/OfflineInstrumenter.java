@@ -52,10 +52,48 @@ public final class OfflineInstrumenter extends OfflineInstrumenterBase {
     if (cw == null) {
       s.write(ci.getReader().getBytes());
     } else {
-      s.write(cw.makeBytes());
+      cw.writeTo(s);
     }
   }
 
+  /** Instrumentation of one class by {@link #instrumentInParallel}. */
+  @FunctionalInterface
+  public interface ClassTransformer {
+    /**
+     * Instrument a class. This is called concurrently for different classes.
+     *
+     * @return the class to output, usually ci.emitClass(), or null to output nothing for ci
+     */
+    ClassWriter transform(ClassInstrumenter ci) throws InvalidClassFileException, IOException;
+  }
+
+  /** The default number of classes read ahead of the writer per worker thread. */
+  public static final int DEFAULT_WINDOW_PER_THREAD = 4;
+
+  /**
+   * Instrument every class that {@link #nextClass()} would return, using several worker threads,
+   * and output the results in input order. This is the parallel equivalent of calling
+   * outputModifiedClass(ci, transformer.transform(ci)) for each class whose transform is not null;
+   * the output is the same for any number of threads. The transformer and the class hierarchy
+   * provider must be thread-safe.
+   *
+   * @param threads the number of worker threads
+   * @param window the maximum number of classes that have been read but not written yet
+   */
+  public void instrumentInParallel(ClassTransformer transformer, int threads, int window)
+      throws IllegalArgumentException, IOException {
+    if (transformer == null) {
+      throw new IllegalArgumentException("null transformer");
+    }
+    internalInstrumentInParallel(
+        cl -> transformer.transform((ClassInstrumenter) cl), threads, window);
+  }
+
+  public void instrumentInParallel(ClassTransformer transformer, int threads)
+      throws IllegalArgumentException, IOException {
+    instrumentInParallel(transformer, threads, threads * DEFAULT_WINDOW_PER_THREAD);
+  }
+
   /** Get the next class to be instrumented. */
   public ClassInstrumenter nextClass() throws IOException {
     return (ClassInstrumenter) internalNextClass();
@@ -13,6 +13,8 @@ package com.ibm.wala.shrikeBT.tools;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyProvider;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -24,6 +26,15 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -364,6 +375,156 @@ public abstract class OfflineInstrumenterBase {
     }
   }
 
+  /** A transformation of one class, applied by {@link #internalInstrumentInParallel}. */
+  @FunctionalInterface
+  protected interface ClassTransformation {
+    /**
+     * @return the modifications of cl in the form writeClassTo expects, or null if cl should not be
+     *     output
+     */
+    Object transform(Object cl) throws Exception;
+  }
+
+  /** A class that has been instrumented but not written yet. */
+  private static final class Result {
+    private final Input input;
+
+    private final String name;
+
+    private final byte[] bytes;
+
+    Result(Input input, String name, byte[] bytes) {
+      this.input = input;
+      this.name = name;
+      this.bytes = bytes;
+    }
+  }
+
+  /** Marks the end of the input in the queue of the writer. */
+  private static final Future<Result> END = new FutureTask<>(() -> null);
+
+  /**
+   * Instrument all classes that are not ignored, in order, on several threads. One thread reads the
+   * inputs, the workers parse, transform and serialize the classes, and the calling thread writes
+   * them to the output JAR in input order, so the output does not depend on the number of threads.
+   * At most window classes are between reading and writing at any time, which bounds the memory
+   * used.
+   *
+   * <p>The transformation runs concurrently on different classes, so it and the class hierarchy
+   * provider must be thread-safe.
+   */
+  protected final void internalInstrumentInParallel(
+      final ClassTransformation t, int threads, int window)
+      throws IOException, IllegalArgumentException {
+    if (t == null) {
+      throw new IllegalArgumentException("null t");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads < 1");
+    }
+    if (window < 1) {
+      throw new IllegalArgumentException("window < 1");
+    }
+    makeOutputJar();
+    final BlockingQueue<Future<Result>> inFlight = new ArrayBlockingQueue<>(window);
+    final ExecutorService workers = Executors.newFixedThreadPool(threads);
+    Thread reader =
+        new Thread("OfflineInstrumenter reader") {
+          @Override
+          public void run() {
+            try {
+              try {
+                for (int i = 0; i < inputs.size(); i++) {
+                  final Input in = inputs.get(i);
+                  if (ignoringInputs.get(i) || !in.isClass()) {
+                    continue;
+                  }
+                  final byte[] bytes = readInput(in);
+                  // blocks while the window is full
+                  inFlight.put(workers.submit(() -> instrument(t, in, bytes)));
+                }
+              } catch (InterruptedException | RejectedExecutionException e) {
+                // the writer gave up
+                return;
+              } catch (Throwable e) {
+                // hand the failure to the writer, which would otherwise wait for END forever
+                CompletableFuture<Result> failure = new CompletableFuture<>();
+                failure.completeExceptionally(e);
+                inFlight.put(failure);
+              }
+              inFlight.put(END);
+            } catch (InterruptedException e) {
+              // the writer gave up
+            }
+          }
+        };
+    reader.start();
+    try {
+      for (Future<Result> f = inFlight.take(); f != END; f = inFlight.take()) {
+        Result r;
+        try {
+          r = f.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          } else {
+            throw new IOException(cause);
+          }
+        }
+        r.input.setClassName(r.name);
+        if (r.bytes != null && !entryNames.contains(r.input.getInputName())) {
+          putNextEntry(new ZipEntry(r.input.getInputName()));
+          outputJar.write(r.bytes);
+          outputJar.closeEntry();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while instrumenting", e);
+    } finally {
+      reader.interrupt();
+      workers.shutdownNow();
+      // the reader may still be using the cached JAR file
+      try {
+        reader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Read the contents of an input. Only the reader thread opens inputs. */
+  private static byte[] readInput(Input in) throws IOException {
+    try (final InputStream s = in.open()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      copyStream(s, bytes);
+      return bytes.toByteArray();
+    }
+  }
+
+  private Result instrument(ClassTransformation t, Input in, byte[] bytes) throws IOException {
+    try {
+      Object cl =
+          makeClassFromStream(
+              in.getInputName(), new BufferedInputStream(new ByteArrayInputStream(bytes)));
+      String name = getClassName(cl);
+      Object mods = t.transform(cl);
+      if (mods == null) {
+        return new Result(in, name, null);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + bytes.length / 4);
+      writeClassTo(cl, mods, out);
+      return new Result(in, name, out.toByteArray());
+    } catch (Exception e) {
+      throw new IOException("Error instrumenting " + in + ": " + e.getMessage(), e);
+    }
+  }
+
   private static String toEntryName(String className) {
     return className.replace('.', '/') + ".class";
   }
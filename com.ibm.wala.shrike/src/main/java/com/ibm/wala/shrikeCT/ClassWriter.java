@@ -12,7 +12,12 @@ package com.ibm.wala.shrikeCT;
 
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ConstantPoolParser.ReferenceToken;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /** This class formats and writes class data into JVM format. */
@@ -47,10 +52,21 @@ public class ClassWriter implements ClassConstants {
   private boolean forceAddCPEntries = false;
 
   // output
+  private boolean emitted = false;
+
   private byte[] buf;
 
   private int bufLen;
 
+  /** size of a new output buffer, large enough for most classes */
+  private static final int INITIAL_BUF_SIZE = 8192;
+
+  /** output buffers larger than this are not kept for reuse */
+  private static final int MAX_POOLED_BUF_SIZE = 1 << 20;
+
+  /** the output buffer of the last class emitted by each thread, reused for the next one */
+  private static final ThreadLocal<byte[]> pooledBuf = new ThreadLocal<>();
+
   /**
    * Create a blank ClassWriter with no methods, fields, or attributes, an empty constant pool, no
    * super class, no implemented interfaces, no name, majorVersion 46, and minorVersion 0.
@@ -761,7 +777,7 @@ public class ClassWriter implements ClassConstants {
 
   private int reserveBuf(int size) {
     if (buf == null) {
-      buf = new byte[size];
+      buf = new byte[Math.max(size, INITIAL_BUF_SIZE)];
     } else if (bufLen + size > buf.length) {
       byte[] newBuf = new byte[Math.max(buf.length * 2, bufLen + size)];
       System.arraycopy(buf, 0, newBuf, 0, bufLen);
@@ -942,11 +958,11 @@ public class ClassWriter implements ClassConstants {
   }
 
   /**
-   * After you've added everything you need to the class, call this method to generate the actual
-   * class file data. This can only be called once.
+   * Generate the class file data into buf[0..bufLen), starting from the pooled buffer of this
+   * thread if there is one. Call releaseBuf() when done with the data.
    */
-  public byte[] makeBytes() throws IllegalArgumentException {
-    if (buf != null) {
+  private void emit() throws IllegalArgumentException {
+    if (emitted) {
       throw new IllegalArgumentException("Can't call makeBytes() twice");
     }
 
@@ -954,6 +970,11 @@ public class ClassWriter implements ClassConstants {
       throw new IllegalArgumentException("No class name set");
     }
 
+    emitted = true;
+    // take the buffer, so that nothing else on this thread uses it while we do
+    buf = pooledBuf.get();
+    pooledBuf.remove();
+
     reserveBuf(10);
     setInt(buf, 0, MAGIC);
     setUShort(buf, 4, minorVersion);
@@ -1002,13 +1023,56 @@ public class ClassWriter implements ClassConstants {
     for (Element classAttribute : classAttributes) {
       emitElement(classAttribute);
     }
+  }
 
-    if (buf.length == bufLen) {
-      return buf;
-    } else {
-      byte[] b = new byte[bufLen];
-      System.arraycopy(buf, 0, b, 0, bufLen);
-      return b;
+  private void releaseBuf() {
+    if (buf.length <= MAX_POOLED_BUF_SIZE) {
+      pooledBuf.set(buf);
+    }
+    buf = null;
+  }
+
+  /**
+   * After you've added everything you need to the class, call this method to generate the actual
+   * class file data. This can only be called once, and not together with writeTo().
+   */
+  public byte[] makeBytes() throws IllegalArgumentException {
+    emit();
+    byte[] b = Arrays.copyOf(buf, bufLen);
+    releaseBuf();
+    return b;
+  }
+
+  /**
+   * Generate the class file data like makeBytes(), and write it to s. The data is generated into a
+   * buffer that is reused for the next class this thread generates, so no array is allocated for
+   * the class. This can only be called once, and not together with makeBytes().
+   */
+  public void writeTo(OutputStream s) throws IllegalArgumentException, IOException {
+    if (s == null) {
+      throw new IllegalArgumentException("null s");
+    }
+    emit();
+    try {
+      s.write(buf, 0, bufLen);
+    } finally {
+      releaseBuf();
+    }
+  }
+
+  /** Like writeTo(OutputStream), but writes the class file data to a channel. */
+  public void writeTo(WritableByteChannel c) throws IllegalArgumentException, IOException {
+    if (c == null) {
+      throw new IllegalArgumentException("null c");
+    }
+    emit();
+    try {
+      ByteBuffer b = ByteBuffer.wrap(buf, 0, bufLen);
+      while (b.hasRemaining()) {
+        c.write(b);
+      }
+    } finally {
+      releaseBuf();
     }
   }
 
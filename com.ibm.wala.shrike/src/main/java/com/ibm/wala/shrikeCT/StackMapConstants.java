@@ -80,6 +80,11 @@ public class StackMapConstants {
       this.offset = Integer.parseInt(type.substring(1, type.lastIndexOf('#')));
     }
 
+    /** @return the bytecode offset of the new instruction that created the object */
+    public int getOffset() {
+      return offset;
+    }
+
     @Override
     public void write(OutputStream s, ClassWriter writer) throws IOException {
       Item.ITEM_Uninitalized.write(s, writer);
@@ -114,6 +119,14 @@ public class StackMapConstants {
       this.type = type;
     }
 
+    /**
+     * @return the class, either as in a class file (e.g. java/lang/String) or in JVM type format
+     *     (e.g. Ljava/lang/String;)
+     */
+    public String getType() {
+      return type;
+    }
+
     @Override
     public int size() {
       return Item.ITEM_Object.size();
@@ -40,14 +40,14 @@ public class StackMapTableReader extends AttributeReader {
       } else if (frameType < 128) {
         int offset = frameType - 64;
         StackMapType stack1 = item(ptr);
-        ptr += (stack1 instanceof ObjectType) ? 3 : 1;
+        ptr += stack1.isObject() ? 3 : 1;
         frames.add(
             new StackMapFrame(frameType, offset, new StackMapType[0], new StackMapType[] {stack1}));
       } else if (frameType == 247) {
         int offset = cr.getUShort(ptr);
         ptr += 2;
         StackMapType stack1 = item(ptr);
-        ptr += (stack1 instanceof ObjectType) ? 3 : 1;
+        ptr += stack1.isObject() ? 3 : 1;
         frames.add(
             new StackMapFrame(frameType, offset, new StackMapType[0], new StackMapType[] {stack1}));
       } else if (frameType >= 248 && frameType <= 250) {
@@ -64,7 +64,7 @@ public class StackMapTableReader extends AttributeReader {
         ptr += 2;
         for (int j = 0; j < locals.length; j++) {
           locals[j] = item(ptr);
-          ptr += (locals[j] instanceof ObjectType) ? 3 : 1;
+          ptr += locals[j].isObject() ? 3 : 1;
         }
         frames.add(new StackMapFrame(frameType, offset, locals, new StackMapType[0]));
       } else if (frameType == 255) {
@@ -76,7 +76,7 @@ public class StackMapTableReader extends AttributeReader {
         StackMapType[] locals = new StackMapType[numLocals];
         for (int j = 0; j < numLocals; j++) {
           locals[j] = item(ptr);
-          ptr += (locals[j] instanceof ObjectType) ? 3 : 1;
+          ptr += locals[j].isObject() ? 3 : 1;
         }
 
         int numStack = cr.getUShort(ptr);
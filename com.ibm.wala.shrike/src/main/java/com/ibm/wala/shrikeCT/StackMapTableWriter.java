@@ -10,10 +10,13 @@ import com.ibm.wala.shrikeBT.Compiler.Output;
 import com.ibm.wala.shrikeBT.GotoInstruction;
 import com.ibm.wala.shrikeBT.IInstruction;
 import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.NewInstruction;
+import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Analyzer;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyProvider;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
+import com.ibm.wala.shrikeBT.info.OriginalInstructions;
 import com.ibm.wala.shrikeCT.ClassWriter.Element;
 import com.ibm.wala.shrikeCT.StackMapConstants.Item;
 import com.ibm.wala.shrikeCT.StackMapConstants.ObjectType;
@@ -25,33 +28,35 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class StackMapTableWriter extends Element {
-  private final byte[] data;
-
-  public StackMapTableWriter(ClassWriter writer, List<StackMapFrame> frames) throws IOException {
-    this.data = serialize(writer, frames);
+  /** A byte array output stream that can copy its contents without making a new array. */
+  private static final class FrameBytes extends ByteArrayOutputStream {
+    int copyInto(byte[] dest, int offset) {
+      System.arraycopy(buf, 0, dest, offset, count);
+      return offset + count;
+    }
   }
 
-  private static byte[] serialize(ClassWriter writer, List<StackMapFrame> frames)
-      throws IOException {
-    ByteArrayOutputStream data = new ByteArrayOutputStream();
+  private final int nameIndex;
+
+  private final int numberOfFrames;
 
+  private final FrameBytes data;
+
+  public StackMapTableWriter(ClassWriter writer, List<StackMapFrame> frames) throws IOException {
+    this.data = new FrameBytes();
     for (StackMapFrame frame : frames) {
       frame.write(data, writer);
     }
-
-    ByteArrayOutputStream bs = new ByteArrayOutputStream();
-    writeUShort(bs, writer.addCPUtf8("StackMapTable"));
-    writeInt(bs, data.size() + 2);
-    writeUShort(bs, frames.size());
-    data.writeTo(bs);
-
-    return bs.toByteArray();
+    this.numberOfFrames = frames.size();
+    this.nameIndex = writer.addCPUtf8("StackMapTable");
   }
 
   public StackMapTableWriter(
@@ -140,21 +145,12 @@ public class StackMapTableWriter extends Element {
   }
 
   static void writeUByte(OutputStream s, int v) throws IOException {
-    byte bytes[] = new byte[1];
-    ClassWriter.setUByte(bytes, 0, v);
-    s.write(bytes);
+    s.write(v);
   }
 
   static void writeUShort(OutputStream s, int v) throws IOException {
-    byte bytes[] = new byte[2];
-    ClassWriter.setUShort(bytes, 0, v);
-    s.write(bytes);
-  }
-
-  static void writeInt(OutputStream s, int v) throws IOException {
-    byte bytes[] = new byte[4];
-    ClassWriter.setInt(bytes, 0, v);
-    s.write(bytes);
+    s.write(v >> 8);
+    s.write(v);
   }
 
   static StackMapType[] trim(StackMapType[] types) {
@@ -212,6 +208,176 @@ public class StackMapTableWriter extends Element {
     return false;
   }
 
+  /** @return the type of t in the format of {@link Analyzer}, or null if it has none */
+  private static String analyzerType(
+      StackMapType t, IInstruction[] insts, int[] instructionToBytecode, int[] offsetToNew) {
+    if (t == Item.ITEM_Top) {
+      return Analyzer.topType;
+    } else if (t == Item.ITEM_Integer) {
+      return TYPE_int;
+    } else if (t == Item.ITEM_Float) {
+      return TYPE_float;
+    } else if (t == Item.ITEM_Double) {
+      return TYPE_double;
+    } else if (t == Item.ITEM_Long) {
+      return TYPE_long;
+    } else if (t == Item.ITEM_Null) {
+      return TYPE_null;
+    } else if (t == Item.ITEM_UninitializedThis) {
+      return Analyzer.thisType;
+    } else if (t instanceof ObjectType) {
+      String type = ((ObjectType) t).getType();
+      return type.startsWith("[") || type.endsWith(";") ? type : 'L' + type + ';';
+    } else if (t instanceof UninitializedType) {
+      int offset = ((UninitializedType) t).getOffset();
+      int i = offset < offsetToNew.length ? offsetToNew[offset] : -1;
+      if (i == -1 || !(insts[i] instanceof NewInstruction)) {
+        return null;
+      }
+      return "#" + instructionToBytecode[i] + '#' + ((NewInstruction) insts[i]).getType();
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return types followed by values in the format of {@link Analyzer}, where longs and doubles
+   *     take two entries if they are locals; null if some type cannot be converted
+   */
+  private static String[] append(
+      String[] types,
+      StackMapType[] values,
+      boolean locals,
+      IInstruction[] insts,
+      int[] instructionToBytecode,
+      int[] offsetToNew) {
+    int size = types.length;
+    for (StackMapType t : values) {
+      size += locals ? t.size() : 1;
+    }
+    String[] result = Arrays.copyOf(types, size);
+    int j = types.length;
+    for (StackMapType t : values) {
+      String type = analyzerType(t, insts, instructionToBytecode, offsetToNew);
+      if (type == null) {
+        return null;
+      }
+      result[j] = type;
+      j += locals ? t.size() : 1;
+    }
+    return result;
+  }
+
+  /**
+   * Compute the types of an edited method by checking the stack map frames of its original code
+   * against the changed code, rather than by analyzing all of it. This needs the method to track
+   * its {@link OriginalInstructions}.
+   *
+   * @return false if the types have to be computed from scratch
+   */
+  private static boolean computeTypesFromFrames(
+      Verifier typeChecker, MethodData method, Output output, List<StackMapFrame> oldFrames)
+      throws FailureException {
+    int[] toOriginal = OriginalInstructions.getOriginalInstructions(method);
+    if (toOriginal == null) {
+      return false;
+    }
+    IInstruction[] insts = method.getInstructions();
+    int[] instructionToBytecode = output.getInstructionOffsets();
+    int[] toOldBytecode = method.getInstructionsToBytecodes();
+
+    // where the original instructions are now, and what may behave differently
+    BitSet changed = new BitSet(insts.length);
+    int maxOffset = 0;
+    for (int i = 0; i < insts.length; i++) {
+      if (toOriginal[i] == -1) {
+        changed.set(i);
+      } else {
+        maxOffset = Math.max(maxOffset, toOldBytecode[i]);
+        if (toOriginal[i] > 0 && (i == 0 || toOriginal[i - 1] != toOriginal[i] - 1)) {
+          // it is not reached from its original predecessor any more
+          changed.set(i);
+        }
+      }
+    }
+    int[] offsetToNew = new int[maxOffset + 1];
+    Arrays.fill(offsetToNew, -1);
+    for (int i = insts.length - 1; i >= 0; i--) {
+      if (toOriginal[i] != -1) {
+        offsetToNew[toOldBytecode[i]] = i;
+      }
+    }
+
+    // expand the frames, starting from the implicit frame of the method entry; frames with the
+    // same types share their arrays
+    String[] locals =
+        Util.getParamsTypesInLocals(
+            method.getIsStatic()
+                ? null
+                : method.getName().equals("<init>") ? Analyzer.thisType : method.getClassType(),
+            method.getSignature());
+    String[] noTypes = new String[0];
+    String[][] knownStacks = new String[insts.length][];
+    String[][] knownLocals = new String[insts.length][];
+    int offset = -1;
+    for (StackMapFrame frame : oldFrames) {
+      offset += frame.getOffset() + 1;
+      int type = frame.getFrameType();
+      String[] stack = noTypes;
+      if (type < 128 || type == 247) {
+        stack =
+            append(
+                noTypes, frame.getStackTypes(), false, insts, instructionToBytecode, offsetToNew);
+      } else if (type >= 248 && type <= 250) {
+        int size = locals.length;
+        for (int k = 251 - type; k > 0; k--) {
+          if (size == 0) {
+            return false;
+          }
+          size -= size > 1 && locals[size - 1] == null ? 2 : 1;
+        }
+        locals = Arrays.copyOf(locals, size);
+      } else if (type >= 252 && type <= 254) {
+        locals =
+            append(locals, frame.getLocalTypes(), true, insts, instructionToBytecode, offsetToNew);
+      } else if (type == 255) {
+        locals =
+            append(noTypes, frame.getLocalTypes(), true, insts, instructionToBytecode, offsetToNew);
+        stack =
+            append(
+                noTypes, frame.getStackTypes(), false, insts, instructionToBytecode, offsetToNew);
+        if (stack != null) {
+          // the top of the stack comes first for the Analyzer
+          Collections.reverse(Arrays.asList(stack));
+        }
+      } else if (type != 251) {
+        return false;
+      }
+      if (stack == null || locals == null) {
+        return false;
+      }
+
+      // the frame holds where the label of the original instruction is now, i.e. before any
+      // code inserted before the instruction
+      int i = offset < offsetToNew.length ? offsetToNew[offset] : -1;
+      if (i == -1) {
+        return false;
+      }
+      while (i > 0 && toOriginal[i - 1] == -1 && toOldBytecode[i - 1] == offset) {
+        if (offset == 0) {
+          // cannot tell code inserted at the method start from code inserted before 0
+          return false;
+        }
+        i--;
+      }
+      knownStacks[i] = stack;
+      knownLocals[i] = locals;
+    }
+
+    return typeChecker.computeTypesIncrementally(
+        output.getMaxStack(), output.getMaxLocals(), knownStacks, knownLocals, changed);
+  }
+
   public static List<StackMapFrame> stackMapTable(
       MethodData method,
       Output output,
@@ -219,8 +385,6 @@ public class StackMapTableWriter extends Element {
       String[][] vars,
       List<StackMapFrame> reuseFrames)
       throws FailureException {
-    int idx = 0;
-
     List<StackMapFrame> frames = new ArrayList<>();
 
     int[] instructionToBytecode = output.getInstructionOffsets();
@@ -230,7 +394,9 @@ public class StackMapTableWriter extends Element {
     if (cha != null) {
       typeChecker.setClassHierarchy(cha);
     }
-    typeChecker.computeTypes();
+    if (reuseFrames == null || !computeTypesFromFrames(typeChecker, method, output, reuseFrames)) {
+      typeChecker.computeTypes();
+    }
     BitSet bbs = typeChecker.getBasicBlockStarts();
 
     int offset = 0;
@@ -248,15 +414,6 @@ public class StackMapTableWriter extends Element {
         int frameOffset = offset == 0 ? position : position - offset - 1;
         offset = position;
 
-        if (reuseFrames != null) {
-          if (idx < reuseFrames.size() && reuseFrames.get(idx).getOffset() == frameOffset) {
-            frames.add(reuseFrames.get(idx++));
-            continue;
-          } else {
-            reuseFrames = null;
-          }
-        }
-
         // full frame
         byte frameType = (byte) 255;
 
@@ -287,12 +444,14 @@ public class StackMapTableWriter extends Element {
 
   @Override
   public int getSize() {
-    return data.length;
+    return data.size() + 8;
   }
 
   @Override
   public int copyInto(byte[] buf, int offset) {
-    System.arraycopy(data, 0, buf, offset + 0, data.length);
-    return data.length + offset;
+    ClassWriter.setUShort(buf, offset, nameIndex);
+    ClassWriter.setInt(buf, offset + 2, data.size() + 2);
+    ClassWriter.setUShort(buf, offset + 6, numberOfFrames);
+    return data.copyInto(buf, offset + 8);
   }
 }
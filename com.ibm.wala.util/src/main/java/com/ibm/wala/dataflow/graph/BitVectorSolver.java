@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.dataflow.graph;
 
+import com.ibm.wala.fixedpoint.impl.IWorklistStrategy;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 
 /** A {@link DataflowSolver} specialized for {@link BitVectorVariable}s */
@@ -19,6 +20,11 @@ public class BitVectorSolver<T> extends DataflowSolver<T, BitVectorVariable> {
     super(problem);
   }
 
+  public BitVectorSolver(
+      IKilldallFramework<T, BitVectorVariable> problem, IWorklistStrategy strategy) {
+    super(problem, strategy);
+  }
+
   @Override
   protected BitVectorVariable makeNodeVariable(T n, boolean IN) {
     return new BitVectorVariable();
@@ -11,6 +11,7 @@
 package com.ibm.wala.dataflow.graph;
 
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.IWorklistStrategy;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.util.collections.HashMapFactory;
@@ -44,6 +45,12 @@ public abstract class DataflowSolver<T, V extends IVariable<V>> extends DefaultF
     this.problem = problem;
   }
 
+  /** @param strategy governs the order in which the solver evaluates the dataflow equations */
+  public DataflowSolver(IKilldallFramework<T, V> problem, IWorklistStrategy strategy) {
+    this(problem);
+    setWorklistStrategy(strategy);
+  }
+
   /**
    * @param n a node
    * @return a fresh variable to represent the lattice value at the IN or OUT of n
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.graph;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Solves many independent dataflow problems, e.g. one {@link IKilldallFramework} per method, on a
+ * thread pool.
+ *
+ * <p>Each item is turned into a solver by the solver factory and solved on a worker thread. The
+ * factory itself also runs on the worker thread, so expensive setup such as IR construction is
+ * parallelized as well; anything it shares between items, like an IR cache, must be thread-safe.
+ *
+ * <p>The driver records the wall clock time spent creating and solving the problem for each item,
+ * which can be used to find items with pathological solve times (see {@link
+ * #printTimings(PrintStream, int)}).
+ *
+ * @param <K> type of the items, e.g. methods
+ * @param <S> type of the solvers
+ */
+public class ParallelDataflowDriver<K, S extends DataflowSolver<?, ?>> {
+
+  /** Creates an unsolved solver for an item, or returns null if there is nothing to solve. */
+  private final Function<? super K, ? extends S> solverFactory;
+
+  /** item -&gt; nanoseconds spent creating and solving its problem, for the last run */
+  private final Map<K, Long> solveTimes = new ConcurrentHashMap<>();
+
+  /** item -&gt; number of equations evaluated when solving its problem, for the last run */
+  private final Map<K, Integer> evaluations = new ConcurrentHashMap<>();
+
+  public ParallelDataflowDriver(Function<? super K, ? extends S> solverFactory) {
+    if (solverFactory == null) {
+      throw new IllegalArgumentException("null solverFactory");
+    }
+    this.solverFactory = solverFactory;
+  }
+
+  /**
+   * Solve the problems for all items.
+   *
+   * @return a map from item to its solved solver; items for which the factory returned null are
+   *     omitted
+   */
+  public Map<K, S> solve(Collection<K> items, ExecutorService executor, IProgressMonitor monitor)
+      throws CancelException {
+    return solve(items, executor, monitor, s -> s);
+  }
+
+  /**
+   * Solve the problems for all items, keeping only what extractResult computes from each solved
+   * solver. This avoids keeping all solvers alive until the last problem has been solved.
+   *
+   * @return a map from item to its result; items for which the factory or extractResult returned
+   *     null are omitted
+   */
+  public <R> Map<K, R> solve(
+      Collection<K> items,
+      ExecutorService executor,
+      final IProgressMonitor monitor,
+      Function<? super S, ? extends R> extractResult)
+      throws CancelException {
+    if (items == null) {
+      throw new IllegalArgumentException("null items");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("null executor");
+    }
+    if (extractResult == null) {
+      throw new IllegalArgumentException("null extractResult");
+    }
+    solveTimes.clear();
+    evaluations.clear();
+
+    List<K> keys = new ArrayList<>(items.size());
+    List<Future<R>> futures = new ArrayList<>(items.size());
+    for (final K item : items) {
+      keys.add(item);
+      futures.add(
+          executor.submit(
+              () -> {
+                MonitorUtil.throwExceptionIfCanceled(monitor);
+                long start = System.nanoTime();
+                S solver = solverFactory.apply(item);
+                R result = null;
+                if (solver != null) {
+                  solver.solve(monitor);
+                  evaluations.put(item, solver.getNumberOfEvaluations());
+                  result = extractResult.apply(solver);
+                }
+                solveTimes.put(item, System.nanoTime() - start);
+                return result;
+              }));
+    }
+
+    Map<K, R> result = HashMapFactory.make();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        R r = getResult(futures.get(i));
+        if (r != null) {
+          result.put(keys.get(i), r);
+        }
+      }
+    } finally {
+      for (Future<R> f : futures) {
+        f.cancel(true);
+      }
+    }
+    return result;
+  }
+
+  private static <R> R getResult(Future<R> f) throws CancelException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw CancelException.make("interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CancelException) {
+        throw (CancelException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    }
+  }
+
+  /** @return item -&gt; nanoseconds spent creating and solving its problem in the last run */
+  public Map<K, Long> getSolveTimes() {
+    return Collections.unmodifiableMap(solveTimes);
+  }
+
+  /** @return the n items of the last run that took longest, slowest first */
+  public List<K> getSlowest(int n) {
+    List<K> result = new ArrayList<>(solveTimes.keySet());
+    result.sort(Comparator.comparing((K k) -> solveTimes.get(k)).reversed());
+    return (result.size() > n) ? result.subList(0, n) : result;
+  }
+
+  /** Print the solve times of the n slowest items of the last run, slowest first. */
+  public void printTimings(PrintStream out, int n) {
+    long total = 0;
+    for (long t : solveTimes.values()) {
+      total += t;
+    }
+    out.println(
+        "solved " + solveTimes.size() + " problems in " + (total / 1000000) + "ms (cumulative)");
+    for (K item : getSlowest(n)) {
+      Integer evals = evaluations.get(item);
+      out.println(
+          "  "
+              + (solveTimes.get(item) / 1000000)
+              + "ms "
+              + (evals == null ? "" : evals + " evaluations ")
+              + item);
+    }
+  }
+}
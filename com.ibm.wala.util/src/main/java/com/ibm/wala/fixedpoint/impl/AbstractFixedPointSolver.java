@@ -87,8 +87,20 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** During verbose evaluation, holds the number of dataflow equations created */
   private int nCreated = 0;
 
+  /** How many times has the system been reordered? */
+  private int nReorderings = 0;
+
+  /** How many statements have been scheduled, counting those already on the worklist? */
+  private long nScheduled = 0;
+
+  /** The largest size the worklist has reached */
+  private int maxWorkListSize = 0;
+
+  /** governs the order in which statements are taken from the worklist */
+  private IWorklistStrategy worklistStrategy = WorklistStrategy.PRIORITY;
+
   /** worklist for the iterative solver */
-  protected Worklist workList = new Worklist();
+  protected IWorklist workList = new Worklist();
 
   /** A boolean which is initially true, but set to false after the first call to solve(); */
   private boolean firstSolve = true;
@@ -121,6 +133,11 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
     boolean globalChange = false;
 
+    // the counters describe this solve; the statements already scheduled are part of its work
+    nReorderings = 0;
+    nScheduled = workList.size();
+    maxWorkListSize = 0;
+
     if (firstSolve) {
       initForFirstSolve();
     }
@@ -129,14 +146,19 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       MonitorUtil.throwExceptionIfCanceled(monitor);
       orderStatements();
 
+      if (workList.size() > maxWorkListSize) {
+        maxWorkListSize = workList.size();
+      }
+
       // duplicate insertion detection
       AbstractStatement s = workList.takeStatement();
 
       if (DEBUG) {
         System.err.println(("Before evaluation " + s));
       }
-      byte code = s.evaluate();
+      byte code = evaluate(s);
       nEvaluated++;
+      statementEvaluated(s, code);
       if (verbose) {
         if (nEvaluated % getVerboseInterval() == 0) {
           performVerboseAction();
@@ -163,7 +185,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   public void performVerboseAction() {
     System.err.println("Evaluated " + nEvaluated);
     System.err.println("Created   " + nCreated);
-    System.err.println("Worklist  " + workList.size());
+    System.err.println("Worklist  " + workList.size() + " (" + worklistStrategy + ')');
     if (MORE_VERBOSE) {
       if (!workList.isEmpty()) {
         AbstractStatement<?, ?> s = workList.takeStatement();
@@ -218,6 +240,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
    * @param s the step to add
    */
   public void addToWorkList(AbstractStatement s) {
+    nScheduled++;
     workList.insertStatement(s);
   }
 
@@ -276,8 +299,10 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
   @SuppressWarnings("unchecked")
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
+    statementAdded(s);
     if (eager) {
-      byte code = s.evaluate();
+      byte code = evaluate(s);
+      statementEvaluated(s, code);
       if (verbose) {
         nEvaluated++;
         if (nEvaluated % getVerboseInterval() == 0) {
@@ -466,10 +491,14 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     }
     topologicalCounter = 0;
     evaluationsAtLastOrdering = nEvaluated;
+    nReorderings++;
   }
 
   /** */
   public void orderStatements() {
+    if (!worklistStrategy.usesTopologicalOrder()) {
+      return;
+    }
 
     if (nextOrderNumber > minSizeForTopSort) {
       if (((double) topologicalCounter / (double) nextOrderNumber) > topologicalGrowthFactor) {
@@ -487,17 +516,44 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** Re-order the step definitions. */
   private void reorder() {
     // drain the worklist
+    LinkedList<AbstractStatement> temp = drainWorkList();
+
+    // compute new ordering
+    getFixedPointSystem().reorder();
+
+    // re-populate worklist
+    workList = worklistStrategy.makeWorklist(getFixedPointSystem());
+    for (AbstractStatement s : temp) {
+      workList.insertStatement(s);
+    }
+  }
+
+  private LinkedList<AbstractStatement> drainWorkList() {
     LinkedList<AbstractStatement> temp = new LinkedList<>();
     while (!workList.isEmpty()) {
       AbstractStatement eq = workList.takeStatement();
       temp.add(eq);
     }
-    workList = new Worklist();
+    return temp;
+  }
 
-    // compute new ordering
-    getFixedPointSystem().reorder();
+  public IWorklistStrategy getWorklistStrategy() {
+    return worklistStrategy;
+  }
 
-    // re-populate worklist
+  /**
+   * Change the order in which statements are evaluated. Statements already on the worklist are
+   * carried over to a worklist built by the new strategy.
+   *
+   * @throws IllegalArgumentException if strategy is null
+   */
+  public void setWorklistStrategy(IWorklistStrategy strategy) {
+    if (strategy == null) {
+      throw new IllegalArgumentException("strategy is null");
+    }
+    LinkedList<AbstractStatement> temp = drainWorkList();
+    worklistStrategy = strategy;
+    workList = strategy.makeWorklist(getFixedPointSystem());
     for (AbstractStatement s : temp) {
       workList.insertStatement(s);
     }
@@ -547,6 +603,43 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     nEvaluated++;
   }
 
+  /** @return the number of times the system has been topologically reordered in the last solve */
+  public int getNumberOfReorderings() {
+    return nReorderings;
+  }
+
+  /**
+   * @return the number of times a statement has been scheduled for evaluation in the last solve,
+   *     including those that were already on the worklist
+   */
+  public long getNumberOfScheduledStatements() {
+    return nScheduled;
+  }
+
+  /** @return the largest number of statements the worklist has held at once in the last solve */
+  public int getMaxWorkListSize() {
+    return maxWorkListSize;
+  }
+
+  /**
+   * a method that will be called when a statement is added to the system, before it is evaluated.
+   * subclasses should override as desired.
+   */
+  protected void statementAdded(AbstractStatement<T, ?> s) {}
+
+  /**
+   * evaluate a statement. subclasses may override this to track which statement is being evaluated.
+   */
+  protected byte evaluate(AbstractStatement<T, ?> s) {
+    return s.evaluate();
+  }
+
+  /**
+   * a method that will be called after each evaluation of a statement, with the result of the
+   * evaluation. subclasses should override as desired.
+   */
+  protected void statementEvaluated(AbstractStatement<T, ?> s, byte code) {}
+
   /** a method that will be called every N evaluations. subclasses should override as desired. */
   protected void periodicMaintenance() {}
 
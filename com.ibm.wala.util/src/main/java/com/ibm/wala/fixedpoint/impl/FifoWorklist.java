@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * Worklist that hands out statements in first-in, first-out order. Statements are evaluated in the
+ * order in which they were (first) scheduled, i.e. breadth-first along the dependences.
+ */
+@SuppressWarnings("rawtypes")
+public class FifoWorklist implements IWorklist {
+
+  private final ArrayDeque<AbstractStatement> queue = new ArrayDeque<>();
+
+  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+
+  @Override
+  public boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return queue.size();
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    AbstractStatement result = queue.removeFirst();
+    contents.remove(result);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement s) {
+    if (contents.add(s)) {
+      queue.addLast(s);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import java.util.NoSuchElementException;
+
+/**
+ * A worklist of statements awaiting evaluation by a fixed-point solver. The order in which
+ * statements are taken is determined by the implementation; see {@link IWorklistStrategy}.
+ *
+ * <p>Implementations ignore the insertion of a statement that is already on the worklist.
+ */
+@SuppressWarnings("rawtypes")
+public interface IWorklist {
+
+  /** @return true iff there are no statements on the worklist */
+  boolean isEmpty();
+
+  /** @return the number of statements on the worklist */
+  int size();
+
+  /**
+   * Remove and return the next statement to evaluate.
+   *
+   * @throws NoSuchElementException if the worklist is empty
+   */
+  AbstractStatement takeStatement() throws NoSuchElementException;
+
+  /** Add a statement to the worklist, unless it is already present. */
+  void insertStatement(AbstractStatement s);
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.IFixedPointSystem;
+
+/**
+ * A policy for the order in which a fixed-point solver evaluates statements.
+ *
+ * @see WorklistStrategy for the built-in strategies
+ */
+public interface IWorklistStrategy {
+
+  /**
+   * Create an empty worklist. The solver calls this initially, and again each time it reorders the
+   * system (if {@link #usesTopologicalOrder()}).
+   *
+   * @param system the system whose statements will be placed on the worklist
+   */
+  IWorklist makeWorklist(IFixedPointSystem<?> system);
+
+  /**
+   * Does the worklist order depend on the order numbers computed by {@link
+   * IFixedPointSystem#reorder()}? If not, the solver never renumbers the system.
+   */
+  boolean usesTopologicalOrder();
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointSystem;
+import com.ibm.wala.fixpoint.IVariable;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Heap;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A worklist ordered by the strongly connected components of the statement dependence graph, in the
+ * spirit of Bourdoncle's recursive iteration strategy: a statement in an SCC that comes earlier in
+ * topological order is always taken before any statement of a later SCC, so each component is
+ * stabilized before its successors are evaluated. Within a component, statements are taken in
+ * reverse postorder of a depth-first traversal.
+ *
+ * <p>The ordering is computed once, when the worklist is created. Statements added to the system
+ * later are ordered after all known statements, by their order numbers.
+ *
+ * <p>F. Bourdoncle. Efficient chaotic iteration strategies with widenings. FMPA 1993.
+ */
+@SuppressWarnings("rawtypes")
+public class SCCWorklist implements IWorklist {
+
+  /** priority of each statement known at construction time; lower is taken first */
+  private final Map<AbstractStatement, Long> priority = HashMapFactory.make();
+
+  private final Entries heap = new Entries();
+
+  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+
+  public SCCWorklist(IFixedPointSystem<?> system) {
+    if (system == null) {
+      throw new IllegalArgumentException("system is null");
+    }
+    computePriorities(system);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return heap.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return heap.size();
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    AbstractStatement result = heap.take().statement;
+    contents.remove(result);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement s) {
+    if (contents.add(s)) {
+      Long p = priority.get(s);
+      long key = p != null ? p : (((long) Integer.MAX_VALUE) << 32) | s.getOrderNumber();
+      heap.insert(new Entry(s, key));
+    }
+  }
+
+  /**
+   * Number the statements with Tarjan's algorithm. Components are completed in reverse topological
+   * order, and the postorder of the same traversal gives the order within each component.
+   */
+  @SuppressWarnings("unchecked")
+  private void computePriorities(IFixedPointSystem system) {
+    Map<AbstractStatement, Integer> dfsIndex = HashMapFactory.make();
+    Map<AbstractStatement, Integer> lowLink = HashMapFactory.make();
+    Map<AbstractStatement, Integer> postorder = HashMapFactory.make();
+    Map<AbstractStatement, Integer> component = HashMapFactory.make();
+    ArrayDeque<AbstractStatement> sccStack = new ArrayDeque<>();
+    HashSet<AbstractStatement> onStack = HashSetFactory.make();
+    ArrayDeque<Frame> frames = new ArrayDeque<>();
+    int nComponents = 0;
+
+    for (Iterator<? extends INodeWithNumber> it = system.getStatements(); it.hasNext(); ) {
+      AbstractStatement root = (AbstractStatement) it.next();
+      if (dfsIndex.containsKey(root)) {
+        continue;
+      }
+      push(system, root, frames, dfsIndex, lowLink, sccStack, onStack);
+      while (!frames.isEmpty()) {
+        Frame f = frames.peek();
+        if (f.succs.hasNext()) {
+          AbstractStatement t = (AbstractStatement) f.succs.next();
+          if (!dfsIndex.containsKey(t)) {
+            push(system, t, frames, dfsIndex, lowLink, sccStack, onStack);
+          } else if (onStack.contains(t)) {
+            lowLink.put(f.s, Math.min(lowLink.get(f.s), dfsIndex.get(t)));
+          }
+        } else {
+          frames.pop();
+          postorder.put(f.s, postorder.size());
+          if (!frames.isEmpty()) {
+            AbstractStatement parent = frames.peek().s;
+            lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(f.s)));
+          }
+          if (lowLink.get(f.s).equals(dfsIndex.get(f.s))) {
+            AbstractStatement x;
+            do {
+              x = sccStack.pop();
+              onStack.remove(x);
+              component.put(x, nComponents);
+            } while (x != f.s);
+            nComponents++;
+          }
+        }
+      }
+    }
+
+    int n = postorder.size();
+    for (Map.Entry<AbstractStatement, Integer> e : component.entrySet()) {
+      long rank = nComponents - 1 - e.getValue();
+      long rpo = n - 1 - postorder.get(e.getKey());
+      priority.put(e.getKey(), (rank << 32) | rpo);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void push(
+      IFixedPointSystem system,
+      AbstractStatement s,
+      ArrayDeque<Frame> frames,
+      Map<AbstractStatement, Integer> dfsIndex,
+      Map<AbstractStatement, Integer> lowLink,
+      ArrayDeque<AbstractStatement> sccStack,
+      HashSet<AbstractStatement> onStack) {
+    int index = dfsIndex.size();
+    dfsIndex.put(s, index);
+    lowLink.put(s, index);
+    sccStack.push(s);
+    onStack.add(s);
+    IVariable lhs = s.getLHS();
+    Iterator<? extends INodeWithNumber> succs =
+        lhs == null ? EmptyIterator.<INodeWithNumber>instance() : system.getStatementsThatUse(lhs);
+    frames.push(new Frame(s, succs));
+  }
+
+  private static class Frame {
+    final AbstractStatement s;
+
+    final Iterator<? extends INodeWithNumber> succs;
+
+    Frame(AbstractStatement s, Iterator<? extends INodeWithNumber> succs) {
+      this.s = s;
+      this.succs = succs;
+    }
+  }
+
+  private static class Entry {
+    final AbstractStatement statement;
+
+    final long key;
+
+    Entry(AbstractStatement statement, long key) {
+      this.statement = statement;
+      this.key = key;
+    }
+  }
+
+  private static class Entries extends Heap<Entry> {
+    Entries() {
+      super(100);
+    }
+
+    @Override
+    protected boolean compareElements(Entry elt1, Entry elt2) {
+      return elt1.key < elt2.key;
+    }
+  }
+}
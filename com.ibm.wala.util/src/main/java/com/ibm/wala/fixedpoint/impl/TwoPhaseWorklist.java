@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Heap;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * A worklist that iterates in rounds. Statements scheduled while a round is in progress are
+ * deferred to the next round, rather than interleaved with the statements of the current one.
+ * Within a round, statements are taken in order of their order numbers.
+ *
+ * <p>This approximates round-robin iteration over the topological order, without visiting
+ * statements that have no changed inputs.
+ */
+@SuppressWarnings("rawtypes")
+public class TwoPhaseWorklist implements IWorklist {
+
+  /** statements of the round in progress */
+  private OrderedStatements current = new OrderedStatements();
+
+  /** statements deferred to the next round */
+  private OrderedStatements next = new OrderedStatements();
+
+  /** statements in either current or next */
+  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+
+  /** number of rounds started so far */
+  private int rounds = 0;
+
+  @Override
+  public boolean isEmpty() {
+    return current.isEmpty() && next.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return current.size() + next.size();
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    if (current.isEmpty()) {
+      OrderedStatements tmp = current;
+      current = next;
+      next = tmp;
+      rounds++;
+    }
+    AbstractStatement result = current.take();
+    contents.remove(result);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement s) {
+    if (contents.add(s)) {
+      next.insert(s);
+    }
+  }
+
+  /** @return the number of rounds started so far */
+  public int getNumberOfRounds() {
+    return rounds;
+  }
+
+  private static class OrderedStatements extends Heap<AbstractStatement> {
+    OrderedStatements() {
+      super(100);
+    }
+
+    @Override
+    protected boolean compareElements(AbstractStatement eq1, AbstractStatement eq2) {
+      return eq1.getOrderNumber() < eq2.getOrderNumber();
+    }
+  }
+}
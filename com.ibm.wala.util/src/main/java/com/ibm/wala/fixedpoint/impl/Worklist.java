@@ -16,9 +16,12 @@ import com.ibm.wala.util.collections.Heap;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 
-/** Worklist for fixed-point solver implementation */
+/**
+ * Worklist for fixed-point solver implementation. Statements are taken in order of their order
+ * numbers, as assigned by the most recent topological reordering of the system.
+ */
 @SuppressWarnings("rawtypes")
-public class Worklist extends Heap<AbstractStatement> {
+public class Worklist extends Heap<AbstractStatement> implements IWorklist {
 
   private final HashSet<AbstractStatement> contents = HashSetFactory.make();
 
@@ -31,12 +34,14 @@ public class Worklist extends Heap<AbstractStatement> {
     return (eq1.getOrderNumber() < eq2.getOrderNumber());
   }
 
+  @Override
   public AbstractStatement takeStatement() throws NoSuchElementException {
     AbstractStatement result = super.take();
     contents.remove(result);
     return result;
   }
 
+  @Override
   public void insertStatement(AbstractStatement eq) {
     if (contents.add(eq)) {
       super.insert(eq);
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.IFixedPointSystem;
+
+/** The built-in {@link IWorklistStrategy}s. */
+public enum WorklistStrategy implements IWorklistStrategy {
+
+  /**
+   * The default: a priority queue keyed by the order numbers of a topological ordering, which is
+   * recomputed as the system grows. See {@link Worklist}.
+   */
+  PRIORITY(true) {
+    @Override
+    public IWorklist makeWorklist(IFixedPointSystem<?> system) {
+      return new Worklist();
+    }
+  },
+
+  /** first-in, first-out. See {@link FifoWorklist}. */
+  FIFO(false) {
+    @Override
+    public IWorklist makeWorklist(IFixedPointSystem<?> system) {
+      return new FifoWorklist();
+    }
+  },
+
+  /** last-in, first-out. See {@link LifoWorklist}. */
+  LIFO(false) {
+    @Override
+    public IWorklist makeWorklist(IFixedPointSystem<?> system) {
+      return new LifoWorklist();
+    }
+  },
+
+  /**
+   * strongly connected components in topological order, reverse postorder within each component.
+   * See {@link SCCWorklist}.
+   */
+  SCC(true) {
+    @Override
+    public IWorklist makeWorklist(IFixedPointSystem<?> system) {
+      return new SCCWorklist(system);
+    }
+  },
+
+  /** rounds over the topological order. See {@link TwoPhaseWorklist}. */
+  TWO_PHASE(true) {
+    @Override
+    public IWorklist makeWorklist(IFixedPointSystem<?> system) {
+      return new TwoPhaseWorklist();
+    }
+  };
+
+  private final boolean topological;
+
+  WorklistStrategy(boolean topological) {
+    this.topological = topological;
+  }
+
+  @Override
+  public boolean usesTopologicalOrder() {
+    return topological;
+  }
+}